@@ -0,0 +1,149 @@
+package com.github.jimorc.trilliumshowfx;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * BKTree is a Burkhard-Keller tree of 64-bit hashes, searched by Hamming distance. Each child of
+ * a node is stored under its distance from the node, so a search only descends into children
+ * whose distance is within maxDistance of the query's distance from the node. For small
+ * maxDistance, this visits a small part of the tree.
+ *
+ * ```java
+ * BKTree<String> tree = new BKTree<>();
+ * tree.add(hash, path);
+ * List<BKTree.Match<String>> matches = tree.search(otherHash, 10);
+ * ```
+ * @param <T> the type of value stored with each hash.
+ */
+final class BKTree<T> {
+    private Node<T> root;
+    private int size;
+    // the number of nodes visited by the last search.
+    private int visited;
+
+    /**
+     * Add a hash and its value. The same hash may be added more than once with different values.
+     * @param hash the hash.
+     * @param value the value.
+     */
+    void add(long hash, T value) {
+        size++;
+        if (root == null) {
+            root = new Node<>(hash, value);
+            return;
+        }
+        Node<T> node = root;
+        while (true) {
+            int d = distance(hash, node.hash);
+            Node<T> child = node.children.get(d);
+            if (child == null) {
+                node.children.put(d, new Node<>(hash, value));
+                return;
+            }
+            node = child;
+        }
+    }
+
+    /**
+     * Find the values whose hashes are within maxDistance of a hash.
+     * @param hash the hash to search for.
+     * @param maxDistance the largest number of bits that may differ.
+     * @return the matches, in no particular order.
+     */
+    List<Match<T>> search(long hash, int maxDistance) {
+        List<Match<T>> matches = new ArrayList<>();
+        visited = 0;
+        if (root == null) {
+            return matches;
+        }
+        Deque<Node<T>> pending = new ArrayDeque<>();
+        pending.push(root);
+        while (!pending.isEmpty()) {
+            Node<T> node = pending.pop();
+            visited++;
+            int d = distance(hash, node.hash);
+            if (d <= maxDistance) {
+                matches.add(new Match<>(node.hash, node.value, d));
+            }
+            for (Map.Entry<Integer, Node<T>> child : node.children.entrySet()) {
+                if (Math.abs(child.getKey() - d) <= maxDistance) {
+                    pending.push(child.getValue());
+                }
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Retrieve the number of hashes in the tree.
+     * @return the number of hashes.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Retrieve the number of nodes that the last search compared with its query.
+     * @return the number of nodes visited.
+     */
+    int getVisitedCount() {
+        return visited;
+    }
+
+    /**
+     * Calculate the Hamming distance between two hashes.
+     * @param a a hash.
+     * @param b another hash.
+     * @return the number of bits that differ.
+     */
+    static int distance(long a, long b) {
+        return Long.bitCount(a ^ b);
+    }
+
+    /**
+     * Match is a value found by search, with its hash and the distance of its hash from the query.
+     * @param <T> the type of value.
+     */
+    static final class Match<T> {
+        private final long hash;
+        private final T value;
+        private final int distance;
+
+        private Match(long hash, T value, int distance) {
+            this.hash = hash;
+            this.value = value;
+            this.distance = distance;
+        }
+
+        long getHash() {
+            return hash;
+        }
+
+        T getValue() {
+            return value;
+        }
+
+        int getDistance() {
+            return distance;
+        }
+    }
+
+    /**
+     * Node holds a hash, its value, and its children keyed by distance.
+     */
+    private static final class Node<T> {
+        private final long hash;
+        private final T value;
+        private final Map<Integer, Node<T>> children = new HashMap<>();
+
+        private Node(long hash, T value) {
+            this.hash = hash;
+            this.value = value;
+        }
+    }
+}
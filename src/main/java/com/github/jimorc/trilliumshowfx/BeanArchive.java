@@ -0,0 +1,449 @@
+package com.github.jimorc.trilliumshowfx;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.tinylog.Logger;
+
+/**
+ * BeanArchive is a persistent, append-only store of FlexiBean rows from many events.
+ *
+ * Each event's CSV file is imported through MappedCSVReader and appended to a single data file.
+ * Every record holds the event name, the event time, and the five FlexiBean fields. Indexes on
+ * full name, filename and event map each key to the file offsets of the matching records; only
+ * these keys and offsets are held in the heap. Lookups read the matching records from a
+ * memory mapping of the data file, so the archive is never loaded into the heap as a whole.
+ * The mapping is doubled in size when an append outgrows it, so a series of appends remaps the
+ * file only a few times; the data file is extended to the size of the mapping while the archive
+ * is open, and cut back to its last record when the archive is closed.
+ *
+ * The indexes are saved to an index file next to the data file when the archive is closed, and
+ * loaded when it is opened; only the records appended after they were saved are read. If there
+ * is no index file, or it does not end at a record of the data file, the indexes are rebuilt from
+ * the whole data file. If an append was cut short, the data file is truncated back to the last
+ * complete record. The mapping is shared, so a BeanArchive may be opened on one thread and used
+ * on another, but it should only be used by one thread at a time.
+ *
+ * ```java
+ * try (BeanArchive archive = new BeanArchive(Path.of("archive.dat"))) {
+ *     archive.importCSV(csvFile, "2025 Theme Night 3", eventTime);
+ *     FlexiBeans entries = archive.findByFullName("Fred Flintstone", fiveYearsAgo);
+ * }
+ * ```
+ */
+public class BeanArchive implements Closeable {
+    private static final int MAGIC = 0x54534641;    // "TSFA"
+    private static final int INDEX_MAGIC = 0x54534649;    // "TSFI"
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int HEADER_SIZE = Integer.BYTES;
+    private static final int FIELDS_PER_RECORD = 6;
+    private static final int NULL_LENGTH = -1;
+    // DataOutputStream writes big-endian values.
+    private static final ValueLayout.OfInt INT = ValueLayout.JAVA_INT_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+    private static final ValueLayout.OfLong LONG = ValueLayout.JAVA_LONG_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+
+    private final FileChannel channel;
+    private final Path indexFile;
+    private final Map<String, List<Long>> fullNameIndex = new HashMap<>();
+    private final Map<String, List<Long>> filenameIndex = new HashMap<>();
+    private final Map<String, List<Long>> eventIndex = new HashMap<>();
+    private Arena arena;
+    private MemorySegment mapping;
+    // the size of the mapping, which may extend past the last record.
+    private long capacity;
+    private long size;
+    // the offset of the last record, or 0 if there are none.
+    private long lastRecord;
+    // true if the indexes have changed since they were loaded or saved.
+    private boolean indexesChanged;
+
+    /**
+     * Constructor opens or creates an archive. The data file is closed again if it cannot be
+     * opened as an archive.
+     * @param dataFile the archive's data file.
+     * @throws IOException if the data file cannot be opened or is not an archive.
+     */
+    public BeanArchive(Path dataFile) throws IOException {
+        indexFile = dataFile.resolveSibling(dataFile.getFileName() + ".idx");
+        channel = FileChannel.open(dataFile, StandardOpenOption.CREATE, StandardOpenOption.READ,
+            StandardOpenOption.WRITE);
+        try {
+            open(dataFile);
+        } catch (IOException | RuntimeException e) {
+            try {
+                close();
+            } catch (IOException ioe) {
+                e.addSuppressed(ioe);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Import a CSV file as an event. The rows are appended to the archive.
+     * @param csvF the CSV file to import.
+     * @param event the name of the event.
+     * @param eventTime the time of the event, in milliseconds since the epoch. This is the time
+     *                  that findByFullName compares with, so it should be the date the event was
+     *                  held rather than the time of the import.
+     * @return the number of rows imported.
+     * @throws BadHeaderException if the CSV file has no header line.
+     * @throws CSVException if the CSV file contains invalid data.
+     * @throws IOException if the CSV file cannot be read or the archive cannot be written.
+     */
+    public int importCSV(File csvF, String event, long eventTime)
+            throws BadHeaderException, CSVException, IOException {
+        return append(MappedCSVReader.read(csvF), event, eventTime);
+    }
+
+    /**
+     * Append FlexiBeans to the archive as an event.
+     * @param beans the FlexiBeans to append.
+     * @param event the name of the event.
+     * @param timestamp the time of the event, in milliseconds since the epoch.
+     * @return the number of rows appended.
+     * @throws IOException if the archive cannot be written.
+     */
+    public int append(FlexiBeans beans, String event, long timestamp) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        List<Long> offsets = new ArrayList<>();
+        for (FlexiBean bean : beans.getBeans()) {
+            offsets.add(size + out.size());
+            writeRecord(out, bean, event, timestamp);
+        }
+        channel.write(ByteBuffer.wrap(bytes.toByteArray()), size);
+        channel.force(false);
+        size += out.size();
+        if (size > capacity) {
+            remap(Math.max(size, 2 * capacity));
+        }
+        for (long offset : offsets) {
+            index(offset);
+        }
+        Logger.debug("Appended {} rows for event {} to archive", offsets.size(), event);
+        return offsets.size();
+    }
+
+    /**
+     * Find all rows for a person.
+     * @param fullName the person's full name.
+     * @param since only rows from events at or after this time, in milliseconds since the epoch,
+     *              are returned.
+     * @return the matching rows, in the order they were added.
+     */
+    public FlexiBeans findByFullName(String fullName, long since) {
+        return find(fullNameIndex, fullName, since);
+    }
+
+    /**
+     * Find all rows for an image filename.
+     * @param filename the image filename.
+     * @return the matching rows, in the order they were added.
+     */
+    public FlexiBeans findByFilename(String filename) {
+        return find(filenameIndex, filename, Long.MIN_VALUE);
+    }
+
+    /**
+     * Find all rows for an event.
+     * @param event the event name.
+     * @return the matching rows, in the order they were added.
+     */
+    public FlexiBeans findByEvent(String event) {
+        return find(eventIndex, event, Long.MIN_VALUE);
+    }
+
+    /**
+     * Retrieve the names of all events in the archive.
+     * @return list of event names.
+     */
+    public List<String> getEvents() {
+        return new ArrayList<>(eventIndex.keySet());
+    }
+
+    /**
+     * Close the archive, saving the indexes and releasing the mapping and the data file. A failure
+     * to save the indexes is logged, because they are rebuilt when the archive is next opened.
+     * @throws IOException if the data file cannot be cut back to its last record or closed.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (arena != null) {
+                if (indexesChanged) {
+                    saveIndexes();
+                }
+                arena.close();
+                arena = null;
+                if (capacity > size) {
+                    channel.truncate(size);
+                }
+            }
+        } finally {
+            channel.close();
+        }
+    }
+
+    private FlexiBeans find(Map<String, List<Long>> index, String key, long since) {
+        FlexiBeans beans = new FlexiBeans();
+        for (long offset : index.getOrDefault(key, List.of())) {
+            if (mapping.get(LONG, offset + Integer.BYTES) >= since) {
+                beans.append(readBean(offset));
+            }
+        }
+        return beans;
+    }
+
+    // Record layout: int record length, long timestamp, then the event, filename, title,
+    // full name, first name and last name, each as an int byte length (-1 for null) followed
+    // by the UTF-8 bytes.
+    private static void writeRecord(DataOutputStream out, FlexiBean bean, String event, long timestamp)
+            throws IOException {
+        String[] fields = {event, bean.getFilename(), bean.getTitle(), bean.getFullName(),
+            bean.getFirstName(), bean.getLastName()};
+        byte[][] encoded = new byte[FIELDS_PER_RECORD][];
+        int length = Integer.BYTES + Long.BYTES;
+        for (int i = 0; i < FIELDS_PER_RECORD; i++) {
+            encoded[i] = fields[i] == null ? null : fields[i].getBytes(StandardCharsets.UTF_8);
+            length += Integer.BYTES + (encoded[i] == null ? 0 : encoded[i].length);
+        }
+        out.writeInt(length);
+        out.writeLong(timestamp);
+        for (byte[] field : encoded) {
+            out.writeInt(field == null ? NULL_LENGTH : field.length);
+            if (field != null) {
+                out.write(field);
+            }
+        }
+    }
+
+    private FlexiBean readBean(long offset) {
+        String[] fields = readFields(offset);
+        FlexiBean bean = new FlexiBean();
+        bean.setFilename(fields[1]);
+        bean.setTitle(fields[2]);
+        bean.setFullName(fields[3]);
+        bean.setFirstName(fields[4]);
+        bean.setLastName(fields[5]);
+        return bean;
+    }
+
+    // Returns the fields of the record at offset, or null if the record is incomplete or its
+    // field lengths do not add up to the record length.
+    private String[] readFields(long offset) {
+        if (offset + Integer.BYTES > size) {
+            return null;
+        }
+        long end = offset + mapping.get(INT, offset);
+        long p = offset + Integer.BYTES + Long.BYTES;
+        if (end < p || end > size) {
+            return null;
+        }
+        String[] fields = new String[FIELDS_PER_RECORD];
+        for (int i = 0; i < FIELDS_PER_RECORD; i++) {
+            if (p + Integer.BYTES > end) {
+                return null;
+            }
+            int length = mapping.get(INT, p);
+            p += Integer.BYTES;
+            if (length < NULL_LENGTH || p + length > end) {
+                return null;
+            }
+            if (length != NULL_LENGTH) {
+                byte[] bytes = mapping.asSlice(p, length).toArray(ValueLayout.JAVA_BYTE);
+                fields[i] = new String(bytes, StandardCharsets.UTF_8);
+                p += length;
+            }
+        }
+        return p == end ? fields : null;
+    }
+
+    private void open(Path dataFile) throws IOException {
+        size = channel.size();
+        if (size == 0) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).flip();
+            channel.write(header, 0);
+            size = HEADER_SIZE;
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        if (size < HEADER_SIZE || channel.read(header, 0) < HEADER_SIZE || header.flip().getInt() != MAGIC) {
+            throw new IOException(dataFile + " is not a bean archive");
+        }
+        remap(size);
+        indexRecords(loadIndexes());
+    }
+
+    // Indexes each complete record from offset on, and truncates the data file after the last one.
+    // Zero bytes after the last record are space that was mapped but not used before a crash.
+    private void indexRecords(long offset) throws IOException {
+        while (offset < size) {
+            String[] fields = readFields(offset);
+            if (fields == null) {
+                if (offset + Integer.BYTES > size || mapping.get(INT, offset) != 0) {
+                    Logger.warn("Truncating bean archive: {} bytes at offset {} are not a complete record",
+                        size - offset, offset);
+                }
+                channel.truncate(offset);
+                channel.force(false);
+                size = offset;
+                remap(size);
+                return;
+            }
+            index(offset, fields);
+            offset += mapping.get(INT, offset);
+        }
+    }
+
+    // Loads the indexes saved when the archive was last closed. Returns the offset of the first
+    // record that they do not cover, or HEADER_SIZE if there is no usable index file.
+    private long loadIndexes() {
+        if (!Files.isRegularFile(indexFile)) {
+            return HEADER_SIZE;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                Files.newInputStream(indexFile), BUFFER_SIZE))) {
+            if (in.readInt() != INDEX_MAGIC) {
+                throw new IOException("Not an archive index");
+            }
+            long indexedSize = in.readLong();
+            long last = in.readLong();
+            if (!isRecordEnd(last, indexedSize)) {
+                Logger.info("Archive index {} does not match the data file and will be rebuilt", indexFile);
+                return HEADER_SIZE;
+            }
+            long indexSize = Files.size(indexFile);
+            readIndex(in, eventIndex, indexSize);
+            readIndex(in, filenameIndex, indexSize);
+            readIndex(in, fullNameIndex, indexSize);
+            lastRecord = last;
+            return indexedSize;
+        } catch (IOException ioe) {
+            Logger.warn(ioe, "Ignoring unreadable archive index {}", indexFile);
+            eventIndex.clear();
+            filenameIndex.clear();
+            fullNameIndex.clear();
+            return HEADER_SIZE;
+        }
+    }
+
+    // Returns true if the record at last is complete and ends at end.
+    private boolean isRecordEnd(long last, long end) {
+        if (last == 0) {
+            return end == HEADER_SIZE;
+        }
+        return last >= HEADER_SIZE && readFields(last) != null && last + mapping.get(INT, last) == end;
+    }
+
+    // Saves the indexes to a temporary file, and replaces the index file with it.
+    private void saveIndexes() {
+        try {
+            Path temp = Files.createTempFile(indexFile.toAbsolutePath().getParent(),
+                indexFile.getFileName().toString(), ".tmp");
+            try {
+                try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                        Files.newOutputStream(temp), BUFFER_SIZE))) {
+                    out.writeInt(INDEX_MAGIC);
+                    out.writeLong(size);
+                    out.writeLong(lastRecord);
+                    writeIndex(out, eventIndex);
+                    writeIndex(out, filenameIndex);
+                    writeIndex(out, fullNameIndex);
+                }
+                Files.move(temp, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+            indexesChanged = false;
+        } catch (IOException ioe) {
+            Logger.warn(ioe, "Unable to save archive index {}", indexFile);
+        }
+    }
+
+    // Index layout: int key count, then for each key its int byte length and UTF-8 bytes, an int
+    // offset count and the long offsets.
+    private static void writeIndex(DataOutputStream out, Map<String, List<Long>> index) throws IOException {
+        out.writeInt(index.size());
+        for (Map.Entry<String, List<Long>> entry : index.entrySet()) {
+            byte[] key = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            out.writeInt(key.length);
+            out.write(key);
+            out.writeInt(entry.getValue().size());
+            for (long offset : entry.getValue()) {
+                out.writeLong(offset);
+            }
+        }
+    }
+
+    private static void readIndex(DataInputStream in, Map<String, List<Long>> index, long indexSize)
+            throws IOException {
+        int keys = readCount(in, indexSize);
+        for (int k = 0; k < keys; k++) {
+            byte[] key = new byte[readCount(in, indexSize)];
+            in.readFully(key);
+            int count = readCount(in, indexSize);
+            List<Long> offsets = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                offsets.add(in.readLong());
+            }
+            index.put(new String(key, StandardCharsets.UTF_8), offsets);
+        }
+    }
+
+    // Reads a count or length, which cannot be larger than the index file itself.
+    private static int readCount(DataInputStream in, long indexSize) throws IOException {
+        int count = in.readInt();
+        if (count < 0 || count > indexSize) {
+            throw new IOException("Corrupt archive index: invalid count " + count);
+        }
+        return count;
+    }
+
+    private void index(long offset) {
+        index(offset, readFields(offset));
+    }
+
+    private void index(long offset, String[] fields) {
+        lastRecord = offset;
+        indexesChanged = true;
+        addToIndex(eventIndex, fields[0], offset);
+        addToIndex(filenameIndex, fields[1], offset);
+        addToIndex(fullNameIndex, fields[3], offset);
+    }
+
+    private static void addToIndex(Map<String, List<Long>> index, String key, long offset) {
+        if (key != null) {
+            index.computeIfAbsent(key, _ -> new ArrayList<>()).add(offset);
+        }
+    }
+
+    // Maps the first newCapacity bytes of the data file, extending the file if it is smaller.
+    private void remap(long newCapacity) throws IOException {
+        if (arena != null) {
+            arena.close();
+        }
+        arena = Arena.ofShared();
+        capacity = newCapacity;
+        mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, capacity, arena);
+    }
+}
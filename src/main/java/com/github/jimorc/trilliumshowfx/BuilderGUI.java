@@ -1,7 +1,7 @@
 package com.github.jimorc.trilliumshowfx;
 
 import java.io.IOException;
-import java.util.ArrayList;
+import java.util.Map;
 import javafx.application.Application;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Alert.AlertType;
@@ -21,25 +21,25 @@ public class BuilderGUI extends Application {
         startStage.showAndWait();
         Logger.trace("Have returned from StartStage.");
         InputCSV iCSV = startStage.getInputCSV();
-        try {
-            iCSV.validateCSVFile();
-        } catch (CSVException ce) {
-            Logger.error(BuilderGUI.buildLogMessage(
-                "validateCSVFile threw CSVException: ", ce.getMessage()));
-            BuilderGUI.handleCSVException(ce);
-        }
+        validate(iCSV);
 
         TitleAndSortStage tsStage = new TitleAndSortStage();
         tsStage.showAndWait();
         TitleAndSortData data = tsStage.getData();
+        // the CSV file may still have been written while the titles and order were chosen.
+        refreshCSV(iCSV);
         Logger.debug(BuilderGUI.buildLogMessage(
             "TitleAndSortData after return from TitleAndSortStage: ", data.toString()));
+        if (data.getShowColumn() != null) {
+            generateShows(iCSV, data);
+            System.exit(0);
+        }
 
         OutputCSV out = generateOutputCSV(iCSV, data);
         Logger.debug(BuilderGUI.buildLogMessage(
             "OutputCSV after creation:\n", out.toString()));
         Logger.trace("Creating outCSVStage");
-        OutputCSVStage outCSVStage = new OutputCSVStage(out, iCSV.getFileDir());
+        OutputCSVStage outCSVStage = new OutputCSVStage(out, iCSV);
         outCSVStage.showAndWait();
         Logger.trace("Back from OutputCSVStage");
         System.exit(0);
@@ -49,6 +49,54 @@ public class BuilderGUI extends Application {
         launch(args);
     }
 
+    private static void validate(InputCSV csv) {
+        try {
+            csv.validateCSVFile();
+        } catch (CSVException ce) {
+            Logger.error(BuilderGUI.buildLogMessage(
+                "validateCSVFile threw CSVException: ", ce.getMessage()));
+            BuilderGUI.handleCSVException(ce);
+        }
+        ImageCheckStage imageCheckStage = new ImageCheckStage(csv);
+        imageCheckStage.showAndWait();
+        if (imageCheckStage.getException() instanceof CSVException ce) {
+            Logger.error(BuilderGUI.buildLogMessage(
+                "validateImages threw CSVException: ", ce.getMessage()));
+            BuilderGUI.handleCSVException(ce);
+        }
+        if (csv.getValidationReport().hasWarnings()) {
+            BuilderGUI.showValidationWarnings(csv.getValidationReport());
+        }
+    }
+
+    // Reads rows added to the CSV file since it was loaded, and validates the file again if any were.
+    private static void refreshCSV(InputCSV csv) {
+        csv.addChangeListener(new CSVChangeListener() {
+            @Override
+            public void rowsAppended(InputCSV c, int firstRow, int count) {
+                Logger.info("{} rows were added to {} after it was loaded", count, c.getFileName());
+            }
+
+            @Override
+            public void csvReloaded(InputCSV c) {
+                Logger.info("{} was rewritten after it was loaded, and has been read again", c.getFileName());
+            }
+        });
+        try {
+            if (csv.refresh() > 0) {
+                validate(csv);
+            }
+        } catch (BadHeaderException bhe) {
+            handleBadHeaderException(bhe);
+        } catch (CSVException ce) {
+            Logger.error("CSVException thrown refreshing CSV file: ", ce);
+            handleCSVException(ce);
+        } catch (IOException ioe) {
+            Logger.error("IOException thrown refreshing CSV file: ", ioe);
+            handleIOException(ioe, csv);
+        }
+    }
+
     /**
      * handleCSVException displays an error alert.
      * @param csve the CSVException to report.
@@ -64,6 +112,18 @@ public class BuilderGUI extends Application {
         System.exit(1);
     }
 
+    /**
+     * showValidationWarnings displays a warning alert listing problems that do not stop processing.
+     * @param report the ValidationReport to display.
+     */
+    protected static void showValidationWarnings(ValidationReport report) {
+        Alert alert = new Alert(AlertType.WARNING);
+        alert.setTitle("CSV File Warning");
+        alert.setHeaderText("Problems were found in the CSV file");
+        alert.setContentText(report.toString());
+        alert.showAndWait();
+    }
+
     /**
      * handleIOException displays an error alert.
      * @param ioe the IOException to report.
@@ -109,40 +169,16 @@ public class BuilderGUI extends Application {
         System.exit(1);
     }
 
+    private static ShowBuilder createShowBuilder(InputCSV csv, TitleAndSortData data) {
+        return new ShowBuilder(csv, data, TitleImage::generateTitleImage,
+            (show, fileName) -> new XLSWorkbook(show).writeToFile(fileName));
+    }
+
     private OutputCSV generateOutputCSV(InputCSV csv, TitleAndSortData data) {
         Logger.trace("In BuilderGUI.generateOutputCSV");
         OutputCSV out = new OutputCSV();
         try {
-            String dir = csv.getFileDir();
-            String titleFileName = dir + "/start.jpg";
-            TitleImage.generateTitleImage(data.getStartTitle(), titleFileName);
-            FlexiBean titleBean = new FlexiBean();
-            titleBean.setFilename("start.jpg");
-            out.appendBean(titleBean);
-
-            csv.getBeans().sort(data.getOrder());
-            ArrayList<String> fullNames = csv.getBeans().getSortedFullNames();
-            for (String name : fullNames) {
-                Person person = csv.getPerson(name);
-                String fName = name.replaceAll(" ", "_");
-                String fileName = dir + "/" + fName + ".jpg";
-                String personTitle = "";
-                personTitle = person.getFullName();
-                TitleImage.generateTitleImage(personTitle, fileName);
-                FlexiBean personTitleBean = new FlexiBean();
-                personTitleBean.setFilename(fName + ".jpg");
-                out.appendBean(personTitleBean);
-                for (FlexiBean bean: csv.getPersonBeans(name).getBeans()) {
-                    out.appendBean(bean);
-                    Logger.debug(BuilderGUI.buildLogMessage(
-                        "Appended bean for ", name, ": ", bean.toString()));
-                }
-            }
-            titleFileName = dir + "/end.jpg";
-            TitleImage.generateTitleImage(data.getEndTitle(), titleFileName);
-            titleBean = new FlexiBean();
-            titleBean.setFilename("end.jpg");
-            out.appendBean(titleBean);
+            out = createShowBuilder(csv, data).buildShow();
         } catch (CSVException e) {
             Logger.error("CSVException thrown in generateOutputCSV: ", e);
             handlePersonException(e);
@@ -153,6 +189,24 @@ public class BuilderGUI extends Application {
         return out;
     }
 
+    private void generateShows(InputCSV csv, TitleAndSortData data) {
+        Logger.trace("In BuilderGUI.generateShows");
+        try {
+            Map<String, String> files = createShowBuilder(csv, data).buildShows(data.getShowColumn());
+            Alert alert = new Alert(AlertType.INFORMATION);
+            alert.setTitle("Files Saved");
+            alert.setHeaderText(files.size() + " slideshows have been saved.");
+            alert.setContentText(String.join("\n", files.values()) + "\n\nClick OK to terminate program.");
+            alert.showAndWait();
+        } catch (CSVException e) {
+            Logger.error("CSVException thrown in generateShows: ", e);
+            handlePersonException(e);
+        } catch (IOException ioe) {
+            Logger.error("IOException thrown in generateShows: ", ioe);
+            handleIOException(ioe, csv);
+        }
+    }
+
     /**
      * buildLogMessage combines various String objects into a single string.
      * @param parts the Strings to combine into a single String object.
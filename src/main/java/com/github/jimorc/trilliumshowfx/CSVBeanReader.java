@@ -0,0 +1,134 @@
+package com.github.jimorc.trilliumshowfx;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * CSVBeanReader reads FlexiBean objects one record at a time using CSVTokenizer.
+ *
+ * ```java
+ * try (CSVBeanReader reader = new CSVBeanReader(new FileReader(f))) {
+ *     FlexiBean bean;
+ *     while ((bean = reader.readBean()) != null) {
+ *         ...
+ *     }
+ * }
+ * ```
+ */
+final class CSVBeanReader implements Closeable {
+    private final CSVTokenizer tokenizer;
+    private final FlexiBeanBinder binder;
+    private final List<String> fields = new ArrayList<>();
+
+    /**
+     * Constructor reads and validates the header line.
+     * @param reader the Reader to read the CSV input from.
+     * @throws BadHeaderException if there is no header line.
+     * @throws CSVException if the header line does not contain a Filename column.
+     * @throws IOException if the input cannot be read.
+     */
+    CSVBeanReader(Reader reader) throws BadHeaderException, CSVException, IOException {
+        this(reader, null);
+    }
+
+    /**
+     * Constructor reads and validates the header line, and binds only the projected columns.
+     * @param reader the Reader to read the CSV input from.
+     * @param projection the names of the columns to bind, or null to bind every column.
+     * @throws BadHeaderException if there is no header line.
+     * @throws CSVException if the header line does not contain a Filename column.
+     * @throws IOException if the input cannot be read.
+     */
+    CSVBeanReader(Reader reader, Set<String> projection) throws BadHeaderException, CSVException, IOException {
+        tokenizer = new CSVTokenizer(reader);
+        tokenizer.readRecord(fields);
+        binder = new FlexiBeanBinder(fields, projection);
+    }
+
+    /**
+     * Read the next FlexiBean.
+     * @return the next FlexiBean, or null if the end of the input has been reached.
+     * @throws CSVException if the record is invalid.
+     * @throws IOException if the input cannot be read.
+     */
+    FlexiBean readBean() throws CSVException, IOException {
+        if (!tokenizer.readRecord(fields)) {
+            return null;
+        }
+        return binder.createBean(fields, tokenizer.getRecordNumber());
+    }
+
+    /**
+     * Read all remaining FlexiBeans.
+     * @return list of FlexiBean objects.
+     * @throws CSVException if a record is invalid.
+     * @throws IOException if the input cannot be read.
+     */
+    List<FlexiBean> readAll() throws CSVException, IOException {
+        List<FlexiBean> beans = new ArrayList<>();
+        FlexiBean bean = readBean();
+        while (bean != null) {
+            beans.add(bean);
+            bean = readBean();
+        }
+        return beans;
+    }
+
+    /**
+     * Create a sequential, ordered Stream that reads the remaining FlexiBeans lazily. Closing the
+     * Stream closes this reader.
+     * @return Stream of FlexiBean objects.
+     */
+    Stream<FlexiBean> stream() {
+        Spliterator<FlexiBean> spliterator = new Spliterators.AbstractSpliterator<FlexiBean>(
+                Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super FlexiBean> action) {
+                FlexiBean bean = readBeanUnchecked();
+                if (bean == null) {
+                    return false;
+                }
+                action.accept(bean);
+                return true;
+            }
+        };
+        return StreamSupport.stream(spliterator, false).onClose(this::closeUnchecked);
+    }
+
+    /**
+     * Close the underlying Reader.
+     * @throws IOException if the Reader cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        tokenizer.close();
+    }
+
+    private FlexiBean readBeanUnchecked() {
+        try {
+            return readBean();
+        } catch (CSVException csve) {
+            throw new UncheckedCSVException(csve);
+        } catch (IOException ioe) {
+            throw new UncheckedIOException(ioe);
+        }
+    }
+
+    private void closeUnchecked() {
+        try {
+            close();
+        } catch (IOException ioe) {
+            throw new UncheckedIOException(ioe);
+        }
+    }
+}
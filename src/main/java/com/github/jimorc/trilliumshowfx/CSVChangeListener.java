@@ -0,0 +1,21 @@
+package com.github.jimorc.trilliumshowfx;
+
+/**
+ * CSVChangeListener is notified when InputCSV.refresh finds that the CSV file has changed.
+ */
+public interface CSVChangeListener {
+    /**
+     * Called when rows have been appended to the CSV file. Rows from firstRow onward are new, or
+     * replace a final row that was still being written when it was last read.
+     * @param csv the InputCSV object that has changed.
+     * @param firstRow the index of the first new row.
+     * @param count the number of new rows.
+     */
+    void rowsAppended(InputCSV csv, int firstRow, int count);
+
+    /**
+     * Called when the CSV file has been rewritten and all of its rows have been reloaded.
+     * @param csv the InputCSV object that has changed.
+     */
+    void csvReloaded(InputCSV csv);
+}
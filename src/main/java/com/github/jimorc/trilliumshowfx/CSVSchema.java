@@ -0,0 +1,119 @@
+package com.github.jimorc.trilliumshowfx;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * CSVSchema describes the columns of a CSV file that are not FlexiBean fields, such as the
+ * category, entry id and score columns in an EntryWizard export.
+ *
+ * A schema is created once per file from the header line. Each extra column is assigned a slot,
+ * and every FlexiBean parsed from the file stores its extra values in an array indexed by slot,
+ * so the column names are not repeated in every row. Column names are matched without regard to
+ * case or surrounding white space. Accessors are resolved once, so a caller that reads the same
+ * column from many beans does not look up the column name for each bean:
+ *
+ * ```java
+ * Function<FlexiBean, String> category = schema.accessor("Category");
+ * for (FlexiBean bean : beans.getBeans()) {
+ *     String c = category.apply(bean);
+ * }
+ * ```
+ */
+public final class CSVSchema {
+    /**
+     * NO_SLOT is returned by getSlot for a column that is not in the schema.
+     */
+    public static final int NO_SLOT = -1;
+
+    private static final Map<String, Function<FlexiBean, String>> GETTERS = createGetters();
+
+    private final List<String> columns;
+    private final Map<String, Integer> slots = new HashMap<>();
+
+    /**
+     * Constructor.
+     * @param columns the names of the extra columns, in slot order.
+     */
+    public CSVSchema(List<String> columns) {
+        this.columns = List.copyOf(columns);
+        for (int slot = 0; slot < columns.size(); slot++) {
+            slots.putIfAbsent(normalize(columns.get(slot)), slot);
+        }
+    }
+
+    /**
+     * Retrieve the names of the extra columns.
+     * @return unmodifiable list of column names, in slot order.
+     */
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    /**
+     * Retrieve the number of extra columns.
+     * @return the number of slots.
+     */
+    public int size() {
+        return columns.size();
+    }
+
+    /**
+     * Retrieve the slot for an extra column.
+     * @param column the column name.
+     * @return the slot, or NO_SLOT if the column is not in the schema.
+     */
+    public int getSlot(String column) {
+        return slots.getOrDefault(normalize(column), NO_SLOT);
+    }
+
+    /**
+     * Create an accessor for a column. The column may be one of the FlexiBean fields or one of the
+     * extra columns in this schema.
+     * @param column the column name.
+     * @return Function that returns the column's value for a FlexiBean, or null if the bean has no
+     *         value for the column.
+     */
+    public Function<FlexiBean, String> accessor(String column) {
+        Function<FlexiBean, String> getter = GETTERS.get(normalize(column));
+        if (getter != null) {
+            return getter;
+        }
+        int slot = getSlot(column);
+        if (slot == NO_SLOT) {
+            return _ -> null;
+        }
+        return bean -> bean.getExtra(this, slot);
+    }
+
+    /**
+     * Determine whether a column is one of the FlexiBean fields.
+     * @param column the column name.
+     * @return true if the column is a FlexiBean field.
+     */
+    static boolean isBeanField(String column) {
+        return GETTERS.containsKey(normalize(column));
+    }
+
+    /**
+     * Normalize a column name for matching.
+     * @param column the column name.
+     * @return the trimmed, upper case column name.
+     */
+    static String normalize(String column) {
+        return column.trim().toUpperCase(Locale.ROOT);
+    }
+
+    private static Map<String, Function<FlexiBean, String>> createGetters() {
+        Map<String, Function<FlexiBean, String>> getters = new HashMap<>();
+        getters.put("FILENAME", FlexiBean::getFilename);
+        getters.put("TITLE", FlexiBean::getTitle);
+        getters.put("FULL NAME", FlexiBean::getFullName);
+        getters.put("FIRST NAME", FlexiBean::getFirstName);
+        getters.put("LAST NAME", FlexiBean::getLastName);
+        return Map.copyOf(getters);
+    }
+}
@@ -0,0 +1,347 @@
+package com.github.jimorc.trilliumshowfx;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32C;
+import org.tinylog.Logger;
+
+/**
+ * CSVSnapshot saves parsed FlexiBeans in a compact binary form so that an unchanged CSV file can
+ * be reloaded without parsing it again.
+ *
+ * Each snapshot is stored in the cache directory and records the CSV file's path, size,
+ * modification time and CRC32C content checksum. A snapshot is used only if all four still match
+ * the CSV file. Strings are stored once in a string table, and each bean is stored as indexes
+ * into that table: five for the FlexiBean fields, then one for each extra column in the schema.
+ * Beans parsed from one file share a schema, so only one schema is stored. Beans with extra
+ * columns from more than one schema, such as rows read from different versions of a file, are
+ * not saved, because the extras of all but one schema would be lost.
+ * A snapshot that is stale, unreadable or corrupt is ignored, so the caller falls back to parsing
+ * the CSV file.
+ *
+ * The key is taken before the file is parsed, and the snapshot is saved only if the file has not
+ * changed since then. A file that is still being written therefore never gets a snapshot whose
+ * key describes more rows than the snapshot holds.
+ *
+ * ```java
+ * CSVSnapshot snapshots = new CSVSnapshot(CSVSnapshot.defaultCacheDir());
+ * FlexiBeans beans = snapshots.load(csvFile);
+ * if (beans == null) {
+ *     CSVSnapshot.Key key = CSVSnapshot.keyOf(csvFile);
+ *     beans = MappedCSVReader.read(csvFile);
+ *     snapshots.save(key, beans);
+ * }
+ * ```
+ */
+public final class CSVSnapshot {
+    private static final int MAGIC = 0x54534658;    // "TSFX"
+    private static final int VERSION = 2;
+    private static final int NULL_STRING = -1;
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int FIELDS_PER_BEAN = 5;
+
+    private final Path cacheDir;
+
+    /**
+     * Constructor.
+     * @param cacheDir the directory that snapshots are stored in. It is created when the first
+     *                 snapshot is saved.
+     */
+    public CSVSnapshot(Path cacheDir) {
+        this.cacheDir = cacheDir;
+    }
+
+    /**
+     * Retrieve the default snapshot directory, which is in the user's home directory.
+     * @return the default snapshot directory.
+     */
+    public static Path defaultCacheDir() {
+        return Path.of(System.getProperty("user.home"), ".trilliumshowfx", "snapshots");
+    }
+
+    /**
+     * Load the snapshot for the specified CSV file.
+     * @param csvF the CSV file.
+     * @return the FlexiBeans from the snapshot, or null if there is no valid snapshot for csvF.
+     */
+    public FlexiBeans load(File csvF) {
+        Path snapshot = snapshotPath(csvF);
+        if (!Files.isRegularFile(snapshot)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                Files.newInputStream(snapshot), BUFFER_SIZE))) {
+            if (!readKey(in, csvF)) {
+                Logger.debug("Snapshot for {} is stale", csvF.getAbsolutePath());
+                return null;
+            }
+            long snapshotSize = Files.size(snapshot);
+            String[] strings = readStrings(in, snapshotSize);
+            CSVSchema schema = readSchema(in, strings, snapshotSize);
+            int count = readCount(in, snapshotSize);
+            List<FlexiBean> beans = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                beans.add(readBean(in, strings, schema));
+            }
+            Logger.debug("Loaded {} beans from snapshot for {}", count, csvF.getAbsolutePath());
+            return new FlexiBeans(beans);
+        } catch (IOException | IndexOutOfBoundsException e) {
+            Logger.warn(e, "Ignoring unreadable snapshot {}", snapshot);
+            return null;
+        }
+    }
+
+    /**
+     * Take the key of a CSV file. Call this before the file is parsed, and pass the key to save.
+     * @param csvF the CSV file.
+     * @return the key, or null if the file changed while its checksum was being calculated.
+     * @throws IOException if the file cannot be read.
+     */
+    public static Key keyOf(File csvF) throws IOException {
+        long length = csvF.length();
+        long modified = csvF.lastModified();
+        long checksum = checksum(csvF, length);
+        Key key = new Key(csvF, length, modified, checksum);
+        return key.matches(csvF) ? key : null;
+    }
+
+    /**
+     * Save a snapshot of the FlexiBeans parsed from a CSV file. Nothing is saved if key is null or
+     * the file has changed since the key was taken, because beans may not match the key, or if the
+     * beans have extra columns from more than one schema. Failures
+     * are logged but otherwise ignored, because a missing snapshot only means that the file is
+     * parsed again.
+     * @param key the key of the CSV file, taken by keyOf before the file was parsed.
+     * @param beans the FlexiBeans parsed from the file.
+     */
+    public void save(Key key, FlexiBeans beans) {
+        if (key == null || !key.matches(key.csvF)) {
+            Logger.debug("Not saving snapshot: CSV file changed while it was parsed");
+            return;
+        }
+        File csvF = key.csvF;
+        CSVSchema schema = schemaOf(beans.getBeans());
+        if (schema == null) {
+            Logger.info("Not saving snapshot for {}: its rows have extra columns from more than one header",
+                csvF.getAbsolutePath());
+            return;
+        }
+        Path snapshot = snapshotPath(csvF);
+        try {
+            Files.createDirectories(cacheDir);
+            Path temp = Files.createTempFile(cacheDir, csvF.getName(), ".tmp");
+            try {
+                try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                        Files.newOutputStream(temp), BUFFER_SIZE))) {
+                    writeKey(out, key);
+                    writeBeans(out, beans.getBeans(), schema);
+                }
+                Files.move(temp, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+            Logger.debug("Saved snapshot {} for {}", snapshot, csvF.getAbsolutePath());
+        } catch (IOException ioe) {
+            Logger.warn(ioe, "Unable to save snapshot for {}", csvF.getAbsolutePath());
+        }
+    }
+
+    /**
+     * Calculate the CRC32C checksum of a file's contents.
+     * @param file the file.
+     * @return the checksum.
+     * @throws IOException if the file cannot be read.
+     */
+    static long checksum(File file) throws IOException {
+        return checksum(file, file.length());
+    }
+
+    // Calculates the checksum of the first length bytes of a file.
+    private static long checksum(File file, long length) throws IOException {
+        CRC32C crc = new CRC32C();
+        try (Arena arena = Arena.ofConfined();
+                FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = Math.min(length, channel.size());
+            MemorySegment segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, size, arena);
+            crc.update(segment.asByteBuffer());
+        }
+        return crc.getValue();
+    }
+
+    private Path snapshotPath(File csvF) {
+        String path = csvF.getAbsolutePath();
+        return cacheDir.resolve(csvF.getName() + "-" + Integer.toHexString(path.hashCode()) + ".snap");
+    }
+
+    private static void writeKey(DataOutputStream out, Key key) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeUTF(key.csvF.getAbsolutePath());
+        out.writeLong(key.length);
+        out.writeLong(key.modified);
+        out.writeLong(key.checksum);
+    }
+
+    // Returns true if the key in the snapshot matches csvF. The checksum is only calculated
+    // if the cheaper checks pass.
+    private static boolean readKey(DataInputStream in, File csvF) throws IOException {
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+            throw new IOException("Not a snapshot file, or wrong snapshot version");
+        }
+        return in.readUTF().equals(csvF.getAbsolutePath())
+            && in.readLong() == csvF.length()
+            && in.readLong() == csvF.lastModified()
+            && in.readLong() == checksum(csvF);
+    }
+
+    // Returns the schema shared by every bean with extra values, or null if there is more than one.
+    private static CSVSchema schemaOf(List<FlexiBean> beans) {
+        CSVSchema schema = null;
+        for (FlexiBean bean : beans) {
+            if (bean.getSchema() != null) {
+                if (schema != null && bean.getSchema() != schema) {
+                    return null;
+                }
+                schema = bean.getSchema();
+            }
+        }
+        return schema == null ? new CSVSchema(List.of()) : schema;
+    }
+
+    private static void writeBeans(DataOutputStream out, List<FlexiBean> beans, CSVSchema schema)
+            throws IOException {
+        Map<String, Integer> indexes = new HashMap<>();
+        List<String> strings = new ArrayList<>();
+        int[] columns = new int[schema.size()];
+        for (int slot = 0; slot < columns.length; slot++) {
+            columns[slot] = stringIndex(schema.getColumns().get(slot), indexes, strings);
+        }
+        int[] fields = new int[beans.size() * (FIELDS_PER_BEAN + schema.size())];
+        int n = 0;
+        for (FlexiBean bean : beans) {
+            for (String value : fieldsOf(bean, schema)) {
+                fields[n++] = stringIndex(value, indexes, strings);
+            }
+        }
+        out.writeInt(strings.size());
+        for (String value : strings) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+        out.writeInt(columns.length);
+        for (int column : columns) {
+            out.writeInt(column);
+        }
+        out.writeInt(beans.size());
+        for (int field : fields) {
+            out.writeInt(field);
+        }
+    }
+
+    private static String[] readStrings(DataInputStream in, long snapshotSize) throws IOException {
+        String[] strings = new String[readCount(in, snapshotSize)];
+        for (int i = 0; i < strings.length; i++) {
+            byte[] bytes = new byte[readCount(in, snapshotSize)];
+            in.readFully(bytes);
+            strings[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return strings;
+    }
+
+    // Reads a count or length, which cannot be larger than the snapshot itself.
+    private static int readCount(DataInputStream in, long snapshotSize) throws IOException {
+        int count = in.readInt();
+        if (count < 0 || count > snapshotSize) {
+            throw new IOException("Corrupt snapshot: invalid count " + count);
+        }
+        return count;
+    }
+
+    private static int stringIndex(String value, Map<String, Integer> indexes, List<String> strings) {
+        if (value == null) {
+            return NULL_STRING;
+        }
+        return indexes.computeIfAbsent(value, v -> {
+            strings.add(v);
+            return strings.size() - 1;
+        });
+    }
+
+    private static CSVSchema readSchema(DataInputStream in, String[] strings, long snapshotSize)
+            throws IOException {
+        String[] columns = new String[readCount(in, snapshotSize)];
+        for (int slot = 0; slot < columns.length; slot++) {
+            columns[slot] = strings[in.readInt()];
+        }
+        return new CSVSchema(List.of(columns));
+    }
+
+    private static FlexiBean readBean(DataInputStream in, String[] strings, CSVSchema schema) throws IOException {
+        FlexiBean bean = new FlexiBean();
+        bean.setFilename(stringAt(strings, in.readInt()));
+        bean.setTitle(stringAt(strings, in.readInt()));
+        bean.setFullName(stringAt(strings, in.readInt()));
+        bean.setFirstName(stringAt(strings, in.readInt()));
+        bean.setLastName(stringAt(strings, in.readInt()));
+        for (int slot = 0; slot < schema.size(); slot++) {
+            String value = stringAt(strings, in.readInt());
+            if (value != null) {
+                bean.setExtra(schema, slot, value);
+            }
+        }
+        return bean;
+    }
+
+    private static String stringAt(String[] strings, int index) {
+        return index == NULL_STRING ? null : strings[index];
+    }
+
+    private static String[] fieldsOf(FlexiBean bean, CSVSchema schema) {
+        String[] fields = Arrays.copyOf(new String[] {bean.getFilename(), bean.getTitle(), bean.getFullName(),
+            bean.getFirstName(), bean.getLastName()}, FIELDS_PER_BEAN + schema.size());
+        for (int slot = 0; slot < schema.size(); slot++) {
+            fields[FIELDS_PER_BEAN + slot] = bean.getExtra(schema, slot);
+        }
+        return fields;
+    }
+
+    /**
+     * Key records the size, modification time and checksum of a CSV file at the time it was taken.
+     */
+    public static final class Key {
+        private final File csvF;
+        private final long length;
+        private final long modified;
+        private final long checksum;
+
+        private Key(File csvF, long length, long modified, long checksum) {
+            this.csvF = csvF;
+            this.length = length;
+            this.modified = modified;
+            this.checksum = checksum;
+        }
+
+        // Returns true if the file still has the size and modification time in the key.
+        private boolean matches(File file) {
+            return file.length() == length && file.lastModified() == modified;
+        }
+    }
+}
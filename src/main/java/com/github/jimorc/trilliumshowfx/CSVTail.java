@@ -0,0 +1,256 @@
+package com.github.jimorc.trilliumshowfx;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import org.tinylog.Logger;
+
+/**
+ * CSVTail reads a CSV file that is still being written, returning only the rows that have been
+ * appended since the previous read.
+ *
+ * CSVTail remembers the header, the last record that was terminated by a line break, and the
+ * byte offset just past that record. Each read maps the file, checks that the header and the
+ * bytes of that last complete record are unchanged, and parses only the bytes after it. A final
+ * record without a line break may be incomplete, so it is returned but marked as pending, and it
+ * is parsed again by the next read. If such a record cannot be parsed, it is skipped until more
+ * data arrives. If the file has shrunk below the offset, or its header or last complete record
+ * has changed, the file has been rewritten and must be reloaded. The check catches a file that
+ * is rewritten at the same or a larger size, as long as its last complete record changes.
+ *
+ * A file whose rows were loaded some other way, such as from a snapshot or by ParallelCSVReader,
+ * is resumed instead: its records are scanned for their bounds without being decoded, so that
+ * the first read returns only the rows appended after the load.
+ *
+ * ```java
+ * CSVTail tail = new CSVTail(csvFile);
+ * CSVTail.Update all = tail.read();
+ * ...
+ * CSVTail.Update appended = tail.read();
+ * ```
+ */
+final class CSVTail {
+    private final File file;
+    private List<String> header;
+    private long offset;
+    // the bytes of the last complete record, which end at offset.
+    private byte[] lastRecord = new byte[0];
+    private long readEnd;
+    private long readModified;
+    private boolean pendingRow;
+
+    /**
+     * Constructor. Nothing is read until read is called.
+     * @param file the CSV file.
+     */
+    CSVTail(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Create a CSVTail for a file whose rows have already been loaded, as if the rows had been
+     * returned by a read of the first end bytes of the file.
+     * @param file the CSV file.
+     * @param end the size of the file when its rows were loaded.
+     * @param modified the modification time of the file when its rows were loaded.
+     * @return the CSVTail, or null if the file is now smaller than end.
+     * @throws BadHeaderException if the file has no header line.
+     * @throws CSVException if a record contains an unterminated quoted field.
+     * @throws IOException if the file cannot be read.
+     */
+    static CSVTail resume(File file, long end, long modified) throws BadHeaderException, CSVException, IOException {
+        try (Arena arena = Arena.ofConfined();
+                FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() < end) {
+                return null;
+            }
+            MemorySegment segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, end, arena);
+            MappedCSVReader reader = new MappedCSVReader(segment, 0, end);
+            CSVTail tail = new CSVTail(file);
+            tail.header = reader.readHeader().getHeader();
+            tail.offset = reader.getPosition();
+            long start = tail.offset;
+            long lastRecordStart = tail.offset;
+            while (reader.skipRecord()) {
+                if (reader.isRecordTerminated()) {
+                    lastRecordStart = start;
+                    tail.offset = reader.getPosition();
+                } else {
+                    tail.pendingRow = true;
+                }
+                start = reader.getPosition();
+            }
+            tail.lastRecord = segment.asSlice(lastRecordStart, tail.offset - lastRecordStart)
+                .toArray(ValueLayout.JAVA_BYTE);
+            tail.readEnd = end;
+            tail.readModified = modified;
+            Logger.debug("Resumed {} at offset {}", file.getName(), tail.offset);
+            return tail;
+        }
+    }
+
+    /**
+     * Read the rows appended since the previous read. The first read returns every row in the
+     * file, and reports invalid records in the same way as MappedCSVReader.
+     * @return the Update describing the new rows.
+     * @throws BadHeaderException if the file has no header line.
+     * @throws CSVException if a complete record is invalid.
+     * @throws IOException if the file cannot be read.
+     */
+    Update read() throws BadHeaderException, CSVException, IOException {
+        try (Arena arena = Arena.ofConfined();
+                FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            long modified = file.lastModified();
+            boolean initial = header == null;
+            if (!initial && size == readEnd && modified == readModified) {
+                return new Update(false, false, List.of());
+            }
+            if (!initial && size < offset) {
+                Logger.debug("{} has shrunk and must be reloaded", file.getName());
+                return new Update(true, false, List.of());
+            }
+            MemorySegment segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, size, arena);
+            if (!initial && !lastRecordMatches(segment)) {
+                Logger.debug("{} has been rewritten and must be reloaded", file.getName());
+                return new Update(true, false, List.of());
+            }
+            MappedCSVReader headerReader = new MappedCSVReader(segment, 0, size);
+            FlexiBeanBinder binder = headerReader.readHeader();
+            if (initial) {
+                header = binder.getHeader();
+                offset = headerReader.getPosition();
+            } else if (!header.equals(binder.getHeader())) {
+                Logger.debug("The header of {} has changed and the file must be reloaded", file.getName());
+                return new Update(true, false, List.of());
+            }
+            boolean replacesPendingRow = pendingRow;
+            List<FlexiBean> beans = readRecords(segment, binder, initial);
+            readEnd = size;
+            readModified = modified;
+            Logger.debug("Read {} new rows from {}", beans.size(), file.getName());
+            return new Update(false, replacesPendingRow, beans);
+        }
+    }
+
+    /**
+     * Retrieve the offset just past the last complete record.
+     * @return the offset.
+     */
+    long getOffset() {
+        return offset;
+    }
+
+    /**
+     * Determine whether the last row returned came from a record that may be incomplete.
+     * @return true if the next read will parse that record again.
+     */
+    boolean hasPendingRow() {
+        return pendingRow;
+    }
+
+    private List<FlexiBean> readRecords(MemorySegment segment, FlexiBeanBinder binder, boolean strict)
+            throws CSVException {
+        MappedCSVReader reader = new MappedCSVReader(segment, offset, segment.byteSize());
+        List<FlexiBean> beans = new ArrayList<>();
+        pendingRow = false;
+        long start = reader.getPosition();
+        long lastRecordStart = offset;
+        FlexiBean bean = readBean(reader, binder, segment, start, strict);
+        while (bean != null) {
+            beans.add(bean);
+            if (reader.isRecordTerminated()) {
+                lastRecordStart = start;
+                offset = reader.getPosition();
+            } else {
+                pendingRow = true;
+            }
+            start = reader.getPosition();
+            bean = readBean(reader, binder, segment, start, strict);
+        }
+        if (lastRecordStart != offset) {
+            lastRecord = segment.asSlice(lastRecordStart, offset - lastRecordStart).toArray(ValueLayout.JAVA_BYTE);
+        }
+        return beans;
+    }
+
+    // Returns true if the bytes before offset are still those of the last complete record.
+    private boolean lastRecordMatches(MemorySegment segment) {
+        long start = offset - lastRecord.length;
+        return MemorySegment.mismatch(segment, start, offset, MemorySegment.ofArray(lastRecord), 0,
+            lastRecord.length) == -1;
+    }
+
+    // Returns null at the end of the data, or if the last record is incomplete and invalid.
+    private static FlexiBean readBean(MappedCSVReader reader, FlexiBeanBinder binder, MemorySegment segment,
+            long start, boolean strict) throws CSVException {
+        try {
+            return reader.readBean(binder);
+        } catch (CSVException csve) {
+            if (strict || hasLineBreak(segment, start)) {
+                throw csve;
+            }
+            return null;
+        }
+    }
+
+    // Returns true if there is a line break outside quotes after from.
+    private static boolean hasLineBreak(MemorySegment segment, long from) {
+        boolean quoted = false;
+        for (long p = from; p < segment.byteSize(); p++) {
+            byte b = segment.get(ValueLayout.JAVA_BYTE, p);
+            if (b == '"') {
+                quoted = !quoted;
+            } else if (!quoted && (b == '\n' || b == '\r')) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Update describes the result of a read.
+     */
+    static final class Update {
+        private final boolean reloadRequired;
+        private final boolean replacesPendingRow;
+        private final List<FlexiBean> beans;
+
+        private Update(boolean reloadRequired, boolean replacesPendingRow, List<FlexiBean> beans) {
+            this.reloadRequired = reloadRequired;
+            this.replacesPendingRow = replacesPendingRow;
+            this.beans = beans;
+        }
+
+        /**
+         * Determine whether the file has been rewritten and must be reloaded.
+         * @return true if the file must be reloaded.
+         */
+        boolean isReloadRequired() {
+            return reloadRequired;
+        }
+
+        /**
+         * Determine whether the pending row returned by the previous read has been parsed again.
+         * If so, the last row previously returned must be removed before the new rows are added.
+         * @return true if the last row previously returned should be replaced.
+         */
+        boolean replacesPendingRow() {
+            return replacesPendingRow;
+        }
+
+        /**
+         * Retrieve the new rows.
+         * @return the rows, in file order.
+         */
+        List<FlexiBean> getBeans() {
+            return beans;
+        }
+    }
+}
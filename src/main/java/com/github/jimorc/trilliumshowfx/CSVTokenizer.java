@@ -0,0 +1,181 @@
+package com.github.jimorc.trilliumshowfx;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.List;
+
+/**
+ * CSVTokenizer splits CSV input into records and fields according to RFC 4180.
+ *
+ * Fields may be quoted. Quoted fields may contain commas, line breaks, and doubled quotes.
+ * As with openCSV's ignoreLeadingWhiteSpace setting, white space before an opening quote
+ * is discarded. Records may be terminated by LF, CR, or CRLF. Empty lines are skipped.
+ */
+final class CSVTokenizer implements Closeable {
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int EOF = -1;
+    private static final char BOM = '\uFEFF';
+
+    private final Reader reader;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private final StringBuilder field = new StringBuilder();
+    private int pos;
+    private int limit;
+    private long recordNumber;
+
+    /**
+     * Constructor.
+     * @param reader the Reader to read the CSV input from.
+     */
+    CSVTokenizer(Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * Read the next record.
+     * @param fields the list to place the record's fields into. Any previous content is removed.
+     * @return true if a record was read, false if the end of the input has been reached.
+     * @throws IOException if the input cannot be read.
+     * @throws CSVException if a quoted field is not terminated.
+     */
+    boolean readRecord(List<String> fields) throws IOException, CSVException {
+        fields.clear();
+        int c = skipEmptyLines();
+        if (c == EOF) {
+            return false;
+        }
+        recordNumber++;
+        while (true) {
+            c = readField(c);
+            fields.add(field.toString());
+            if (c != ',') {
+                if (c == '\r' && peek() == '\n') {
+                    pos++;
+                }
+                return true;
+            }
+            c = next();
+        }
+    }
+
+    /**
+     * Retrieve the number of records read so far, including the header record.
+     * @return the number of records read.
+     */
+    long getRecordNumber() {
+        return recordNumber;
+    }
+
+    /**
+     * Close the underlying Reader.
+     * @throws IOException if the Reader cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private int skipEmptyLines() throws IOException {
+        int c = next();
+        if (recordNumber == 0 && c == BOM) {
+            c = next();
+        }
+        while (c == '\n' || c == '\r') {
+            c = next();
+        }
+        return c;
+    }
+
+    // Reads one field into the field buffer. c is the first character of the field.
+    // Returns the character that terminated the field: ',', '\r', '\n' or EOF.
+    private int readField(int c) throws IOException, CSVException {
+        field.setLength(0);
+        boolean leadingWhiteSpace = true;
+        while (c != ',' && c != '\n' && c != '\r' && c != EOF) {
+            if (c == '"' && leadingWhiteSpace) {
+                field.setLength(0);
+                readQuoted();
+                leadingWhiteSpace = false;
+            } else {
+                field.append((char) c);
+                leadingWhiteSpace &= isBlank(c);
+                if (!leadingWhiteSpace) {
+                    appendUnquotedRun();
+                }
+            }
+            c = next();
+        }
+        return c;
+    }
+
+    // Appends characters up to the next special character directly from the buffer.
+    private void appendUnquotedRun() {
+        int start = pos;
+        while (pos < limit) {
+            char ch = buffer[pos];
+            if (ch == ',' || ch == '\n' || ch == '\r' || ch == '"') {
+                break;
+            }
+            pos++;
+        }
+        field.append(buffer, start, pos - start);
+    }
+
+    // Reads the content of a quoted field. The opening quote has already been consumed.
+    private void readQuoted() throws IOException, CSVException {
+        while (true) {
+            int start = pos;
+            while (pos < limit && buffer[pos] != '"') {
+                pos++;
+            }
+            field.append(buffer, start, pos - start);
+            int c = next();
+            if (c == EOF) {
+                throw new CSVException("Unterminated quoted field at end of CSV record "
+                    + recordNumber);
+            }
+            if (c == '"') {
+                if (peek() != '"') {
+                    return;
+                }
+                pos++;
+            }
+            field.append((char) c);
+        }
+    }
+
+    private int next() throws IOException {
+        if (pos >= limit && !fill()) {
+            return EOF;
+        }
+        return buffer[pos++];
+    }
+
+    private int peek() throws IOException {
+        if (pos >= limit && !fill()) {
+            return EOF;
+        }
+        return buffer[pos];
+    }
+
+    private boolean fill() throws IOException {
+        int n = reader.read(buffer, 0, buffer.length);
+        while (n == 0) {
+            n = reader.read(buffer, 0, buffer.length);
+        }
+        pos = 0;
+        limit = Math.max(n, 0);
+        return n > 0;
+    }
+
+    /**
+     * Determine whether a character is blank space that may come before the opening quote of a
+     * quoted field. Only space and tab are blank; MappedCSVReader uses the same definition.
+     * @param c the character.
+     * @return true if c is a space or a tab.
+     */
+    static boolean isBlank(int c) {
+        return c == ' ' || c == '\t';
+    }
+}
@@ -0,0 +1,112 @@
+package com.github.jimorc.trilliumshowfx;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import org.tinylog.Logger;
+
+/**
+ * CompressedCSVInput reads CSV data from gzip (.gz) and zip (.zip) files without unpacking them
+ * to disk.
+ *
+ * The file is inflated as a stream and parsed with CSVBeanReader as the data arrives. A zip file
+ * is read up to its first .csv entry; entries in sub-folders are accepted. The images referenced
+ * by the CSV data are expected in the folder that contains the compressed file, just as they are
+ * for an uncompressed CSV file.
+ *
+ * ```java
+ * if (CompressedCSVInput.isCompressed(csvFile)) {
+ *     CompressedCSVInput.read(csvFile, beans::add);
+ * }
+ * ```
+ */
+final class CompressedCSVInput {
+    private static final int FILE_BUFFER_SIZE = 1 << 20;
+    private static final int INFLATE_BUFFER_SIZE = 1 << 16;
+    private static final String GZIP_SUFFIX = ".gz";
+    private static final String ZIP_SUFFIX = ".zip";
+    private static final String CSV_SUFFIX = ".csv";
+
+    private CompressedCSVInput() {
+    }
+
+    /**
+     * Determine whether a file is a compressed CSV file, based on its name.
+     * @param file the file.
+     * @return true if the file name ends with .gz or .zip.
+     */
+    static boolean isCompressed(File file) {
+        String name = file.getName().toLowerCase(Locale.ROOT);
+        return name.endsWith(GZIP_SUFFIX) || name.endsWith(ZIP_SUFFIX);
+    }
+
+    /**
+     * Open an InputStream that returns the CSV data in a file. Compressed files are inflated as
+     * they are read; other files are read as is.
+     * @param file the file.
+     * @return the InputStream. The caller must close it.
+     * @throws CSVException if a zip file does not contain a CSV file.
+     * @throws IOException if the file cannot be opened or is not a valid compressed file.
+     */
+    static InputStream open(File file) throws CSVException, IOException {
+        InputStream in = new BufferedInputStream(new FileInputStream(file), FILE_BUFFER_SIZE);
+        String name = file.getName().toLowerCase(Locale.ROOT);
+        try {
+            if (name.endsWith(GZIP_SUFFIX)) {
+                return new GZIPInputStream(in, INFLATE_BUFFER_SIZE);
+            }
+            if (name.endsWith(ZIP_SUFFIX)) {
+                return openZipEntry(new ZipInputStream(in), file);
+            }
+            return in;
+        } catch (CSVException | IOException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Parse the CSV data in a compressed file, passing each FlexiBean to sink as soon as it has
+     * been parsed.
+     * @param file the compressed file.
+     * @param sink the Consumer that receives the FlexiBeans in file order.
+     * @throws BadHeaderException if the CSV data has no header line.
+     * @throws CSVException if the CSV data is invalid or a zip file contains no CSV file.
+     * @throws IOException if the file cannot be read.
+     */
+    static void read(File file, Consumer<FlexiBean> sink) throws BadHeaderException, CSVException, IOException {
+        Logger.trace("In CompressedCSVInput.read");
+        try (CSVBeanReader reader = new CSVBeanReader(
+                new InputStreamReader(open(file), StandardCharsets.UTF_8))) {
+            int count = 0;
+            FlexiBean bean = reader.readBean();
+            while (bean != null) {
+                sink.accept(bean);
+                count++;
+                bean = reader.readBean();
+            }
+            Logger.debug("Parsed {} records from compressed file {}", count, file.getName());
+        }
+    }
+
+    private static InputStream openZipEntry(ZipInputStream zip, File file) throws CSVException, IOException {
+        ZipEntry entry = zip.getNextEntry();
+        while (entry != null) {
+            if (!entry.isDirectory() && entry.getName().toLowerCase(Locale.ROOT).endsWith(CSV_SUFFIX)) {
+                Logger.debug("Reading {} from {}", entry.getName(), file.getName());
+                return zip;
+            }
+            entry = zip.getNextEntry();
+        }
+        throw new CSVException("No CSV file found in " + file.getAbsolutePath());
+    }
+}
@@ -3,9 +3,12 @@ package com.github.jimorc.trilliumshowfx;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import javafx.application.Platform;
 import javafx.geometry.Insets;
 import javafx.geometry.Side;
 import javafx.scene.Node;
@@ -68,6 +71,8 @@ public class CsvGrid extends GridPane {
     private ContextMenu displayedMenu;
     private OutputCSV csv;
     private String dir;
+    private ImageDirectoryIndex images;
+    private boolean flagMissing;
 
     /**
      * Constructor.
@@ -75,12 +80,28 @@ public class CsvGrid extends GridPane {
      * @param dir the directory containing all files
      */
     public CsvGrid(OutputCSV csv, String dir) {
+        this(csv, dir, null);
+    }
+
+    /**
+     * Constructor. Rows whose image files are not in the directory are shown in red, and are
+     * updated as the watcher reports files being created and deleted.
+     * @param csv the OutputCSV object to display
+     * @param dir the directory containing all files
+     * @param watcher the watcher for dir, or null to not flag missing images
+     */
+    public CsvGrid(OutputCSV csv, String dir, ImageDirectoryWatcher watcher) {
         super();
         final int gridGap = 10;
         final int padding = 10;
 
         this.csv = csv;
         this.dir = dir;
+        if (watcher != null) {
+            images = watcher.getIndex();
+            flagMissing = true;
+            watcher.addListener(_ -> Platform.runLater(this::updateMissingImages));
+        }
         this.setPadding(new Insets(padding));
         this.setVgap(2);
         this.setHgap(gridGap);
@@ -110,20 +131,15 @@ public class CsvGrid extends GridPane {
     }
 
     private void createCellRows(FlexiBeans beans) {
-        for (int row = 1; row < beans.getBeans().size(); row++) {
+        createCellRows(beans, 1, beans.getBeans().size() - 1);
+    }
+
+    private void createCellRows(FlexiBeans beans, int first, int last) {
+        for (int row = first; row <= last; row++) {
             FlexiBean bean = beans.getBeans().get(row);
             Logger.debug(BuilderGUI.buildLogMessage(
                 "OutputCSVStage creating grid line for bean: ", bean.toString()));
-            // default color is black.
-            Color color = Color.BLACK;
-            // color is dark orange if bean contains only file name field.
-            if (bean.getTitle() == null
-                    && bean.getFullName() == null
-                    && bean.getFirstName() == null
-                    && bean.getLastName() == null) {
-                color = Color.DARKORANGE;
-            }
-
+            Color color = rowColor(bean);
             HBox box = createGridCellBox(beans.getBeans().get(row).getFilename(),
                 NORMAL_FONT, color);
             this.add(box, Columns.IMAGE_COL.ordinal(), row);
@@ -142,6 +158,53 @@ public class CsvGrid extends GridPane {
         }
     }
 
+    private Color rowColor(FlexiBean bean) {
+        if (flagMissing && !images.contains(bean.getFilename())) {
+            return Color.RED;
+        }
+        // color is dark orange if bean contains only file name field.
+        if (bean.getTitle() == null
+                && bean.getFullName() == null
+                && bean.getFirstName() == null
+                && bean.getLastName() == null) {
+            return Color.DARKORANGE;
+        }
+        // default color is black.
+        return Color.BLACK;
+    }
+
+    /**
+     * Recolor the rows after image files have been created or deleted, keeping the selection.
+     */
+    public void updateMissingImages() {
+        List<FlexiBean> beans = csv.getBeans().getBeans();
+        for (Node node : getChildren()) {
+            Integer row = GridPane.getRowIndex(node);
+            if (row != null && row > 0 && row < beans.size() && node instanceof HBox box
+                    && box.getChildren().get(0) instanceof Text text) {
+                text.setFill(rowColor(beans.get(row)));
+            }
+        }
+    }
+
+    /**
+     * Retrieve the image files of the rows that are not in the directory, as last reported by
+     * the watcher. The directory is not read again.
+     * @return the missing file names, in row order; empty if missing images are not flagged.
+     */
+    public List<String> getMissingImages() {
+        List<String> missing = new ArrayList<>();
+        if (flagMissing) {
+            List<FlexiBean> beans = csv.getBeans().getBeans();
+            for (int row = 1; row < beans.size(); row++) {
+                if (!images.contains(beans.get(row).getFilename())) {
+                    missing.add(beans.get(row).getFilename());
+                }
+            }
+        }
+        return missing;
+    }
+
     private HBox createGridCellBox(String text, Font font, Color textColor) {
         Text t = new Text(text);
         t.setFont(font);
@@ -276,15 +339,7 @@ public class CsvGrid extends GridPane {
     private MenuItem createMoveAfterItem(Integer rowIndex) {
         MenuItem move = new MenuItem("Insert Selected Rows After");
         move.setOnAction(ev -> {
-            FlexiBeans beans = new FlexiBeans();
-            for (int i = selStart.intValue(); i <= selEnd.intValue(); i++) {
-                beans.append(csv.getBeans().getBeans().get(i));
-            }
-            deleteBeans(selStart, selEnd);
-            int index = getIndex(rowIndex);
-            for (FlexiBean b: beans.getBeans()) {
-                csv.getBeans().insert(index++, b);
-            }
+            csv.moveBeans(selStart, selEnd, getIndex(rowIndex));
             resetGridRows();
         });
         return move;
@@ -319,8 +374,14 @@ public class CsvGrid extends GridPane {
             ButtonType copy = new ButtonType("Copy", ButtonData.YES);
             ButtonType cancel = new ButtonType("Cancel", ButtonData.CANCEL_CLOSE);
             alert.getButtonTypes().setAll(cancel, copy);
-            alert.setContentText("Do you want to copy the file to that\n"
-                + "directory, or cancel the operation?");
+            String existing = findImage(imageFile.getName());
+            if (existing == null) {
+                alert.setContentText("Do you want to copy the file to that\n"
+                    + "directory, or cancel the operation?");
+            } else {
+                alert.setContentText("That directory already contains " + existing + ".\n"
+                    + "Do you want to replace it, or cancel the operation?");
+            }
             Optional<ButtonType> result = alert.showAndWait();
             if (!result.isPresent()) {
                 Logger.debug("In copyFile, user dos not want to copy file.");
@@ -333,6 +394,9 @@ public class CsvGrid extends GridPane {
                     Files.copy(imageFile.toPath(), new File(f).toPath(),
                         StandardCopyOption.REPLACE_EXISTING,
                         StandardCopyOption.COPY_ATTRIBUTES);
+                    if (images != null) {
+                        images.add(imageFile.getName());
+                    }
                 } catch (IOException  ioe) {
                     Alert al = new Alert(AlertType.ERROR);
                     al.setTitle("Error Copying File");
@@ -352,6 +416,22 @@ public class CsvGrid extends GridPane {
         resetGridRows();
     }
 
+    // Looks up a file name in the image folder. With a watcher, its index is used. Otherwise the
+    // folder is listed the first time. Names are matched without regard to case so that a copy
+    // cannot silently replace a file whose name differs only in case on a case insensitive file
+    // system.
+    private String findImage(String fileName) {
+        if (images == null) {
+            try {
+                images = ImageDirectoryIndex.of(Path.of(dir), true);
+            } catch (IOException ioe) {
+                Logger.error(ioe, "Error listing image folder {}", dir);
+                return null;
+            }
+        }
+        return images.findIgnoringCase(fileName);
+    }
+
     private MenuItem createDeselectItem() {
         MenuItem deselect = new MenuItem("Deselect All Rows");
         deselect.setOnAction(ev -> {
@@ -405,6 +485,27 @@ public class CsvGrid extends GridPane {
         return select;
     }
 
+    /**
+     * Redisplay the rows after the OutputCSV object has been changed outside the grid.
+     */
+    public void refresh() {
+        resetGridRows();
+    }
+
+    /**
+     * Display rows that have been added to the end of the OutputCSV object, or replaced in it,
+     * without redisplaying the other rows.
+     * @param first the index of the first row to display.
+     * @param last the index of the last row to display.
+     */
+    public void refreshRows(int first, int last) {
+        getChildren().removeIf(node -> {
+            Integer row = GridPane.getRowIndex(node);
+            return row != null && row >= first && row <= last;
+        });
+        createCellRows(csv.getBeans(), first, last);
+    }
+
     private void resetGridRows() {
         oldSelStart = NO_SELECTION;
         oldSelEnd = NO_SELECTION;
@@ -425,13 +526,6 @@ public class CsvGrid extends GridPane {
     }
 
     private void deleteBeans(Integer first, Integer last) {
-        List<FlexiBean> allBeans = csv.getBeans().getBeans();
-        csv.deleteAllBeans();
-        for (int i = 0; i < first.intValue(); i++) {
-            csv.getBeans().append(allBeans.get(i));
-        }
-        for (int i = last.intValue() + 1; i < allBeans.size(); i++) {
-            csv.getBeans().append(allBeans.get(i));
-        }
+        csv.deleteBeans(first, last);
     }
 }
@@ -0,0 +1,85 @@
+package com.github.jimorc.trilliumshowfx;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import org.tinylog.Logger;
+
+/**
+ * DuplicateImageDetector finds image files with identical contents: the same photo submitted
+ * under two file names, or a photo that was already hashed for an earlier show. Files are
+ * hashed in parallel on the common ForkJoinPool, and hashes are kept in an ImageHashCache so
+ * that unchanged files are not read again.
+ *
+ * ```java
+ * DuplicateImageDetector detector = new DuplicateImageDetector(cache);
+ * List<ValidationReport.DuplicateImages> duplicates = detector.detect(dir, fileNames);
+ * ```
+ */
+final class DuplicateImageDetector {
+    private final ImageHashCache cache;
+
+    /**
+     * Constructor.
+     * @param cache the cache of image hashes. The cache is saved after each call to detect.
+     */
+    DuplicateImageDetector(ImageHashCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Find the image files in a folder that have the same contents as each other or as a file
+     * in another folder that is in the cache. Files that cannot be read are skipped, and files in
+     * other folders that no longer exist are removed from the cache.
+     * @param dir the image folder.
+     * @param fileNames the image file names, relative to dir. Repeated names are checked once.
+     * @return the groups of duplicates, in the order that the first file of each group appears.
+     * @throws CSVException if hashing is interrupted.
+     */
+    List<ValidationReport.DuplicateImages> detect(Path dir, List<String> fileNames) throws CSVException {
+        return detect(dir, fileNames, ProgressMonitor.NONE);
+    }
+
+    /**
+     * Find the image files in a folder that have the same contents as each other or as a file
+     * in another folder that is in the cache, reporting progress as each file is hashed.
+     * @param dir the image folder.
+     * @param fileNames the image file names, relative to dir. Repeated names are checked once.
+     * @param monitor is told how many files have been hashed, and may cancel the hashing.
+     * @return the groups of duplicates, in the order that the first file of each group appears.
+     *         If hashing was cancelled, files that were not hashed are not reported.
+     * @throws CSVException if hashing is interrupted.
+     */
+    List<ValidationReport.DuplicateImages> detect(Path dir, List<String> fileNames, ProgressMonitor monitor)
+            throws CSVException {
+        List<String> names = new ArrayList<>(new LinkedHashSet<>(fileNames));
+        List<String> hashes = ImageHashCache.hashAll(dir, names, cache::hash, "duplicate images", monitor);
+        Map<String, List<String>> namesByHash = new LinkedHashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            if (hashes.get(i) != null) {
+                namesByHash.computeIfAbsent(hashes.get(i), _ -> new ArrayList<>()).add(names.get(i));
+            }
+        }
+        Path folder = dir.toAbsolutePath().normalize();
+        Map<String, List<String>> cachedPaths = cache.pathsByHash();
+        List<ValidationReport.DuplicateImages> duplicates = new ArrayList<>();
+        for (Map.Entry<String, List<String>> entry : namesByHash.entrySet()) {
+            List<String> earlier = new ArrayList<>();
+            for (String path : cachedPaths.getOrDefault(entry.getKey(), List.of())) {
+                if (!folder.equals(Path.of(path).getParent())) {
+                    earlier.add(path);
+                }
+            }
+            earlier = cache.prune(earlier);
+            if (entry.getValue().size() > 1 || !earlier.isEmpty()) {
+                duplicates.add(new ValidationReport.DuplicateImages(entry.getValue(), earlier));
+            }
+        }
+        cache.save();
+        Logger.debug("Found {} duplicate images among {} files in {}", duplicates.size(), names.size(), dir);
+        return duplicates;
+    }
+}
@@ -0,0 +1,213 @@
+package com.github.jimorc.trilliumshowfx;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * DuplicatePersonDetector finds full names that probably belong to the same person, such as
+ * "Jon Doe" and "John Doe", or "john doe" and "John Doe".
+ *
+ * Names are first normalized: accents and punctuation are removed, case is folded, and white
+ * space is collapsed. Names that are then equal are reported at once. The other names are
+ * placed in a blocking index keyed by character trigrams, and a name is only compared with the
+ * names that share a trigram with it and whose lengths are close enough. Trigrams shared by more
+ * than MAX_BLOCK_SIZE names carry little information and are not used for blocking, so the
+ * number of comparisons grows linearly with the number of names. Each candidate pair is checked
+ * with a bounded edit distance: one edit is allowed for names of up to SHORT_NAME_LENGTH
+ * characters, and two for longer names.
+ *
+ * ```java
+ * List<ValidationReport.SuspectedDuplicate> duplicates =
+ *     new DuplicatePersonDetector().detect(groups.getFullNames());
+ * ```
+ */
+final class DuplicatePersonDetector {
+    /**
+     * MAX_BLOCK_SIZE is the number of names above which a trigram is not used for blocking.
+     */
+    static final int MAX_BLOCK_SIZE = 256;
+    private static final int GRAM_LENGTH = 3;
+    private static final int SHORT_NAME_LENGTH = 10;
+    private static final char PAD = '#';
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern NON_NAME = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    // the number of pairs of names compared by the last call to detect.
+    private long comparisons;
+
+    /**
+     * Find the pairs of full names that probably belong to the same person.
+     * @param fullNames the distinct full names, in the order they first appear.
+     * @return the suspected duplicates, ordered by the positions of their names.
+     */
+    List<ValidationReport.SuspectedDuplicate> detect(List<String> fullNames) {
+        int n = fullNames.size();
+        String[] normalized = new String[n];
+        List<Pair> pairs = new ArrayList<>();
+        Map<String, Integer> exact = new HashMap<>();
+        Map<String, IntList> blocks = new HashMap<>();
+        boolean[] indexed = new boolean[n];
+        for (int i = 0; i < n; i++) {
+            normalized[i] = normalize(fullNames.get(i));
+            Integer same = exact.putIfAbsent(normalized[i], i);
+            if (same != null) {
+                pairs.add(new Pair(same, i, 0));
+                continue;
+            }
+            indexed[i] = true;
+            for (String gram : grams(normalized[i])) {
+                blocks.computeIfAbsent(gram, _ -> new IntList()).add(i);
+            }
+        }
+        boolean[] seen = new boolean[n];
+        IntList candidates = new IntList();
+        comparisons = 0;
+        for (int i = 0; i < n; i++) {
+            if (indexed[i]) {
+                findCandidates(i, normalized[i], blocks, seen, candidates);
+                compareCandidates(i, normalized, candidates, pairs);
+                comparisons += candidates.size();
+            }
+        }
+        pairs.sort(Comparator.comparingInt((Pair p) -> p.first).thenComparingInt(p -> p.second));
+        List<ValidationReport.SuspectedDuplicate> duplicates = new ArrayList<>(pairs.size());
+        for (Pair p : pairs) {
+            duplicates.add(new ValidationReport.SuspectedDuplicate(fullNames.get(p.first), fullNames.get(p.second),
+                p.distance));
+        }
+        return duplicates;
+    }
+
+    /**
+     * Retrieve the number of pairs of names whose edit distance was checked by the last call to
+     * detect.
+     * @return the number of comparisons.
+     */
+    long getComparisonCount() {
+        return comparisons;
+    }
+
+    // Replaces the candidates with the names after name i that share a trigram with it, skipping
+    // trigrams that are too common to be useful.
+    private static void findCandidates(int i, String name, Map<String, IntList> blocks, boolean[] seen,
+            IntList candidates) {
+        for (int c = 0; c < candidates.size(); c++) {
+            seen[candidates.get(c)] = false;
+        }
+        candidates.clear();
+        for (String gram : grams(name)) {
+            IntList block = blocks.get(gram);
+            if (block.size() > MAX_BLOCK_SIZE) {
+                continue;
+            }
+            for (int b = 0; b < block.size(); b++) {
+                int j = block.get(b);
+                if (j > i && !seen[j]) {
+                    seen[j] = true;
+                    candidates.add(j);
+                }
+            }
+        }
+    }
+
+    // Adds the candidates that are within the allowed edit distance of name i to pairs.
+    private static void compareCandidates(int i, String[] normalized, IntList candidates, List<Pair> pairs) {
+        int maxDistance = maxDistance(normalized[i].length());
+        for (int c = 0; c < candidates.size(); c++) {
+            int j = candidates.get(c);
+            int allowed = Math.max(maxDistance, maxDistance(normalized[j].length()));
+            int distance = distance(normalized[i], normalized[j], allowed);
+            if (distance <= allowed) {
+                pairs.add(new Pair(i, j, distance));
+            }
+        }
+    }
+
+    /**
+     * Normalize a full name for comparison.
+     * @param fullName the full name.
+     * @return the name in lower case, without accents or punctuation, with single spaces between
+     *         words.
+     */
+    static String normalize(String fullName) {
+        if (fullName == null) {
+            return "";
+        }
+        String stripped = MARKS.matcher(Normalizer.normalize(fullName, Normalizer.Form.NFD)).replaceAll("");
+        return NON_NAME.matcher(stripped.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+    }
+
+    /**
+     * Compute the edit distance between two strings, giving up once it exceeds a bound.
+     * @param a the first string.
+     * @param b the second string.
+     * @param max the bound.
+     * @return the edit distance, or max + 1 if it is greater than max.
+     */
+    static int distance(String a, String b, int max) {
+        if (Math.abs(a.length() - b.length()) > max) {
+            return max + 1;
+        }
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int substitute = previous[j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1);
+                current[j] = Math.min(substitute, Math.min(previous[j], current[j - 1]) + 1);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > max) {
+                return max + 1;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return Math.min(previous[b.length()], max + 1);
+    }
+
+    private static int maxDistance(int length) {
+        return length <= SHORT_NAME_LENGTH ? 1 : 2;
+    }
+
+    // Returns the distinct trigrams of the name, padded so that the first and last letters are
+    // in as many trigrams as the others.
+    private static String[] grams(String name) {
+        String padded = PAD + name + PAD;
+        if (padded.length() < GRAM_LENGTH) {
+            return new String[] {padded};
+        }
+        String[] grams = new String[padded.length() - GRAM_LENGTH + 1];
+        for (int i = 0; i < grams.length; i++) {
+            grams[i] = padded.substring(i, i + GRAM_LENGTH);
+        }
+        return Arrays.stream(grams).distinct().toArray(String[]::new);
+    }
+
+    /**
+     * Pair holds the positions of two names that may be the same person, and their distance.
+     */
+    private static final class Pair {
+        private final int first;
+        private final int second;
+        private final int distance;
+
+        private Pair(int first, int second, int distance) {
+            this.first = first;
+            this.second = second;
+            this.distance = distance;
+        }
+    }
+}
@@ -4,6 +4,9 @@ import com.opencsv.bean.CsvBindByName;
 
 /**
  * FlexiBean represents a row in the CSV input file.
+ *
+ * Columns that are not FlexiBean fields are kept in a slot array described by the CSVSchema
+ * that the row was parsed with. The array is only allocated when a row has extra values.
  */
 public class FlexiBean {
     /**
@@ -27,6 +30,9 @@ public class FlexiBean {
     @CsvBindByName(column = "Last Name", required = false)
     private String lastName;
 
+    private CSVSchema schema;
+    private String[] extras;
+
     /**
      * Get filename.
      * @return filename
@@ -67,6 +73,52 @@ public class FlexiBean {
         return lastName;
     }
 
+    /**
+     * Get the schema that describes this bean's extra columns.
+     * @return the schema, or null if the bean has no extra values.
+     */
+    public CSVSchema getSchema() {
+        return schema;
+    }
+
+    /**
+     * Get the value of a column that is not a FlexiBean field.
+     * @param column the column name.
+     * @return the value, or null if the bean has no value for the column.
+     */
+    public String getExtra(String column) {
+        return schema == null ? null : getExtra(schema, schema.getSlot(column));
+    }
+
+    /**
+     * Get the value in an extra column slot.
+     * @param slotSchema the schema that slot belongs to.
+     * @param slot the slot.
+     * @return the value, or null if the bean has no value for the slot.
+     */
+    String getExtra(CSVSchema slotSchema, int slot) {
+        if (schema == null || slotSchema != schema || slot == CSVSchema.NO_SLOT) {
+            return null;
+        }
+        return extras[slot];
+    }
+
+    /**
+     * Set the value in an extra column slot.
+     * @param slotSchema the schema that slot belongs to. A bean holds values for one schema only.
+     * @param slot the slot.
+     * @param value the value.
+     */
+    void setExtra(CSVSchema slotSchema, int slot, String value) {
+        if (schema == null) {
+            schema = slotSchema;
+            extras = new String[slotSchema.size()];
+        } else if (schema != slotSchema) {
+            throw new IllegalArgumentException("FlexiBean already holds values for another schema");
+        }
+        extras[slot] = value;
+    }
+
     /**
      * Set filename.
      * @param filename
@@ -128,15 +180,15 @@ public class FlexiBean {
     @Override
     public String toString() {
         StringBuffer sb = new StringBuffer();
-        sb.append(filename);
+        sb.append(getFilename());
         sb.append(",");
-        sb.append(title);
+        sb.append(getTitle());
         sb.append(",");
-        sb.append(fullName);
+        sb.append(getFullName());
         sb.append(",");
-        sb.append(firstName);
+        sb.append(getFirstName());
         sb.append(",");
-        sb.append(lastName);
+        sb.append(getLastName());
         return sb.toString();
     }
 }
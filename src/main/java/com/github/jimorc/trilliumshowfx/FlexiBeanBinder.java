@@ -0,0 +1,184 @@
+package com.github.jimorc.trilliumshowfx;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * FlexiBeanBinder maps the columns named in a CSV header line onto FlexiBean setters.
+ *
+ * Header names are matched without regard to case or surrounding white space, as openCSV does.
+ * Columns that do not correspond to a FlexiBean field are stored in the bean's extra slots,
+ * as described by the binder's CSVSchema. A binder may be created with a projection, in which
+ * case only the named columns (and the required Filename column) are bound; values in all other
+ * columns are never decoded. Blank values are not set, so the corresponding field remains null.
+ */
+final class FlexiBeanBinder {
+    private static final String FILENAME = "FILENAME";
+    private static final Map<String, BiConsumer<FlexiBean, String>> SETTERS = createSetters();
+
+    private final List<String> header;
+    private final BiConsumer<FlexiBean, String>[] columnSetters;
+    private final CSVSchema schema;
+    private final int filenameColumn;
+
+    /**
+     * Constructor that binds every column.
+     * @param header the fields in the CSV header line.
+     * @throws BadHeaderException if the header line is empty.
+     * @throws CSVException if the header does not contain the required Filename column.
+     */
+    FlexiBeanBinder(List<String> header) throws BadHeaderException, CSVException {
+        this(header, null);
+    }
+
+    /**
+     * Constructor that binds only the projected columns.
+     * @param header the fields in the CSV header line.
+     * @param projection the names of the columns to bind, or null to bind every column. The
+     *                   Filename column is always bound.
+     * @throws BadHeaderException if the header line is empty.
+     * @throws CSVException if the header does not contain the required Filename column.
+     */
+    @SuppressWarnings("unchecked")
+    FlexiBeanBinder(List<String> header, Set<String> projection) throws BadHeaderException, CSVException {
+        if (header.isEmpty()) {
+            throw new BadHeaderException("Error capturing CSV header!");
+        }
+        this.header = List.copyOf(header);
+        columnSetters = new BiConsumer[header.size()];
+        Set<String> projected = normalize(projection);
+        List<String> extraColumns = new ArrayList<>();
+        List<Integer> extraCols = new ArrayList<>();
+        int fileCol = -1;
+        for (int col = 0; col < header.size(); col++) {
+            String name = CSVSchema.normalize(header.get(col));
+            if (FILENAME.equals(name) && fileCol < 0) {
+                fileCol = col;
+            } else if (projected != null && !projected.contains(name)) {
+                continue;
+            }
+            columnSetters[col] = SETTERS.get(name);
+            if (columnSetters[col] == null) {
+                extraColumns.add(header.get(col).trim());
+                extraCols.add(col);
+            }
+        }
+        schema = new CSVSchema(extraColumns);
+        for (int i = 0; i < extraCols.size(); i++) {
+            int slot = i;
+            columnSetters[extraCols.get(i)] = (bean, value) -> bean.setExtra(schema, slot, value);
+        }
+        if (fileCol < 0) {
+            throw new CSVException("Error parsing CSV input: Header is missing required fields ["
+                + FILENAME + "]. The list of headers encountered is " + header + ".");
+        }
+        filenameColumn = fileCol;
+    }
+
+    /**
+     * Retrieve the number of columns in the header.
+     * @return the number of columns.
+     */
+    int getColumnCount() {
+        return columnSetters.length;
+    }
+
+    /**
+     * Retrieve the schema for the extra columns bound by this binder.
+     * @return the CSVSchema.
+     */
+    CSVSchema getSchema() {
+        return schema;
+    }
+
+    /**
+     * Retrieve the header fields this binder was created from.
+     * @return the header fields.
+     */
+    List<String> getHeader() {
+        return header;
+    }
+
+    /**
+     * Determine whether the specified column is stored in the FlexiBean. Values in columns that
+     * are not bound do not need to be decoded.
+     * @param column the column number.
+     * @return true if the column is bound to a FlexiBean field.
+     */
+    boolean isBound(int column) {
+        return columnSetters[column] != null;
+    }
+
+    /**
+     * Set the FlexiBean field for the specified column.
+     * @param bean the FlexiBean to set the field in.
+     * @param column the column number.
+     * @param value the field value. Blank values are ignored.
+     */
+    void bind(FlexiBean bean, int column, String value) {
+        BiConsumer<FlexiBean, String> setter = columnSetters[column];
+        if (setter != null && !value.isBlank()) {
+            setter.accept(bean, value);
+        }
+    }
+
+    /**
+     * Create a FlexiBean from the fields in a record.
+     * @param fields the fields in the record.
+     * @param recordNumber the number of the record in the CSV input, used in error messages.
+     * @return the FlexiBean.
+     * @throws CSVException if the record has the wrong number of fields or no filename.
+     */
+    FlexiBean createBean(List<String> fields, long recordNumber) throws CSVException {
+        FlexiBean bean = new FlexiBean();
+        for (int col = 0; col < fields.size() && col < columnSetters.length; col++) {
+            bind(bean, col, fields.get(col));
+        }
+        verify(bean, fields.size(), recordNumber);
+        return bean;
+    }
+
+    /**
+     * Verify that a bound FlexiBean is valid.
+     * @param bean the FlexiBean to verify.
+     * @param fieldCount the number of fields in the record the bean was created from.
+     * @param recordNumber the number of the record in the CSV input, used in error messages.
+     * @throws CSVException if fieldCount does not match the header or the filename is missing.
+     */
+    void verify(FlexiBean bean, int fieldCount, long recordNumber) throws CSVException {
+        if (fieldCount != columnSetters.length) {
+            throw new CSVException("Error parsing CSV input: Number of data fields does not match "
+                + "number of headers in record " + recordNumber + ".");
+        }
+        if (bean.getFilename() == null) {
+            throw new CSVException("Error parsing CSV input: Field '" + header.get(filenameColumn)
+                + "' is mandatory but no value was provided in record " + recordNumber + ".");
+        }
+    }
+
+    private static Set<String> normalize(Set<String> projection) {
+        if (projection == null) {
+            return null;
+        }
+        Set<String> names = new HashSet<>();
+        for (String name : projection) {
+            names.add(CSVSchema.normalize(name));
+        }
+        return names;
+    }
+
+    private static Map<String, BiConsumer<FlexiBean, String>> createSetters() {
+        Map<String, BiConsumer<FlexiBean, String>> setters = new HashMap<>();
+        setters.put(FILENAME, FlexiBean::setFilename);
+        setters.put("TITLE", FlexiBean::setTitle);
+        setters.put("FULL NAME", FlexiBean::setFullName);
+        setters.put("FIRST NAME", FlexiBean::setFirstName);
+        setters.put("LAST NAME", FlexiBean::setLastName);
+        return Map.copyOf(setters);
+    }
+}
@@ -4,19 +4,53 @@ import com.opencsv.bean.CsvToBean;
 import com.opencsv.bean.CsvToBeanBuilder;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Stream;
 import org.tinylog.Logger;
 
 /**
  * FlexiBeans handles parsing the CSV input into FlexiBean objects.
+ *
+ * FlexiBeans keeps an index of the beans grouped by person. The index is built in a single pass
+ * the first time it is needed and is then reused by getSortedFullNames and getPersons.
+ * Beans added with append or removed with remove keep the index current; any other change to the
+ * beans discards it, and it is rebuilt when it is next needed.
+ *
+ * Sorting does not move the beans. When the beans are first sorted, they are copied into a base
+ * array, and each sort order is an int permutation of that array. getBeans returns a view that
+ * follows the active permutation. Permutations for SortOrder values are cached, so switching back
+ * to an order that has already been used only changes the active permutation; SortOrder.AsIs is
+ * the order of the base array itself. Adding, inserting or removing a bean fixes the beans in the
+ * active order, and discards the base array and the cached permutations.
  */
 public class FlexiBeans {
     private List<FlexiBean> beans;
+    // the person index, or null if it must be rebuilt.
+    private PersonGroups personGroups;
+    // the beans when they were first sorted, or null if they have changed since. It is not changed.
+    private FlexiBean[] base;
+    // the active permutation of base, or null for the order of beans itself.
+    private int[] order;
+    private final Map<SortOrder, int[]> permutations = new EnumMap<>(SortOrder.class);
+    // the number of beans added to the person index, whether it was rebuilt or kept up to date.
+    private long indexedBeans;
+    private final List<FlexiBean> permutedView = new PermutedBeans();
 
     /**
      * Default constructor.
@@ -27,17 +61,46 @@ public class FlexiBeans {
     }
 
     /**
-     * Constructor that takes an InputStream for the CSV data.
+     * Constructor that takes an already parsed list of FlexiBean objects.
+     * @param beans the FlexiBean objects
+     */
+    FlexiBeans(List<FlexiBean> beans) {
+        Logger.trace("In FlexiBeans constructor(List)");
+        this.beans = beans;
+    }
+
+    /**
+     * Constructor that takes an already parsed list of FlexiBean objects and the person groups
+     * that were built while they were parsed.
+     * @param beans the FlexiBean objects
+     * @param groups the FlexiBean objects grouped by full name
+     */
+    FlexiBeans(List<FlexiBean> beans, PersonGroups groups) {
+        this(beans);
+        personGroups = groups;
+    }
+
+    /**
+     * Constructor that takes an InputStream for the CSV data. The data is parsed using openCSV.
      * @param csvInputStream InputStream of CSV data
      */
     public FlexiBeans(InputStream csvInputStream) throws BadHeaderException, CSVException {
+        this(csvInputStream, ParserType.OpenCSV);
+    }
+
+    /**
+     * Constructor that takes an InputStream for the CSV data and the parser to use.
+     * @param csvInputStream InputStream of CSV data
+     * @param parser the parser to use
+     */
+    public FlexiBeans(InputStream csvInputStream, ParserType parser) throws BadHeaderException, CSVException {
         this();
-        Logger.trace("In FlexiBeans constructor(InputStream)");
-        parseInputStreamReader(new InputStreamReader(csvInputStream));
+        Logger.trace("In FlexiBeans constructor(InputStream, ParserType)");
+        parseInputStreamReader(new InputStreamReader(csvInputStream), parser);
     }
 
     /**
-     * Constructor that takes a File for the CSV data.
+     * Constructor that takes a File for the CSV data. The data is parsed using openCSV.
      * @param csvF File object for CSV data
      * @throws CSVException if an error occurs during CSV parsing
      * @throws CSVException if the File is null or not a file
@@ -45,8 +108,22 @@ public class FlexiBeans {
      *                      a programming error somewhere else in the code.
      */
     public FlexiBeans(File csvF) throws BadHeaderException, CSVException, FileNotFoundException {
+        this(csvF, ParserType.OpenCSV);
+    }
+
+    /**
+     * Constructor that takes a File for the CSV data and the parser to use. Files with a .gz or
+     * .zip extension are inflated as they are parsed.
+     * @param csvF File object for CSV data
+     * @param parser the parser to use
+     * @throws CSVException if an error occurs during CSV parsing
+     * @throws CSVException if the File is null or not a file
+     * @throws CSVException if the file is not found. If this happens, there is likely
+     *                      a programming error somewhere else in the code.
+     */
+    public FlexiBeans(File csvF, ParserType parser) throws BadHeaderException, CSVException, FileNotFoundException {
         this();
-        Logger.trace("In FlexiBeans constructor(File)");
+        Logger.trace("In FlexiBeans constructor(File, ParserType)");
         if (csvF == null) {
             Logger.error("FlexiBeans constructor was passed a null CSV file object");
             throw new CSVException("Trying to read a null CSVFile.\n"
@@ -59,16 +136,104 @@ public class FlexiBeans {
                 + " which is not a file.\nThis may be a programming error.\n"
                 + "Please report this.");
         }
-        InputStreamReader reader = new InputStreamReader(new java.io.FileInputStream(csvF));
-        parseInputStreamReader(reader);
+        try (InputStreamReader reader = new InputStreamReader(CompressedCSVInput.open(csvF))) {
+            parseInputStreamReader(reader, parser);
+        } catch (FileNotFoundException fnfe) {
+            throw fnfe;
+        } catch (IOException ioe) {
+            Logger.error(ioe, "IOException caught closing CSV file");
+            throw new CSVException("Error reading CSV input: " + ioe.getMessage());
+        }
+    }
+
+    /**
+     * Create a Stream that parses FlexiBean objects from CSV data as they are consumed, using the
+     * built-in tokenizer. The header line is read before this method returns. The Stream should be
+     * closed after use; closing it closes csvInputStream. Errors found while the Stream is consumed
+     * are thrown as UncheckedCSVException or UncheckedIOException.
+     * @param csvInputStream InputStream of CSV data
+     * @return Stream of FlexiBean objects, in input order
+     * @throws BadHeaderException if there is no header line
+     * @throws CSVException if the header line is invalid or cannot be read
+     */
+    public static Stream<FlexiBean> stream(InputStream csvInputStream) throws BadHeaderException, CSVException {
+        return stream(csvInputStream, null);
     }
 
     /**
-     * Get the list of FlexiBean objects.
+     * Create a Stream that parses only the projected columns of CSV data as they are consumed.
+     * Fields in other columns are not stored. See stream(InputStream).
+     * @param csvInputStream InputStream of CSV data
+     * @param columns the names of the columns to keep, or null to keep every column. The Filename
+     *                column is always kept.
+     * @return Stream of FlexiBean objects, in input order
+     * @throws BadHeaderException if there is no header line
+     * @throws CSVException if the header line is invalid or cannot be read
+     */
+    public static Stream<FlexiBean> stream(InputStream csvInputStream, Set<String> columns)
+            throws BadHeaderException, CSVException {
+        try {
+            return new CSVBeanReader(new InputStreamReader(csvInputStream), columns).stream();
+        } catch (IOException ioe) {
+            Logger.error(ioe, "IOException caught reading CSV header");
+            throw new CSVException("Error reading CSV input: " + ioe.getMessage());
+        }
+    }
+
+    /**
+     * Get the list of FlexiBean objects. Changes made directly to the list discard the person
+     * index.
      * @return list of FlexiBean objects
      */
     public List<FlexiBean> getBeans() {
-        return beans;
+        return permutedView;
+    }
+
+    /**
+     * Get the FlexiBean objects grouped by full name. The groups are in the order that the
+     * full names first appear in the FlexiBean list.
+     * @return the person index
+     */
+    public PersonGroups getPersonGroups() {
+        if (personGroups == null) {
+            personGroups = new PersonGroups();
+            getBeans().forEach(personGroups);
+            indexedBeans += getBeans().size();
+        }
+        return personGroups;
+    }
+
+    /**
+     * Retrieve the number of beans that have been added to the person index, counting every bean
+     * each time the index is rebuilt.
+     * @return the number of beans indexed.
+     */
+    long getIndexedBeanCount() {
+        return indexedBeans;
+    }
+
+    /**
+     * Partition the FlexiBean objects by the value of a column in a single pass. Each partition
+     * keeps the beans in their current order and has its person groups built in the same pass.
+     * @param column the column name; either a FlexiBean field or an extra column.
+     * @param missing the key to use for beans that have no value in the column.
+     * @return map of column value to the beans with that value, in the order that the values
+     *         first appear.
+     */
+    public Map<String, FlexiBeans> partitionBy(String column, String missing) {
+        Function<FlexiBean, String> key = CSVSchema.isBeanField(column)
+            ? new CSVSchema(List.of()).accessor(column) : bean -> bean.getExtra(column);
+        Map<String, List<FlexiBean>> lists = new LinkedHashMap<>();
+        Map<String, PersonGroups> groups = new HashMap<>();
+        for (FlexiBean bean : getBeans()) {
+            String value = key.apply(bean);
+            value = value == null || value.isBlank() ? missing : value.trim();
+            lists.computeIfAbsent(value, _ -> new ArrayList<>()).add(bean);
+            groups.computeIfAbsent(value, _ -> new PersonGroups()).accept(bean);
+        }
+        Map<String, FlexiBeans> partitions = new LinkedHashMap<>();
+        lists.forEach((value, list) -> partitions.put(value, new FlexiBeans(list, groups.get(value))));
+        return partitions;
     }
 
     /**
@@ -78,29 +243,22 @@ public class FlexiBeans {
      * @return list of Person objects
      */
     public List<Person> getPersons() {
-        List<Person> fullNames = new ArrayList<Person>();
-        for (FlexiBean bean : beans) {
-            Person person = new Person(bean.getFirstName(), bean.getLastName());
-            if (!fullNames.contains(person)) {
-                fullNames.add(new Person(bean.getFirstName(), bean.getLastName()));
+        Set<Person> persons = new LinkedHashSet<>();
+        for (FlexiBeans group : getPersonGroups().getGroups().values()) {
+            for (FlexiBean bean : group.getBeans()) {
+                persons.add(new Person(bean.getFirstName(), bean.getLastName()));
             }
         }
-        return fullNames;
+        return new ArrayList<>(persons);
     }
 
     /**
-     * Get the sorted list of unique full names represented by the FlexiBean objects.
-     * @return sorted list of unique full names
+     * Get the list of unique full names represented by the FlexiBean objects, in the order
+     * that they first appear.
+     * @return list of unique full names
      */
     public ArrayList<String> getSortedFullNames() {
-        ArrayList<String> fullNames = new ArrayList<String>();
-        for (FlexiBean bean : beans) {
-            String fullName = bean.getFullName();
-            if (!fullNames.contains(fullName)) {
-                fullNames.add(fullName);
-            }
-        }
-        return fullNames;
+        return new ArrayList<>(getPersonGroups().getGroups().keySet());
     }
 
     /**
@@ -108,7 +266,26 @@ public class FlexiBeans {
      * @param bean FlexiBean to append
      */
     public void append(FlexiBean bean) {
+        fixOrder();
         beans.add(bean);
+        if (personGroups != null) {
+            personGroups.accept(bean);
+            indexedBeans++;
+        }
+    }
+
+    /**
+     * Remove the FlexiBean at the specified location.
+     * @param index the location of the bean to remove
+     * @return the removed FlexiBean
+     */
+    public FlexiBean remove(int index) {
+        fixOrder();
+        FlexiBean bean = beans.remove(index);
+        if (personGroups != null) {
+            personGroups.remove(bean);
+        }
+        return bean;
     }
 
     /**
@@ -117,78 +294,164 @@ public class FlexiBeans {
      * @param bean the FlexiBean to insert.
      */
     public void insert(int index, FlexiBean bean) {
+        fixOrder();
         beans.add(index, bean);
+        personGroups = null;
+    }
+
+    /**
+     * Insert FlexiBean objects at the specified location.
+     * @param index the location of the first inserted bean
+     * @param inserted the FlexiBeans to insert, in order.
+     */
+    public void insertAll(int index, List<FlexiBean> inserted) {
+        fixOrder();
+        beans.addAll(index, inserted);
+        personGroups = null;
+    }
+
+    /**
+     * Remove the FlexiBean objects in a range of locations.
+     * @param fromIndex the location of the first bean to remove
+     * @param toIndex the location after the last bean to remove
+     */
+    public void removeRange(int fromIndex, int toIndex) {
+        fixOrder();
+        beans.subList(fromIndex, toIndex).clear();
+        personGroups = null;
     }
 
     /**
-     * Sort the FlexiBean objects according to the specified SortOrder.
+     * Move the FlexiBean objects in a range of locations to another location.
+     * @param fromIndex the location of the first bean to move
+     * @param toIndex the location after the last bean to move
+     * @param index the location of the first moved bean once the beans have been moved. It is a
+     *              location in the list with the range removed.
+     */
+    public void move(int fromIndex, int toIndex, int index) {
+        fixOrder();
+        if (beans instanceof IndexedList<FlexiBean> indexed) {
+            indexed.move(fromIndex, toIndex, index);
+        } else {
+            List<FlexiBean> range = beans.subList(fromIndex, toIndex);
+            List<FlexiBean> moved = new ArrayList<>(range);
+            range.clear();
+            beans.addAll(index, moved);
+        }
+        personGroups = null;
+    }
+
+    /**
+     * Store the beans in an IndexedList, so that inserting a bean takes O(log n) time rather than
+     * moving every bean after it. Reading a bean by position then takes O(log n) time as well.
+     */
+    void useIndexedList() {
+        fixOrder();
+        if (!(beans instanceof IndexedList)) {
+            beans = new IndexedList<>(beans);
+        }
+    }
+
+    /**
+     * Sort the FlexiBean objects according to the specified SortOrder. The permutation for each
+     * SortOrder is computed from the base array once, and reused until beans are added, inserted or
+     * removed. SortOrder.AsIs returns the beans to the order they were in before they were sorted.
      * @param order SortOrder to use for sorting
      */
     public void sort(SortOrder order) {
-        Map<String, FlexiBeans> beanMap = generateBeanMap();
-        List<String> fullNames = generateFullNamesList();
-        switch (order) {
-            case AsIs:
-                sortBeans(beanMap, fullNames);
-                break;
-            case AlphabeticalByFullName:
-                fullNames.sort(String::compareToIgnoreCase);
-                sortBeans(beanMap, fullNames);
-                break;
-            case AlphabeticalByFullNameReverse:
-                fullNames.sort((a, b) -> b.compareToIgnoreCase(a));
-                sortBeans(beanMap, fullNames);
-                break;
-            case AlphabeticalByLastNameThenFirstName:
-                fullNames.sort((a, b) -> {
-                    String[] aParts = a.split(" ");
-                    String[] bParts = b.split(" ");
-                    String aLastName = aParts[aParts.length - 1];
-                    String bLastName = bParts[bParts.length - 1];
-                    int lastNameCompare = aLastName.compareToIgnoreCase(bLastName);
-                    if (lastNameCompare != 0) {
-                        return lastNameCompare;
-                    } else {
-                        return a.compareToIgnoreCase(b);
-                    }
-                });
-                sortBeans(beanMap, fullNames);
+        FlexiBean[] sorted = baseArray();
+        int[] permutation = order == SortOrder.AsIs ? null
+            : permutations.computeIfAbsent(order, o -> new SortSpec(o).permutation(Arrays.asList(sorted)));
+        if (permutation != this.order) {
+            this.order = permutation;
+            personGroups = null;
+        }
+    }
+
+    /**
+     * Sort the FlexiBean objects according to the specified SortSpec. The sort is a stable sort of
+     * the beans in their current order, and the beans for each person remain together. The result
+     * is a permutation of the base array, but it is not cached.
+     * @param spec SortSpec to use for sorting
+     */
+    public void sort(SortSpec spec) {
+        int[] permutation = spec.permutation(getBeans());
+        if (order != null) {
+            for (int i = 0; i < permutation.length; i++) {
+                permutation[i] = order[permutation[i]];
+            }
+        }
+        baseArray();
+        order = permutation;
+        personGroups = null;
+    }
+
+    // Returns the base array, copying the beans into it if they have changed since it was made.
+    private FlexiBean[] baseArray() {
+        if (base == null) {
+            base = beans.toArray(new FlexiBean[0]);
+        }
+        return base;
+    }
+
+    // Copies the beans into the active order so that they can be changed, and discards the base
+    // array and the cached permutations, which no longer match the beans once they are changed.
+    private void fixOrder() {
+        if (order != null) {
+            beans = beans instanceof IndexedList ? new IndexedList<>(permutedView) : new ArrayList<>(permutedView);
+            order = null;
+            personGroups = null;
+        }
+        base = null;
+        permutations.clear();
+    }
+
+    /**
+     * Sort a list of full names according to the specified SortOrder. SortOrder.AsIs leaves
+     * the list unchanged. The last word of each full name is used as the last name.
+     * @param fullNames the full names to sort
+     * @param order SortOrder to use for sorting
+     */
+    public static void sortFullNames(List<String> fullNames, SortOrder order) {
+        sortFullNames(fullNames, order, _ -> null);
+    }
+
+    /**
+     * Sort a list of full names according to the specified SortOrder, using the collation
+     * rules of the default locale. SortOrder.AsIs leaves the list unchanged.
+     * @param fullNames the full names to sort
+     * @param order SortOrder to use for sorting
+     * @param lastNames Function that returns the last name for a full name, or null to use
+     *                  the last word of the full name
+     */
+    public static void sortFullNames(List<String> fullNames, SortOrder order, Function<String, String> lastNames) {
+        new NameSorter(Locale.getDefault()).sort(fullNames, order, lastNames);
+    }
+
+    private void parseInputStreamReader(InputStreamReader reader, ParserType parser)
+            throws BadHeaderException, CSVException {
+        switch (parser) {
+            case OpenCSV:
+                parseWithOpenCSV(reader);
                 break;
-            case AlphabeticalByLastNameThenFirstNameReverse:
-                fullNames.sort((a, b) -> {
-                    String[] aParts = a.split(" ");
-                    String[] bParts = b.split(" ");
-                    String aLastName = aParts[aParts.length - 1];
-                    String bLastName = bParts[bParts.length - 1];
-                    int lastNameCompare = bLastName.compareToIgnoreCase(aLastName);
-                    if (lastNameCompare != 0) {
-                        return lastNameCompare;
-                    } else {
-                        return b.compareToIgnoreCase(a);
-                    }
-                });
-                sortBeans(beanMap, fullNames);
+            case Tokenizer:
+                parseWithTokenizer(reader);
                 break;
             default:
-                Logger.error("Sort order ", order.toString(), " not yet implemented.");
-                throw new UnsupportedOperationException("Sort order " + order.toString() + " not yet implemented.");
+                Logger.error("Parser type ", parser.toString(), " not yet implemented.");
+                throw new UnsupportedOperationException("Parser type " + parser.toString() + " not yet implemented.");
         }
-    }
-
-    private void sortBeans(Map<String, FlexiBeans> beanMap, List<String> fullNames) {
-        List<FlexiBean> sortedBeans = new ArrayList<FlexiBean>();
-        for (String fullName : fullNames) {
-            FlexiBeans flexiBeans = beanMap.get(fullName);
-            sortedBeans.addAll(flexiBeans.getBeans());
+        Logger.debug("Parsed {} beans from CSV input", beans.size());
+        for (FlexiBean bean : beans) {
+            Logger.trace("{}\n", bean.toString());
         }
-        beans = sortedBeans;
     }
 
     // Need to suppress checkstyle IllegalCatch here because
     // openCSV CsvToBean.parse() may throw RuntimeException.
     // We need to catch that and re-throw as CSVException or BadHeaderException.
     @SuppressWarnings("checkstyle:IllegalCatch")
-    private void parseInputStreamReader(InputStreamReader reader)
+    private void parseWithOpenCSV(InputStreamReader reader)
             throws BadHeaderException, CSVException {
         CsvToBean<FlexiBean> csvToBean = new CsvToBeanBuilder<FlexiBean>(reader)
                 .withType(FlexiBean.class)
@@ -207,28 +470,119 @@ public class FlexiBeans {
                 throw new CSVException("Error parsing CSV input: " + e.getMessage());
             }
         }
-        Logger.debug("Parsed {} beans from CSV input", beans.size());
-        for (FlexiBean bean : beans) {
-            Logger.trace("{}\n", bean.toString());
-        }
     }
 
-    private Map<String, FlexiBeans> generateBeanMap() {
-        Map<String, FlexiBeans> beanMap = new HashMap<>();
-        for (FlexiBean bean : beans) {
-            beanMap.putIfAbsent(bean.getFullName(), new FlexiBeans());
-            beanMap.get(bean.getFullName()).append(bean);
+    private void parseWithTokenizer(InputStreamReader reader)
+            throws BadHeaderException, CSVException {
+        try {
+            CSVBeanReader beanReader = new CSVBeanReader(reader);
+            beans = beanReader.readAll();
+        } catch (IOException ioe) {
+            Logger.error(ioe, "IOException caught during CSV parsing");
+            throw new CSVException("Error reading CSV input: " + ioe.getMessage());
         }
-        return beanMap;
     }
 
-    private List<String> generateFullNamesList() {
-        List<String> fullNames = new ArrayList<String>();
-        for (FlexiBean bean : beans) {
-            if (!fullNames.contains(bean.getFullName())) {
-                fullNames.add(bean.getFullName());
+    /**
+     * PermutedBeans is the view of beans in the order of the active permutation. Changing the
+     * view fixes the beans in that order first, and discards the person index.
+     */
+    private final class PermutedBeans extends AbstractList<FlexiBean> {
+        @Override
+        public FlexiBean get(int index) {
+            return order == null ? beans.get(index) : base[order[index]];
+        }
+
+        // Iterates with the iterator of beans, which takes O(1) time per bean for an IndexedList,
+        // or over the base array in the order of the active permutation.
+        @Override
+        public Iterator<FlexiBean> iterator() {
+            if (order == null) {
+                Iterator<FlexiBean> inOrder = beans.iterator();
+                return new Iterator<>() {
+                    @Override
+                    public boolean hasNext() {
+                        return inOrder.hasNext();
+                    }
+
+                    @Override
+                    public FlexiBean next() {
+                        return inOrder.next();
+                    }
+
+                    @Override
+                    public void remove() {
+                        fixOrder();
+                        personGroups = null;
+                        inOrder.remove();
+                    }
+                };
             }
+            FlexiBean[] array = base;
+            int[] permutation = order;
+            return new Iterator<>() {
+                private int next;
+                // the number of beans removed, which fixes the beans in the order of the permutation.
+                private int removed;
+                private boolean canRemove;
+
+                @Override
+                public boolean hasNext() {
+                    return next < permutation.length;
+                }
+
+                @Override
+                public FlexiBean next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    canRemove = true;
+                    return array[permutation[next++]];
+                }
+
+                @Override
+                public void remove() {
+                    if (!canRemove) {
+                        throw new IllegalStateException();
+                    }
+                    PermutedBeans.this.remove(next - 1 - removed);
+                    removed++;
+                    canRemove = false;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return beans.size();
+        }
+
+        @Override
+        public FlexiBean set(int index, FlexiBean bean) {
+            fixOrder();
+            personGroups = null;
+            return beans.set(index, bean);
+        }
+
+        @Override
+        public void add(int index, FlexiBean bean) {
+            fixOrder();
+            personGroups = null;
+            beans.add(index, bean);
+        }
+
+        @Override
+        public FlexiBean remove(int index) {
+            fixOrder();
+            personGroups = null;
+            return beans.remove(index);
+        }
+
+        @Override
+        protected void removeRange(int fromIndex, int toIndex) {
+            fixOrder();
+            personGroups = null;
+            beans.subList(fromIndex, toIndex).clear();
         }
-        return fullNames;
     }
 }
@@ -0,0 +1,94 @@
+package com.github.jimorc.trilliumshowfx;
+
+import javafx.concurrent.Task;
+import javafx.geometry.Pos;
+import javafx.scene.Scene;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressBar;
+import javafx.scene.layout.VBox;
+import org.tinylog.Logger;
+
+/**
+ * ImageCheckStage runs InputCSV.validateImages on a background thread and shows its progress.
+ * The Stage closes when the checks finish. Clicking Cancel, or closing the window, stops the
+ * checks, and the ValidationReport is then left without image warnings.
+ *
+ * ```java
+ * ImageCheckStage stage = new ImageCheckStage(csv);
+ * stage.showAndWait();
+ * Throwable t = stage.getException();
+ * ```
+ */
+public class ImageCheckStage extends FlexiStage {
+    private final int spacing = 50;
+    private final double barWidth = 600;
+    private final ImageCheckTask task;
+
+    /**
+     * Constructor. The checks start when the Stage is shown.
+     * @param csv the InputCSV object whose images are checked.
+     */
+    public ImageCheckStage(InputCSV csv) {
+        Logger.trace("In ImageCheckStage constructor");
+        task = new ImageCheckTask(csv);
+        Label label = new Label("Checking image files in " + csv.getFileDir());
+        ProgressBar bar = new ProgressBar();
+        bar.setPrefWidth(barWidth);
+        bar.progressProperty().bind(task.progressProperty());
+        FlexiButton cancel = new FlexiButton("Cancel");
+        cancel.setOnAction(_ -> {
+            Logger.debug("Cancel button clicked; cancelling image checks");
+            task.cancel();
+        });
+        // closing the window stops the checks rather than the program.
+        setOnCloseRequest(_ -> {
+            Logger.trace("Handling ImageCheckStage close request");
+            task.cancel();
+        });
+        task.setOnSucceeded(_ -> close());
+        task.setOnFailed(_ -> close());
+        task.setOnCancelled(_ -> close());
+        setOnShown(_ -> {
+            Thread thread = new Thread(task, "image-checks");
+            thread.setDaemon(true);
+            thread.start();
+        });
+        VBox box = new VBox(spacing);
+        box.getChildren().addAll(label, bar, cancel);
+        box.setAlignment(Pos.CENTER);
+        Scene scene = new Scene(box);
+        this.setScene(scene);
+        Logger.trace("Returning from ImageCheckStage constructor");
+    }
+
+    /**
+     * Retrieve the exception that stopped the checks.
+     * @return the exception, or null if the checks finished or were cancelled.
+     */
+    public Throwable getException() {
+        return task.isCancelled() ? null : task.getException();
+    }
+
+    /**
+     * ImageCheckTask calls validateImages, passing itself as the ProgressMonitor so that progress
+     * is shown in the Stage and cancelling the Task stops the checks.
+     */
+    private static final class ImageCheckTask extends Task<Void> implements ProgressMonitor {
+        private final InputCSV csv;
+
+        private ImageCheckTask(InputCSV csv) {
+            this.csv = csv;
+        }
+
+        @Override
+        protected Void call() throws CSVException {
+            csv.validateImages(this);
+            return null;
+        }
+
+        @Override
+        public void progress(long done, long total) {
+            updateProgress(done, total);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.github.jimorc.trilliumshowfx;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.tinylog.Logger;
+
+/**
+ * ImageDirectoryIndex is a snapshot of the names of the files in an image folder. The folder is
+ * listed once with Files.newDirectoryStream, and each lookup is then a hash table probe rather
+ * than a file system call, which matters when the folder is on a network drive.
+ *
+ * Names may be matched with or without regard to case. An index that matches case also keeps a
+ * case insensitive view of the same listing, for checks such as whether a copy would replace a
+ * file on a case insensitive file system. An index may be read and updated from
+ * different threads, as it is by ImageDirectoryWatcher. The listing does not read the attributes
+ * of each entry, so a subfolder whose name looks like an image file name is also found. Names
+ * that contain a folder, such as "entries/image1.jpg", are not in the listing and are looked up
+ * in the file system instead.
+ *
+ * ```java
+ * ImageDirectoryIndex images = ImageDirectoryIndex.of(Path.of(dir), true);
+ * if (!images.contains("IMAGE1.jpg")) {
+ *     missing.add("IMAGE1.jpg");
+ * }
+ * ```
+ */
+public final class ImageDirectoryIndex {
+    private final Path dir;
+    private final boolean ignoreCase;
+    // key is the name, or the lower case name when ignoring case; value is the name on disk.
+    private volatile Map<String, String> names = new ConcurrentHashMap<>();
+    // key is the lower case name; value is a name on disk. This is names when ignoring case.
+    private volatile Map<String, String> folded = names;
+
+    private ImageDirectoryIndex(Path dir, boolean ignoreCase) {
+        this.dir = dir;
+        this.ignoreCase = ignoreCase;
+    }
+
+    /**
+     * Create an index of a folder.
+     * @param dir the folder to list.
+     * @param ignoreCase true if names should be matched without regard to case.
+     * @return the index.
+     * @throws IOException if the folder cannot be listed.
+     */
+    public static ImageDirectoryIndex of(Path dir, boolean ignoreCase) throws IOException {
+        ImageDirectoryIndex index = new ImageDirectoryIndex(dir, ignoreCase);
+        index.rescan();
+        return index;
+    }
+
+    /**
+     * List the folder again and replace the names in the index. Lookups made while the folder is
+     * being listed see the old names.
+     * @throws IOException if the folder cannot be listed.
+     */
+    void rescan() throws IOException {
+        Map<String, String> listed = new ConcurrentHashMap<>();
+        Map<String, String> listedFolded = ignoreCase ? listed : new ConcurrentHashMap<>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir)) {
+            for (Path entry : entries) {
+                String name = entry.getFileName().toString();
+                listed.putIfAbsent(key(name), name);
+                listedFolded.putIfAbsent(fold(name), name);
+            }
+        }
+        names = listed;
+        folded = listedFolded;
+        Logger.debug("Indexed {} names in {}", listed.size(), dir);
+    }
+
+    /**
+     * Determine whether the folder contains a file.
+     * @param fileName the file name, relative to the folder.
+     * @return true if the file is in the folder.
+     */
+    public boolean contains(String fileName) {
+        return find(fileName) != null;
+    }
+
+    /**
+     * Find the name that a file has in the folder. When ignoring case, this may differ in case
+     * from fileName.
+     * @param fileName the file name, relative to the folder.
+     * @return the name in the folder, or null if the file is not in the folder.
+     */
+    public String find(String fileName) {
+        if (fileName == null || fileName.isEmpty()) {
+            return null;
+        }
+        if (fileName.indexOf('/') >= 0 || fileName.indexOf('\\') >= 0) {
+            return Files.isRegularFile(dir.resolve(fileName)) ? fileName : null;
+        }
+        return names.get(key(fileName));
+    }
+
+    /**
+     * Find a name in the folder that matches a file name without regard to case, whether or not
+     * this index ignores case. If the folder holds several such names, one of them is returned.
+     * @param fileName the file name, relative to the folder.
+     * @return the name in the folder, or null if no name in the folder matches.
+     */
+    public String findIgnoringCase(String fileName) {
+        if (fileName == null || fileName.isEmpty()) {
+            return null;
+        }
+        if (fileName.indexOf('/') >= 0 || fileName.indexOf('\\') >= 0) {
+            return Files.isRegularFile(dir.resolve(fileName)) ? fileName : null;
+        }
+        return folded.get(fold(fileName));
+    }
+
+    /**
+     * Add a name to the index, such as the name of a file copied into the folder after the
+     * index was created.
+     * @param fileName the file name.
+     */
+    public void add(String fileName) {
+        names.putIfAbsent(key(fileName), fileName);
+        folded.putIfAbsent(fold(fileName), fileName);
+    }
+
+    /**
+     * Remove a name from the index, such as the name of a file deleted from the folder. When
+     * ignoring case, the name is only removed if it matches the name on disk exactly, so that
+     * deleting "a.jpg" does not hide "A.jpg".
+     * @param fileName the file name, as it was on disk.
+     */
+    public void remove(String fileName) {
+        names.remove(key(fileName), fileName);
+        String lower = fold(fileName);
+        if (!ignoreCase && folded.remove(lower, fileName)) {
+            // another name that differs only in case may still be in the folder.
+            for (String name : names.values()) {
+                if (fold(name).equals(lower)) {
+                    folded.putIfAbsent(lower, name);
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Retrieve the number of names in the index.
+     * @return the number of names.
+     */
+    public int size() {
+        return names.size();
+    }
+
+    private String key(String fileName) {
+        return ignoreCase ? fold(fileName) : fileName;
+    }
+
+    private static String fold(String fileName) {
+        return fileName.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,179 @@
+package com.github.jimorc.trilliumshowfx;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.tinylog.Logger;
+
+/**
+ * ImageDirectoryWatcher keeps an ImageDirectoryIndex of an image folder up to date while a show
+ * is being edited. The folder is listed once; after that, a WatchService reports files that are
+ * created, deleted or modified, and the index is updated by name. A renamed file is reported as
+ * a delete followed by a create; a modified file, such as a CSV file that is still being
+ * written, does not change the index. If the WatchService loses events, the folder is listed
+ * again.
+ *
+ * Events are handled on a daemon thread, and listeners are called on that thread with the names
+ * that changed. A JavaFX listener must use Platform.runLater to update the scene. If the folder
+ * can no longer be watched or listed, the thread stops, isWatching returns false, and the
+ * listeners are called with an empty set; the index must then be rescanned before it is relied
+ * on.
+ *
+ * ```java
+ * try (ImageDirectoryWatcher watcher = ImageDirectoryWatcher.start(Path.of(dir), true)) {
+ *     watcher.addListener(changed -> Platform.runLater(grid::updateMissingImages));
+ *     ...
+ * }
+ * ```
+ */
+public final class ImageDirectoryWatcher implements AutoCloseable {
+    private final Path dir;
+    private final WatchService watchService;
+    private final ImageDirectoryIndex index;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private volatile boolean watching = true;
+
+    /**
+     * Listener is notified when files in the folder are created, deleted or modified.
+     */
+    @FunctionalInterface
+    public interface Listener {
+        /**
+         * Called after the index has been updated.
+         * @param changed the names of the files that were created, deleted or modified; empty if the
+         *        folder was listed again or the watcher has stopped, and any file may have changed.
+         */
+        void imagesChanged(Set<String> changed);
+    }
+
+    private ImageDirectoryWatcher(Path dir, WatchService watchService, ImageDirectoryIndex index) {
+        this.dir = dir;
+        this.watchService = watchService;
+        this.index = index;
+    }
+
+    /**
+     * Start watching a folder.
+     * @param dir the folder to watch.
+     * @param ignoreCase true if names should be matched without regard to case.
+     * @return the watcher.
+     * @throws IOException if the folder cannot be watched or listed.
+     */
+    public static ImageDirectoryWatcher start(Path dir, boolean ignoreCase) throws IOException {
+        WatchService watchService = dir.getFileSystem().newWatchService();
+        try {
+            // register before listing so that no change is missed between the two.
+            dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE,
+                StandardWatchEventKinds.ENTRY_MODIFY);
+            ImageDirectoryWatcher watcher = new ImageDirectoryWatcher(dir, watchService,
+                ImageDirectoryIndex.of(dir, ignoreCase));
+            Thread.ofPlatform().daemon().name("image-folder-watcher").start(watcher::watch);
+            return watcher;
+        } catch (IOException ioe) {
+            watchService.close();
+            throw ioe;
+        }
+    }
+
+    /**
+     * Retrieve the index of the folder. The index is updated as files change.
+     * @return the index.
+     */
+    public ImageDirectoryIndex getIndex() {
+        return index;
+    }
+
+    /**
+     * Determine whether the index is still being kept up to date. This is false once the watcher
+     * has been closed, or if the folder could no longer be watched or listed.
+     * @return true if the folder is being watched.
+     */
+    public boolean isWatching() {
+        return watching;
+    }
+
+    /**
+     * Add a listener.
+     * @param listener the listener to add.
+     */
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Remove a listener.
+     * @param listener the listener to remove.
+     */
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Stop watching the folder. The index keeps the names it had.
+     * @throws IOException if the WatchService cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        watching = false;
+        watchService.close();
+    }
+
+    private void watch() {
+        try {
+            boolean valid = true;
+            while (valid) {
+                WatchKey key = watchService.take();
+                Set<String> changed = applyEvents(key.pollEvents());
+                valid = key.reset();
+                notifyListeners(changed);
+            }
+            Logger.warn("Image folder {} can no longer be watched", dir);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException cwse) {
+            Logger.debug("Stopped watching {}", dir);
+            watching = false;
+            return;
+        } catch (IOException ioe) {
+            Logger.error(ioe, "Error listing image folder {}", dir);
+        }
+        // the index may be out of date from now on.
+        watching = false;
+        notifyListeners(Set.of());
+    }
+
+    private void notifyListeners(Set<String> changed) {
+        for (Listener listener : listeners) {
+            listener.imagesChanged(Collections.unmodifiableSet(changed));
+        }
+    }
+
+    // Updates the index; returns the changed names, or an empty set if the folder was listed again.
+    private Set<String> applyEvents(List<WatchEvent<?>> events) throws IOException {
+        Set<String> changed = new LinkedHashSet<>();
+        for (WatchEvent<?> event : events) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                index.rescan();
+                return Set.of();
+            }
+            String name = event.context().toString();
+            changed.add(name);
+            if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE) {
+                index.add(name);
+            } else if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+                index.remove(name);
+            }
+        }
+        Logger.debug("Image folder {} changed: {}", dir, changed);
+        return changed;
+    }
+}
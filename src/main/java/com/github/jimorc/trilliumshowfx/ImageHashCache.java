@@ -0,0 +1,446 @@
+package com.github.jimorc.trilliumshowfx;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.UnaryOperator;
+import org.tinylog.Logger;
+
+/**
+ * ImageHashCache computes SHA-256 hashes of image file contents, and perceptual hashes of the
+ * images, and remembers them between runs.
+ *
+ * Each hash is stored with the file's absolute path, size and modification time, and is reused
+ * only while all three still match, so an unchanged file is never read again. Files are hashed
+ * through a memory mapping. The cache may be used from several threads at once. Because the
+ * hashes of images from earlier shows are kept, the cache can also find an image that was
+ * submitted before. Perceptual hashes are also kept in a BKTree, so that images that look alike
+ * are found without comparing every pair. A cache file that is unreadable, corrupt or from an older
+ * version is ignored and replaced.
+ *
+ * ```java
+ * ImageHashCache cache = new ImageHashCache(ImageHashCache.defaultCacheFile());
+ * String hash = cache.hash(imagePath);
+ * long dHash = cache.perceptualHash(imagePath);
+ * cache.save();
+ * ```
+ */
+public final class ImageHashCache {
+    private static final int MAGIC = 0x54534648;    // "TSFH"
+    private static final int VERSION = 2;
+    private static final int HAS_HASH = 1;
+    private static final int HAS_DHASH = 2;
+    private static final int HASH_BYTES = 32;
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final long MAX_CHUNK = 1L << 30;
+    private static final HexFormat HEX = HexFormat.of();
+
+    private final Path cacheFile;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private boolean loaded;
+    private volatile boolean changed;
+    // the perceptual hashes, built by the first call to similar.
+    private BKTree<String> tree;
+
+    /**
+     * Constructor. The cache file is read the first time a hash is needed.
+     * @param cacheFile the file that hashes are stored in, or null for a cache that is only kept
+     *                  in memory. Its directory is created when the cache is first saved.
+     */
+    public ImageHashCache(Path cacheFile) {
+        this.cacheFile = cacheFile;
+    }
+
+    /**
+     * Retrieve the default cache file, which is in the user's home directory.
+     * @return the default cache file.
+     */
+    public static Path defaultCacheFile() {
+        return Path.of(System.getProperty("user.home"), ".trilliumshowfx", "image-hashes.bin");
+    }
+
+    /**
+     * Retrieve the hash of a file's contents, reading the file only if it is not in the cache or
+     * has changed since it was hashed.
+     * @param file the file.
+     * @return the SHA-256 hash, as lower case hexadecimal.
+     * @throws IOException if the file cannot be read.
+     */
+    public String hash(Path file) throws IOException {
+        Path absolute = file.toAbsolutePath().normalize();
+        BasicFileAttributes attrs = Files.readAttributes(absolute, BasicFileAttributes.class);
+        Entry entry = current(absolute, attrs);
+        if (entry.hash != null) {
+            return entry.hash;
+        }
+        String hash = digest(absolute);
+        update(absolute, entry, stored -> new Entry(stored.size, stored.modified, hash, stored.hasDHash,
+            stored.dHash));
+        return hash;
+    }
+
+    /**
+     * Retrieve the perceptual hash of an image, decoding the image only if it is not in the cache
+     * or has changed since it was hashed.
+     * @param file the image file.
+     * @return the difference hash calculated by PerceptualHash.dHash.
+     * @throws IOException if the file cannot be read or decoded.
+     */
+    public long perceptualHash(Path file) throws IOException {
+        Path absolute = file.toAbsolutePath().normalize();
+        BasicFileAttributes attrs = Files.readAttributes(absolute, BasicFileAttributes.class);
+        Entry entry = current(absolute, attrs);
+        if (entry.hasDHash) {
+            return entry.dHash;
+        }
+        long dHash = PerceptualHash.dHash(absolute);
+        update(absolute, entry, stored -> new Entry(stored.size, stored.modified, stored.hash, true, dHash));
+        addToTree(absolute.toString(), dHash);
+        return dHash;
+    }
+
+    /**
+     * Retrieve the content hash stored for a path, without checking whether the file has changed.
+     * @param path the absolute path.
+     * @return the SHA-256 hash, or null if none is stored.
+     */
+    String cachedHash(String path) {
+        load();
+        Entry entry = entries.get(path);
+        return entry == null ? null : entry.hash;
+    }
+
+    /**
+     * Group the paths in the cache by hash. This includes files hashed in earlier runs that may
+     * since have been changed or deleted.
+     * @return map of hash to the paths with that hash.
+     */
+    public Map<String, List<String>> pathsByHash() {
+        load();
+        Map<String, List<String>> paths = new LinkedHashMap<>();
+        entries.forEach((path, entry) -> {
+            if (entry.hash != null) {
+                paths.computeIfAbsent(entry.hash, _ -> new ArrayList<>()).add(path);
+            }
+        });
+        return paths;
+    }
+
+    /**
+     * Find the images in the cache whose perceptual hashes are within maxDistance of a hash. The
+     * hashes are kept in a BKTree that is built by the first call, which also removes the files
+     * that no longer exist from the cache. Images hashed after that are added to the tree.
+     * @param dHash the perceptual hash.
+     * @param maxDistance the largest number of the 64 hash bits that may differ.
+     * @return the absolute paths of the matching images, in no particular order.
+     */
+    synchronized List<BKTree.Match<String>> similar(long dHash, int maxDistance) {
+        if (tree == null) {
+            buildTree();
+        }
+        List<BKTree.Match<String>> matches = new ArrayList<>();
+        Set<String> found = new HashSet<>();
+        for (BKTree.Match<String> match : tree.search(dHash, maxDistance)) {
+            // the tree keeps the old hashes of images that have since changed or been removed.
+            Entry entry = entries.get(match.getValue());
+            if (entry != null && entry.hasDHash && entry.dHash == match.getHash() && found.add(match.getValue())) {
+                matches.add(match);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Remove the entries for files that no longer exist.
+     * @param paths absolute paths from the cache.
+     * @return the paths whose files still exist, in the same order.
+     */
+    List<String> prune(List<String> paths) {
+        List<String> existing = new ArrayList<>(paths.size());
+        for (String path : paths) {
+            if (Files.exists(Path.of(path))) {
+                existing.add(path);
+            } else if (entries.remove(path) != null) {
+                changed = true;
+            }
+        }
+        return existing;
+    }
+
+    /**
+     * Hash files in parallel on the common ForkJoinPool.
+     * @param <T> the type of hash.
+     * @param dir the folder containing the files.
+     * @param names the file names, relative to dir.
+     * @param hasher calculates the hash of a file, such as cache::hash.
+     * @param check what the hashes are for, such as "duplicate images", for error messages.
+     * @return the hash of each file, or null for a file that cannot be read.
+     * @throws CSVException if hashing is interrupted.
+     */
+    static <T> List<T> hashAll(Path dir, List<String> names, Hasher<T> hasher, String check) throws CSVException {
+        return hashAll(dir, names, hasher, check, ProgressMonitor.NONE);
+    }
+
+    /**
+     * Hash files in parallel on the common ForkJoinPool, reporting progress as each file is hashed.
+     * @param <T> the type of hash.
+     * @param dir the folder containing the files.
+     * @param names the file names, relative to dir.
+     * @param hasher calculates the hash of a file, such as cache::hash.
+     * @param check what the hashes are for, such as "duplicate images", for error messages.
+     * @param monitor is told how many files have been hashed. Once it is cancelled, the remaining
+     *                files are not hashed.
+     * @return the hash of each file, or null for a file that cannot be read or was not hashed.
+     * @throws CSVException if hashing is interrupted.
+     */
+    static <T> List<T> hashAll(Path dir, List<String> names, Hasher<T> hasher, String check,
+            ProgressMonitor monitor) throws CSVException {
+        List<Callable<T>> tasks = new ArrayList<>(names.size());
+        AtomicInteger done = new AtomicInteger();
+        for (String name : names) {
+            tasks.add(() -> {
+                if (monitor.isCancelled()) {
+                    return null;
+                }
+                try {
+                    return hasher.hash(dir.resolve(name));
+                } catch (IOException ioe) {
+                    Logger.debug(ioe, "Unable to hash image file {}", name);
+                    return null;
+                } finally {
+                    monitor.progress(done.incrementAndGet(), names.size());
+                }
+            });
+        }
+        List<T> hashes = new ArrayList<>(names.size());
+        try {
+            for (Future<T> future : ForkJoinPool.commonPool().invokeAll(tasks)) {
+                hashes.add(future.get());
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new CSVException("Checking for " + check + " was interrupted");
+        } catch (ExecutionException ee) {
+            Logger.error(ee, "Exception caught while hashing image files");
+            throw new CSVException("Error checking for " + check + ": " + ee.getCause().getMessage());
+        }
+        return hashes;
+    }
+
+    /**
+     * Save the cache if any hashes have been added. Failures are logged but otherwise ignored,
+     * because a missing cache only means that files are hashed again.
+     */
+    public synchronized void save() {
+        if (!changed || cacheFile == null) {
+            return;
+        }
+        try {
+            Files.createDirectories(cacheFile.getParent());
+            Path temp = Files.createTempFile(cacheFile.getParent(), cacheFile.getFileName().toString(), ".tmp");
+            try {
+                try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                        Files.newOutputStream(temp), BUFFER_SIZE))) {
+                    write(out);
+                }
+                Files.move(temp, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+            changed = false;
+            Logger.debug("Saved {} image hashes to {}", entries.size(), cacheFile);
+        } catch (IOException ioe) {
+            Logger.warn(ioe, "Unable to save image hashes to {}", cacheFile);
+        }
+    }
+
+    /**
+     * Calculate the SHA-256 hash of a file's contents.
+     * @param file the file.
+     * @return the hash, as lower case hexadecimal.
+     * @throws IOException if the file cannot be read.
+     */
+    static String digest(Path file) throws IOException {
+        MessageDigest digest = newDigest();
+        try (Arena arena = Arena.ofConfined();
+                FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > 0) {
+                MemorySegment segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, size, arena);
+                for (long offset = 0; offset < size; offset += MAX_CHUNK) {
+                    digest.update(segment.asSlice(offset, Math.min(MAX_CHUNK, size - offset)).asByteBuffer());
+                }
+            }
+        }
+        return HEX.formatHex(digest.digest());
+    }
+
+    // Returns the entry for a file, or an empty entry if there is none or the file has changed.
+    private Entry current(Path absolute, BasicFileAttributes attrs) {
+        load();
+        long modified = attrs.lastModifiedTime().toMillis();
+        Entry entry = entries.get(absolute.toString());
+        if (entry != null && entry.size == attrs.size() && entry.modified == modified) {
+            return entry;
+        }
+        return new Entry(attrs.size(), modified, null, false, 0);
+    }
+
+    // Adds a hash to the stored entry for the same version of the file as entry. Because the entry
+    // is changed atomically, a hash stored by a concurrent call for that version is kept.
+    private void update(Path absolute, Entry entry, UnaryOperator<Entry> addHash) {
+        entries.compute(absolute.toString(), (_, stored) -> addHash.apply(
+            stored != null && stored.size == entry.size && stored.modified == entry.modified ? stored
+                : new Entry(entry.size, entry.modified, null, false, 0)));
+        changed = true;
+    }
+
+    private synchronized void addToTree(String path, long dHash) {
+        if (tree != null) {
+            tree.add(dHash, path);
+        }
+    }
+
+    // Builds the tree from the images that still exist, and removes the files that do not from the cache.
+    private void buildTree() {
+        load();
+        tree = new BKTree<>();
+        int removed = 0;
+        for (Map.Entry<String, Entry> e : entries.entrySet()) {
+            if (!Files.exists(Path.of(e.getKey()))) {
+                entries.remove(e.getKey());
+                removed++;
+            } else if (e.getValue().hasDHash) {
+                tree.add(e.getValue().dHash, e.getKey());
+            }
+        }
+        if (removed > 0) {
+            changed = true;
+        }
+        Logger.debug("Built tree of {} perceptual hashes, removing {} missing files", tree.size(), removed);
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException nsae) {
+            // every Java platform is required to support SHA-256.
+            throw new IllegalStateException(nsae);
+        }
+    }
+
+    private synchronized void load() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        if (cacheFile == null || !Files.isRegularFile(cacheFile)) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                Files.newInputStream(cacheFile), BUFFER_SIZE))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not an image hash file, or wrong version");
+            }
+            int count = in.readInt();
+            byte[] hash = new byte[HASH_BYTES];
+            for (int i = 0; i < count; i++) {
+                String path = in.readUTF();
+                long size = in.readLong();
+                long modified = in.readLong();
+                int flags = in.readByte();
+                String contentHash = null;
+                if ((flags & HAS_HASH) != 0) {
+                    in.readFully(hash);
+                    contentHash = HEX.formatHex(hash);
+                }
+                boolean hasDHash = (flags & HAS_DHASH) != 0;
+                long dHash = hasDHash ? in.readLong() : 0;
+                entries.putIfAbsent(path, new Entry(size, modified, contentHash, hasDHash, dHash));
+            }
+            Logger.debug("Loaded {} image hashes from {}", count, cacheFile);
+        } catch (IOException ioe) {
+            Logger.warn(ioe, "Ignoring unreadable image hash file {}", cacheFile);
+            entries.clear();
+        }
+    }
+
+    private void write(DataOutputStream out) throws IOException {
+        Map<String, Entry> snapshot = new LinkedHashMap<>(entries);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(snapshot.size());
+        for (Map.Entry<String, Entry> e : snapshot.entrySet()) {
+            Entry entry = e.getValue();
+            out.writeUTF(e.getKey());
+            out.writeLong(entry.size);
+            out.writeLong(entry.modified);
+            out.writeByte((entry.hash != null ? HAS_HASH : 0) | (entry.hasDHash ? HAS_DHASH : 0));
+            if (entry.hash != null) {
+                out.write(HEX.parseHex(entry.hash));
+            }
+            if (entry.hasDHash) {
+                out.writeLong(entry.dHash);
+            }
+        }
+    }
+
+    /**
+     * Hasher calculates one kind of hash of a file.
+     * @param <T> the type of hash.
+     */
+    @FunctionalInterface
+    interface Hasher<T> {
+        /**
+         * Calculate the hash of a file.
+         * @param file the file.
+         * @return the hash.
+         * @throws IOException if the file cannot be read.
+         */
+        T hash(Path file) throws IOException;
+    }
+
+    /**
+     * Entry holds the size, modification time and hashes of a file. Either hash may be absent.
+     */
+    private static final class Entry {
+        private final long size;
+        private final long modified;
+        private final String hash;
+        private final boolean hasDHash;
+        private final long dHash;
+
+        private Entry(long size, long modified, String hash, boolean hasDHash, long dHash) {
+            this.size = size;
+            this.modified = modified;
+            this.hash = hash;
+            this.hasDHash = hasDHash;
+            this.dHash = dHash;
+        }
+    }
+}
@@ -0,0 +1,415 @@
+package com.github.jimorc.trilliumshowfx;
+
+import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.SplittableRandom;
+
+/**
+ * IndexedList is a List that supports positional insert and remove in O(log n) expected time and
+ * append in amortized O(1) time. Ranges of elements can be removed or moved, and collections
+ * inserted, by splitting and joining the tree, without visiting the elements that do not move.
+ *
+ * The elements are stored in a treap ordered by position: each node holds the size of its
+ * subtree, so the node at a position is found by descending from the root. Nodes are appended
+ * along the right spine of the tree, as when building a Cartesian tree, so an append only
+ * visits the spine nodes that it moves below the new node. The sizes of the spine nodes are not
+ * updated by appends; they are brought up to date the next time an element is inserted or
+ * removed anywhere but at the end.
+ * Iteration visits the nodes in order without descending from the root for each element.
+ *
+ * ```java
+ * IndexedList<FlexiBean> beans = new IndexedList<>();
+ * beans.add(bean);
+ * beans.add(0, headerBean);
+ * ```
+ *
+ * @param <E> the type of the elements.
+ */
+final class IndexedList<E> extends AbstractList<E> {
+    private final SplittableRandom random = new SplittableRandom();
+    private Node<E> root;
+    // the right spine of the tree, from the root down.
+    private final List<Node<E>> spine = new ArrayList<>();
+    // true if the sizes of the spine nodes do not include appended nodes.
+    private boolean spineDirty;
+    private int size;
+
+    /**
+     * Default constructor.
+     */
+    IndexedList() {
+    }
+
+    /**
+     * Constructor that appends the elements of a collection.
+     * @param elements the elements, in iteration order.
+     */
+    IndexedList(Collection<? extends E> elements) {
+        for (E element : elements) {
+            append(element);
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public E get(int index) {
+        return node(index).value;
+    }
+
+    @Override
+    public E set(int index, E element) {
+        Node<E> node = node(index);
+        E old = node.value;
+        node.value = element;
+        return old;
+    }
+
+    @Override
+    public void add(int index, E element) {
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        if (index == size) {
+            append(element);
+            return;
+        }
+        settleSpine();
+        Node<E>[] parts = split(root, index);
+        root = merge(merge(parts[0], new Node<>(element, random.nextInt())), parts[1]);
+        size++;
+        modCount++;
+        rebuildSpine();
+    }
+
+    @Override
+    public E remove(int index) {
+        checkIndex(index);
+        settleSpine();
+        Node<E>[] parts = split(root, index);
+        Node<E>[] rest = split(parts[1], 1);
+        root = merge(parts[0], rest[1]);
+        size--;
+        modCount++;
+        rebuildSpine();
+        return rest[0].value;
+    }
+
+    /**
+     * Insert the elements of a collection at a position. Building the inserted elements into a
+     * tree takes O(k) time, and joining it to this list takes O(log n) expected time.
+     * @param index the position of the first inserted element.
+     * @param elements the elements to insert, in iteration order.
+     * @return true if the list changed.
+     */
+    @Override
+    public boolean addAll(int index, Collection<? extends E> elements) {
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        IndexedList<E> inserted = new IndexedList<>(elements);
+        if (inserted.isEmpty()) {
+            return false;
+        }
+        settleSpine();
+        inserted.settleSpine();
+        Node<E>[] parts = split(root, index);
+        root = merge(merge(parts[0], inserted.root), parts[1]);
+        size += inserted.size;
+        modCount++;
+        rebuildSpine();
+        return true;
+    }
+
+    /**
+     * Remove the elements in a range of positions in O(log n) expected time.
+     * @param fromIndex the position of the first element to remove.
+     * @param toIndex the position after the last element to remove.
+     */
+    @Override
+    protected void removeRange(int fromIndex, int toIndex) {
+        checkRange(fromIndex, toIndex);
+        if (fromIndex == toIndex) {
+            return;
+        }
+        settleSpine();
+        Node<E>[] parts = split(root, fromIndex);
+        Node<E>[] rest = split(parts[1], toIndex - fromIndex);
+        root = merge(parts[0], rest[1]);
+        size -= toIndex - fromIndex;
+        modCount++;
+        rebuildSpine();
+    }
+
+    /**
+     * Move the elements in a range of positions to another position in O(log n) expected time.
+     * @param fromIndex the position of the first element to move.
+     * @param toIndex the position after the last element to move.
+     * @param index the position of the first moved element after the move. It is a position in
+     *              the list with the range removed, so it must be no more than
+     *              size() - (toIndex - fromIndex).
+     */
+    void move(int fromIndex, int toIndex, int index) {
+        checkRange(fromIndex, toIndex);
+        int count = toIndex - fromIndex;
+        if (index < 0 || index > size - count) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + (size - count));
+        }
+        settleSpine();
+        Node<E>[] parts = split(root, fromIndex);
+        Node<E>[] rest = split(parts[1], count);
+        Node<E>[] target = split(merge(parts[0], rest[1]), index);
+        root = merge(merge(target[0], rest[0]), target[1]);
+        modCount++;
+        rebuildSpine();
+    }
+
+    /**
+     * Retrieve the height of the tree: the number of nodes on the longest path down from the
+     * root. A positional insert or remove visits at most this many nodes.
+     * @return the height, which is O(log n) expected.
+     */
+    int height() {
+        int height = 0;
+        Deque<Node<E>> level = new ArrayDeque<>();
+        if (root != null) {
+            level.add(root);
+        }
+        while (!level.isEmpty()) {
+            height++;
+            for (int i = level.size(); i > 0; i--) {
+                Node<E> node = level.poll();
+                if (node.left != null) {
+                    level.add(node.left);
+                }
+                if (node.right != null) {
+                    level.add(node.right);
+                }
+            }
+        }
+        return height;
+    }
+
+    @Override
+    public void clear() {
+        root = null;
+        spine.clear();
+        spineDirty = false;
+        size = 0;
+        modCount++;
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return new InOrder();
+    }
+
+    private void append(E element) {
+        Node<E> node = new Node<>(element, random.nextInt());
+        Node<E> popped = null;
+        while (!spine.isEmpty() && spine.get(spine.size() - 1).priority < node.priority) {
+            popped = spine.remove(spine.size() - 1);
+            // popped.right is the node popped before it, or null, so its size is already correct.
+            popped.size = 1 + size(popped.left) + size(popped.right);
+        }
+        node.left = popped;
+        node.size = 1 + size(popped);
+        if (spine.isEmpty()) {
+            root = node;
+        } else {
+            spine.get(spine.size() - 1).right = node;
+            spineDirty = true;
+        }
+        spine.add(node);
+        size++;
+        modCount++;
+    }
+
+    private Node<E> node(int index) {
+        checkIndex(index);
+        Node<E> node = root;
+        int i = index;
+        // only the sizes of left subtrees are used, and those are never on the spine.
+        while (true) {
+            int leftSize = size(node.left);
+            if (i < leftSize) {
+                node = node.left;
+            } else if (i == leftSize) {
+                return node;
+            } else {
+                i -= leftSize + 1;
+                node = node.right;
+            }
+        }
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+    private void checkRange(int fromIndex, int toIndex) {
+        if (fromIndex < 0 || toIndex > size || fromIndex > toIndex) {
+            throw new IndexOutOfBoundsException("From: " + fromIndex + ", To: " + toIndex + ", Size: " + size);
+        }
+    }
+
+    private void settleSpine() {
+        if (spineDirty) {
+            for (int i = spine.size() - 1; i >= 0; i--) {
+                Node<E> node = spine.get(i);
+                node.size = 1 + size(node.left) + size(node.right);
+            }
+            spineDirty = false;
+        }
+    }
+
+    private void rebuildSpine() {
+        spine.clear();
+        for (Node<E> node = root; node != null; node = node.right) {
+            spine.add(node);
+        }
+    }
+
+    // Splits a tree into the first count nodes and the rest.
+    @SuppressWarnings("unchecked")
+    private static <E> Node<E>[] split(Node<E> node, int count) {
+        if (node == null) {
+            return new Node[] {null, null};
+        }
+        int leftSize = size(node.left);
+        if (count <= leftSize) {
+            Node<E>[] parts = split(node.left, count);
+            node.left = parts[1];
+            node.size = 1 + size(node.left) + size(node.right);
+            parts[1] = node;
+            return parts;
+        }
+        Node<E>[] parts = split(node.right, count - leftSize - 1);
+        node.right = parts[0];
+        node.size = 1 + size(node.left) + size(node.right);
+        parts[0] = node;
+        return parts;
+    }
+
+    // Joins two trees; every node in left precedes every node in right.
+    private static <E> Node<E> merge(Node<E> left, Node<E> right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            left.size = 1 + size(left.left) + size(left.right);
+            return left;
+        }
+        right.left = merge(left, right.left);
+        right.size = 1 + size(right.left) + size(right.right);
+        return right;
+    }
+
+    private static int size(Node<?> node) {
+        return node == null ? 0 : node.size;
+    }
+
+    /**
+     * Node is a node in the treap.
+     */
+    private static final class Node<E> {
+        private E value;
+        private final int priority;
+        private int size = 1;
+        private Node<E> left;
+        private Node<E> right;
+
+        private Node(E value, int priority) {
+            this.value = value;
+            this.priority = priority;
+        }
+    }
+
+    /**
+     * InOrder iterates over the nodes in position order.
+     */
+    private final class InOrder implements Iterator<E> {
+        // the nodes still to be visited whose left subtrees have been visited, nearest first.
+        private final Deque<Node<E>> stack = new ArrayDeque<>();
+        private int expectedModCount = modCount;
+        private int nextIndex;
+        private int lastIndex = -1;
+
+        private InOrder() {
+            for (Node<E> node = root; node != null; node = node.left) {
+                stack.push(node);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextIndex < size;
+        }
+
+        @Override
+        public E next() {
+            checkForComodification();
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Node<E> node = stack.pop();
+            for (Node<E> n = node.right; n != null; n = n.left) {
+                stack.push(n);
+            }
+            lastIndex = nextIndex++;
+            return node.value;
+        }
+
+        @Override
+        public void remove() {
+            if (lastIndex < 0) {
+                throw new IllegalStateException();
+            }
+            checkForComodification();
+            IndexedList.this.remove(lastIndex);
+            nextIndex = lastIndex;
+            lastIndex = -1;
+            expectedModCount = modCount;
+            seek(nextIndex);
+        }
+
+        private void checkForComodification() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+
+        // Rebuilds the stack so that the node at index is visited next.
+        private void seek(int index) {
+            stack.clear();
+            Node<E> node = root;
+            int i = index;
+            while (node != null) {
+                int leftSize = size(node.left);
+                if (i <= leftSize) {
+                    stack.push(node);
+                    node = node.left;
+                } else {
+                    i -= leftSize + 1;
+                    node = node.right;
+                }
+            }
+        }
+    }
+}
@@ -2,8 +2,8 @@ package com.github.jimorc.trilliumshowfx;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import org.tinylog.Logger;
@@ -11,17 +11,32 @@ import org.tinylog.Logger;
 /**
  * The InputCSV class reads the CSV file and stores multiple CSVLine objects.
  *
- *
+ * The CSV file may be compressed with gzip (.csv.gz) or stored in a zip file (.zip). Parsed files
+ * may be cached as snapshots by passing a CSVSnapshot to the constructor. The hashes used to find
+ * duplicate and similar images are kept in the ImageHashCache passed to the constructor.
  * ```java
  * File f = new File("<CSV-file-name>")
- * InputCSV csv = new InputCSV(f);
+ * InputCSV csv = new InputCSV(f, new CSVSnapshot(CSVSnapshot.defaultCacheDir()),
+ *     new ImageHashCache(ImageHashCache.defaultCacheFile()));
  * ```
  */
 public final class InputCSV {
+    // the preflight, duplicate image and similar image checks run by validateImages.
+    private static final int IMAGE_CHECKS = 3;
+    private final CSVSnapshot snapshots;
+    private final ImageHashCache imageHashes;
     private File csvFile;
     private FlexiBeans flexiBeans;
-    private Map<String, FlexiBeans> fullNameMap;
     private ArrayList<String> sortedFullNames;
+    private CSVTail tail;
+    // the size and modification time of the file when it was last loaded without a CSVTail.
+    private long loadedLength;
+    private long loadedModified;
+    private FlexiBean pendingBean;
+    private boolean ignoreImageCase;
+    private volatile ValidationReport validationReport = new ValidationReport(new ArrayList<>(), new ArrayList<>(),
+        new ArrayList<>(), new ArrayList<>());
+    private final List<CSVChangeListener> listeners = new ArrayList<>();
 
     /** This constructor parses the specified CSV file and builds an InputCSV
      * object from the file's contents.
@@ -33,7 +48,41 @@ public final class InputCSV {
      * @throws IOException if the file cannot be read.
      */
     public InputCSV(File csvF) throws CSVException, IOException {
+        this(csvF, null);
+    }
+
+    /** This constructor parses the specified CSV file, or loads it from a snapshot if the file
+     * has not changed since it was last parsed, and builds an InputCSV object from the file's
+     * contents.
+     * @param csvF is the File containing the CSV data to parse.
+     * @param snapshots the snapshot cache, or null to always parse the file.
+     * @throws CSVException if csvF is null.
+     * @throws CSVException if csvF is not a file (i.e directory, link, etc.)
+     * @throws CSVException if csvF contains an invalid header line.
+     * @throws CSVException if csvF contains an invalid line.
+     * @throws IOException if the file cannot be read.
+     */
+    public InputCSV(File csvF, CSVSnapshot snapshots) throws CSVException, IOException {
+        this(csvF, snapshots, new ImageHashCache(null));
+    }
+
+    /** This constructor parses the specified CSV file, or loads it from a snapshot if the file
+     * has not changed since it was last parsed, and builds an InputCSV object from the file's
+     * contents.
+     * @param csvF is the File containing the CSV data to parse.
+     * @param snapshots the snapshot cache, or null to always parse the file.
+     * @param imageHashes the image hashes used by validateCSVFile to find duplicate and similar
+     *                    images, including images from earlier shows.
+     * @throws CSVException if csvF is null.
+     * @throws CSVException if csvF is not a file (i.e directory, link, etc.)
+     * @throws CSVException if csvF contains an invalid header line.
+     * @throws CSVException if csvF contains an invalid line.
+     * @throws IOException if the file cannot be read.
+     */
+    public InputCSV(File csvF, CSVSnapshot snapshots, ImageHashCache imageHashes) throws CSVException, IOException {
         Logger.trace("In InputCSV constructor");
+        this.snapshots = snapshots;
+        this.imageHashes = imageHashes;
         flexiBeans = new FlexiBeans();
         csvFile = csvF;
         if (csvF == null) {
@@ -55,7 +104,7 @@ public final class InputCSV {
                 // Ignore this. It is thrown in handleBadHeaderException during testing.
             }
         }
-        buildFullNameHashMap();
+        logPersonGroups();
     }
 
     /**
@@ -71,7 +120,8 @@ public final class InputCSV {
     }
 
     /**
-     * Returns the directory containing the CSV file.
+     * Returns the directory containing the CSV file. For a compressed CSV file, this is the
+     * directory containing the .gz or .zip file, which is where the images are expected.
      * @return the CSV file directory, or null if no file is loaded.
      */
     public String getFileDir() {
@@ -88,7 +138,7 @@ public final class InputCSV {
      * @return the HashMap containing the CSV file lines
      */
     protected Map<String, FlexiBeans> getHashMap() {
-        return fullNameMap;
+        return flexiBeans.getPersonGroups().getGroups();
     }
 
     /**
@@ -110,28 +160,20 @@ public final class InputCSV {
     /**
      * Return a Person object if there is one or more lines containing that name in the CSV lines.
      * @param name - the full name of the person to retrieve a Person object for.
-     * @return a Person object for the named person or null if not in CSV object.
+     * @return a Person object for the named person.
+     * @throws CSVException if there are no lines for the named person.
      */
     public Person getPerson(String name) throws CSVException {
         Logger.debug(BuilderGUI.buildLogMessage(
             "Retrieving Person info for ", name));
-        for (FlexiBean bean : flexiBeans.getBeans()) {
-            if (bean.getFullName().equals(name)) {
-                Person p = new Person(bean.getFirstName(), bean.getLastName());
-                Logger.debug(BuilderGUI.buildLogMessage(
-                    "getPerson returning: ", p.toString()));
-                return p;
-            }
-        }
-        if (fullNameMap.containsKey(name)) {
-            FlexiBeans beans = fullNameMap.get(name);
-            Person p = new Person(beans.getBeans().get(0).getFirstName(),
-                beans.getBeans().get(0).getFirstName());
-            Logger.debug(BuilderGUI.buildLogMessage(
-                "getPerson returning: ", p.toString()));
-            return p;
+        Person p = flexiBeans.getPersonGroups().getPerson(name);
+        if (p == null) {
+            throw new CSVException("Programming error: Trying to retrieve info for " + name
+                + " but it does not exist.");
         }
-        throw new CSVException("Programming error: Trying to retrieve info for " + name + " but it does not exist.");
+        Logger.debug(BuilderGUI.buildLogMessage(
+            "getPerson returning: ", p.toString()));
+        return p;
     }
 
     /**
@@ -156,8 +198,28 @@ public final class InputCSV {
         String dir = getFileDir();
         java.nio.file.Path path = java.nio.file.Paths.get(dir, getFileName());
         csvFile = path.toFile();
+        tail = null;
+        pendingBean = null;
+        loadedLength = csvFile.length();
+        loadedModified = csvFile.lastModified();
+        FlexiBeans snapshotBeans = snapshots == null ? null : snapshots.load(csvFile);
+        if (snapshotBeans != null) {
+            flexiBeans = snapshotBeans;
+            flexiBeans.useIndexedList();
+            resumeTail();
+            return;
+        }
         try {
-            flexiBeans = new FlexiBeans(csvFile);
+            // take the key first, so that rows appended while parsing are not hidden by it.
+            CSVSnapshot.Key key = snapshots == null ? null : CSVSnapshot.keyOf(csvFile);
+            parseCSVFile();
+            if (snapshots != null) {
+                snapshots.save(key, flexiBeans);
+            }
+            flexiBeans.useIndexedList();
+            if (tail == null) {
+                resumeTail();
+            }
         } catch (BadHeaderException bhe) {
             Logger.error("BadHeaderException caught trying to read CSV file ", csvFile.getAbsolutePath());
             try {
@@ -168,6 +230,122 @@ public final class InputCSV {
         }
     }
 
+    private void parseCSVFile() throws IOException, CSVException, BadHeaderException {
+        if (CompressedCSVInput.isCompressed(csvFile)) {
+            // group the rows by person while they are parsed.
+            List<FlexiBean> beans = new ArrayList<>();
+            PersonGroups groups = new PersonGroups();
+            CompressedCSVInput.read(csvFile, bean -> {
+                beans.add(bean);
+                groups.accept(bean);
+            });
+            flexiBeans = new FlexiBeans(beans, groups);
+        } else if (csvFile.length() >= ParallelCSVReader.PARALLEL_THRESHOLD) {
+            flexiBeans = ParallelCSVReader.read(csvFile);
+        } else {
+            parseCSVFileIncrementally();
+        }
+    }
+
+    // Parses the file with a CSVTail, so that rows appended later can be read by refresh.
+    private void parseCSVFileIncrementally() throws IOException, CSVException, BadHeaderException {
+        tail = new CSVTail(csvFile);
+        List<FlexiBean> beans = new IndexedList<>(tail.read().getBeans());
+        flexiBeans = new FlexiBeans(beans);
+        pendingBean = tail.hasPendingRow() ? beans.get(beans.size() - 1) : null;
+    }
+
+    /**
+     * Add a listener that is notified when refresh finds that the CSV file has changed.
+     * @param listener the listener to add.
+     */
+    public void addChangeListener(CSVChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Remove a change listener.
+     * @param listener the listener to remove.
+     */
+    public void removeChangeListener(CSVChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Read the rows that have been appended to the CSV file since it was loaded or last refreshed.
+     * Only the new rows are parsed; they are appended to the FlexiBeans and the full name index,
+     * and the change listeners are notified. If the file has been rewritten rather than appended
+     * to, the whole file is reloaded. This is also the case for a compressed file that has
+     * changed since it was loaded.
+     * @return the number of rows added or replaced.
+     * @throws BadHeaderException if the file no longer has a header line.
+     * @throws CSVException if a new record is invalid.
+     * @throws IOException if the file cannot be read.
+     */
+    public int refresh() throws BadHeaderException, CSVException, IOException {
+        Logger.trace("In InputCSV.refresh");
+        if (tail == null) {
+            return startTail();
+        }
+        CSVTail.Update update = tail.read();
+        if (update.isReloadRequired()) {
+            return reload();
+        }
+        int firstRow = flexiBeans.getBeans().size();
+        if (update.replacesPendingRow() && pendingBean != null) {
+            firstRow = flexiBeans.getBeans().lastIndexOf(pendingBean);
+            flexiBeans.remove(firstRow);
+        }
+        for (FlexiBean bean : update.getBeans()) {
+            flexiBeans.append(bean);
+        }
+        List<FlexiBean> beans = flexiBeans.getBeans();
+        pendingBean = tail.hasPendingRow() ? beans.get(beans.size() - 1) : null;
+        int count = beans.size() - firstRow;
+        if (count > 0 || update.replacesPendingRow()) {
+            for (CSVChangeListener listener : listeners) {
+                listener.rowsAppended(this, firstRow, count);
+            }
+        }
+        return count;
+    }
+
+    // Lets refresh read only the rows appended to an uncompressed file that was loaded from a
+    // snapshot or in parallel. The file is scanned, but not parsed, up to its size when it was
+    // loaded; if it has already changed, the first refresh reloads it instead.
+    private void resumeTail() throws BadHeaderException, CSVException, IOException {
+        if (CompressedCSVInput.isCompressed(csvFile) || csvFile.length() != loadedLength
+                || csvFile.lastModified() != loadedModified) {
+            return;
+        }
+        tail = CSVTail.resume(csvFile, loadedLength, loadedModified);
+        List<FlexiBean> beans = flexiBeans.getBeans();
+        pendingBean = tail != null && tail.hasPendingRow() && !beans.isEmpty() ? beans.get(beans.size() - 1) : null;
+    }
+
+    // The file was loaded from a compressed file, or changed while it was being loaded.
+    private int startTail() throws BadHeaderException, CSVException, IOException {
+        if (csvFile.length() != loadedLength || csvFile.lastModified() != loadedModified) {
+            return reload();
+        }
+        return 0;
+    }
+
+    private int reload() throws BadHeaderException, CSVException, IOException {
+        Logger.debug("Reloading {}", getFileName());
+        if (CompressedCSVInput.isCompressed(csvFile)) {
+            loadCSVFile();
+        } else {
+            pendingBean = null;
+            parseCSVFileIncrementally();
+        }
+        logPersonGroups();
+        for (CSVChangeListener listener : listeners) {
+            listener.csvReloaded(this);
+        }
+        return flexiBeans.getBeans().size();
+    }
+
     /**
      * Returns a string representation of the CSV object.
      * @return a string representation of the CSV object
@@ -184,7 +362,8 @@ public final class InputCSV {
     }
 
     /**
-     * Inserts a CSVLine at the specified index.
+     * Inserts a CSVLine at the specified index. The rows are stored in an IndexedList, so this
+     * takes O(log n) time.
      * @param index - the index at which to insert the line
      * @param bean  - the FlexiBean to insert
      * @throws ArrayIndexOutOfBoundsException if the index is negative, or
@@ -196,23 +375,20 @@ public final class InputCSV {
                 "Index out of bounds in InputCSV.insertAt: ", Integer.toString(index)));
             throw new ArrayIndexOutOfBoundsException("Index out of bounds: " + index);
         }
-        FlexiBeans beans = new FlexiBeans();
-        for (int i = 0; i < index; i++) {
-            beans.append(flexiBeans.getBeans().get(i));
-        }
-        beans.append(bean);
-        for (int i = index; i < flexiBeans.getBeans().size(); i++) {
-            beans.append(flexiBeans.getBeans().get(i));
+        if (index == flexiBeans.getBeans().size()) {
+            append(bean);
+            return;
         }
-        flexiBeans = beans;
+        flexiBeans.insert(index, bean);
     }
 
     /**
-     * Appends a CSVLine to the end of the CSV object.
+     * Appends a CSVLine to the end of the CSV object. This takes amortized constant time, and
+     * the full name index is kept up to date.
      * @param bean - the FlexiBean to append
      */
     public void append(FlexiBean bean) {
-        insertAt(flexiBeans.getBeans().size(), bean);
+        flexiBeans.append(bean);
     }
 
     /**
@@ -232,12 +408,13 @@ public final class InputCSV {
     /**
      * Retrieve the input FlexiBeans corresponding to the name provided by the argument.
      * @param fullName the full name of the person to retrieve the lines for.
-     * @return All input FlexiBeans for the named person
+     * @return All input FlexiBeans for the named person. This is the person's group in the
+     *         person index, so it should not be changed.
      * @throws CSVException when there are no FlexiBeans for the specified person.
      */
     public FlexiBeans getPersonBeans(String fullName) throws CSVException {
-        if (fullNameMap.containsKey(fullName)) {
-            FlexiBeans beans =  fullNameMap.get(fullName);
+        FlexiBeans beans = flexiBeans.getPersonGroups().getBeans(fullName);
+        if (beans != null) {
             Logger.debug(BuilderGUI.buildLogMessage(
                 "Retrieved FlexiBeans for ", fullName, ": ", beans.toString()));
             for (FlexiBean bean : beans.getBeans()) {
@@ -252,36 +429,49 @@ public final class InputCSV {
         }
     }
 
-    private void buildFullNameHashMap() {
-        Logger.trace("In InputCSV.buildFullNameHashMap");
-        fullNameMap = new HashMap<>();
-        for (FlexiBean bean: flexiBeans.getBeans()) {
-            String fullName = bean.getFullName();
-            if (!fullNameMap.containsKey(fullName)) {
-                fullNameMap.put(fullName, new FlexiBeans());
-                Logger.debug(BuilderGUI.buildLogMessage(
-                    "Adding ", fullName, " to hash map"));
-            }
-            FlexiBeans flexiBeansForName = fullNameMap.get(fullName);
-            flexiBeansForName.append(bean);
-        }
+    // Log the person groups that FlexiBeans built while loading the file.
+    private void logPersonGroups() {
+        Logger.trace("In InputCSV.logPersonGroups");
         Logger.debug(BuilderGUI.buildLogMessage(
-            "fullNameHashMap: ", fullNameMap.toString()));
+            "personGroups: ", flexiBeans.getPersonGroups().getGroups().toString()));
+    }
+
+    /**
+     * Retrieve the FlexiBeans in this object grouped by person. When possible, the groups are
+     * built while the CSV file is parsed; they are kept up to date as rows are added.
+     * @return the FlexiBeans grouped by full name.
+     */
+    public PersonGroups getPersonGroups() {
+        return flexiBeans.getPersonGroups();
+    }
+
+    /**
+     * Partition the FlexiBeans in this object by the value of a column, such as a competition
+     * category, in a single pass.
+     * @param column the column name.
+     * @param missing the key to use for rows that have no value in the column.
+     * @return map of column value to the FlexiBeans with that value, in the order that the values
+     *         first appear.
+     */
+    public Map<String, FlexiBeans> partitionBy(String column, String missing) {
+        Logger.trace("In InputCSV.partitionBy");
+        return flexiBeans.partitionBy(column, missing);
     }
 
     /**
      * Returns a list of image file names that are referenced in the CSV file
-     * but do not exist in the same directory as the CSV file.
+     * but do not exist in the same directory as the CSV file. The directory is
+     * listed once rather than checking each file separately.
      * @return a list of missing image file names.
+     * @throws IOException if the directory cannot be listed.
      */
-    private List<String> getListOfMissingImages() {
+    private List<String> getListOfMissingImages() throws IOException {
         ArrayList<String> missingImages = new ArrayList<>();
-        String dir = getFileDir();
+        ImageDirectoryIndex images = ImageDirectoryIndex.of(java.nio.file.Paths.get(getFileDir()),
+            ignoreImageCase);
         for (FlexiBean bean : flexiBeans.getBeans()) {
             String imageFileName = bean.getFilename();
-            java.nio.file.Path imagePath = java.nio.file.Paths.get(dir, imageFileName);
-            File imageFile = imagePath.toFile();
-            if (!imageFile.isFile()) {
+            if (!images.contains(imageFileName)) {
                 missingImages.add(imageFileName);
             }
         }
@@ -291,7 +481,27 @@ public final class InputCSV {
     }
 
     /**
-     * validateCSVFile validates the contents of the InputCSV file.
+     * Set whether validateCSVFile matches image file names without regard to case. By default,
+     * case must match.
+     * @param ignoreCase true to match image file names without regard to case.
+     */
+    public void setIgnoreImageCase(boolean ignoreCase) {
+        ignoreImageCase = ignoreCase;
+    }
+
+    /**
+     * Determine whether image file names are matched without regard to case.
+     * @return true if case is ignored.
+     */
+    public boolean isIgnoreImageCase() {
+        return ignoreImageCase;
+    }
+
+    /**
+     * validateCSVFile validates the contents of the InputCSV file. Problems that do not stop
+     * processing, such as full names that may belong to the same person, are recorded in the
+     * ValidationReport returned by getValidationReport. The image files themselves are checked
+     * by validateImages.
      * @return Exception if there is an error found, null otherwise.
      * @throws CSVException
      */
@@ -301,7 +511,13 @@ public final class InputCSV {
             throw new CSVException("No data found in CSV file " + getFileName());
         }
         // check for missing images
-        List<String> missingImages = getListOfMissingImages();
+        List<String> missingImages;
+        try {
+            missingImages = getListOfMissingImages();
+        } catch (IOException ioe) {
+            Logger.error(ioe, "Error listing image folder");
+            throw new CSVException("Cannot read the image folder " + getFileDir() + ": " + ioe.getMessage());
+        }
         if (missingImages.size() > 0) {
             String msg = "Some images listed in CSV file " + getFileName() + " are missing:\n";
             for (String img : missingImages) {
@@ -311,6 +527,71 @@ public final class InputCSV {
             Logger.error(msg);
             throw new CSVException(msg);
         }
+        validationReport = new ValidationReport(
+            new DuplicatePersonDetector().detect(flexiBeans.getPersonGroups().getFullNames()),
+            new ArrayList<>(), new ArrayList<>(), new ArrayList<>());
+        if (validationReport.hasWarnings()) {
+            Logger.warn(BuilderGUI.buildLogMessage(
+                "Problems found in CSV file " + getFileName() + ": ", validationReport.toString()));
+        }
         return null; // no errors found
     }
+
+    /**
+     * validateImages checks the image files listed in the CSV file, after validateCSVFile has found
+     * that they all exist. Truncated image files, and images that were submitted twice or resized
+     * and submitted again, are added to the ValidationReport returned by getValidationReport.
+     * Every image that is not in the image hash cache is read and decoded, so this should not be
+     * called on the JavaFX application thread.
+     * @param monitor is told how far the checks have got, and may cancel them. If the checks are
+     *                cancelled, the ValidationReport is left unchanged.
+     * @throws CSVException if the checks are interrupted.
+     */
+    public void validateImages(ProgressMonitor monitor) throws CSVException {
+        Logger.trace("In InputCSV.validateImages");
+        List<String> imageFileNames = new ArrayList<>();
+        for (FlexiBean bean : flexiBeans.getBeans()) {
+            imageFileNames.add(bean.getFilename());
+        }
+        Path imageDir = Path.of(getFileDir());
+        List<JpegPreflight.Result> images = JpegPreflight.check(imageDir, imageFileNames,
+            JpegPreflight.DEFAULT_CONCURRENCY, stage(monitor, 0));
+        List<ValidationReport.DuplicateImages> duplicates = new DuplicateImageDetector(imageHashes)
+            .detect(imageDir, imageFileNames, stage(monitor, 1));
+        List<ValidationReport.SimilarImages> similar = new SimilarImageDetector(imageHashes)
+            .detect(imageDir, imageFileNames, stage(monitor, 2));
+        if (monitor.isCancelled()) {
+            Logger.info("Image checks for {} were cancelled", getFileName());
+            return;
+        }
+        validationReport = new ValidationReport(validationReport.getSuspectedDuplicates(), images, duplicates,
+            similar);
+        if (validationReport.hasWarnings()) {
+            Logger.warn(BuilderGUI.buildLogMessage(
+                "Problems found in CSV file " + getFileName() + ": ", validationReport.toString()));
+        }
+    }
+
+    // Reports the progress of one of the IMAGE_CHECKS as part of the progress of them all.
+    private static ProgressMonitor stage(ProgressMonitor monitor, int check) {
+        return new ProgressMonitor() {
+            @Override
+            public void progress(long done, long total) {
+                monitor.progress(check * total + done, IMAGE_CHECKS * total);
+            }
+
+            @Override
+            public boolean isCancelled() {
+                return monitor.isCancelled();
+            }
+        };
+    }
+
+    /**
+     * Retrieve the warnings found by the last call to validateCSVFile.
+     * @return the ValidationReport; it has no warnings if validateCSVFile has not been called.
+     */
+    public ValidationReport getValidationReport() {
+        return validationReport;
+    }
 }
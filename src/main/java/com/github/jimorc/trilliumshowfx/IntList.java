@@ -0,0 +1,66 @@
+package com.github.jimorc.trilliumshowfx;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * IntList is a growable list of int values, such as row or name numbers, that stores them
+ * without boxing.
+ *
+ * ```java
+ * IntList rows = new IntList();
+ * rows.add(row);
+ * int first = rows.get(0);
+ * ```
+ */
+final class IntList {
+    private static final int INITIAL_SIZE = 4;
+    private int[] values = new int[INITIAL_SIZE];
+    private int size;
+
+    /**
+     * Add a value to the end of the list.
+     * @param value the value to add.
+     */
+    void add(int value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size++] = value;
+    }
+
+    /**
+     * Retrieve a value.
+     * @param index the position of the value.
+     * @return the value.
+     * @throws IndexOutOfBoundsException if index is negative or not less than size.
+     */
+    int get(int index) {
+        Objects.checkIndex(index, size);
+        return values[index];
+    }
+
+    /**
+     * Retrieve the number of values.
+     * @return the number of values in the list.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Remove all of the values.
+     */
+    void clear() {
+        size = 0;
+    }
+
+    /**
+     * Copy the values into an array.
+     * @param dest the array to copy into.
+     * @param destPos the position in dest of the first value.
+     */
+    void copyTo(int[] dest, int destPos) {
+        System.arraycopy(values, 0, dest, destPos, size);
+    }
+}
@@ -0,0 +1,313 @@
+package com.github.jimorc.trilliumshowfx;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.tinylog.Logger;
+
+/**
+ * JpegPreflight checks that image files are complete JPEG files and reads their dimensions,
+ * without decoding them.
+ *
+ * Only the markers at the start of each file are read, using small positional reads on a
+ * FileChannel: the SOI marker, the length of each segment before the frame header, and the
+ * frame (SOF) header that holds the image's width and height. A few bytes at the end of the file
+ * are then read to find the EOI marker, which is missing from a truncated file. Each file is
+ * checked on its own virtual thread, and a Semaphore limits how many files are open at once so
+ * that a network drive is not flooded with requests.
+ *
+ * ```java
+ * List<JpegPreflight.Result> results = JpegPreflight.check(Path.of(dir), fileNames,
+ *     JpegPreflight.DEFAULT_CONCURRENCY);
+ * ```
+ */
+public final class JpegPreflight {
+    /**
+     * DEFAULT_CONCURRENCY is the default number of files that are read at the same time.
+     */
+    public static final int DEFAULT_CONCURRENCY = 16;
+    private static final int SOI = 0xFFD8;
+    private static final int EOI = 0xD9;
+    private static final int SOS = 0xDA;
+    private static final int MARKER_PREFIX = 0xFF;
+    private static final int TEM = 0x01;
+    private static final int RST0 = 0xD0;
+    private static final int RST7 = 0xD7;
+    private static final int SOF0 = 0xC0;
+    private static final int SOF15 = 0xCF;
+    private static final int DHT = 0xC4;
+    private static final int JPG = 0xC8;
+    private static final int DAC = 0xCC;
+    private static final int MARKER_BYTES = 4;
+    private static final int FRAME_BYTES = 5;
+    private static final int TAIL_BYTES = 32;
+    private static final int BYTE_MASK = 0xFF;
+    private static final int SHORT_MASK = 0xFFFF;
+    private static final int NOT_FOUND = -1;
+    private static final int ENDS_EARLY = -2;
+
+    /**
+     * Status is the outcome of checking one file.
+     */
+    public enum Status {
+        /**
+         * OK denotes a complete JPEG file.
+         */
+        OK,
+        /**
+         * MISSING denotes a file that does not exist.
+         */
+        MISSING,
+        /**
+         * NOT_JPEG denotes a file that does not start with a JPEG SOI marker.
+         */
+        NOT_JPEG,
+        /**
+         * TRUNCATED denotes a JPEG file that ends early.
+         */
+        TRUNCATED,
+        /**
+         * CORRUPT denotes a JPEG file whose markers are not valid.
+         */
+        CORRUPT,
+        /**
+         * UNREADABLE denotes a file that could not be read.
+         */
+        UNREADABLE
+    }
+
+    private JpegPreflight() {}
+
+    /**
+     * Check image files. Each distinct file name is checked once.
+     * @param dir the folder that file names are relative to.
+     * @param fileNames the file names to check.
+     * @param maxConcurrency the largest number of files to read at the same time.
+     * @return the results, in the order that the file names first appear.
+     * @throws CSVException if checking is interrupted.
+     */
+    public static List<Result> check(Path dir, List<String> fileNames, int maxConcurrency) throws CSVException {
+        return check(dir, fileNames, maxConcurrency, ProgressMonitor.NONE);
+    }
+
+    /**
+     * Check image files, reporting progress as each file is checked. Each distinct file name is
+     * checked once.
+     * @param dir the folder that file names are relative to.
+     * @param fileNames the file names to check.
+     * @param maxConcurrency the largest number of files to read at the same time.
+     * @param monitor is told how many files have been checked. Once it is cancelled, the remaining
+     *                files are not checked.
+     * @return the results, in the order that the file names first appear, without the files that
+     *         were not checked.
+     * @throws CSVException if checking is interrupted.
+     */
+    public static List<Result> check(Path dir, List<String> fileNames, int maxConcurrency,
+            ProgressMonitor monitor) throws CSVException {
+        Logger.trace("In JpegPreflight.check");
+        Semaphore limit = new Semaphore(Math.max(1, maxConcurrency));
+        Set<String> distinct = new LinkedHashSet<>(fileNames);
+        AtomicInteger done = new AtomicInteger();
+        List<Future<Result>> futures = new ArrayList<>();
+        List<Result> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (String fileName : distinct) {
+                futures.add(executor.submit(() -> {
+                    limit.acquire();
+                    try {
+                        return monitor.isCancelled() ? null : inspect(dir.resolve(fileName), fileName);
+                    } finally {
+                        monitor.progress(done.incrementAndGet(), distinct.size());
+                        limit.release();
+                    }
+                }));
+            }
+            for (Future<Result> future : futures) {
+                Result result = future.get();
+                if (result != null) {
+                    results.add(result);
+                }
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new CSVException("Checking image files was interrupted");
+        } catch (ExecutionException ee) {
+            Logger.error(ee, "Exception caught while checking image files");
+            throw new CSVException("Error checking image files: " + ee.getCause().getMessage());
+        }
+        return results;
+    }
+
+    /**
+     * Check one image file.
+     * @param file the file.
+     * @param fileName the name to report the file by.
+     * @return the result.
+     */
+    static Result inspect(Path file, String fileName) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(TAIL_BYTES);
+            long size = channel.size();
+            if (read(channel, buffer, 0, 2) < 2 || (buffer.getShort(0) & SHORT_MASK) != SOI) {
+                return new Result(fileName, Status.NOT_JPEG, "file does not start with a JPEG marker");
+            }
+            long frame = findFrame(channel, buffer);
+            if (frame < 0) {
+                return frame == NOT_FOUND
+                    ? new Result(fileName, Status.CORRUPT, "no frame header before image data")
+                    : new Result(fileName, Status.TRUNCATED, "file ends before frame header");
+            }
+            if (read(channel, buffer, frame + MARKER_BYTES, FRAME_BYTES) < FRAME_BYTES) {
+                return new Result(fileName, Status.TRUNCATED, "file ends in frame header");
+            }
+            int height = buffer.getShort(1) & SHORT_MASK;
+            int width = buffer.getShort(3) & SHORT_MASK;
+            if (!endsWithEOI(channel, buffer, size)) {
+                return new Result(fileName, Status.TRUNCATED, width, height, "no end of image marker");
+            }
+            return new Result(fileName, Status.OK, width, height, null);
+        } catch (NoSuchFileException nsfe) {
+            return new Result(fileName, Status.MISSING, "file not found");
+        } catch (IOException ioe) {
+            return new Result(fileName, Status.UNREADABLE, ioe.getMessage());
+        }
+    }
+
+    // Returns the position of the frame header marker. Returns NOT_FOUND if the image data or
+    // an invalid marker is reached first, or ENDS_EARLY if the file ends first.
+    private static long findFrame(FileChannel channel, ByteBuffer buffer) throws IOException {
+        long pos = 2;
+        while (read(channel, buffer, pos, MARKER_BYTES) == MARKER_BYTES) {
+            int marker = buffer.get(1) & BYTE_MASK;
+            if ((buffer.get(0) & BYTE_MASK) != MARKER_PREFIX || marker == SOS || marker == EOI) {
+                return NOT_FOUND;
+            }
+            if (isFrame(marker)) {
+                return pos;
+            }
+            if (marker == MARKER_PREFIX) {
+                pos++;                                  // fill byte
+            } else if (marker == TEM || (marker >= RST0 && marker <= RST7)) {
+                pos += 2;                               // marker without a segment
+            } else {
+                pos += 2 + (buffer.getShort(2) & SHORT_MASK);
+            }
+        }
+        return ENDS_EARLY;
+    }
+
+    private static boolean isFrame(int marker) {
+        return marker >= SOF0 && marker <= SOF15 && marker != DHT && marker != JPG && marker != DAC;
+    }
+
+    // Some writers pad the file after the EOI marker, so the last few bytes are searched.
+    private static boolean endsWithEOI(FileChannel channel, ByteBuffer buffer, long size) throws IOException {
+        int count = (int) Math.min(TAIL_BYTES, size);
+        read(channel, buffer, size - count, count);
+        for (int i = count - 2; i >= 0; i--) {
+            if ((buffer.get(i) & BYTE_MASK) == MARKER_PREFIX && (buffer.get(i + 1) & BYTE_MASK) == EOI) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Reads up to count bytes at pos into the start of buffer; returns the number read.
+    private static int read(FileChannel channel, ByteBuffer buffer, long pos, int count) throws IOException {
+        buffer.clear().limit(count);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, pos + buffer.position()) < 0) {
+                break;
+            }
+        }
+        return buffer.position();
+    }
+
+    /**
+     * Result holds the outcome of checking one file.
+     */
+    public static final class Result {
+        private final String fileName;
+        private final Status status;
+        private final int width;
+        private final int height;
+        private final String message;
+
+        private Result(String fileName, Status status, String message) {
+            this(fileName, status, 0, 0, message);
+        }
+
+        private Result(String fileName, Status status, int width, int height, String message) {
+            this.fileName = fileName;
+            this.status = status;
+            this.width = width;
+            this.height = height;
+            this.message = message;
+        }
+
+        /**
+         * Retrieve the name of the file.
+         * @return the file name.
+         */
+        public String getFileName() {
+            return fileName;
+        }
+
+        /**
+         * Retrieve the outcome of the check.
+         * @return the Status.
+         */
+        public Status getStatus() {
+            return status;
+        }
+
+        /**
+         * Retrieve the image width.
+         * @return the width in pixels, or 0 if it could not be read.
+         */
+        public int getWidth() {
+            return width;
+        }
+
+        /**
+         * Retrieve the image height.
+         * @return the height in pixels, or 0 if it could not be read.
+         */
+        public int getHeight() {
+            return height;
+        }
+
+        /**
+         * Determine whether the file is a complete JPEG file.
+         * @return true if the status is OK.
+         */
+        public boolean isOk() {
+            return status == Status.OK;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder(fileName).append(": ").append(status);
+            if (width > 0) {
+                sb.append(" ").append(width).append("x").append(height);
+            }
+            if (message != null) {
+                sb.append(" (").append(message).append(")");
+            }
+            return sb.toString();
+        }
+    }
+}
@@ -0,0 +1,330 @@
+package com.github.jimorc.trilliumshowfx;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import org.tinylog.Logger;
+
+/**
+ * MappedCSVReader parses CSV data directly from a memory-mapped file.
+ *
+ * Records are scanned in the mapped bytes. Only the fields in the columns that are bound by the
+ * FlexiBeanBinder are decoded into Strings; all other fields are skipped without copying. The
+ * parsing rules are the same as those of CSVTokenizer. Because the delimiter, quote and line
+ * break characters are all ASCII, the bytes can be scanned without decoding UTF-8 first.
+ *
+ * ```java
+ * FlexiBeans beans = MappedCSVReader.read(new File("<CSV-file-name>"));
+ * ```
+ */
+final class MappedCSVReader {
+    private static final int NO_MORE_DATA = -1;
+    private static final byte[] UTF8_BOM = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+
+    private final MemorySegment segment;
+    private final long limit;
+    private long pos;
+    private long recordNumber;
+    private boolean recordTerminated;
+    // Bounds of the most recently scanned field.
+    private long contentStart;
+    private long contentEnd;
+    private long tailEnd;
+    private boolean quoted;
+
+    /**
+     * Constructor.
+     * @param segment the memory segment containing the CSV data.
+     * @param start the offset of the first record to read.
+     * @param end the offset just past the last byte to read.
+     */
+    MappedCSVReader(MemorySegment segment, long start, long end) {
+        this(segment, start, end, 0);
+    }
+
+    /**
+     * Constructor for reading part of the CSV data, with records numbered as in the whole data.
+     * @param segment the memory segment containing the CSV data.
+     * @param start the offset of the first record to read.
+     * @param end the offset just past the last byte to read.
+     * @param recordsBefore the number of records, including the header, before start. Errors
+     *                      report record numbers counted from the start of the data.
+     */
+    MappedCSVReader(MemorySegment segment, long start, long end, long recordsBefore) {
+        this.segment = segment;
+        this.recordNumber = recordsBefore;
+        this.pos = start;
+        this.limit = end;
+        if (start == 0 && hasBom()) {
+            pos = UTF8_BOM.length;
+        }
+    }
+
+    /**
+     * Parse a CSV file by mapping it into memory. The mapping and the file handle are released
+     * before this method returns.
+     * @param csvF the CSV file to parse.
+     * @return the FlexiBeans parsed from the file.
+     * @throws BadHeaderException if the file has no header line.
+     * @throws CSVException if the file contains invalid data.
+     * @throws IOException if the file cannot be read.
+     */
+    static FlexiBeans read(File csvF) throws BadHeaderException, CSVException, IOException {
+        List<FlexiBean> beans = new ArrayList<>();
+        read(csvF, beans::add);
+        return new FlexiBeans(beans);
+    }
+
+    /**
+     * Parse a CSV file by mapping it into memory, passing each FlexiBean to sink as soon as it
+     * has been parsed. The mapping and the file handle are released before this method returns.
+     * @param csvF the CSV file to parse.
+     * @param sink the Consumer that receives the FlexiBeans in file order.
+     * @throws BadHeaderException if the file has no header line.
+     * @throws CSVException if the file contains invalid data.
+     * @throws IOException if the file cannot be read.
+     */
+    static void read(File csvF, Consumer<FlexiBean> sink) throws BadHeaderException, CSVException, IOException {
+        read(csvF, null, sink);
+    }
+
+    /**
+     * Parse the projected columns of a CSV file by mapping it into memory, passing each FlexiBean
+     * to sink as soon as it has been parsed. Fields in other columns are not decoded.
+     * @param csvF the CSV file to parse.
+     * @param projection the names of the columns to bind, or null to bind every column.
+     * @param sink the Consumer that receives the FlexiBeans in file order.
+     * @throws BadHeaderException if the file has no header line.
+     * @throws CSVException if the file contains invalid data.
+     * @throws IOException if the file cannot be read.
+     */
+    static void read(File csvF, Set<String> projection, Consumer<FlexiBean> sink)
+            throws BadHeaderException, CSVException, IOException {
+        Logger.trace("In MappedCSVReader.read");
+        try (Arena arena = Arena.ofConfined();
+                FileChannel channel = FileChannel.open(csvF.toPath(), StandardOpenOption.READ)) {
+            MemorySegment segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), arena);
+            MappedCSVReader reader = new MappedCSVReader(segment, 0, segment.byteSize());
+            FlexiBeanBinder binder = reader.readHeader(projection);
+            FlexiBean bean = reader.readBean(binder);
+            while (bean != null) {
+                sink.accept(bean);
+                bean = reader.readBean(binder);
+            }
+            Logger.debug("Parsed {} records from mapped file {}", reader.recordNumber, csvF.getName());
+        }
+    }
+
+    /**
+     * Read the header record and create the binder for the remaining records.
+     * @return the FlexiBeanBinder for the header.
+     * @throws BadHeaderException if there is no header record.
+     * @throws CSVException if the header does not contain a Filename column.
+     */
+    FlexiBeanBinder readHeader() throws BadHeaderException, CSVException {
+        return readHeader(null);
+    }
+
+    /**
+     * Read the header record and create a binder for the projected columns.
+     * @param projection the names of the columns to bind, or null to bind every column.
+     * @return the FlexiBeanBinder for the header.
+     * @throws BadHeaderException if there is no header record.
+     * @throws CSVException if the header does not contain a Filename column.
+     */
+    FlexiBeanBinder readHeader(Set<String> projection) throws BadHeaderException, CSVException {
+        List<String> header = new ArrayList<>();
+        if (startRecord()) {
+            int terminator = ',';
+            while (terminator == ',') {
+                terminator = scanField();
+                header.add(decodeField());
+                endField(terminator);
+            }
+        }
+        return new FlexiBeanBinder(header, projection);
+    }
+
+    /**
+     * Read the next record as a FlexiBean.
+     * @param binder the binder created from the header record.
+     * @return the FlexiBean, or null if there are no more records.
+     * @throws CSVException if the record is invalid.
+     */
+    FlexiBean readBean(FlexiBeanBinder binder) throws CSVException {
+        if (!startRecord()) {
+            return null;
+        }
+        FlexiBean bean = new FlexiBean();
+        int columns = binder.getColumnCount();
+        int col = 0;
+        int terminator = ',';
+        while (terminator == ',') {
+            terminator = scanField();
+            if (col < columns && binder.isBound(col)) {
+                binder.bind(bean, col, decodeField());
+            }
+            endField(terminator);
+            col++;
+        }
+        recordTerminated = terminator != NO_MORE_DATA;
+        binder.verify(bean, col, recordNumber);
+        return bean;
+    }
+
+    /**
+     * Skip the next record without decoding any of its fields.
+     * @return false if there are no more records.
+     * @throws CSVException if the record contains an unterminated quoted field.
+     */
+    boolean skipRecord() throws CSVException {
+        if (!startRecord()) {
+            return false;
+        }
+        int terminator = ',';
+        while (terminator == ',') {
+            terminator = scanField();
+            endField(terminator);
+        }
+        recordTerminated = terminator != NO_MORE_DATA;
+        return true;
+    }
+
+    /**
+     * Determine whether the most recently read record was terminated by a line break. A record
+     * at the end of the data without a line break may still be being written.
+     * @return true if the record was terminated.
+     */
+    boolean isRecordTerminated() {
+        return recordTerminated;
+    }
+
+    /**
+     * Retrieve the offset of the next byte to be scanned.
+     * @return the current offset.
+     */
+    long getPosition() {
+        return pos;
+    }
+
+    private boolean hasBom() {
+        if (limit < UTF8_BOM.length) {
+            return false;
+        }
+        for (int i = 0; i < UTF8_BOM.length; i++) {
+            if (byteAt(i) != UTF8_BOM[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Skips empty lines. Returns false if there are no more records.
+    private boolean startRecord() {
+        while (pos < limit && isLineBreak(byteAt(pos))) {
+            pos++;
+        }
+        if (pos >= limit) {
+            return false;
+        }
+        recordNumber++;
+        return true;
+    }
+
+    // Scans the field starting at pos and records its bounds. Returns the terminating
+    // character: ',', '\r', '\n' or NO_MORE_DATA. pos is left on the terminator.
+    private int scanField() throws CSVException {
+        long start = pos;
+        while (pos < limit && CSVTokenizer.isBlank(byteAt(pos))) {
+            pos++;
+        }
+        quoted = pos < limit && byteAt(pos) == '"';
+        if (quoted) {
+            contentStart = pos + 1;
+            contentEnd = findClosingQuote(contentStart);
+            pos = contentEnd + 1;
+        } else {
+            pos = start;
+            contentStart = start;
+        }
+        while (pos < limit) {
+            byte b = byteAt(pos);
+            if (b == ',' || isLineBreak(b)) {
+                break;
+            }
+            pos++;
+        }
+        if (!quoted) {
+            contentEnd = pos;
+        }
+        tailEnd = pos;
+        return pos < limit ? byteAt(pos) : NO_MORE_DATA;
+    }
+
+    private long findClosingQuote(long from) throws CSVException {
+        long p = from;
+        while (p < limit) {
+            if (byteAt(p) == '"') {
+                if (p + 1 < limit && byteAt(p + 1) == '"') {
+                    p += 2;
+                    continue;
+                }
+                return p;
+            }
+            p++;
+        }
+        throw new CSVException("Unterminated quoted field at end of CSV record " + recordNumber);
+    }
+
+    // Moves past the terminator of a field.
+    private void endField(int terminator) {
+        if (terminator == NO_MORE_DATA) {
+            return;
+        }
+        pos++;
+        if (terminator == '\r' && pos < limit && byteAt(pos) == '\n') {
+            pos++;
+        }
+    }
+
+    private String decodeField() {
+        if (!quoted) {
+            return decode(contentStart, contentEnd);
+        }
+        byte[] bytes = new byte[(int) (contentEnd - contentStart + tailEnd - contentEnd)];
+        int n = 0;
+        for (long p = contentStart; p < contentEnd; p++) {
+            byte b = byteAt(p);
+            bytes[n++] = b;
+            if (b == '"') {
+                p++;
+            }
+        }
+        for (long p = contentEnd + 1; p < tailEnd; p++) {
+            bytes[n++] = byteAt(p);
+        }
+        return new String(bytes, 0, n, StandardCharsets.UTF_8);
+    }
+
+    private String decode(long from, long to) {
+        byte[] bytes = segment.asSlice(from, to - from).toArray(ValueLayout.JAVA_BYTE);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private byte byteAt(long offset) {
+        return segment.get(ValueLayout.JAVA_BYTE, offset);
+    }
+
+    private static boolean isLineBreak(byte b) {
+        return b == '\n' || b == '\r';
+    }
+}
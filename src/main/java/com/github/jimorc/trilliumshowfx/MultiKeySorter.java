@@ -0,0 +1,194 @@
+package com.github.jimorc.trilliumshowfx;
+
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * MultiKeySorter applies the keys of a SortSpec to person groups, or computes the permutation
+ * that puts a list of FlexiBean objects in SortSpec order.
+ *
+ * Before sorting, each key is extracted once for every person or image into an array: an int
+ * array for entry counts and an array of collation key bytes for names, titles and filenames.
+ * Comparisons only read those arrays, so the cost of building collation keys does not grow with
+ * the number of comparisons. Arrays.sort and Arrays.parallelSort are stable, so items that
+ * compare equal on every key keep their original order.
+ *
+ * ```java
+ * MultiKeySorter sorter = new MultiKeySorter(Locale.getDefault());
+ * PersonGroups sorted = sorter.sort(groups, personTerms, imageTerms);
+ * ```
+ */
+final class MultiKeySorter {
+    private final Collator collator;
+
+    /**
+     * Constructor.
+     * @param locale the locale whose collation rules are used.
+     */
+    MultiKeySorter(Locale locale) {
+        collator = NameSorter.newCollator(locale);
+    }
+
+    /**
+     * Sort person groups.
+     * @param groups the PersonGroups to sort. They are not changed.
+     * @param personTerms the keys that order the persons.
+     * @param imageTerms the keys that order the images within each person.
+     * @return new PersonGroups in sorted order.
+     */
+    PersonGroups sort(PersonGroups groups, List<SortSpec.Term> personTerms, List<SortSpec.Term> imageTerms) {
+        List<String> fullNames = orderPersons(groups.getFullNames(),
+            name -> groups.getBeans(name).getBeans().size(), groups::getLastName, personTerms);
+        if (imageTerms.isEmpty()) {
+            return groups.reorder(fullNames);
+        }
+        PersonGroups sorted = new PersonGroups();
+        for (String fullName : fullNames) {
+            List<FlexiBean> images = groups.getBeans(fullName).getBeans();
+            for (int index : orderImages(images, imageTerms)) {
+                sorted.accept(images.get(index));
+            }
+        }
+        return sorted;
+    }
+
+    /**
+     * Compute the order of a list of FlexiBean objects without moving them. The beans for each
+     * person are placed together.
+     * @param beans the FlexiBean objects.
+     * @param personTerms the keys that order the persons.
+     * @param imageTerms the keys that order the images within each person.
+     * @return the permutation: element i is the index in beans of the i'th bean in sorted order.
+     */
+    int[] permutation(List<FlexiBean> beans, List<SortSpec.Term> personTerms, List<SortSpec.Term> imageTerms) {
+        Map<String, IntList> rows = new LinkedHashMap<>();
+        for (int i = 0; i < beans.size(); i++) {
+            rows.computeIfAbsent(beans.get(i).getFullName(), _ -> new IntList()).add(i);
+        }
+        List<String> fullNames = orderPersons(new ArrayList<>(rows.keySet()), name -> rows.get(name).size(),
+            name -> beans.get(rows.get(name).get(0)).getLastName(), personTerms);
+        int[] permutation = new int[beans.size()];
+        int next = 0;
+        for (String fullName : fullNames) {
+            IntList personRows = rows.get(fullName);
+            if (imageTerms.isEmpty()) {
+                personRows.copyTo(permutation, next);
+                next += personRows.size();
+            } else {
+                List<FlexiBean> images = new ArrayList<>(personRows.size());
+                for (int i = 0; i < personRows.size(); i++) {
+                    images.add(beans.get(personRows.get(i)));
+                }
+                for (int index : orderImages(images, imageTerms)) {
+                    permutation[next++] = personRows.get(index);
+                }
+            }
+        }
+        return permutation;
+    }
+
+    private List<String> orderPersons(List<String> fullNames, ToIntFunction<String> counts,
+            Function<String, String> lastNames, List<SortSpec.Term> terms) {
+        if (terms.isEmpty()) {
+            return fullNames;
+        }
+        KeyColumn[] columns = new KeyColumn[terms.size()];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = personColumn(terms.get(i), fullNames, counts, lastNames);
+        }
+        return permute(fullNames, order(fullNames.size(), columns));
+    }
+
+    private Integer[] orderImages(List<FlexiBean> images, List<SortSpec.Term> terms) {
+        KeyColumn[] columns = new KeyColumn[terms.size()];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = imageColumn(terms.get(i), images);
+        }
+        return order(images.size(), columns);
+    }
+
+    private KeyColumn personColumn(SortSpec.Term term, List<String> fullNames, ToIntFunction<String> counts,
+            Function<String, String> lastNames) {
+        return switch (term.getField()) {
+            case FullName -> textColumn(fullNames, Function.identity(), term.isDescending());
+            case LastName -> textColumn(fullNames, name -> NameSorter.lastName(name, lastNames),
+                term.isDescending());
+            case EntryCount -> {
+                int[] entryCounts = new int[fullNames.size()];
+                for (int i = 0; i < entryCounts.length; i++) {
+                    entryCounts[i] = counts.applyAsInt(fullNames.get(i));
+                }
+                yield descending((a, b) -> Integer.compare(entryCounts[a], entryCounts[b]), term.isDescending());
+            }
+            default -> throw new IllegalArgumentException(term.getField() + " is not a person field");
+        };
+    }
+
+    private KeyColumn imageColumn(SortSpec.Term term, List<FlexiBean> images) {
+        return switch (term.getField()) {
+            case Title -> textColumn(images, FlexiBean::getTitle, term.isDescending());
+            case Filename -> textColumn(images, FlexiBean::getFilename, term.isDescending());
+            default -> throw new IllegalArgumentException(term.getField() + " is not an image field");
+        };
+    }
+
+    private <T> KeyColumn textColumn(List<T> items, Function<T, String> text, boolean descending) {
+        byte[][] keys = new byte[items.size()][];
+        for (int i = 0; i < keys.length; i++) {
+            String s = text.apply(items.get(i));
+            keys[i] = collator.getCollationKey(s == null ? "" : s).toByteArray();
+        }
+        return descending((a, b) -> Arrays.compareUnsigned(keys[a], keys[b]), descending);
+    }
+
+    private static KeyColumn descending(KeyColumn column, boolean descending) {
+        return descending ? (a, b) -> column.compare(b, a) : column;
+    }
+
+    // Returns the indexes of the items in sorted order.
+    private static Integer[] order(int size, KeyColumn[] columns) {
+        Integer[] indexes = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            indexes[i] = i;
+        }
+        Comparator<Integer> comparator = (a, b) -> {
+            for (KeyColumn column : columns) {
+                int c = column.compare(a, b);
+                if (c != 0) {
+                    return c;
+                }
+            }
+            return 0;
+        };
+        if (size >= NameSorter.PARALLEL_THRESHOLD) {
+            Arrays.parallelSort(indexes, comparator);
+        } else {
+            Arrays.sort(indexes, comparator);
+        }
+        return indexes;
+    }
+
+    private static <T> List<T> permute(List<T> items, Integer[] indexes) {
+        List<T> permuted = new ArrayList<>(indexes.length);
+        for (int index : indexes) {
+            permuted.add(items.get(index));
+        }
+        return permuted;
+    }
+
+    /**
+     * KeyColumn compares two items by their precomputed keys.
+     */
+    @FunctionalInterface
+    private interface KeyColumn {
+        int compare(int a, int b);
+    }
+}
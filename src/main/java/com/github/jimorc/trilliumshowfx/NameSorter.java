@@ -0,0 +1,130 @@
+package com.github.jimorc.trilliumshowfx;
+
+import java.text.CollationKey;
+import java.text.Collator;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+import org.tinylog.Logger;
+
+/**
+ * NameSorter sorts full names according to a SortOrder using locale-aware collation.
+ *
+ * A CollationKey is computed once for each name, so each comparison is a comparison of the
+ * precomputed keys rather than of the strings. Names are compared without regard to case, but
+ * accented letters sort with their base letters, so "Émile" sorts between "Edward" and "Frank".
+ * Lists of at least PARALLEL_THRESHOLD names are sorted with Arrays.parallelSort.
+ *
+ * ```java
+ * NameSorter sorter = new NameSorter(Locale.getDefault());
+ * sorter.sort(fullNames, SortOrder.AlphabeticalByLastNameThenFirstName, lastNames::get);
+ * ```
+ */
+final class NameSorter {
+    /**
+     * PARALLEL_THRESHOLD is the number of names at which sorting switches to Arrays.parallelSort.
+     */
+    static final int PARALLEL_THRESHOLD = 1 << 13;
+
+    private static final Comparator<SortKey> BY_FULL_NAME = (a, b) -> a.fullNameKey.compareTo(b.fullNameKey);
+    private static final Comparator<SortKey> BY_LAST_NAME = ((Comparator<SortKey>)
+        (a, b) -> a.lastNameKey.compareTo(b.lastNameKey)).thenComparing(BY_FULL_NAME);
+
+    private final Collator collator;
+
+    /**
+     * Constructor.
+     * @param locale the locale whose collation rules are used.
+     */
+    NameSorter(Locale locale) {
+        collator = newCollator(locale);
+    }
+
+    /**
+     * Create a Collator that ignores case but not accents.
+     * @param locale the locale whose collation rules are used.
+     * @return the Collator.
+     */
+    static Collator newCollator(Locale locale) {
+        Collator collator = Collator.getInstance(locale);
+        collator.setStrength(Collator.SECONDARY);
+        collator.setDecomposition(Collator.CANONICAL_DECOMPOSITION);
+        return collator;
+    }
+
+    /**
+     * Sort a list of full names. SortOrder.AsIs leaves the list unchanged.
+     * @param fullNames the full names to sort.
+     * @param order the SortOrder to use.
+     * @param lastNames Function that returns the last name for a full name. If it returns null,
+     *                  the last word of the full name is used. Only used for the last name orders.
+     */
+    void sort(List<String> fullNames, SortOrder order, Function<String, String> lastNames) {
+        Comparator<SortKey> comparator = switch (order) {
+            case AsIs -> null;
+            case AlphabeticalByFullName -> BY_FULL_NAME;
+            case AlphabeticalByFullNameReverse -> BY_FULL_NAME.reversed();
+            case AlphabeticalByLastNameThenFirstName -> BY_LAST_NAME;
+            case AlphabeticalByLastNameThenFirstNameReverse -> BY_LAST_NAME.reversed();
+            default -> {
+                Logger.error("Sort order ", order.toString(), " not yet implemented.");
+                throw new UnsupportedOperationException("Sort order " + order.toString() + " not yet implemented.");
+            }
+        };
+        if (comparator == null) {
+            return;
+        }
+        boolean byLastName = order == SortOrder.AlphabeticalByLastNameThenFirstName
+            || order == SortOrder.AlphabeticalByLastNameThenFirstNameReverse;
+        SortKey[] keys = new SortKey[fullNames.size()];
+        for (int i = 0; i < keys.length; i++) {
+            String fullName = fullNames.get(i);
+            CollationKey lastNameKey = byLastName ? key(lastName(fullName, lastNames)) : null;
+            keys[i] = new SortKey(fullName, key(fullName), lastNameKey);
+        }
+        if (keys.length >= PARALLEL_THRESHOLD) {
+            Arrays.parallelSort(keys, comparator);
+        } else {
+            Arrays.sort(keys, comparator);
+        }
+        for (int i = 0; i < keys.length; i++) {
+            fullNames.set(i, keys[i].fullName);
+        }
+    }
+
+    private CollationKey key(String name) {
+        return collator.getCollationKey(name == null ? "" : name);
+    }
+
+    /**
+     * Retrieve the last name for a full name.
+     * @param fullName the full name.
+     * @param lastNames Function that returns the last name for a full name, or null.
+     * @return the last name returned by lastNames or, if that is null, the last word of the full name.
+     */
+    static String lastName(String fullName, Function<String, String> lastNames) {
+        String lastName = lastNames.apply(fullName);
+        if (lastName != null || fullName == null) {
+            return lastName;
+        }
+        return fullName.substring(fullName.lastIndexOf(' ') + 1);
+    }
+
+    /**
+     * SortKey holds a full name and its precomputed collation keys. lastNameKey is null if the
+     * sort order does not use last names.
+     */
+    private static final class SortKey {
+        private final String fullName;
+        private final CollationKey fullNameKey;
+        private final CollationKey lastNameKey;
+
+        private SortKey(String fullName, CollationKey fullNameKey, CollationKey lastNameKey) {
+            this.fullName = fullName;
+            this.fullNameKey = fullNameKey;
+            this.lastNameKey = lastNameKey;
+        }
+    }
+}
@@ -1,8 +1,19 @@
 package com.github.jimorc.trilliumshowfx;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import org.tinylog.Logger;
+
 /**
  * The OutputCSV class is used to build the CSV lines to be passed to LibreOffice or Excel
  * to generate an XLS file representing the slide show.
+ *
+ * The beans are stored in an IndexedList, so deleting or moving a range of beans takes
+ * O(log n) time and inserting k beans takes O(k + log n) time, however many beans follow them.
  */
 public class OutputCSV {
     private FlexiBeans flexiBeans;
@@ -11,7 +22,7 @@ public class OutputCSV {
      * Constructor creates an empty OutputCSV object.
      */
     public OutputCSV() {
-        flexiBeans = new FlexiBeans();
+        flexiBeans = new FlexiBeans(new IndexedList<>());
         flexiBeans.getBeans().add(FlexiBean.HEADER_BEAN);
     }
 
@@ -19,7 +30,137 @@ public class OutputCSV {
      * deleteAllBeans deletes all beans in the object.
      */
     public void deleteAllBeans() {
-        flexiBeans = new FlexiBeans();
+        flexiBeans = new FlexiBeans(new IndexedList<>());
+    }
+
+    /**
+     * Delete the beans in a range of rows.
+     * @param first the first row to delete.
+     * @param last the last row to delete.
+     * @throws ArrayIndexOutOfBoundsException if first is negative, last is not a row, or first
+     *         is greater than last.
+     */
+    public void deleteBeans(int first, int last) throws ArrayIndexOutOfBoundsException {
+        checkRange(first, last);
+        flexiBeans.removeRange(first, last + 1);
+    }
+
+    /**
+     * Move the beans in a range of rows.
+     * @param first the first row to move.
+     * @param last the last row to move.
+     * @param index the row of the first moved bean once the beans have been moved. It is a row
+     *              number in the rows that remain after the range is removed.
+     * @throws ArrayIndexOutOfBoundsException if the range is invalid, or index is negative or
+     *         greater than the number of remaining rows.
+     */
+    public void moveBeans(int first, int last, int index) throws ArrayIndexOutOfBoundsException {
+        checkRange(first, last);
+        if (index < 0 || index > length() - (last - first + 1)) {
+            Logger.error(BuilderGUI.buildLogMessage(
+                "Index out of bounds in OutputCSV.moveBeans: ", Integer.toString(index)));
+            throw new ArrayIndexOutOfBoundsException("Index out of bounds: " + index);
+        }
+        flexiBeans.move(first, last + 1, index);
+    }
+
+    /**
+     * Insert beans at a row.
+     * @param index the row of the first inserted bean.
+     * @param beans the beans to insert, in order.
+     * @throws ArrayIndexOutOfBoundsException if index is negative or greater than the number of rows.
+     */
+    public void insertBeans(int index, List<FlexiBean> beans) throws ArrayIndexOutOfBoundsException {
+        if (index < 0 || index > length()) {
+            Logger.error(BuilderGUI.buildLogMessage(
+                "Index out of bounds in OutputCSV.insertBeans: ", Integer.toString(index)));
+            throw new ArrayIndexOutOfBoundsException("Index out of bounds: " + index);
+        }
+        flexiBeans.insertAll(index, beans);
+    }
+
+    /**
+     * Reorder the beans using a file of judging scores. Each person's slides, that is the title
+     * slide before the person's images, the images, and any other slides up to the next person,
+     * are moved together. The persons are ordered by their best image, and each person's images
+     * are ordered by score. The header row, the slides before the first person, and the slides
+     * after the last person's images stay where they are.
+     * @param scoreFile the score CSV file, as described for ScoreImport.
+     * @param order the ScoreOrder to use.
+     * @return the ScoreImport, which reports the score rows that did not match.
+     * @throws BadHeaderException if the score file has no header line.
+     * @throws CSVException if the score file is invalid.
+     * @throws IOException if the score file cannot be read.
+     */
+    public ScoreImport orderByScores(File scoreFile, ScoreOrder order)
+            throws BadHeaderException, CSVException, IOException {
+        List<FlexiBean> all = new ArrayList<>(flexiBeans.getBeans());
+        List<FlexiBean> rows = all.subList(1, all.size());
+        ScoreImport scores = ScoreImport.join(scoreFile, rows);
+        int[] permutation = scores.order(order);
+        int[] rank = new int[rows.size()];
+        for (int i = 0; i < permutation.length; i++) {
+            rank[permutation[i]] = i;
+        }
+        List<PersonSlides> persons = personSlides(rows, rank);
+        IndexedList<FlexiBean> reordered = new IndexedList<>();
+        reordered.add(all.get(0));
+        int first = persons.isEmpty() ? rows.size() : persons.get(0).start;
+        int last = persons.isEmpty() ? rows.size() : persons.get(persons.size() - 1).end;
+        reordered.addAll(rows.subList(0, first));
+        persons.sort(Comparator.comparingInt(p -> p.rank));
+        for (PersonSlides person : persons) {
+            reordered.addAll(rows.subList(person.start, person.imageStart));
+            Integer[] images = new Integer[person.imageEnd - person.imageStart];
+            for (int i = 0; i < images.length; i++) {
+                images[i] = person.imageStart + i;
+            }
+            Arrays.sort(images, Comparator.comparingInt(row -> rank[row]));
+            for (int row : images) {
+                reordered.add(rows.get(row));
+            }
+            reordered.addAll(rows.subList(person.imageEnd, person.end));
+        }
+        reordered.addAll(rows.subList(last, rows.size()));
+        flexiBeans = new FlexiBeans(reordered);
+        return scores;
+    }
+
+    // Splits the rows into the slides of each person. A person's images are a run of rows with a
+    // full name; the row before the run is the person's title slide. The rows after the run,
+    // up to the next title slide, stay with the person, except after the last person.
+    private static List<PersonSlides> personSlides(List<FlexiBean> rows, int[] rank) {
+        List<PersonSlides> persons = new ArrayList<>();
+        int row = 0;
+        while (row < rows.size()) {
+            if (rows.get(row).getFullName() == null) {
+                row++;
+                continue;
+            }
+            PersonSlides person = new PersonSlides();
+            person.start = row > 0 ? row - 1 : row;
+            person.imageStart = row;
+            person.rank = Integer.MAX_VALUE;
+            while (row < rows.size() && rows.get(row).getFullName() != null) {
+                person.rank = Math.min(person.rank, rank[row]);
+                row++;
+            }
+            person.imageEnd = row;
+            person.end = row;
+            if (!persons.isEmpty()) {
+                persons.get(persons.size() - 1).end = person.start;
+            }
+            persons.add(person);
+        }
+        return persons;
+    }
+
+    private void checkRange(int first, int last) {
+        if (first < 0 || last >= length() || first > last) {
+            Logger.error(BuilderGUI.buildLogMessage(
+                "Range out of bounds in OutputCSV: ", Integer.toString(first), " to ", Integer.toString(last)));
+            throw new ArrayIndexOutOfBoundsException("Range out of bounds: " + first + " to " + last);
+        }
     }
 
     /**
@@ -30,6 +171,22 @@ public class OutputCSV {
         flexiBeans.append(bean);
     }
 
+    /**
+     * Replace a Bean from the original InputCSV object with a newer version of the same row, such
+     * as a row that was still being written when the show was built.
+     * @param old the FlexiBean to replace.
+     * @param bean the FlexiBean to put in its place.
+     * @return the index of the replaced bean, or -1 if old is not in the OutputCSV object.
+     */
+    public int replaceBean(FlexiBean old, FlexiBean bean) {
+        int index = flexiBeans.getBeans().lastIndexOf(old);
+        if (index >= 0) {
+            flexiBeans.remove(index);
+            flexiBeans.insert(index, bean);
+        }
+        return index;
+    }
+
     /**
      * Return the number of beans in the CSV.
      * @return number of beans
@@ -62,4 +219,15 @@ public class OutputCSV {
         return s;
     }
 
+    /**
+     * PersonSlides holds the range of rows for one person's slides, the range of the person's
+     * images within it, and the best score rank of the images.
+     */
+    private static final class PersonSlides {
+        private int start;
+        private int imageStart;
+        private int imageEnd;
+        private int end;
+        private int rank;
+    }
 }
@@ -1,35 +1,144 @@
 package com.github.jimorc.trilliumshowfx;
 
+import java.io.File;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import javafx.application.Platform;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Alert.AlertType;
+import javafx.scene.control.ButtonType;
+import javafx.scene.control.ChoiceDialog;
 import javafx.scene.control.ScrollPane;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
+import javafx.stage.FileChooser;
+import javafx.stage.FileChooser.ExtensionFilter;
 import org.tinylog.Logger;
 
 /**
  * OutputCSVStage is the panel that displays the OutputCSV object.
  */
 public class OutputCSVStage extends FlexiStage {
+    private ImageDirectoryWatcher watcher;
+
     /**
-     * OutputCSVStage constructor.
+     * OutputCSVStage constructor. While the stage is shown, the folder is watched so that rows
+     * whose image files are deleted or renamed are flagged at once, and so that rows appended to
+     * the InputCSV file are added to the end of the show, where they can be moved.
      * @param csv the OutputCSV object to display.
-     * @param dir the folder to save the XLS file to when the "Save" button is clicked.
+     * @param input the InputCSV object that the show was built from. The XLS file is saved to the
+     *              folder containing its file when the "Save" button is clicked.
      */
-    public OutputCSVStage(OutputCSV csv, String dir) {
+    public OutputCSVStage(OutputCSV csv, InputCSV input) {
+        String dir = input.getFileDir();
         ScrollPane sPane = new ScrollPane();
-        sPane.setContent(new CsvGrid(csv, dir));
-        HBox buttonBox = createButtonBox(csv, dir);
+        try {
+            watcher = ImageDirectoryWatcher.start(Path.of(dir), input.isIgnoreImageCase());
+            this.setOnHidden(_ -> closeWatcher());
+        } catch (IOException ioe) {
+            Logger.error(ioe, "Cannot watch image folder {}; missing images will not be flagged", dir);
+        }
+        CsvGrid grid = new CsvGrid(csv, dir, watcher);
+        if (watcher != null) {
+            followInput(csv, input, grid);
+        }
+        sPane.setContent(grid);
+        HBox buttonBox = createButtonBox(csv, dir, grid);
         VBox box = new VBox(sPane, buttonBox);
         Scene scene = new Scene(box);
         this.setScene(scene);
     }
 
-    private HBox createButtonBox(OutputCSV csv, String dir) {
+    // Refreshes the InputCSV when its file changes. Only the rows that were appended are added to
+    // the show and displayed; a row that was still being written when it was last read is
+    // replaced where it is.
+    private void followInput(OutputCSV csv, InputCSV input, CsvGrid grid) {
+        input.addChangeListener(new CSVChangeListener() {
+            private int inputRows = input.getNumberOfBeans();
+            private FlexiBean lastRow = inputRows == 0 ? null : input.getBean(inputRows - 1);
+
+            @Override
+            public void rowsAppended(InputCSV c, int firstRow, int count) {
+                int row = firstRow;
+                if (firstRow < inputRows) {
+                    int index = csv.replaceBean(lastRow, c.getBean(row));
+                    if (index >= 0) {
+                        grid.refreshRows(index, index);
+                    }
+                    row++;
+                }
+                int first = csv.length();
+                for (; row < firstRow + count; row++) {
+                    csv.appendBean(c.getBean(row));
+                }
+                grid.refreshRows(first, csv.length() - 1);
+                remember(c);
+            }
+
+            @Override
+            public void csvReloaded(InputCSV c) {
+                Logger.warn("{} was rewritten while the show was being edited; the show has not been changed",
+                    c.getFileName());
+                remember(c);
+            }
+
+            private void remember(InputCSV c) {
+                inputRows = c.getNumberOfBeans();
+                lastRow = inputRows == 0 ? null : c.getBean(inputRows - 1);
+            }
+        });
+        watcher.addListener(changed -> {
+            if (changed.isEmpty() || changed.contains(input.getFileName())) {
+                Platform.runLater(() -> refreshInput(input));
+            }
+        });
+    }
+
+    private void refreshInput(InputCSV input) {
+        try {
+            input.refresh();
+        } catch (BadHeaderException | CSVException | IOException e) {
+            Logger.error(e, "Cannot read the rows added to {}", input.getFileName());
+        }
+    }
+
+    // The watcher has kept the folder state current, so the folder is only read again here if the
+    // watcher has stopped.
+    private boolean confirmMissingImages(CsvGrid grid) {
+        if (watcher != null && !watcher.isWatching()) {
+            try {
+                watcher.getIndex().rescan();
+                grid.updateMissingImages();
+            } catch (IOException ioe) {
+                Logger.error(ioe, "Cannot list the image folder; missing images may not be flagged");
+            }
+        }
+        List<String> missing = grid.getMissingImages();
+        if (missing.isEmpty()) {
+            return true;
+        }
+        Alert alert = new Alert(AlertType.CONFIRMATION);
+        alert.setTitle("Missing Images");
+        alert.setHeaderText(missing.size() + " images shown in red are not in the image folder.");
+        alert.setContentText(String.join("\n", missing) + "\n\nClick OK to save anyway.");
+        Optional<ButtonType> result = alert.showAndWait();
+        return result.isPresent() && result.get() == ButtonType.OK;
+    }
+
+    private void closeWatcher() {
+        try {
+            watcher.close();
+        } catch (IOException ioe) {
+            Logger.error(ioe, "Error closing image folder watcher");
+        }
+    }
+
+    private HBox createButtonBox(OutputCSV csv, String dir, CsvGrid grid) {
         final int buttonTopMargin = 5;
         final int buttonRightMargin = 20;
         final int buttonBottomMargin = 5;
@@ -44,6 +153,9 @@ public class OutputCSVStage extends FlexiStage {
         FlexiButton save = new FlexiButton("Save to slideshow.xls");
         save.setDefaultButton(true);
         save.setOnAction(_ -> {
+            if (!confirmMissingImages(grid)) {
+                return;
+            }
             XLSWorkbook workbook = new XLSWorkbook(csv);
             try {
                 workbook.writeToFile(saveFileName);
@@ -65,10 +177,54 @@ public class OutputCSVStage extends FlexiStage {
             this.close();
         });
         HBox.setMargin(save, insets);
-        HBox box = new HBox(quit, save);
+        FlexiButton scores = createScoresButton(csv, dir, grid);
+        HBox.setMargin(scores, insets);
+        HBox box = new HBox(quit, scores, save);
         box.setAlignment(Pos.CENTER_RIGHT);
 
         return box;
     }
 
+    private FlexiButton createScoresButton(OutputCSV csv, String dir, CsvGrid grid) {
+        FlexiButton scores = new FlexiButton("Order by Scores...");
+        scores.setOnAction(_ -> {
+            FileChooser fileChooser = new FileChooser();
+            fileChooser.setTitle("Select Judging Scores File");
+            fileChooser.setInitialDirectory(new File(dir));
+            fileChooser.getExtensionFilters().add(new ExtensionFilter("CSV Files", "*.csv", "*.csv.gz", "*.zip"));
+            File scoreFile = fileChooser.showOpenDialog(this);
+            if (scoreFile == null) {
+                return;
+            }
+            ChoiceDialog<ScoreOrder> orderDialog = new ChoiceDialog<>(ScoreOrder.ScoreDescending,
+                ScoreOrder.values());
+            orderDialog.setTitle("Score Order");
+            orderDialog.setHeaderText("Select the order for the slides.");
+            Optional<ScoreOrder> order = orderDialog.showAndWait();
+            if (order.isEmpty()) {
+                return;
+            }
+            orderByScores(csv, scoreFile, order.get(), grid);
+        });
+        return scores;
+    }
+
+    private void orderByScores(OutputCSV csv, File scoreFile, ScoreOrder order, CsvGrid grid) {
+        Alert alert;
+        try {
+            ScoreImport scores = csv.orderByScores(scoreFile, order);
+            grid.refresh();
+            alert = new Alert(AlertType.INFORMATION);
+            alert.setTitle("Scores Imported");
+            alert.setHeaderText("The slides have been reordered.");
+            alert.setContentText(scores.getReport());
+        } catch (BadHeaderException | CSVException | IOException e) {
+            Logger.error("Exception thrown importing scores: ", e);
+            alert = new Alert(AlertType.ERROR);
+            alert.setTitle("Score Import Error");
+            alert.setHeaderText("The scores file could not be imported.");
+            alert.setContentText(e.getMessage());
+        }
+        alert.showAndWait();
+    }
 }
@@ -0,0 +1,217 @@
+package com.github.jimorc.trilliumshowfx;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import org.tinylog.Logger;
+
+/**
+ * ParallelCSVReader parses a memory-mapped CSV file on multiple cores.
+ *
+ * The data following the header line is divided into byte ranges that begin on record
+ * boundaries. Each range is then parsed by its own MappedCSVReader on the common fork-join pool,
+ * and the resulting FlexiBean lists are concatenated in file order, so the result is identical
+ * to that of a sequential parse.
+ *
+ * Record boundaries are found in two passes. First, each nominal range is scanned in parallel to
+ * count its quote characters and to find its first line break at both even and odd quote parity.
+ * Then the quote counts are summed in order to determine the parity at the start of each range,
+ * which selects the line break that is outside a quoted field. This relies on quotes only
+ * appearing around fields, as RFC 4180 requires.
+ */
+final class ParallelCSVReader {
+    /**
+     * Files smaller than this are parsed sequentially.
+     */
+    static final long PARALLEL_THRESHOLD = 4L * 1024 * 1024;
+    private static final int CHUNKS_PER_THREAD = 4;
+    private static final long NOT_FOUND = -1;
+
+    private final MemorySegment segment;
+    private final ForkJoinPool pool;
+
+    private ParallelCSVReader(MemorySegment segment, ForkJoinPool pool) {
+        this.segment = segment;
+        this.pool = pool;
+    }
+
+    /**
+     * Parse a CSV file on the common fork-join pool. The mapping and the file handle are released
+     * before this method returns.
+     * @param csvF the CSV file to parse.
+     * @return the FlexiBeans parsed from the file, in file order.
+     * @throws BadHeaderException if the file has no header line.
+     * @throws CSVException if the file contains invalid data.
+     * @throws IOException if the file cannot be read.
+     */
+    static FlexiBeans read(File csvF) throws BadHeaderException, CSVException, IOException {
+        return read(csvF, ForkJoinPool.commonPool().getParallelism() * CHUNKS_PER_THREAD);
+    }
+
+    /**
+     * Parse a CSV file on the common fork-join pool using the specified number of chunks.
+     * @param csvF the CSV file to parse.
+     * @param chunks the number of ranges to divide the file into.
+     * @return the FlexiBeans parsed from the file, in file order.
+     * @throws BadHeaderException if the file has no header line.
+     * @throws CSVException if the file contains invalid data.
+     * @throws IOException if the file cannot be read.
+     */
+    static FlexiBeans read(File csvF, int chunks) throws BadHeaderException, CSVException, IOException {
+        Logger.trace("In ParallelCSVReader.read");
+        try (Arena arena = Arena.ofShared();
+                FileChannel channel = FileChannel.open(csvF.toPath(), StandardOpenOption.READ)) {
+            MemorySegment segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), arena);
+            MappedCSVReader headerReader = new MappedCSVReader(segment, 0, segment.byteSize());
+            FlexiBeanBinder binder = headerReader.readHeader();
+            ParallelCSVReader reader = new ParallelCSVReader(segment, ForkJoinPool.commonPool());
+            long[] starts = reader.findRecordStarts(headerReader.getPosition(), Math.max(chunks, 1));
+            List<FlexiBean> beans = reader.parseRanges(starts, binder);
+            Logger.debug("Parsed {} beans from {} in {} ranges", beans.size(), csvF.getName(),
+                starts.length - 1);
+            return new FlexiBeans(beans);
+        }
+    }
+
+    // Returns the offsets at which each range starts, followed by the end of the data.
+    private long[] findRecordStarts(long dataStart, int chunks) throws CSVException {
+        long size = segment.byteSize();
+        long chunkSize = Math.max((size - dataStart + chunks - 1) / chunks, 1);
+        List<Callable<ChunkScan>> scans = new ArrayList<>();
+        for (long start = dataStart; start < size; start += chunkSize) {
+            final long from = start;
+            final long to = Math.min(start + chunkSize, size);
+            scans.add(() -> scan(from, to));
+        }
+        List<ChunkScan> results = invokeAll(scans);
+        List<Long> starts = new ArrayList<>();
+        starts.add(dataStart);
+        long quotes = 0;
+        for (int i = 0; i < results.size(); i++) {
+            ChunkScan result = results.get(i);
+            long lineBreak = quotes % 2 == 0 ? result.evenBreak : result.oddBreak;
+            if (i > 0 && lineBreak != NOT_FOUND) {
+                starts.add(lineBreak + 1);
+            }
+            quotes += result.quotes;
+        }
+        starts.add(size);
+        return starts.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    // Counts the quotes in [from, to) and finds the first line break at each quote parity.
+    private ChunkScan scan(long from, long to) {
+        ChunkScan result = new ChunkScan();
+        for (long p = from; p < to; p++) {
+            byte b = segment.get(ValueLayout.JAVA_BYTE, p);
+            if (b == '"') {
+                result.quotes++;
+            } else if (b == '\n' || b == '\r') {
+                if (result.quotes % 2 == 0 && result.evenBreak == NOT_FOUND) {
+                    result.evenBreak = p;
+                } else if (result.quotes % 2 == 1 && result.oddBreak == NOT_FOUND) {
+                    result.oddBreak = p;
+                }
+            }
+        }
+        return result;
+    }
+
+    private List<FlexiBean> parseRanges(long[] starts, FlexiBeanBinder binder) throws CSVException {
+        List<Callable<RangeResult>> parsers = new ArrayList<>();
+        for (int i = 0; i < starts.length - 1; i++) {
+            final long from = starts[i];
+            final long to = starts[i + 1];
+            parsers.add(() -> tryParseRange(from, to, binder));
+        }
+        List<RangeResult> results = invokeAll(parsers);
+        // the header is the first record.
+        long records = 1;
+        for (int i = 0; i < results.size(); i++) {
+            RangeResult result = results.get(i);
+            if (result.error != null) {
+                // the range was parsed with its records numbered from 1. Parse it again with the
+                // records before it counted, so that the error gives the record number in the file.
+                parseRange(starts[i], starts[i + 1], binder, records);
+                throw result.error;
+            }
+            records += result.beans.size();
+        }
+        List<FlexiBean> beans = new ArrayList<>((int) (records - 1));
+        for (RangeResult result : results) {
+            beans.addAll(result.beans);
+        }
+        return beans;
+    }
+
+    private RangeResult tryParseRange(long from, long to, FlexiBeanBinder binder) {
+        try {
+            return new RangeResult(parseRange(from, to, binder, 0), null);
+        } catch (CSVException csve) {
+            return new RangeResult(null, csve);
+        }
+    }
+
+    private List<FlexiBean> parseRange(long from, long to, FlexiBeanBinder binder, long recordsBefore)
+            throws CSVException {
+        MappedCSVReader reader = new MappedCSVReader(segment, from, to, recordsBefore);
+        List<FlexiBean> beans = new ArrayList<>();
+        FlexiBean bean = reader.readBean(binder);
+        while (bean != null) {
+            beans.add(bean);
+            bean = reader.readBean(binder);
+        }
+        return beans;
+    }
+
+    private <T> List<T> invokeAll(List<Callable<T>> tasks) throws CSVException {
+        List<T> results = new ArrayList<>(tasks.size());
+        try {
+            for (Future<T> future : pool.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new CSVException("CSV parsing was interrupted");
+        } catch (ExecutionException ee) {
+            if (ee.getCause() instanceof CSVException csve) {
+                throw csve;
+            }
+            Logger.error(ee, "Exception caught during parallel CSV parsing");
+            throw new CSVException("Error parsing CSV input: " + ee.getCause().getMessage());
+        }
+        return results;
+    }
+
+    /**
+     * RangeResult holds the FlexiBeans parsed from one range, or the error that stopped the parse.
+     */
+    private static final class RangeResult {
+        private final List<FlexiBean> beans;
+        private final CSVException error;
+
+        private RangeResult(List<FlexiBean> beans, CSVException error) {
+            this.beans = beans;
+            this.error = error;
+        }
+    }
+
+    /**
+     * ChunkScan holds the results of scanning one nominal range for record boundaries.
+     */
+    private static final class ChunkScan {
+        private long quotes;
+        private long evenBreak = NOT_FOUND;
+        private long oddBreak = NOT_FOUND;
+    }
+}
@@ -0,0 +1,16 @@
+package com.github.jimorc.trilliumshowfx;
+
+/**
+ * ParserType defines the CSV parsers that FlexiBeans can use to read CSV input.
+ */
+public enum ParserType {
+    /**
+     * OpenCSV denotes parsing with openCSV's CsvToBean, which binds fields through reflection.
+     */
+    OpenCSV,
+    /**
+     * Tokenizer denotes parsing with the built-in RFC 4180 tokenizer, which calls the FlexiBean
+     * setters directly.
+     */
+    Tokenizer
+}
@@ -0,0 +1,110 @@
+package com.github.jimorc.trilliumshowfx;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Iterator;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * PerceptualHash calculates the difference hash (dHash) of an image. The image is reduced to
+ * 9 x 8 grey levels, and each of the 64 bits records whether a grey level is brighter than its
+ * right-hand neighbour. Resizing, recompressing or slightly adjusting a photo changes only a few
+ * bits, so the Hamming distance between hashes measures how alike two images look.
+ *
+ * The image is decoded with source subsampling, so only enough pixels to fill the grid are
+ * produced. This is much faster than decoding a full size photo.
+ *
+ * ```java
+ * long hash = PerceptualHash.dHash(Path.of("image1.jpg"));
+ * ```
+ */
+final class PerceptualHash {
+    private static final int GRID_WIDTH = 9;
+    private static final int GRID_HEIGHT = 8;
+    // decode at least this many pixels for each grid cell in each direction.
+    private static final int SAMPLES_PER_CELL = 8;
+    private static final int RED_WEIGHT = 299;
+    private static final int GREEN_WEIGHT = 587;
+    private static final int BLUE_WEIGHT = 114;
+    private static final int BYTE_MASK = 0xFF;
+    private static final int RED_SHIFT = 16;
+    private static final int GREEN_SHIFT = 8;
+
+    private PerceptualHash() {
+    }
+
+    /**
+     * Calculate the difference hash of an image file.
+     * @param file the image file.
+     * @return the hash.
+     * @throws IOException if the file cannot be read or is not an image that ImageIO can decode.
+     */
+    static long dHash(Path file) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(file.toFile())) {
+            if (in == null) {
+                throw new IOException("Unable to open " + file);
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                throw new IOException("Not a supported image: " + file);
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(
+                    Math.max(1, reader.getWidth(0) / (GRID_WIDTH * SAMPLES_PER_CELL)),
+                    Math.max(1, reader.getHeight(0) / (GRID_HEIGHT * SAMPLES_PER_CELL)), 0, 0);
+                return dHash(reader.read(0, param));
+            } catch (RuntimeException re) {
+                // some decoders throw unchecked exceptions for corrupt data.
+                throw new IOException("Unable to decode " + file, re);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Calculate the difference hash of a decoded image.
+     * @param image the image.
+     * @return the hash.
+     */
+    static long dHash(BufferedImage image) {
+        long[] grey = new long[GRID_WIDTH * GRID_HEIGHT];
+        int[] counts = new int[grey.length];
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            image.getRGB(0, y, width, 1, row, 0, width);
+            int cellRow = y * GRID_HEIGHT / height * GRID_WIDTH;
+            for (int x = 0; x < width; x++) {
+                int cell = cellRow + x * GRID_WIDTH / width;
+                grey[cell] += luma(row[x]);
+                counts[cell]++;
+            }
+        }
+        long hash = 0;
+        for (int y = 0; y < GRID_HEIGHT; y++) {
+            for (int x = 0; x < GRID_WIDTH - 1; x++) {
+                int cell = y * GRID_WIDTH + x;
+                // compare averages without dividing: a / ca > b / cb when a * cb > b * ca.
+                boolean brighter = grey[cell] * Math.max(counts[cell + 1], 1)
+                    > grey[cell + 1] * Math.max(counts[cell], 1);
+                hash = (hash << 1) | (brighter ? 1 : 0);
+            }
+        }
+        return hash;
+    }
+
+    // Returns the weighted grey level of an RGB pixel, scaled by 1000.
+    private static int luma(int rgb) {
+        return RED_WEIGHT * ((rgb >> RED_SHIFT) & BYTE_MASK) + GREEN_WEIGHT * ((rgb >> GREEN_SHIFT) & BYTE_MASK)
+            + BLUE_WEIGHT * (rgb & BYTE_MASK);
+    }
+}
@@ -1,5 +1,7 @@
 package com.github.jimorc.trilliumshowfx;
 
+import java.util.Objects;
+
 /**
  * Person class represents the name of a person. It converts between a person's
  * firstName and lastName and their fullName (<firstName> <lastName>) as well as
@@ -51,6 +53,31 @@ public class Person {
         return firstName + " " + lastName.substring(0, 1) + ".";
     }
 
+    /**
+     * Two Person objects are equal if they have the same first and last names.
+     * @param obj the object to compare with
+     * @return true if obj is a Person with the same names
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof Person other)) {
+            return false;
+        }
+        return Objects.equals(firstName, other.firstName) && Objects.equals(lastName, other.lastName);
+    }
+
+    /**
+     * hashCode method consistent with equals.
+     * @return the hash code
+     */
+    @Override
+    public int hashCode() {
+        return Objects.hash(firstName, lastName);
+    }
+
     /**
      * toString method returns the person's full name.
      * @return the person's full name
@@ -0,0 +1,137 @@
+package com.github.jimorc.trilliumshowfx;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Collector;
+
+/**
+ * PersonGroups groups FlexiBean objects by the full name of the person they belong to.
+ *
+ * Groups are kept in the order that each full name is first seen, and the beans in each group
+ * are kept in the order they are added. Each group has a canonical Person, created from the first
+ * and last names of the first bean added to it. Because PersonGroups is a Consumer, rows can be grouped
+ * while they are being parsed, without first collecting them into a separate list:
+ *
+ * ```java
+ * PersonGroups groups = new PersonGroups();
+ * try (Stream<FlexiBean> beans = FlexiBeans.stream(inputStream)) {
+ *     beans.forEach(groups);
+ * }
+ * ```
+ */
+public class PersonGroups implements Consumer<FlexiBean> {
+    private final Map<String, FlexiBeans> groups = new LinkedHashMap<>();
+    private final Map<String, Person> persons = new HashMap<>();
+
+    /**
+     * Add a FlexiBean to the group for its full name.
+     * @param bean the FlexiBean to add.
+     */
+    @Override
+    public void accept(FlexiBean bean) {
+        groups.computeIfAbsent(bean.getFullName(), _ -> new FlexiBeans()).append(bean);
+        persons.computeIfAbsent(bean.getFullName(), _ -> new Person(bean.getFirstName(), bean.getLastName()));
+    }
+
+    /**
+     * Remove a FlexiBean from the group for its full name. A group that becomes empty is removed.
+     * @param bean the FlexiBean to remove.
+     */
+    void remove(FlexiBean bean) {
+        FlexiBeans group = groups.get(bean.getFullName());
+        if (group != null && group.getBeans().remove(bean) && group.getBeans().isEmpty()) {
+            groups.remove(bean.getFullName());
+            persons.remove(bean.getFullName());
+        }
+    }
+
+    /**
+     * Retrieve the groups, keyed by full name, in the order that the full names were first seen.
+     * @return unmodifiable map of full name to the FlexiBeans for that name.
+     */
+    public Map<String, FlexiBeans> getGroups() {
+        return Collections.unmodifiableMap(groups);
+    }
+
+    /**
+     * Retrieve the full names in the order that they were first seen.
+     * @return a new list of full names.
+     */
+    public List<String> getFullNames() {
+        return new ArrayList<>(groups.keySet());
+    }
+
+    /**
+     * Retrieve the FlexiBeans for the specified full name.
+     * @param fullName the full name of the person.
+     * @return the FlexiBeans for the person, or null if there are none.
+     */
+    public FlexiBeans getBeans(String fullName) {
+        return groups.get(fullName);
+    }
+
+    /**
+     * Retrieve the canonical Person for the specified full name.
+     * @param fullName the full name of the person.
+     * @return the Person, or null if there is no group for the full name.
+     */
+    public Person getPerson(String fullName) {
+        return persons.get(fullName);
+    }
+
+    /**
+     * Retrieve the last name for the specified full name, taken from the first bean in its group.
+     * @param fullName the full name of the person.
+     * @return the last name, or null if there is no group or the first bean has no last name.
+     */
+    public String getLastName(String fullName) {
+        FlexiBeans group = groups.get(fullName);
+        return group == null || group.getBeans().isEmpty() ? null : group.getBeans().get(0).getLastName();
+    }
+
+    /**
+     * Retrieve the number of groups.
+     * @return the number of distinct full names.
+     */
+    public int size() {
+        return groups.size();
+    }
+
+    /**
+     * Create PersonGroups containing the same groups as this object in a different order.
+     * The FlexiBeans for each group are shared, not copied.
+     * @param fullNames the full names of all of the groups, in the new order.
+     * @return the reordered PersonGroups.
+     */
+    PersonGroups reorder(List<String> fullNames) {
+        PersonGroups reordered = new PersonGroups();
+        for (String fullName : fullNames) {
+            reordered.groups.put(fullName, groups.get(fullName));
+            reordered.persons.put(fullName, persons.get(fullName));
+        }
+        return reordered;
+    }
+
+    /**
+     * Create a Collector that groups a Stream of FlexiBean objects.
+     * @return the Collector.
+     */
+    public static Collector<FlexiBean, ?, PersonGroups> collector() {
+        return Collector.of(PersonGroups::new, PersonGroups::accept, PersonGroups::merge);
+    }
+
+    // Appends the groups in other after the groups in this object.
+    private PersonGroups merge(PersonGroups other) {
+        for (Map.Entry<String, FlexiBeans> entry : other.groups.entrySet()) {
+            for (FlexiBean bean : entry.getValue().getBeans()) {
+                accept(bean);
+            }
+        }
+        return this;
+    }
+}
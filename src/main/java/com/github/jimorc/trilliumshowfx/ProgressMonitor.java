@@ -0,0 +1,25 @@
+package com.github.jimorc.trilliumshowfx;
+
+/**
+ * ProgressMonitor is told how far a long running check has got, and may ask for it to be cancelled.
+ * It may be called from several threads at once.
+ */
+public interface ProgressMonitor {
+    /** NONE ignores progress and never cancels. */
+    ProgressMonitor NONE = (_, _) -> { };
+
+    /**
+     * Called when another part of the check has been done.
+     * @param done the number of parts done.
+     * @param total the number of parts in the check.
+     */
+    void progress(long done, long total);
+
+    /**
+     * Determine whether the check should stop.
+     * @return true if the check has been cancelled. By default, checks are never cancelled.
+     */
+    default boolean isCancelled() {
+        return false;
+    }
+}
@@ -0,0 +1,366 @@
+package com.github.jimorc.trilliumshowfx;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import org.tinylog.Logger;
+
+/**
+ * ScoreImport joins a CSV file of judging scores to the rows of a show.
+ *
+ * The score file must have a Filename or an Entry Id column, which is matched against the
+ * Filename or Entry Id column of the show's rows, and a Score column, an Award column, or both.
+ * Column names are matched without regard to case. The show's rows are first placed in a hash
+ * table by key; the score file is then read in a single streaming pass, and each score row is
+ * looked up in that table. Score rows that match no row of the show are reported, as are rows
+ * of the show that have a full name but no score. The score file may be compressed.
+ *
+ * The new order is computed with stable counting sorts on the rank of each distinct score and
+ * award, so only the distinct values are compared with each other:
+ *
+ * ```java
+ * ScoreImport scores = ScoreImport.join(scoreFile, beans.getBeans());
+ * int[] order = scores.order(ScoreOrder.AwardTier);
+ * Logger.info(scores.getReport());
+ * ```
+ */
+public final class ScoreImport {
+    private static final String FILENAME = "FILENAME";
+    private static final String ENTRY_ID = "ENTRY ID";
+    private static final String SCORE = "SCORE";
+    private static final String AWARD = "AWARD";
+    private static final int NO_COLUMN = -1;
+    private static final int NO_ROW = -1;
+
+    private final int rowCount;
+    private final double[] scores;
+    private final String[] awards;
+    private final boolean[] matched;
+    private final List<String> unmatched = new ArrayList<>();
+    private final List<String> unscored = new ArrayList<>();
+    private int matchedCount;
+
+    private ScoreImport(int rowCount) {
+        this.rowCount = rowCount;
+        scores = new double[rowCount];
+        Arrays.fill(scores, Double.NaN);
+        awards = new String[rowCount];
+        matched = new boolean[rowCount];
+    }
+
+    /**
+     * Read a score file and join it to the rows of a show.
+     * @param scoreFile the score CSV file.
+     * @param beans the rows of the show.
+     * @return the ScoreImport holding the score and award for each row.
+     * @throws BadHeaderException if the score file has no header line.
+     * @throws CSVException if the score file has no key column or no score or award column, or
+     *         a score is not a number.
+     * @throws IOException if the score file cannot be read.
+     */
+    public static ScoreImport join(File scoreFile, List<FlexiBean> beans)
+            throws BadHeaderException, CSVException, IOException {
+        Logger.trace("In ScoreImport.join");
+        ScoreImport scores = new ScoreImport(beans.size());
+        try (CSVTokenizer tokenizer = new CSVTokenizer(new InputStreamReader(
+                CompressedCSVInput.open(scoreFile), StandardCharsets.UTF_8))) {
+            List<String> fields = new ArrayList<>();
+            if (!tokenizer.readRecord(fields) || fields.isEmpty()) {
+                throw new BadHeaderException("Error capturing CSV header!");
+            }
+            Columns columns = new Columns(fields);
+            KeyIndex index = new KeyIndex(beans, columns.keyAccessor());
+            while (tokenizer.readRecord(fields)) {
+                scores.add(fields, columns, index, tokenizer.getRecordNumber());
+            }
+        }
+        for (int row : scores.getUnscoredRows(beans)) {
+            scores.unscored.add("row " + (row + 1) + ": " + beans.get(row).getFilename());
+        }
+        Logger.debug("Matched {} score rows from {}; {} did not match", scores.matchedCount,
+            scoreFile.getName(), scores.unmatched.size());
+        return scores;
+    }
+
+    /**
+     * Retrieve the score for a row of the show.
+     * @param row the row number.
+     * @return the score, or NaN if the row has no score.
+     */
+    public double getScore(int row) {
+        return scores[row];
+    }
+
+    /**
+     * Retrieve the award for a row of the show.
+     * @param row the row number.
+     * @return the award, or null if the row has no award.
+     */
+    public String getAward(int row) {
+        return awards[row];
+    }
+
+    /**
+     * Retrieve the number of score rows that matched a row of the show.
+     * @return the number of matched score rows.
+     */
+    public int getMatchedCount() {
+        return matchedCount;
+    }
+
+    /**
+     * Retrieve descriptions of the score rows that did not match a row of the show.
+     * @return unmodifiable list of descriptions, in score file order.
+     */
+    public List<String> getUnmatchedScoreRows() {
+        return Collections.unmodifiableList(unmatched);
+    }
+
+    /**
+     * Retrieve the rows of the show that have a full name but did not match a score row. Rows
+     * without a full name, such as title slides, are not expected to have scores.
+     * @param beans the rows of the show that the scores were joined to.
+     * @return the row numbers, in ascending order.
+     */
+    public int[] getUnscoredRows(List<FlexiBean> beans) {
+        int[] rows = new int[rowCount];
+        int count = 0;
+        int row = 0;
+        for (FlexiBean bean : beans) {
+            if (!matched[row] && bean.getFullName() != null) {
+                rows[count++] = row;
+            }
+            row++;
+        }
+        return Arrays.copyOf(rows, count);
+    }
+
+    /**
+     * Create a report of the import, listing the score rows that did not match and the rows of
+     * the show that have a full name but no score.
+     * @return the report text.
+     */
+    public String getReport() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(matchedCount).append(" score rows matched the show.");
+        appendRows(sb, unmatched, " score rows did not match:");
+        appendRows(sb, unscored, " rows of the show have no score:");
+        return sb.toString();
+    }
+
+    private static void appendRows(StringBuilder sb, List<String> rows, String heading) {
+        if (!rows.isEmpty()) {
+            sb.append("\n").append(rows.size()).append(heading);
+            for (String row : rows) {
+                sb.append("\n   ").append(row);
+            }
+        }
+    }
+
+    /**
+     * Compute the new order of the rows of the show. Rows with equal scores keep their original
+     * order. For ScoreDescending, rows without a score follow the scored rows; for AwardTier,
+     * rows without an award follow the awarded rows.
+     * @param order the ScoreOrder to use.
+     * @return the permutation: element i is the row number of the i'th row in the new order.
+     */
+    public int[] order(ScoreOrder order) {
+        int[] rows = new int[rowCount];
+        for (int i = 0; i < rowCount; i++) {
+            rows[i] = i;
+        }
+        Ranks scoreRanks = rankScores();
+        rows = countingSort(rows, scoreRanks.ranks, scoreRanks.count);
+        return switch (order) {
+            case ScoreDescending -> rows;
+            case AwardTier -> {
+                Ranks tierRanks = rankAwards(scoreRanks);
+                yield countingSort(rows, tierRanks.ranks, tierRanks.count);
+            }
+        };
+    }
+
+    private void add(List<String> fields, Columns columns, KeyIndex index, long recordNumber) throws CSVException {
+        String key = columns.field(fields, columns.key);
+        int row = key == null ? NO_ROW : index.first(key);
+        if (row == NO_ROW) {
+            unmatched.add("record " + recordNumber + ": " + (key == null ? "no key" : key));
+            return;
+        }
+        double score = parseScore(columns.field(fields, columns.score), recordNumber);
+        String award = columns.field(fields, columns.award);
+        for (; row != NO_ROW; row = index.next(row)) {
+            scores[row] = score;
+            awards[row] = award;
+            matched[row] = true;
+        }
+        matchedCount++;
+    }
+
+    private static double parseScore(String value, long recordNumber) throws CSVException {
+        if (value == null) {
+            return Double.NaN;
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException nfe) {
+            throw new CSVException("Error parsing score file: '" + value + "' in record " + recordNumber
+                + " is not a score.");
+        }
+    }
+
+    // Ranks the distinct scores, highest first. Rows without a score are ranked last.
+    private Ranks rankScores() {
+        double[] distinct = Arrays.stream(scores).filter(s -> !Double.isNaN(s)).distinct().toArray();
+        Arrays.sort(distinct);
+        Map<Double, Integer> rankOf = new HashMap<>();
+        for (int i = 0; i < distinct.length; i++) {
+            rankOf.put(distinct[i], distinct.length - 1 - i);
+        }
+        int[] ranks = new int[rowCount];
+        for (int row = 0; row < rowCount; row++) {
+            ranks[row] = Double.isNaN(scores[row]) ? distinct.length : rankOf.get(scores[row]);
+        }
+        return new Ranks(ranks, distinct.length + 1);
+    }
+
+    // Ranks the distinct awards by their best score rank, then by first appearance. Rows without
+    // an award are ranked after every award.
+    private Ranks rankAwards(Ranks scoreRanks) {
+        Map<String, Integer> best = new LinkedHashMap<>();
+        for (int row = 0; row < rowCount; row++) {
+            if (awards[row] != null) {
+                best.merge(awards[row], scoreRanks.ranks[row], Math::min);
+            }
+        }
+        List<String> tiers = new ArrayList<>(best.keySet());
+        tiers.sort((a, b) -> Integer.compare(best.get(a), best.get(b)));
+        Map<String, Integer> rankOf = new HashMap<>();
+        for (int i = 0; i < tiers.size(); i++) {
+            rankOf.put(tiers.get(i), i);
+        }
+        int[] ranks = new int[rowCount];
+        for (int row = 0; row < rowCount; row++) {
+            ranks[row] = awards[row] == null ? tiers.size() : rankOf.get(awards[row]);
+        }
+        return new Ranks(ranks, tiers.size() + 1);
+    }
+
+    // Stable counting sort of rows by rank.
+    private static int[] countingSort(int[] rows, int[] ranks, int rankCount) {
+        int[] starts = new int[rankCount + 1];
+        for (int row : rows) {
+            starts[ranks[row] + 1]++;
+        }
+        for (int r = 0; r < rankCount; r++) {
+            starts[r + 1] += starts[r];
+        }
+        int[] sorted = new int[rows.length];
+        for (int row : rows) {
+            sorted[starts[ranks[row]]++] = row;
+        }
+        return sorted;
+    }
+
+    /**
+     * Ranks holds a rank for each row and the number of distinct ranks.
+     */
+    private static final class Ranks {
+        private final int[] ranks;
+        private final int count;
+
+        private Ranks(int[] ranks, int count) {
+            this.ranks = ranks;
+            this.count = count;
+        }
+    }
+
+    /**
+     * Columns holds the positions of the key, score and award columns in the score file.
+     */
+    private static final class Columns {
+        private final int key;
+        private final boolean byEntryId;
+        private final int score;
+        private final int award;
+
+        private Columns(List<String> header) throws CSVException {
+            int filenameCol = indexOf(header, FILENAME);
+            byEntryId = filenameCol == NO_COLUMN;
+            key = byEntryId ? indexOf(header, ENTRY_ID) : filenameCol;
+            score = indexOf(header, SCORE);
+            award = indexOf(header, AWARD);
+            if (key == NO_COLUMN || (score == NO_COLUMN && award == NO_COLUMN)) {
+                throw new CSVException("Error parsing score file: Header must contain a Filename or Entry Id "
+                    + "column and a Score or Award column. The list of headers encountered is " + header + ".");
+            }
+        }
+
+        private Function<FlexiBean, String> keyAccessor() {
+            return byEntryId ? bean -> bean.getExtra(ENTRY_ID) : FlexiBean::getFilename;
+        }
+
+        // Returns the trimmed field, or null if it is missing or blank.
+        private String field(List<String> fields, int column) {
+            if (column == NO_COLUMN || column >= fields.size()) {
+                return null;
+            }
+            String value = fields.get(column).trim();
+            return value.isEmpty() ? null : value;
+        }
+
+        private static int indexOf(List<String> header, String name) {
+            for (int col = 0; col < header.size(); col++) {
+                if (CSVSchema.normalize(header.get(col)).equals(name)) {
+                    return col;
+                }
+            }
+            return NO_COLUMN;
+        }
+    }
+
+    /**
+     * KeyIndex is a hash table from join key to the rows of the show with that key. Rows with
+     * the same key are chained through an int array.
+     */
+    private static final class KeyIndex {
+        private final Map<String, Integer> first = new HashMap<>();
+        private final int[] next;
+
+        private KeyIndex(List<FlexiBean> beans, Function<FlexiBean, String> key) {
+            next = new int[beans.size()];
+            Map<String, Integer> lastRow = new HashMap<>();
+            int row = 0;
+            for (FlexiBean bean : beans) {
+                next[row] = NO_ROW;
+                String k = key.apply(bean);
+                if (k != null) {
+                    Integer previous = lastRow.put(k.trim(), row);
+                    if (previous == null) {
+                        first.put(k.trim(), row);
+                    } else {
+                        next[previous] = row;
+                    }
+                }
+                row++;
+            }
+        }
+
+        private int first(String key) {
+            return first.getOrDefault(key, NO_ROW);
+        }
+
+        private int next(int row) {
+            return next[row];
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.github.jimorc.trilliumshowfx;
+
+/**
+ * ScoreOrder defines the orders that imported judging scores can put a show in.
+ */
+public enum ScoreOrder {
+    /**
+     * ScoreDescending denotes sorting by score, highest first.
+     */
+    ScoreDescending,
+    /**
+     * AwardTier denotes grouping by award, with the award whose best score is highest first, and
+     * sorting by score, highest first, within each award.
+     */
+    AwardTier
+}
@@ -0,0 +1,265 @@
+package com.github.jimorc.trilliumshowfx;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.tinylog.Logger;
+
+/**
+ * ShowBuilder builds slideshows from an InputCSV: a start title slide, then a title slide and
+ * the images for each person, then an end title slide.
+ *
+ * buildShow builds a single show. buildShows does not parse the CSV file again: it partitions
+ * the rows of the InputCSV by a column, such as a competition category, in one pass, and builds
+ * and writes the show for each value of the column on a thread pool. Title images are rendered on the calling
+ * thread while the shows are built, because JavaFX snapshots must be taken on the JavaFX
+ * application thread. Each title image is rendered only once, however many shows use it; this
+ * includes the end slide and the title slide of a person who has images in several categories.
+ *
+ * ```java
+ * ShowBuilder builder = new ShowBuilder(csv, data, TitleImage::generateTitleImage,
+ *     (show, fileName) -> new XLSWorkbook(show).writeToFile(fileName));
+ * Map<String, String> files = builder.buildShows("Category");
+ * ```
+ */
+public final class ShowBuilder {
+    /**
+     * START_FILE is the file name of the start title image of a single show.
+     */
+    public static final String START_FILE = "start.jpg";
+    /**
+     * END_FILE is the file name of the end title image.
+     */
+    public static final String END_FILE = "end.jpg";
+    /**
+     * NO_CATEGORY is the category of rows that have no value in the column used by buildShows.
+     * It is empty, so it cannot be the same as a value in the column.
+     */
+    public static final String NO_CATEGORY = "";
+    /**
+     * NO_CATEGORY_NAME is the name used in the start title and file names of the NO_CATEGORY show.
+     */
+    public static final String NO_CATEGORY_NAME = "Uncategorized";
+
+    private final InputCSV csv;
+    private final TitleAndSortData data;
+    private final String dir;
+    private final TitleRenderer renderer;
+    private final ShowWriter writer;
+    private final Set<String> rendered = new HashSet<>();
+
+    /**
+     * TitleRenderer renders a title image.
+     */
+    @FunctionalInterface
+    public interface TitleRenderer {
+        /**
+         * Render a title image.
+         * @param caption the caption to place in the image.
+         * @param imageFileName the path of the image file to write.
+         * @throws IOException when the image file cannot be written.
+         */
+        void render(String caption, String imageFileName) throws IOException;
+    }
+
+    /**
+     * ShowWriter writes a show to a file.
+     */
+    @FunctionalInterface
+    public interface ShowWriter {
+        /**
+         * Write a show.
+         * @param show the show to write.
+         * @param fileName the path of the file to write.
+         * @throws IOException when the file cannot be written.
+         */
+        void write(OutputCSV show, String fileName) throws IOException;
+    }
+
+    /**
+     * Constructor.
+     * @param csv the InputCSV to build shows from.
+     * @param data the titles and sort order to use.
+     * @param renderer the TitleRenderer used to render title images.
+     * @param writer the ShowWriter used by buildShows to write each show.
+     */
+    public ShowBuilder(InputCSV csv, TitleAndSortData data, TitleRenderer renderer, ShowWriter writer) {
+        this.csv = csv;
+        this.data = data;
+        this.dir = csv.getFileDir();
+        this.renderer = renderer;
+        this.writer = writer;
+    }
+
+    /**
+     * Build a single show from all of the rows of the InputCSV, rendering its title images.
+     * @return the show.
+     * @throws CSVException if a person in the show cannot be retrieved.
+     * @throws IOException if a title image cannot be written.
+     */
+    public OutputCSV buildShow() throws CSVException, IOException {
+        Logger.trace("In ShowBuilder.buildShow");
+        renderTitle(data.getStartTitle(), START_FILE);
+        // sort the person groups built while parsing rather than the rows themselves.
+        PersonGroups groups = data.getSortSpec().sort(csv.getPersonGroups());
+        renderPersonTitles(groups);
+        renderTitle(data.getEndTitle(), END_FILE);
+        return assemble(START_FILE, groups);
+    }
+
+    /**
+     * Build and write a show for each value of a column. The shows are written to
+     * slideshow-&lt;value&gt;.xls in the folder of the InputCSV. Characters that are not safe
+     * in file names are replaced, and if two values would then have the same file name, ignoring
+     * case, the later one is given a numbered suffix. Rows with no value in the column are placed
+     * in the NO_CATEGORY show. The start title of each show is followed by its column value.
+     * @param column the column to partition the rows by.
+     * @return map of column value to the path of the file the show was written to, in the order
+     *         that the values first appear.
+     * @throws CSVException if a person cannot be retrieved, or building a show is interrupted.
+     * @throws IOException if a title image or a show cannot be written.
+     */
+    public Map<String, String> buildShows(String column) throws CSVException, IOException {
+        Logger.trace("In ShowBuilder.buildShows");
+        Map<String, FlexiBeans> partitions = csv.partitionBy(column, NO_CATEGORY);
+        Map<String, String> names = fileNames(partitions.keySet());
+        Logger.debug("Building {} shows by {}", partitions.size(), column);
+        Map<String, String> files = new LinkedHashMap<>();
+        int threads = Math.max(1, Math.min(partitions.size(), Runtime.getRuntime().availableProcessors()));
+        try (ExecutorService pool = Executors.newFixedThreadPool(threads)) {
+            List<Future<String>> futures = new ArrayList<>();
+            for (Map.Entry<String, FlexiBeans> partition : partitions.entrySet()) {
+                String name = names.get(partition.getKey());
+                futures.add(pool.submit(() -> writeShow(name, partition.getValue())));
+            }
+            for (String category : partitions.keySet()) {
+                String caption = category.equals(NO_CATEGORY) ? NO_CATEGORY_NAME : category;
+                renderTitle(data.getStartTitle() + "\n" + caption, startFile(names.get(category)));
+            }
+            renderPersonTitles(csv.getPersonGroups());
+            renderTitle(data.getEndTitle(), END_FILE);
+            int i = 0;
+            for (String category : partitions.keySet()) {
+                files.put(category, join(futures.get(i++)));
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Create a name for each category that is safe to use in file names. Two categories never
+     * have names that differ only in case.
+     * @param categories the categories, in order. Later categories are given the numbered names.
+     * @return map of category to name.
+     */
+    static Map<String, String> fileNames(Collection<String> categories) {
+        Map<String, String> names = new LinkedHashMap<>();
+        Set<String> used = new HashSet<>();
+        for (String category : categories) {
+            String base = fileSafe(category.equals(NO_CATEGORY) ? NO_CATEGORY_NAME : category);
+            String name = base;
+            for (int n = 2; !used.add(name.toLowerCase(Locale.ROOT)); n++) {
+                name = base + "-" + n;
+            }
+            names.put(category, name);
+        }
+        return names;
+    }
+
+    /**
+     * Create the file name of a category's show.
+     * @param name the category's name from fileNames.
+     * @return the file name, without a folder.
+     */
+    static String showFile(String name) {
+        return "slideshow-" + name + ".xls";
+    }
+
+    /**
+     * Create the file name of a category's start title image.
+     * @param name the category's name from fileNames.
+     * @return the file name, without a folder.
+     */
+    static String startFile(String name) {
+        return "start-" + name + ".jpg";
+    }
+
+    /**
+     * Create the file name of a person's title image.
+     * @param fullName the person's full name.
+     * @return the file name, without a folder.
+     */
+    static String personFile(String fullName) {
+        return fullName.replaceAll(" ", "_") + ".jpg";
+    }
+
+    // Runs on a pool thread: sorts and assembles one category's show and writes it.
+    private String writeShow(String name, FlexiBeans beans) throws IOException {
+        PersonGroups groups = data.getSortSpec().sort(beans.getPersonGroups());
+        OutputCSV show = assemble(startFile(name), groups);
+        String fileName = dir + "/" + showFile(name);
+        writer.write(show, fileName);
+        Logger.debug("Show {} written to {}", name, fileName);
+        return fileName;
+    }
+
+    private OutputCSV assemble(String startFile, PersonGroups groups) {
+        OutputCSV out = new OutputCSV();
+        out.appendBean(titleBean(startFile));
+        for (String name : groups.getFullNames()) {
+            out.appendBean(titleBean(personFile(name)));
+            for (FlexiBean bean : groups.getBeans(name).getBeans()) {
+                out.appendBean(bean);
+            }
+        }
+        out.appendBean(titleBean(END_FILE));
+        return out;
+    }
+
+    private void renderPersonTitles(PersonGroups groups) throws CSVException, IOException {
+        for (String name : groups.getFullNames()) {
+            renderTitle(csv.getPerson(name).getFullName(), personFile(name));
+        }
+    }
+
+    private void renderTitle(String caption, String fileName) throws IOException {
+        if (rendered.add(fileName)) {
+            renderer.render(caption, dir + "/" + fileName);
+        }
+    }
+
+    private static FlexiBean titleBean(String fileName) {
+        FlexiBean bean = new FlexiBean();
+        bean.setFilename(fileName);
+        return bean;
+    }
+
+    private static String join(Future<String> future) throws CSVException, IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new CSVException("Building the shows was interrupted");
+        } catch (ExecutionException ee) {
+            if (ee.getCause() instanceof IOException ioe) {
+                throw ioe;
+            }
+            Logger.error(ee, "Exception caught while building a show");
+            throw new CSVException("Error building show: " + ee.getCause().getMessage());
+        }
+    }
+
+    private static String fileSafe(String name) {
+        return name.replaceAll("[^\\p{L}\\p{N}._-]+", "_");
+    }
+}
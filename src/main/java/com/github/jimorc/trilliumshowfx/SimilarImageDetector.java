@@ -0,0 +1,109 @@
+package com.github.jimorc.trilliumshowfx;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import org.tinylog.Logger;
+
+/**
+ * SimilarImageDetector finds images that look alike although their contents differ, such as a
+ * photo that was resized or recompressed and submitted again. The perceptual hash of each image
+ * is calculated in parallel on the common ForkJoinPool and kept in an ImageHashCache, which
+ * matches each image in the show by Hamming distance against the images of this and earlier
+ * shows. Images with identical contents are left to DuplicateImageDetector.
+ *
+ * ```java
+ * SimilarImageDetector detector = new SimilarImageDetector(cache);
+ * List<ValidationReport.SimilarImages> similar = detector.detect(dir, fileNames);
+ * ```
+ */
+final class SimilarImageDetector {
+    /** The largest number of the 64 hash bits that may differ for images to be reported. */
+    static final int MAX_DISTANCE = 10;
+
+    private final ImageHashCache cache;
+
+    /**
+     * Constructor.
+     * @param cache the cache of image hashes. The cache is saved after each call to detect.
+     */
+    SimilarImageDetector(ImageHashCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Find the images in a folder that look like each other or like an image in another folder
+     * that is in the cache. Files that cannot be decoded are skipped, and images in other folders that
+     * no longer exist are removed from the cache.
+     * @param dir the image folder.
+     * @param fileNames the image file names, relative to dir. Repeated names are checked once.
+     * @return the similar images, in the order that the files appear, with the closest first.
+     * @throws CSVException if hashing is interrupted.
+     */
+    List<ValidationReport.SimilarImages> detect(Path dir, List<String> fileNames) throws CSVException {
+        return detect(dir, fileNames, ProgressMonitor.NONE);
+    }
+
+    /**
+     * Find the images in a folder that look like each other or like an image in another folder
+     * that is in the cache, reporting progress as each image is hashed.
+     * @param dir the image folder.
+     * @param fileNames the image file names, relative to dir. Repeated names are checked once.
+     * @param monitor is told how many images have been hashed, and may cancel the hashing.
+     * @return the similar images, in the order that the files appear, with the closest first. If
+     *         hashing was cancelled, images that were not hashed are not reported.
+     * @throws CSVException if hashing is interrupted.
+     */
+    List<ValidationReport.SimilarImages> detect(Path dir, List<String> fileNames, ProgressMonitor monitor)
+            throws CSVException {
+        List<String> names = new ArrayList<>(new LinkedHashSet<>(fileNames));
+        Path folder = dir.toAbsolutePath().normalize();
+        Map<String, Integer> showIndex = new HashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            showIndex.putIfAbsent(folder.resolve(names.get(i)).normalize().toString(), i);
+        }
+        List<Long> hashes = ImageHashCache.hashAll(folder, names, cache::perceptualHash, "similar images", monitor);
+        List<ValidationReport.SimilarImages> similar = new ArrayList<>();
+        for (int i = 0; i < names.size(); i++) {
+            if (hashes.get(i) == null) {
+                continue;
+            }
+            String path = folder.resolve(names.get(i)).normalize().toString();
+            List<BKTree.Match<String>> matches = cache.similar(hashes.get(i), MAX_DISTANCE);
+            matches.sort(Comparator.comparingInt((BKTree.Match<String> m) -> m.getDistance())
+                .thenComparing(BKTree.Match::getValue));
+            for (BKTree.Match<String> match : matches) {
+                String other = otherImage(folder, path, match.getValue(), i, names, showIndex);
+                if (other != null) {
+                    similar.add(new ValidationReport.SimilarImages(names.get(i), other, match.getDistance()));
+                }
+            }
+        }
+        cache.save();
+        Logger.debug("Found {} similar images among {} files in {}", similar.size(), names.size(), dir);
+        return similar;
+    }
+
+    // Returns the name or path to report for a match, or null if the match should not be reported.
+    private String otherImage(Path folder, String path, String matchPath, int index, List<String> names,
+            Map<String, Integer> showIndex) {
+        String hash = cache.cachedHash(path);
+        if (matchPath.equals(path) || (hash != null && hash.equals(cache.cachedHash(matchPath)))) {
+            return null;
+        }
+        Integer other = showIndex.get(matchPath);
+        if (other != null) {
+            // report each pair in the show once.
+            return other > index ? names.get(other) : null;
+        }
+        // other files in the folder are not part of this show.
+        if (folder.equals(Path.of(matchPath).getParent()) || cache.prune(List.of(matchPath)).isEmpty()) {
+            return null;
+        }
+        return matchPath;
+    }
+}
@@ -0,0 +1,42 @@
+package com.github.jimorc.trilliumshowfx;
+
+/**
+ * SortField defines the keys that can be chained in a SortSpec. Person fields order the persons
+ * in a show; image fields order the images within each person.
+ */
+public enum SortField {
+    /**
+     * FullName denotes sorting persons by full name.
+     */
+    FullName(true),
+    /**
+     * LastName denotes sorting persons by last name.
+     */
+    LastName(true),
+    /**
+     * EntryCount denotes sorting persons by the number of images they have entered.
+     */
+    EntryCount(true),
+    /**
+     * Title denotes sorting each person's images by title.
+     */
+    Title(false),
+    /**
+     * Filename denotes sorting each person's images by filename.
+     */
+    Filename(false);
+
+    private final boolean personField;
+
+    SortField(boolean personField) {
+        this.personField = personField;
+    }
+
+    /**
+     * Determine whether the field orders persons rather than the images within each person.
+     * @return true for a person field.
+     */
+    public boolean isPersonField() {
+        return personField;
+    }
+}
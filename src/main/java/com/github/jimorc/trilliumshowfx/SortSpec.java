@@ -0,0 +1,158 @@
+package com.github.jimorc.trilliumshowfx;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * SortSpec is a chain of sort keys for a show. Person keys order the persons, and image keys
+ * order the images within each person. Each key is applied only to items that compare equal on
+ * all of the keys before it; items that compare equal on every key keep their original order.
+ *
+ * SortSpec objects are immutable; each thenBy call returns a new SortSpec:
+ *
+ * ```java
+ * SortSpec spec = new SortSpec()
+ *     .thenBy(SortField.EntryCount, true)
+ *     .thenBy(SortOrder.AlphabeticalByLastNameThenFirstName)
+ *     .thenBy(SortField.Title, false);
+ * PersonGroups sorted = spec.sort(beans.getPersonGroups());
+ * ```
+ */
+public final class SortSpec {
+    private final List<Term> personTerms;
+    private final List<Term> imageTerms;
+
+    /**
+     * Constructor for an empty SortSpec, which leaves persons and images in their original order.
+     */
+    public SortSpec() {
+        this(List.of(), List.of());
+    }
+
+    /**
+     * Constructor for a SortSpec equivalent to a SortOrder.
+     * @param order the SortOrder.
+     */
+    public SortSpec(SortOrder order) {
+        this(new SortSpec().thenBy(order));
+    }
+
+    private SortSpec(SortSpec other) {
+        this(other.personTerms, other.imageTerms);
+    }
+
+    private SortSpec(List<Term> personTerms, List<Term> imageTerms) {
+        this.personTerms = personTerms;
+        this.imageTerms = imageTerms;
+    }
+
+    /**
+     * Create a SortSpec that adds a key to the end of this chain.
+     * @param field the field to sort by.
+     * @param descending true to sort in descending order.
+     * @return the new SortSpec.
+     */
+    public SortSpec thenBy(SortField field, boolean descending) {
+        Term term = new Term(field, descending);
+        if (field.isPersonField()) {
+            return new SortSpec(append(personTerms, term), imageTerms);
+        }
+        return new SortSpec(personTerms, append(imageTerms, term));
+    }
+
+    /**
+     * Create a SortSpec that adds the person keys for a SortOrder to the end of this chain.
+     * SortOrder.AsIs adds no keys.
+     * @param order the SortOrder.
+     * @return the new SortSpec.
+     */
+    public SortSpec thenBy(SortOrder order) {
+        return switch (order) {
+            case AsIs -> this;
+            case AlphabeticalByFullName -> thenBy(SortField.FullName, false);
+            case AlphabeticalByFullNameReverse -> thenBy(SortField.FullName, true);
+            case AlphabeticalByLastNameThenFirstName ->
+                thenBy(SortField.LastName, false).thenBy(SortField.FullName, false);
+            case AlphabeticalByLastNameThenFirstNameReverse ->
+                thenBy(SortField.LastName, true).thenBy(SortField.FullName, true);
+        };
+    }
+
+    /**
+     * Determine whether the SortSpec changes the order of the images within each person.
+     * @return true if there are image keys.
+     */
+    public boolean sortsImages() {
+        return !imageTerms.isEmpty();
+    }
+
+    /**
+     * Sort person groups using the collation rules of the default locale.
+     * @param groups the PersonGroups to sort. They are not changed.
+     * @return new PersonGroups in sorted order. Groups whose images are not reordered are shared
+     *         with groups.
+     */
+    public PersonGroups sort(PersonGroups groups) {
+        return new MultiKeySorter(Locale.getDefault()).sort(groups, personTerms, imageTerms);
+    }
+
+    /**
+     * Compute the order of a list of FlexiBean objects using the collation rules of the default
+     * locale. The beans are not moved.
+     * @param beans the FlexiBean objects.
+     * @return the permutation: element i is the index in beans of the i'th bean in sorted order.
+     */
+    int[] permutation(List<FlexiBean> beans) {
+        return new MultiKeySorter(Locale.getDefault()).permutation(beans, personTerms, imageTerms);
+    }
+
+    @Override
+    public String toString() {
+        StringBuffer sb = new StringBuffer("SortSpec:");
+        sb.append(" persons ").append(personTerms);
+        sb.append(", images ").append(imageTerms);
+        return sb.toString();
+    }
+
+    private static List<Term> append(List<Term> terms, Term term) {
+        List<Term> appended = new ArrayList<>(terms);
+        appended.add(term);
+        return Collections.unmodifiableList(appended);
+    }
+
+    /**
+     * Term is a single key in a SortSpec.
+     */
+    static final class Term {
+        private final SortField field;
+        private final boolean descending;
+
+        private Term(SortField field, boolean descending) {
+            this.field = field;
+            this.descending = descending;
+        }
+
+        /**
+         * Retrieve the field to sort by.
+         * @return the field.
+         */
+        SortField getField() {
+            return field;
+        }
+
+        /**
+         * Determine whether the key sorts in descending order.
+         * @return true for descending order.
+         */
+        boolean isDescending() {
+            return descending;
+        }
+
+        @Override
+        public String toString() {
+            return descending ? field + " descending" : field.toString();
+        }
+    }
+}
@@ -44,13 +44,14 @@ public class StartStage extends FlexiStage {
         FileChooser fileChooser = new FileChooser();
         fileChooser.setTitle("Select CSV File");
         fileChooser.setInitialDirectory(FileSystemView.getFileSystemView().getHomeDirectory());
-        fileChooser.getExtensionFilters().add(new ExtensionFilter("CSV Files", "*.csv"));
+        fileChooser.getExtensionFilters().add(new ExtensionFilter("CSV Files", "*.csv", "*.csv.gz", "*.zip"));
         File csvFile = fileChooser.showOpenDialog(null);
         Logger.trace("Back from FileChooser");
 
         if (csvFile != null) {
             try {
-                iCSV = new InputCSV(csvFile);
+                iCSV = new InputCSV(csvFile, new CSVSnapshot(CSVSnapshot.defaultCacheDir()),
+                    new ImageHashCache(ImageHashCache.defaultCacheFile()));
             } catch (CSVException e) {
                 Logger.error("InputCSV threw CSVException: ", e);
                 BuilderGUI.handleCSVException(e);
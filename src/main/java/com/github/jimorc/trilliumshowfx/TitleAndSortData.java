@@ -7,6 +7,8 @@ public class TitleAndSortData {
     private final String startTitle;
     private final String endTitle;
     private SortOrder order;
+    private final SortSpec sortSpec;
+    private final String showColumn;
 
     /**
      * Constructor.
@@ -15,9 +17,35 @@ public class TitleAndSortData {
      * @param lastNameAsInitial display last name as initial?
      */
     TitleAndSortData(String startTitle, String endTitle, SortOrder order) {
+        this(startTitle, endTitle, order, new SortSpec(order));
+    }
+
+    /**
+     * Constructor.
+     * @param startTitle contents of the start title input
+     * @param endTitle contents of the end title input
+     * @param order the person name sort order
+     * @param sortSpec the full chain of sort keys, including order
+     */
+    TitleAndSortData(String startTitle, String endTitle, SortOrder order, SortSpec sortSpec) {
+        this(startTitle, endTitle, order, sortSpec, null);
+    }
+
+    /**
+     * Constructor.
+     * @param startTitle contents of the start title input
+     * @param endTitle contents of the end title input
+     * @param order the person name sort order
+     * @param sortSpec the full chain of sort keys, including order
+     * @param showColumn the column to build a separate show for each value of, or null for a
+     *        single show
+     */
+    TitleAndSortData(String startTitle, String endTitle, SortOrder order, SortSpec sortSpec, String showColumn) {
         this.startTitle = startTitle;
         this.endTitle = endTitle;
         this.order = order;
+        this.sortSpec = sortSpec;
+        this.showColumn = showColumn;
     }
 
     public String getStartTitle() {
@@ -32,6 +60,14 @@ public class TitleAndSortData {
         return order;
     }
 
+    public SortSpec getSortSpec() {
+        return sortSpec;
+    }
+
+    public String getShowColumn() {
+        return showColumn;
+    }
+
     @Override
     public String toString() {
         StringBuffer sb = new StringBuffer();
@@ -39,6 +75,8 @@ public class TitleAndSortData {
         sb.append("\n   start title: " + startTitle);
         sb.append("\n   end title:" + endTitle);
         sb.append("\n   sortOrder: " + order);
+        sb.append("\n   sortSpec: " + sortSpec);
+        sb.append("\n   showColumn: " + showColumn);
         return sb.toString();
     }
 }
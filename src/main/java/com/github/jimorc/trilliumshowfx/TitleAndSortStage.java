@@ -7,6 +7,7 @@ import javafx.scene.control.Button;
 import javafx.scene.control.Label;
 import javafx.scene.control.RadioButton;
 import javafx.scene.control.TextArea;
+import javafx.scene.control.TextField;
 import javafx.scene.control.ToggleGroup;
 import javafx.scene.control.Tooltip;
 import javafx.scene.layout.HBox;
@@ -21,6 +22,9 @@ import org.tinylog.Logger;
 public class TitleAndSortStage extends FlexiStage {
     private final int spacing = 10;
     private SortOrder sortOrder = SortOrder.AsIs;
+    // the keys applied before sortOrder, and the key applied to the images of each person.
+    private SortSpec entryCountSpec = new SortSpec();
+    private SortField imageField;
     private TextArea startTitleArea;
     private TextArea endTitleArea;
     private ToggleGroup sortGroup;
@@ -29,6 +33,10 @@ public class TitleAndSortStage extends FlexiStage {
     private RadioButton alphaLastFirstButton;
     private RadioButton alphaFullRevButton;
     private RadioButton alphaLastFirstRevButton;
+    private VBox entryCountBox;
+    private VBox imageOrderBox;
+    private VBox showColumnBox;
+    private TextField showColumnField;
 
     /**
      * Constructor.
@@ -45,11 +53,18 @@ public class TitleAndSortStage extends FlexiStage {
      * @return data set in stage object.
      */
     public TitleAndSortData getData() {
+        String showColumn = showColumnField.getText().isBlank() ? null : showColumnField.getText().trim();
         TitleAndSortData data = new TitleAndSortData(startTitleArea.getText(),
-            endTitleArea.getText(), sortOrder);
+            endTitleArea.getText(), sortOrder, buildSortSpec(), showColumn);
         return data;
     }
 
+    // Sorting is only done once the stage is closed, so building the SortSpec is cheap.
+    private SortSpec buildSortSpec() {
+        SortSpec spec = entryCountSpec.thenBy(sortOrder);
+        return imageField == null ? spec : spec.thenBy(imageField, false);
+    }
+
     private VBox createBox() {
         final int fontSize = 14;
         final int tLabelMarginTop = 5;
@@ -69,20 +84,23 @@ public class TitleAndSortStage extends FlexiStage {
         Label endLabel = createStartEndLabel("End Image Text", labelFont, tLabelInsets);
         endTitleArea = createTextArea("End", vBoxInsets);
 
-        Label sortLabel = createSortLabel(labelFont, vBoxInsets);
+        Label sortLabel = createSortLabel("Sort Order", labelFont, vBoxInsets);
         sortGroup = new ToggleGroup();
         createNoneButton(vBoxInsets);
         createAlphaFullButton(vBoxInsets);
         createAlphaLastFirstButton(vBoxInsets);
         createAlphaFullRevButton(vBoxInsets);
         createAlphaLastFirstRevButton(vBoxInsets);
+        createEntryCountBox(labelFont, vBoxInsets);
+        createImageOrderBox(labelFont, vBoxInsets);
+        createShowColumnBox(labelFont, vBoxInsets);
 
         HBox buttonBox = createButtonBox(buttonTopMargin, buttonRightMargin, buttonBottomMargin, buttonLeftMargin);
 
         VBox vbox = new VBox(spacing);
         vbox.getChildren().addAll(startLabel, startTitleArea, endLabel, endTitleArea, sortLabel,
             noneButton, alphaFullButton, alphaLastFirstButton, alphaFullRevButton,
-            alphaLastFirstRevButton, buttonBox);
+            alphaLastFirstRevButton, entryCountBox, imageOrderBox, showColumnBox, buttonBox);
         return vbox;
     }
 
@@ -116,8 +134,8 @@ public class TitleAndSortStage extends FlexiStage {
         return startLabel;
     }
 
-    private Label createSortLabel(final Font labelFont, final Insets insets) {
-        Label sortLabel = new Label("Sort Order");
+    private Label createSortLabel(String text, final Font labelFont, final Insets insets) {
+        Label sortLabel = new Label(text);
         sortLabel.setFont(labelFont);
         VBox.setMargin(sortLabel, insets);
         return sortLabel;
@@ -182,6 +200,54 @@ public class TitleAndSortStage extends FlexiStage {
         VBox.setMargin(alphaFullRevButton, insets);
     }
 
+    private void createEntryCountBox(final Font labelFont, final Insets insets) {
+        Label label = createSortLabel("Number of Images", labelFont, insets);
+        ToggleGroup group = new ToggleGroup();
+        RadioButton ignore = createOptionButton("Ignore", "Order persons by the Sort Order only.",
+            group, insets, () -> entryCountSpec = new SortSpec());
+        ignore.setSelected(true);
+        RadioButton most = createOptionButton("Most Images First", "Show the persons with the most "
+            + "images first.\nPersons with the same number of images are in Sort Order.",
+            group, insets, () -> entryCountSpec = new SortSpec().thenBy(SortField.EntryCount, true));
+        RadioButton fewest = createOptionButton("Fewest Images First", "Show the persons with the "
+            + "fewest images first.\nPersons with the same number of images are in Sort Order.",
+            group, insets, () -> entryCountSpec = new SortSpec().thenBy(SortField.EntryCount, false));
+        entryCountBox = new VBox(spacing, label, ignore, most, fewest);
+    }
+
+    private void createImageOrderBox(final Font labelFont, final Insets insets) {
+        Label label = createSortLabel("Image Order for Each Person", labelFont, insets);
+        ToggleGroup group = new ToggleGroup();
+        RadioButton asIs = createOptionButton("As Is", "Show each person's images in the order "
+            + "in the CSV file.", group, insets, () -> imageField = null);
+        asIs.setSelected(true);
+        RadioButton byTitle = createOptionButton("Alphabetical by Title", "Show each person's "
+            + "images in alphabetical order by title.", group, insets, () -> imageField = SortField.Title);
+        RadioButton byFilename = createOptionButton("Alphabetical by Filename", "Show each person's "
+            + "images in alphabetical order by filename.", group, insets, () -> imageField = SortField.Filename);
+        imageOrderBox = new VBox(spacing, label, asIs, byTitle, byFilename);
+    }
+
+    private void createShowColumnBox(final Font labelFont, final Insets insets) {
+        Label label = createSortLabel("Separate Show for Each Value of Column", labelFont, insets);
+        showColumnField = new TextField();
+        showColumnField.setPromptText("Leave empty for a single show");
+        showColumnField.setTooltip(new Tooltip("Enter the name of a column, such as Category, to build "
+            + "slideshow-<value>.xls for each value in that column."));
+        VBox.setMargin(showColumnField, insets);
+        showColumnBox = new VBox(spacing, label, showColumnField);
+    }
+
+    private RadioButton createOptionButton(String text, String tooltip, ToggleGroup group, Insets insets,
+            Runnable action) {
+        RadioButton button = new RadioButton(text);
+        button.setToggleGroup(group);
+        button.setTooltip(new Tooltip(tooltip));
+        button.setOnAction(_ -> action.run());
+        VBox.setMargin(button, insets);
+        return button;
+    }
+
     private TextArea createTextArea(String startEnd, Insets insets) {
         final int prefColumnCount = 50;
         final int prefRowCount = 2;
@@ -207,10 +273,10 @@ public class TitleAndSortStage extends FlexiStage {
 
     /**
      * Retrieve the TitleAndSortData object representing the settings in the TitleAndSortStage
-     * object.
+     * object. This is the same data as getData returns, including the show column.
      * @return TitleAndSortData object for the settings in this stage.
      */
     public TitleAndSortData getSortData() {
-        return new TitleAndSortData(startTitleArea.getText(), endTitleArea.getText(), sortOrder);
+        return getData();
     }
 }
@@ -0,0 +1,24 @@
+package com.github.jimorc.trilliumshowfx;
+
+/**
+ * UncheckedCSVException wraps a CSVException so that it can be thrown from code, such as a
+ * Stream pipeline, that cannot throw checked exceptions.
+ */
+public final class UncheckedCSVException extends RuntimeException {
+    /**
+     * Constructor.
+     * @param cause the CSVException to wrap.
+     */
+    public UncheckedCSVException(final CSVException cause) {
+        super(cause.getMessage(), cause);
+    }
+
+    /**
+     * Retrieve the wrapped CSVException.
+     * @return the CSVException.
+     */
+    @Override
+    public synchronized CSVException getCause() {
+        return (CSVException) super.getCause();
+    }
+}
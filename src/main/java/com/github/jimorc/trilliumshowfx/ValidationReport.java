@@ -0,0 +1,258 @@
+package com.github.jimorc.trilliumshowfx;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * ValidationReport holds the warnings found by InputCSV.validateCSVFile and InputCSV.validateImages:
+ * names that may belong to the same person, image files that are truncated or are not JPEG files,
+ * and images that have the same contents as, or look like, another image in this or an earlier
+ * show. Warnings do not stop processing, but should be shown to the user so that the CSV file can
+ * be corrected.
+ *
+ * ```java
+ * csv.validateCSVFile();
+ * csv.validateImages(ProgressMonitor.NONE);
+ * ValidationReport report = csv.getValidationReport();
+ * if (report.hasWarnings()) {
+ *     Logger.warn(report.toString());
+ * }
+ * ```
+ */
+public final class ValidationReport {
+    private final List<SuspectedDuplicate> duplicates;
+    private final List<JpegPreflight.Result> images;
+    private final List<DuplicateImages> duplicateImages;
+    private final List<SimilarImages> similarImages;
+
+    /**
+     * Constructor.
+     * @param duplicates the pairs of full names that may be the same person.
+     * @param images the results of checking each image file.
+     * @param duplicateImages the groups of image files with the same contents.
+     * @param similarImages the pairs of images that look alike.
+     */
+    ValidationReport(List<SuspectedDuplicate> duplicates, List<JpegPreflight.Result> images,
+            List<DuplicateImages> duplicateImages, List<SimilarImages> similarImages) {
+        this.duplicates = Collections.unmodifiableList(duplicates);
+        this.images = Collections.unmodifiableList(images);
+        this.duplicateImages = Collections.unmodifiableList(duplicateImages);
+        this.similarImages = Collections.unmodifiableList(similarImages);
+    }
+
+    /**
+     * Retrieve the pairs of full names that may be the same person.
+     * @return unmodifiable list of suspected duplicates.
+     */
+    public List<SuspectedDuplicate> getSuspectedDuplicates() {
+        return duplicates;
+    }
+
+    /**
+     * Retrieve the results of checking each image file, including the image dimensions.
+     * @return unmodifiable list of results, in the order that the images first appear.
+     */
+    public List<JpegPreflight.Result> getImageResults() {
+        return images;
+    }
+
+    /**
+     * Retrieve the results for image files that are not complete JPEG files.
+     * @return list of results.
+     */
+    public List<JpegPreflight.Result> getImageProblems() {
+        return images.stream().filter(r -> !r.isOk()).toList();
+    }
+
+    /**
+     * Retrieve the groups of image files with the same contents.
+     * @return unmodifiable list of duplicate images.
+     */
+    public List<DuplicateImages> getDuplicateImages() {
+        return duplicateImages;
+    }
+
+    /**
+     * Retrieve the pairs of images that look alike but do not have the same contents.
+     * @return unmodifiable list of similar images.
+     */
+    public List<SimilarImages> getSimilarImages() {
+        return similarImages;
+    }
+
+    /**
+     * Determine whether there are any warnings.
+     * @return true if there are warnings.
+     */
+    public boolean hasWarnings() {
+        return !duplicates.isEmpty() || !getImageProblems().isEmpty() || !duplicateImages.isEmpty()
+            || !similarImages.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        if (!hasWarnings()) {
+            return "No problems found.";
+        }
+        StringBuilder sb = new StringBuilder();
+        if (!duplicates.isEmpty()) {
+            sb.append("These names may belong to the same person:");
+            for (SuspectedDuplicate duplicate : duplicates) {
+                sb.append("\n   ").append(duplicate);
+            }
+            sb.append("\nIf so, correct the names in the CSV file so that the person has a single title slide.");
+        }
+        List<JpegPreflight.Result> problems = getImageProblems();
+        if (!problems.isEmpty()) {
+            sb.append(sb.isEmpty() ? "" : "\n\n").append("These images may not display:");
+            for (JpegPreflight.Result problem : problems) {
+                sb.append("\n   ").append(problem);
+            }
+        }
+        if (!duplicateImages.isEmpty()) {
+            sb.append(sb.isEmpty() ? "" : "\n\n").append("These images have the same contents:");
+            for (DuplicateImages duplicate : duplicateImages) {
+                sb.append("\n   ").append(duplicate);
+            }
+        }
+        if (!similarImages.isEmpty()) {
+            sb.append(sb.isEmpty() ? "" : "\n\n").append("These images look alike:");
+            for (SimilarImages similar : similarImages) {
+                sb.append("\n   ").append(similar);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * SuspectedDuplicate is a pair of full names that differ only in case, accents, punctuation
+     * or a few characters.
+     */
+    public static final class SuspectedDuplicate {
+        private final String fullName;
+        private final String otherFullName;
+        private final int distance;
+
+        SuspectedDuplicate(String fullName, String otherFullName, int distance) {
+            this.fullName = fullName;
+            this.otherFullName = otherFullName;
+            this.distance = distance;
+        }
+
+        /**
+         * Retrieve the full name that appears first in the CSV file.
+         * @return the full name.
+         */
+        public String getFullName() {
+            return fullName;
+        }
+
+        /**
+         * Retrieve the other full name.
+         * @return the full name.
+         */
+        public String getOtherFullName() {
+            return otherFullName;
+        }
+
+        /**
+         * Retrieve the number of characters that must be inserted, deleted or changed to make the
+         * normalized names equal.
+         * @return the edit distance; 0 if the names differ only in case, accents or punctuation.
+         */
+        public int getDistance() {
+            return distance;
+        }
+
+        @Override
+        public String toString() {
+            return "\"" + fullName + "\" and \"" + otherFullName + "\"";
+        }
+    }
+
+    /**
+     * DuplicateImages is a group of image files in the show that have the same contents, along
+     * with any files from earlier shows that also have those contents.
+     */
+    public static final class DuplicateImages {
+        private final List<String> fileNames;
+        private final List<String> earlierPaths;
+
+        DuplicateImages(List<String> fileNames, List<String> earlierPaths) {
+            this.fileNames = Collections.unmodifiableList(fileNames);
+            this.earlierPaths = Collections.unmodifiableList(earlierPaths);
+        }
+
+        /**
+         * Retrieve the names of the files in the show that have the same contents.
+         * @return unmodifiable list of file names, in the order that they appear in the CSV file.
+         */
+        public List<String> getFileNames() {
+            return fileNames;
+        }
+
+        /**
+         * Retrieve the paths of files in other folders that had the same contents when they were
+         * last checked.
+         * @return unmodifiable list of absolute paths; empty if the image has not been seen before.
+         */
+        public List<String> getEarlierPaths() {
+            return earlierPaths;
+        }
+
+        @Override
+        public String toString() {
+            String s = String.join(", ", fileNames);
+            if (!earlierPaths.isEmpty()) {
+                s += " (previously submitted as " + String.join(", ", earlierPaths) + ")";
+            }
+            return s;
+        }
+    }
+
+    /**
+     * SimilarImages is an image in the show and another image that looks like it, either in the
+     * show or from an earlier show.
+     */
+    public static final class SimilarImages {
+        private final String fileName;
+        private final String otherImage;
+        private final int distance;
+
+        SimilarImages(String fileName, String otherImage, int distance) {
+            this.fileName = fileName;
+            this.otherImage = otherImage;
+            this.distance = distance;
+        }
+
+        /**
+         * Retrieve the name of the image file in the show.
+         * @return the file name.
+         */
+        public String getFileName() {
+            return fileName;
+        }
+
+        /**
+         * Retrieve the image that looks like it.
+         * @return the file name of another image in the show, or the absolute path of an image
+         *         from an earlier show.
+         */
+        public String getOtherImage() {
+            return otherImage;
+        }
+
+        /**
+         * Retrieve the number of bits that differ between the perceptual hashes of the images.
+         * @return the distance; smaller distances mean the images look more alike.
+         */
+        public int getDistance() {
+            return distance;
+        }
+
+        @Override
+        public String toString() {
+            return fileName + " and " + otherImage;
+        }
+    }
+}
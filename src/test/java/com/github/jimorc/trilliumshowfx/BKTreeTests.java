@@ -0,0 +1,67 @@
+package com.github.jimorc.trilliumshowfx;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * BKTreeTests contains tests for the BKTree class.
+ */
+public class BKTreeTests {
+    @Test
+    void testSearch() {
+        final int three = 3;
+        BKTree<String> tree = new BKTree<>();
+        assertTrue(tree.search(0L, three).isEmpty());
+        tree.add(0L, "zero");
+        tree.add(0b111L, "three");
+        tree.add(0b1111_1111L, "eight");
+        tree.add(0L, "zero again");
+        assertEquals(4, tree.size());
+        List<String> found = new ArrayList<>();
+        for (BKTree.Match<String> match : tree.search(0b1L, three)) {
+            found.add(match.getValue() + ":" + match.getDistance());
+        }
+        found.sort(null);
+        assertEquals(List.of("three:2", "zero again:1", "zero:1"), found);
+        assertEquals(three, BKTree.distance(0L, 0b1011L));
+    }
+
+    @Test
+    void testMatchesLinearScan() {
+        final int numHashes = 20000;
+        final int numQueries = 200;
+        final int maxDistance = 10;
+        final double maxVisitedFraction = 0.75;
+        final long seed = 25;
+        Random random = new Random(seed);
+        List<Long> hashes = new ArrayList<>();
+        BKTree<Integer> tree = new BKTree<>();
+        for (int i = 0; i < numHashes; i++) {
+            // flip a few bits of an earlier hash so that some hashes are close together.
+            long hash = i > 0 && random.nextBoolean()
+                ? hashes.get(random.nextInt(i)) ^ (1L << random.nextInt(Long.SIZE))
+                    ^ (1L << random.nextInt(Long.SIZE)) : random.nextLong();
+            hashes.add(hash);
+            tree.add(hash, i);
+        }
+        long visited = 0;
+        for (int q = 0; q < numQueries; q++) {
+            long query = hashes.get(random.nextInt(numHashes));
+            int expected = 0;
+            for (long hash : hashes) {
+                if (BKTree.distance(query, hash) <= maxDistance) {
+                    expected++;
+                }
+            }
+            assertEquals(expected, tree.search(query, maxDistance).size());
+            visited += tree.getVisitedCount();
+        }
+        // a linear scan would compare each query with every hash.
+        assertTrue(visited < maxVisitedFraction * numQueries * numHashes);
+    }
+}
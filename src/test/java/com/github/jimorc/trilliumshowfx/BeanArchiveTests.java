@@ -0,0 +1,166 @@
+package com.github.jimorc.trilliumshowfx;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * BeanArchiveTests contains tests for the BeanArchive class.
+ */
+public class BeanArchiveTests {
+    @Test
+    void testImportAndFind(@TempDir Path tempDir) {
+        final long oldEvent = 1000L;
+        final long newEvent = 2000L;
+        Path dataFile = tempDir.resolve("archive.dat");
+        try {
+            try (BeanArchive archive = new BeanArchive(dataFile)) {
+                archive.append(MappedCSVReader.read(new File("testing/data/test.csv")), "Theme Night", oldEvent);
+                archive.append(MappedCSVReader.read(new File("testing/data/sort.csv")), "Competition", newEvent);
+                assertEquals(2, archive.findByFullName("John Doe", Long.MIN_VALUE).getBeans().size());
+                assertEquals(1, archive.findByFullName("John Doe", newEvent).getBeans().size());
+            }
+            // the indexes saved when the archive was closed are loaded when it is reopened.
+            try (BeanArchive archive = new BeanArchive(dataFile)) {
+                List<FlexiBean> fred = archive.findByFullName("Fred Flintstone", Long.MIN_VALUE).getBeans();
+                assertEquals(2, fred.size());
+                assertEquals("DSC-0424.jpg", fred.get(0).getFilename());
+                assertEquals("IMG-276.jpg", fred.get(1).getFilename());
+                List<FlexiBean> image2 = archive.findByFilename("image2.jpg").getBeans();
+                assertEquals(2, image2.size());
+                assertEquals("Image, Two", image2.get(0).getTitle());
+                assertEquals(2, archive.findByEvent("Theme Night").getBeans().size());
+                assertEquals(0, archive.findByEvent("Nothing").getBeans().size());
+            }
+        } catch (IOException ioe) {
+            fail("IOException thrown: " + ioe.getMessage());
+        } catch (CSVException csve) {
+            fail("CSVException thrown: " + csve.getMessage());
+        } catch (BadHeaderException bhe) {
+            fail("BadHeaderException thrown: " + bhe.getMessage());
+        }
+    }
+
+    @Test
+    void testImportCSV(@TempDir Path tempDir) {
+        final long eventTime = 1000L;
+        final long later = 2000L;
+        try (BeanArchive archive = new BeanArchive(tempDir.resolve("archive.dat"))) {
+            assertEquals(2, archive.importCSV(new File("testing/data/test.csv"), "Theme Night", eventTime));
+            assertEquals(1, archive.findByFullName("John Doe", eventTime).getBeans().size());
+            assertEquals(0, archive.findByFullName("John Doe", later).getBeans().size());
+        } catch (IOException ioe) {
+            fail("IOException thrown: " + ioe.getMessage());
+        } catch (CSVException csve) {
+            fail("CSVException thrown: " + csve.getMessage());
+        } catch (BadHeaderException bhe) {
+            fail("BadHeaderException thrown: " + bhe.getMessage());
+        }
+    }
+
+    @Test
+    void testTornAppend(@TempDir Path tempDir) {
+        final long eventTime = 1000L;
+        final int tornLength = 10;
+        Path dataFile = tempDir.resolve("archive.dat");
+        try {
+            try (BeanArchive archive = new BeanArchive(dataFile)) {
+                archive.append(MappedCSVReader.read(new File("testing/data/test.csv")), "Theme Night", eventTime);
+            }
+            long complete = Files.size(dataFile);
+            // the first bytes of another copy of the records, as if the append had been cut short.
+            byte[] bytes = Files.readAllBytes(dataFile);
+            Files.write(dataFile, Arrays.copyOfRange(bytes, Integer.BYTES, Integer.BYTES + tornLength),
+                StandardOpenOption.APPEND);
+            try (BeanArchive archive = new BeanArchive(dataFile)) {
+                assertEquals(complete, Files.size(dataFile));
+                assertEquals(2, archive.findByEvent("Theme Night").getBeans().size());
+                archive.append(MappedCSVReader.read(new File("testing/data/test.csv")), "Competition", eventTime);
+            }
+            try (BeanArchive archive = new BeanArchive(dataFile)) {
+                assertEquals(2, archive.findByEvent("Competition").getBeans().size());
+            }
+        } catch (IOException ioe) {
+            fail("IOException thrown: " + ioe.getMessage());
+        } catch (CSVException csve) {
+            fail("CSVException thrown: " + csve.getMessage());
+        } catch (BadHeaderException bhe) {
+            fail("BadHeaderException thrown: " + bhe.getMessage());
+        }
+    }
+
+    @Test
+    void testSavedIndexes(@TempDir Path tempDir) {
+        final long eventTime = 1000L;
+        final int numEvents = 20;
+        Path dataFile = tempDir.resolve("archive.dat");
+        Path indexFile = tempDir.resolve("archive.dat.idx");
+        Path savedIndex = tempDir.resolve("saved.idx");
+        try {
+            try (BeanArchive archive = new BeanArchive(dataFile)) {
+                archive.append(MappedCSVReader.read(new File("testing/data/test.csv")), "Theme Night", eventTime);
+            }
+            long complete = Files.size(dataFile);
+            Files.copy(indexFile, savedIndex);
+            try (BeanArchive archive = new BeanArchive(dataFile)) {
+                assertEquals(2, archive.findByEvent("Theme Night").getBeans().size());
+                for (int i = 0; i < numEvents; i++) {
+                    archive.append(MappedCSVReader.read(new File("testing/data/test.csv")), eventName(i), eventTime);
+                }
+            }
+            // the data file does not keep the unused end of the mapping. Every event name has the
+            // same length, so every event adds the same number of bytes.
+            assertEquals(complete + numEvents * (complete - Integer.BYTES), Files.size(dataFile));
+            // the saved index only covers the first event, so the other records are read.
+            Files.copy(savedIndex, indexFile, StandardCopyOption.REPLACE_EXISTING);
+            try (BeanArchive archive = new BeanArchive(dataFile)) {
+                assertEquals(numEvents + 1, archive.getEvents().size());
+                assertEquals(2, archive.findByEvent(eventName(numEvents - 1)).getBeans().size());
+            }
+            // an index that does not match the data file is rebuilt.
+            Files.write(dataFile, Arrays.copyOf(Files.readAllBytes(dataFile), (int) complete));
+            try (BeanArchive archive = new BeanArchive(dataFile)) {
+                assertEquals(List.of("Theme Night"), archive.getEvents());
+            }
+        } catch (IOException ioe) {
+            fail("IOException thrown: " + ioe.getMessage());
+        } catch (CSVException csve) {
+            fail("CSVException thrown: " + csve.getMessage());
+        } catch (BadHeaderException bhe) {
+            fail("BadHeaderException thrown: " + bhe.getMessage());
+        }
+    }
+
+    private static String eventName(int i) {
+        return String.format("Night %05d", i);
+    }
+
+    @Test
+    void testNotAnArchive(@TempDir Path tempDir) {
+        Path dataFile = tempDir.resolve("notarchive.dat");
+        try {
+            Files.writeString(dataFile, "Filename,Title\n");
+        } catch (IOException ioe) {
+            fail("IOException thrown: " + ioe.getMessage());
+        }
+        assertThrows(IOException.class, () -> new BeanArchive(dataFile));
+        // the data file was closed, so it can be deleted and reused.
+        try {
+            Files.delete(dataFile);
+            new BeanArchive(dataFile).close();
+        } catch (IOException ioe) {
+            fail("IOException thrown: " + ioe.getMessage());
+        }
+    }
+}
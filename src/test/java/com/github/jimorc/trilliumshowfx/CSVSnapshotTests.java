@@ -0,0 +1,173 @@
+package com.github.jimorc.trilliumshowfx;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * CSVSnapshotTests contains tests for the CSVSnapshot class.
+ */
+public class CSVSnapshotTests {
+    private static final String CSV_DATA = "Filename,Title,Full Name,First Name,Last Name\n"
+        + "image1.jpg,Image One,John Doe,John,Doe\n"
+        + "image2.jpg,\"Image, Two\",Jane Smith,Jane,\n"
+        + "image3.jpg,Image Three,John Doe,John,Doe\n";
+
+    @Test
+    void testSaveAndLoad(@TempDir Path tempDir) {
+        final int numBeans = 3;
+        try {
+            File csvF = writeCSV(tempDir, CSV_DATA);
+            CSVSnapshot snapshots = new CSVSnapshot(tempDir.resolve("cache"));
+            assertNull(snapshots.load(csvF));
+            FlexiBeans parsed = MappedCSVReader.read(csvF);
+            snapshots.save(CSVSnapshot.keyOf(csvF), parsed);
+            FlexiBeans loaded = snapshots.load(csvF);
+            assertNotNull(loaded);
+            List<FlexiBean> beans = loaded.getBeans();
+            assertEquals(numBeans, beans.size());
+            for (int i = 0; i < numBeans; i++) {
+                assertEquals(parsed.getBeans().get(i).toString(), beans.get(i).toString());
+            }
+            assertEquals("Image, Two", beans.get(1).getTitle());
+            assertNull(beans.get(1).getLastName());
+        } catch (IOException ioe) {
+            fail("IOException thrown: " + ioe.getMessage());
+        } catch (CSVException csve) {
+            fail("CSVException thrown: " + csve.getMessage());
+        } catch (BadHeaderException bhe) {
+            fail("BadHeaderException thrown: " + bhe.getMessage());
+        }
+    }
+
+    @Test
+    void testSaveAndLoadExtraColumns(@TempDir Path tempDir) {
+        try {
+            File csvF = writeCSV(tempDir, "Filename,Full Name,Category,Score\n"
+                + "image1.jpg,John Doe,Open,12\n"
+                + "image2.jpg,Jane Smith,,9\n");
+            CSVSnapshot snapshots = new CSVSnapshot(tempDir.resolve("cache"));
+            snapshots.save(CSVSnapshot.keyOf(csvF), MappedCSVReader.read(csvF));
+            List<FlexiBean> beans = snapshots.load(csvF).getBeans();
+            assertEquals(List.of("Category", "Score"), beans.get(0).getSchema().getColumns());
+            assertEquals("Open", beans.get(0).getExtra("Category"));
+            assertEquals("12", beans.get(0).getExtra("Score"));
+            assertNull(beans.get(1).getExtra("Category"));
+            assertEquals("9", beans.get(1).getExtra("Score"));
+        } catch (IOException ioe) {
+            fail("IOException thrown: " + ioe.getMessage());
+        } catch (CSVException csve) {
+            fail("CSVException thrown: " + csve.getMessage());
+        } catch (BadHeaderException bhe) {
+            fail("BadHeaderException thrown: " + bhe.getMessage());
+        }
+    }
+
+    @Test
+    void testMixedSchemas(@TempDir Path tempDir) {
+        try {
+            File other = writeCSV(tempDir, "Filename,Full Name,Category\n"
+                + "image9.jpg,John Doe,Open\n");
+            Files.move(other.toPath(), tempDir.resolve("other.csv"));
+            File csvF = writeCSV(tempDir, "Filename,Full Name,Score\n"
+                + "image1.jpg,John Doe,12\n");
+            List<FlexiBean> beans = new ArrayList<>(MappedCSVReader.read(csvF).getBeans());
+            beans.addAll(MappedCSVReader.read(tempDir.resolve("other.csv").toFile()).getBeans());
+            CSVSnapshot snapshots = new CSVSnapshot(tempDir.resolve("cache"));
+            snapshots.save(CSVSnapshot.keyOf(csvF), new FlexiBeans(beans));
+            // the Category values would be lost, so no snapshot is saved.
+            assertNull(snapshots.load(csvF));
+            assertFalse(Files.exists(tempDir.resolve("cache")));
+        } catch (IOException ioe) {
+            fail("IOException thrown: " + ioe.getMessage());
+        } catch (CSVException csve) {
+            fail("CSVException thrown: " + csve.getMessage());
+        } catch (BadHeaderException bhe) {
+            fail("BadHeaderException thrown: " + bhe.getMessage());
+        }
+    }
+
+    @Test
+    void testStaleSnapshot(@TempDir Path tempDir) {
+        try {
+            File csvF = writeCSV(tempDir, CSV_DATA);
+            CSVSnapshot snapshots = new CSVSnapshot(tempDir.resolve("cache"));
+            snapshots.save(CSVSnapshot.keyOf(csvF), MappedCSVReader.read(csvF));
+            long modified = csvF.lastModified();
+            // same length and modification time, different content
+            writeCSV(tempDir, CSV_DATA.replace("One", "Won"));
+            csvF.setLastModified(modified);
+            assertNull(snapshots.load(csvF));
+        } catch (IOException ioe) {
+            fail("IOException thrown: " + ioe.getMessage());
+        } catch (CSVException csve) {
+            fail("CSVException thrown: " + csve.getMessage());
+        } catch (BadHeaderException bhe) {
+            fail("BadHeaderException thrown: " + bhe.getMessage());
+        }
+    }
+
+    @Test
+    void testChangedWhileParsing(@TempDir Path tempDir) {
+        try {
+            File csvF = writeCSV(tempDir, CSV_DATA);
+            CSVSnapshot snapshots = new CSVSnapshot(tempDir.resolve("cache"));
+            CSVSnapshot.Key key = CSVSnapshot.keyOf(csvF);
+            FlexiBeans parsed = MappedCSVReader.read(csvF);
+            // a row is appended after the file was parsed.
+            Files.writeString(csvF.toPath(), "image4.jpg,Image Four,Jane Smith,Jane,Smith\n",
+                java.nio.file.StandardOpenOption.APPEND);
+            snapshots.save(key, parsed);
+            assertNull(snapshots.load(csvF));
+            assertFalse(Files.exists(tempDir.resolve("cache")));
+        } catch (IOException ioe) {
+            fail("IOException thrown: " + ioe.getMessage());
+        } catch (CSVException csve) {
+            fail("CSVException thrown: " + csve.getMessage());
+        } catch (BadHeaderException bhe) {
+            fail("BadHeaderException thrown: " + bhe.getMessage());
+        }
+    }
+
+    @Test
+    void testCorruptSnapshot(@TempDir Path tempDir) {
+        final int truncatedLength = 40;
+        try {
+            File csvF = writeCSV(tempDir, CSV_DATA);
+            Path cache = tempDir.resolve("cache");
+            CSVSnapshot snapshots = new CSVSnapshot(cache);
+            snapshots.save(CSVSnapshot.keyOf(csvF), MappedCSVReader.read(csvF));
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(cache)) {
+                for (Path snapshot : files) {
+                    byte[] bytes = Files.readAllBytes(snapshot);
+                    Files.write(snapshot, java.util.Arrays.copyOf(bytes, truncatedLength));
+                }
+            }
+            assertNull(snapshots.load(csvF));
+        } catch (IOException ioe) {
+            fail("IOException thrown: " + ioe.getMessage());
+        } catch (CSVException csve) {
+            fail("CSVException thrown: " + csve.getMessage());
+        } catch (BadHeaderException bhe) {
+            fail("BadHeaderException thrown: " + bhe.getMessage());
+        }
+    }
+
+    private File writeCSV(Path dir, String data) throws IOException {
+        Path path = dir.resolve("snapshot.csv");
+        Files.writeString(path, data);
+        return path.toFile();
+    }
+}
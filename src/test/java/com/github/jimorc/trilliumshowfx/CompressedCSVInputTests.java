@@ -0,0 +1,95 @@
+package com.github.jimorc.trilliumshowfx;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * CompressedCSVInputTests contains tests for the CompressedCSVInput class.
+ */
+public class CompressedCSVInputTests {
+    private static final String CSV_DATA = "Filename,Title,Full Name,First Name,Last Name\n"
+        + "image1.jpg,Image One,John Doe,John,Doe\n"
+        + "image2.jpg,\"Image, Two\",Jane Smith,Jane,Smith\n"
+        + "image3.jpg,Image Three,John Doe,John,Doe\n";
+
+    @Test
+    void testIsCompressed() {
+        assertTrue(CompressedCSVInput.isCompressed(new File("entries.csv.gz")));
+        assertTrue(CompressedCSVInput.isCompressed(new File("entries.ZIP")));
+        assertFalse(CompressedCSVInput.isCompressed(new File("entries.csv")));
+    }
+
+    @Test
+    void testReadGzip(@TempDir Path tempDir) {
+        final int numBeans = 3;
+        try {
+            File gzFile = tempDir.resolve("entries.csv.gz").toFile();
+            try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(gzFile.toPath()))) {
+                out.write(CSV_DATA.getBytes(StandardCharsets.UTF_8));
+            }
+            List<FlexiBean> beans = new ArrayList<>();
+            CompressedCSVInput.read(gzFile, beans::add);
+            assertEquals(numBeans, beans.size());
+            assertEquals("Image, Two", beans.get(1).getTitle());
+            FlexiBeans flexiBeans = new FlexiBeans(gzFile, ParserType.Tokenizer);
+            assertEquals(numBeans, flexiBeans.getBeans().size());
+        } catch (IOException ioe) {
+            fail("IOException thrown: " + ioe.getMessage());
+        } catch (CSVException csve) {
+            fail("CSVException thrown: " + csve.getMessage());
+        } catch (BadHeaderException bhe) {
+            fail("BadHeaderException thrown: " + bhe.getMessage());
+        }
+    }
+
+    @Test
+    void testReadZip(@TempDir Path tempDir) {
+        final int numBeans = 3;
+        try {
+            File zipFile = tempDir.resolve("entries.zip").toFile();
+            try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(zipFile.toPath()))) {
+                zip.putNextEntry(new ZipEntry("readme.txt"));
+                zip.write("not CSV".getBytes(StandardCharsets.UTF_8));
+                zip.putNextEntry(new ZipEntry("export/entries.csv"));
+                zip.write(CSV_DATA.getBytes(StandardCharsets.UTF_8));
+            }
+            InputCSV csv = new InputCSV(zipFile);
+            assertEquals(numBeans, csv.getNumberOfBeans());
+            assertEquals("image3.jpg", csv.getBean(2).getFilename());
+            assertEquals(2, csv.getPersonBeans("John Doe").getBeans().size());
+            assertEquals(tempDir.toFile().getAbsolutePath(), csv.getFileDir());
+        } catch (IOException ioe) {
+            fail("IOException thrown: " + ioe.getMessage());
+        } catch (CSVException csve) {
+            fail("CSVException thrown: " + csve.getMessage());
+        }
+    }
+
+    @Test
+    void testZipWithoutCSV(@TempDir Path tempDir) {
+        File zipFile = tempDir.resolve("images.zip").toFile();
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(zipFile.toPath()))) {
+            zip.putNextEntry(new ZipEntry("image1.jpg"));
+        } catch (IOException ioe) {
+            fail("IOException thrown: " + ioe.getMessage());
+        }
+        assertThrows(CSVException.class, () -> CompressedCSVInput.read(zipFile, _ -> { }));
+    }
+}
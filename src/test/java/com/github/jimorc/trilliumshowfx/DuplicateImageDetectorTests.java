@@ -0,0 +1,114 @@
+package com.github.jimorc.trilliumshowfx;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * DuplicateImageDetectorTests contains tests for the DuplicateImageDetector class.
+ */
+public class DuplicateImageDetectorTests {
+    @Test
+    void testDetect(@TempDir Path tempDir) {
+        Path show = tempDir.resolve("show");
+        try {
+            Files.createDirectories(show);
+            Files.writeString(show.resolve("image1.jpg"), "one");
+            Files.writeString(show.resolve("image2.jpg"), "two");
+            Files.writeString(show.resolve("image3.jpg"), "one");
+            DuplicateImageDetector detector = new DuplicateImageDetector(
+                new ImageHashCache(tempDir.resolve("hashes.bin")));
+            List<ValidationReport.DuplicateImages> duplicates = detector.detect(show,
+                List.of("image1.jpg", "image2.jpg", "image3.jpg", "image1.jpg", "missing.jpg"));
+            assertEquals(1, duplicates.size());
+            assertEquals(List.of("image1.jpg", "image3.jpg"), duplicates.get(0).getFileNames());
+            assertTrue(duplicates.get(0).getEarlierPaths().isEmpty());
+            assertEquals("image1.jpg, image3.jpg", duplicates.get(0).toString());
+        } catch (IOException ioe) {
+            fail("IOException thrown: " + ioe.getMessage());
+        } catch (CSVException csve) {
+            fail("CSVException thrown: " + csve.getMessage());
+        }
+    }
+
+    @Test
+    void testEarlierShow(@TempDir Path tempDir) {
+        Path earlier = tempDir.resolve("earlier");
+        Path show = tempDir.resolve("show");
+        Path cacheFile = tempDir.resolve("hashes.bin");
+        try {
+            Files.createDirectories(earlier);
+            Files.createDirectories(show);
+            Files.writeString(earlier.resolve("sunset.jpg"), "sunset");
+            Files.writeString(show.resolve("image1.jpg"), "sunset");
+            Files.writeString(show.resolve("image2.jpg"), "other");
+            new DuplicateImageDetector(new ImageHashCache(cacheFile)).detect(earlier, List.of("sunset.jpg"));
+
+            List<ValidationReport.DuplicateImages> duplicates = new DuplicateImageDetector(
+                new ImageHashCache(cacheFile)).detect(show, List.of("image1.jpg", "image2.jpg"));
+            assertEquals(1, duplicates.size());
+            assertEquals(List.of("image1.jpg"), duplicates.get(0).getFileNames());
+            assertEquals(List.of(earlier.resolve("sunset.jpg").toAbsolutePath().toString()),
+                duplicates.get(0).getEarlierPaths());
+
+            // an earlier image that has since been deleted is not reported, and is removed from the cache.
+            Files.delete(earlier.resolve("sunset.jpg"));
+            ImageHashCache cache = new ImageHashCache(cacheFile);
+            assertTrue(new DuplicateImageDetector(cache).detect(show, List.of("image1.jpg", "image2.jpg")).isEmpty());
+            assertEquals(List.of(show.resolve("image1.jpg").toAbsolutePath().toString()),
+                new ImageHashCache(cacheFile).pathsByHash().get(cache.hash(show.resolve("image1.jpg"))));
+        } catch (IOException ioe) {
+            fail("IOException thrown: " + ioe.getMessage());
+        } catch (CSVException csve) {
+            fail("CSVException thrown: " + csve.getMessage());
+        }
+    }
+
+    @Test
+    void testManyImages(@TempDir Path tempDir) {
+        final int numImages = 200;
+        final int imageSize = 64 * 1024;
+        final long oneSecond = 1000;
+        List<String> names = new ArrayList<>();
+        try {
+            byte[] contents = new byte[imageSize];
+            for (int i = 0; i < numImages; i++) {
+                String name = "image" + i + ".jpg";
+                contents[0] = (byte) i;
+                contents[1] = (byte) (i >> Byte.SIZE);
+                Files.write(tempDir.resolve(name), contents);
+                names.add(name);
+            }
+        } catch (IOException ioe) {
+            fail("IOException thrown: " + ioe.getMessage());
+        }
+        DuplicateImageDetector detector = new DuplicateImageDetector(
+            new ImageHashCache(tempDir.resolve("cache").resolve("hashes.bin")));
+        try {
+            assertTrue(detector.detect(tempDir, names).isEmpty());
+            // give image1 the contents of image0 without changing its size or modification time.
+            Path image1 = tempDir.resolve(names.get(1));
+            FileTime modified = Files.getLastModifiedTime(image1);
+            Files.copy(tempDir.resolve(names.get(0)), image1, StandardCopyOption.REPLACE_EXISTING);
+            Files.setLastModifiedTime(image1, modified);
+            // the second check reads only the cache, so it does not see the change.
+            assertTrue(detector.detect(tempDir, names).isEmpty());
+            Files.setLastModifiedTime(image1, FileTime.fromMillis(modified.toMillis() + oneSecond));
+            assertEquals(1, detector.detect(tempDir, names).size());
+        } catch (IOException ioe) {
+            fail("IOException thrown: " + ioe.getMessage());
+        } catch (CSVException csve) {
+            fail("CSVException thrown: " + csve.getMessage());
+        }
+    }
+}
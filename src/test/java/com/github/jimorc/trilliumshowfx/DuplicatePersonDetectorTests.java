@@ -0,0 +1,80 @@
+package com.github.jimorc.trilliumshowfx;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * DuplicatePersonDetectorTests contains tests for the DuplicatePersonDetector class.
+ */
+public class DuplicatePersonDetectorTests {
+    @Test
+    void testNormalize() {
+        assertEquals("jose garcia", DuplicatePersonDetector.normalize("  José   GARCÍA "));
+        assertEquals("mary ann o brien", DuplicatePersonDetector.normalize("Mary-Ann O'Brien"));
+        assertEquals("", DuplicatePersonDetector.normalize(null));
+    }
+
+    @Test
+    void testDistance() {
+        final int bound = 2;
+        assertEquals(0, DuplicatePersonDetector.distance("john doe", "john doe", bound));
+        assertEquals(1, DuplicatePersonDetector.distance("jon doe", "john doe", bound));
+        assertEquals(2, DuplicatePersonDetector.distance("jon doe", "joan dow", bound));
+        assertEquals(bound + 1, DuplicatePersonDetector.distance("john doe", "jane smith", bound));
+        assertEquals(bound + 1, DuplicatePersonDetector.distance("al", "alfredo", bound));
+    }
+
+    @Test
+    void testDetect() {
+        final int three = 3;
+        List<String> names = List.of("John Doe", "Jane Smith", "Jon Doe", "JANE SMITH", "Bob Brown",
+            "Christopher Robinson", "Christofer Robinson", "Bob Green", "José García", "Jose Garcia");
+        List<ValidationReport.SuspectedDuplicate> duplicates = new DuplicatePersonDetector().detect(names);
+        assertEquals(List.of("\"John Doe\" and \"Jon Doe\"", "\"Jane Smith\" and \"JANE SMITH\"",
+            "\"Christopher Robinson\" and \"Christofer Robinson\"", "\"José García\" and \"Jose Garcia\""),
+            duplicates.stream().map(ValidationReport.SuspectedDuplicate::toString).toList());
+        assertEquals(1, duplicates.get(0).getDistance());
+        assertEquals(0, duplicates.get(1).getDistance());
+        assertEquals(2, duplicates.get(2).getDistance());
+        assertEquals(0, duplicates.get(three).getDistance());
+        assertTrue(new DuplicatePersonDetector().detect(List.of("Bob Brown", "Rob Green")).isEmpty());
+    }
+
+    @Test
+    void testDetectScaling() {
+        final int numNames = 5000;
+        final long seed = 42;
+        final int comparisonsPerName = 50;
+        Random random = new Random(seed);
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < numNames; i++) {
+            names.add(randomName(random) + " " + randomName(random));
+        }
+        names.add("Ezekiel Thornbury");
+        names.add("Ezekeil Thornbury");
+        DuplicatePersonDetector detector = new DuplicatePersonDetector();
+        List<ValidationReport.SuspectedDuplicate> duplicates = detector.detect(names);
+        // blocking by trigrams keeps the number of comparisons linear, rather than one for every pair.
+        assertTrue(detector.getComparisonCount() <= (long) comparisonsPerName * names.size());
+        assertTrue(duplicates.stream().anyMatch(d -> d.getFullName().equals("Ezekiel Thornbury")
+            && d.getOtherFullName().equals("Ezekeil Thornbury")));
+    }
+
+    private static String randomName(Random random) {
+        final int minLength = 4;
+        final int lengthRange = 6;
+        final int letters = 26;
+        int length = minLength + random.nextInt(lengthRange);
+        StringBuilder sb = new StringBuilder();
+        sb.append((char) ('A' + random.nextInt(letters)));
+        for (int i = 1; i < length; i++) {
+            sb.append((char) ('a' + random.nextInt(letters)));
+        }
+        return sb.toString();
+    }
+}
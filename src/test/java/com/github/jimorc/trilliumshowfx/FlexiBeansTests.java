@@ -5,11 +5,18 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Stream;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
 /**
@@ -407,4 +414,317 @@ public class FlexiBeansTests {
         assertEquals("image5.jpg", beans.get(aliceDoe).getFilename());
         assertEquals("image6.jpg", beans.get(bobSmith).getFilename());
     }
+
+    @Test
+    public void testTokenizerInputStreamConstructor() {
+        String csvData = "Filename,Column2,Title,Full Name,First Name,Last Name\r\n"
+                + "image1.jpg,,An image,John Doe,John,Doe\r\n"
+                + "image2.jpg,Dummy, \"Image, \"\"Two\"\"\",Jane Smith,Jane,\n";
+        InputStream csvInputStream = new ByteArrayInputStream(csvData.getBytes(StandardCharsets.UTF_8));
+        FlexiBeans flexiBeans = null;
+        try {
+            flexiBeans = new FlexiBeans(csvInputStream, ParserType.Tokenizer);
+        } catch (CSVException e) {
+            fail("CSVException thrown: " + e.getMessage());
+        } catch (BadHeaderException e) {
+            fail("BadHeaderException thrown: " + e.getMessage());
+        }
+        List<FlexiBean> beans = flexiBeans.getBeans();
+        assertEquals(2, beans.size());
+        FlexiBean bean1 = beans.get(0);
+        assertEquals("image1.jpg", bean1.getFilename());
+        assertEquals("An image", bean1.getTitle());
+        assertEquals("John Doe", bean1.getFullName());
+        assertEquals("John", bean1.getFirstName());
+        assertEquals("Doe", bean1.getLastName());
+        FlexiBean bean2 = beans.get(1);
+        assertEquals("image2.jpg", bean2.getFilename());
+        assertEquals("Image, \"Two\"", bean2.getTitle());
+        assertEquals("Jane Smith", bean2.getFullName());
+        assertEquals("Jane", bean2.getFirstName());
+        assertEquals(null, bean2.getLastName());
+    }
+
+    @Test
+    public void testTokenizerNewlineInputStreamConstructor() {
+        String csvData = "Filename,Title,Full Name,First Name,Last Name\n"
+                + "image2.jpg,\"Another image\n\",Jane Smith,Jane,Smith";
+        InputStream csvInputStream = new ByteArrayInputStream(csvData.getBytes(StandardCharsets.UTF_8));
+        FlexiBeans flexiBeans = null;
+        try {
+            flexiBeans = new FlexiBeans(csvInputStream, ParserType.Tokenizer);
+        } catch (CSVException e) {
+            fail("CSVException thrown: " + e.getMessage());
+        } catch (BadHeaderException e) {
+            fail("BadHeaderException thrown: " + e.getMessage());
+        }
+        List<FlexiBean> beans = flexiBeans.getBeans();
+        assertEquals(1, beans.size());
+        assertEquals("Another image\n", beans.get(0).getTitle());
+        assertEquals("Smith", beans.get(0).getLastName());
+    }
+
+    @Test
+    public void testTokenizerFileConstructor() {
+        File file = new File("testing/data/test.csv");
+        FlexiBeans flexiBeans = null;
+        try {
+            flexiBeans = new FlexiBeans(file, ParserType.Tokenizer);
+        } catch (CSVException e) {
+            fail("CSVException thrown: " + e.getMessage());
+        } catch (BadHeaderException e) {
+            fail("BadHeaderException thrown: " + e.getMessage());
+        } catch (FileNotFoundException e) {
+            fail("FileNotFoundException thrown: " + e.getMessage());
+        }
+        List<FlexiBean> beans = flexiBeans.getBeans();
+        assertEquals(2, beans.size());
+        assertEquals("image1.jpg", beans.get(0).getFilename());
+        assertEquals("Image One", beans.get(0).getTitle());
+        assertEquals("image2.jpg", beans.get(1).getFilename());
+        assertEquals("Image, Two", beans.get(1).getTitle());
+        assertEquals("Smith", beans.get(1).getLastName());
+    }
+
+    @Test
+    public void testTokenizerEmptyInputStreamConstructor() {
+        InputStream csvInputStream = new ByteArrayInputStream(new byte[0]);
+        Exception actualException = Assertions.assertThrows(BadHeaderException.class, () -> {
+            new FlexiBeans(csvInputStream, ParserType.Tokenizer);
+        });
+        assertEquals("Error capturing CSV header!", actualException.getMessage());
+    }
+
+    @Test
+    public void testTokenizerInvalidLineFileConstructor() {
+        File file = new File("testing/data/invalidline.csv");
+        Assertions.assertThrows(CSVException.class, () -> {
+            new FlexiBeans(file, ParserType.Tokenizer);
+        });
+    }
+
+    @Test
+    public void testTokenizerInvalidInputStreamConstructor() {
+        String missingFilename = "Title,Full Name\nAn image,John Doe\n";
+        Assertions.assertThrows(CSVException.class, () -> {
+            new FlexiBeans(new ByteArrayInputStream(missingFilename.getBytes(StandardCharsets.UTF_8)),
+                ParserType.Tokenizer);
+        });
+        String emptyFilename = "Filename,Title\n ,An image\n";
+        Assertions.assertThrows(CSVException.class, () -> {
+            new FlexiBeans(new ByteArrayInputStream(emptyFilename.getBytes(StandardCharsets.UTF_8)),
+                ParserType.Tokenizer);
+        });
+        String unterminated = "Filename,Title\nimage1.jpg,\"An image\n";
+        Assertions.assertThrows(CSVException.class, () -> {
+            new FlexiBeans(new ByteArrayInputStream(unterminated.getBytes(StandardCharsets.UTF_8)),
+                ParserType.Tokenizer);
+        });
+    }
+
+    @Test
+    public void testStreamGroupByPerson() {
+        String csvData = "Filename,Title,Full Name,First Name,Last Name\n"
+                + "image1.jpg,An image,John Doe,John,Doe\n"
+                + "image2.jpg,Another image,Jane Smith,Jane,Smith\n"
+                + "image3.jpg,Third image,John Doe,John,Doe\n";
+        InputStream csvInputStream = new ByteArrayInputStream(csvData.getBytes(StandardCharsets.UTF_8));
+        PersonGroups groups = null;
+        try (Stream<FlexiBean> beans = FlexiBeans.stream(csvInputStream)) {
+            groups = beans.collect(PersonGroups.collector());
+        } catch (CSVException e) {
+            fail("CSVException thrown: " + e.getMessage());
+        } catch (BadHeaderException e) {
+            fail("BadHeaderException thrown: " + e.getMessage());
+        }
+        assertEquals(2, groups.size());
+        assertEquals(List.of("John Doe", "Jane Smith"), groups.getFullNames());
+        List<FlexiBean> doe = groups.getBeans("John Doe").getBeans();
+        assertEquals(2, doe.size());
+        assertEquals("image1.jpg", doe.get(0).getFilename());
+        assertEquals("image3.jpg", doe.get(1).getFilename());
+        assertEquals("image2.jpg", groups.getBeans("Jane Smith").getBeans().get(0).getFilename());
+    }
+
+    @Test
+    public void testStreamInvalidLine() {
+        String csvData = "Filename,Title,Full Name,First Name,Last Name\n"
+                + "image1.jpg,An image,John Doe,John\n";
+        InputStream csvInputStream = new ByteArrayInputStream(csvData.getBytes(StandardCharsets.UTF_8));
+        Assertions.assertThrows(UncheckedCSVException.class, () -> {
+            try (Stream<FlexiBean> beans = FlexiBeans.stream(csvInputStream)) {
+                beans.forEach(new PersonGroups());
+            }
+        });
+    }
+
+    @Test
+    public void testStreamExtraColumns() {
+        String csvData = "Filename,Category,Title,Full Name,First Name,Last Name,Score\n"
+                + "image1.jpg,Open,An image,John Doe,John,Doe,12\n"
+                + "image2.jpg,Nature,Another image,Jane Smith,Jane,Smith,\n";
+        InputStream csvInputStream = new ByteArrayInputStream(csvData.getBytes(StandardCharsets.UTF_8));
+        try (Stream<FlexiBean> stream = FlexiBeans.stream(csvInputStream)) {
+            List<FlexiBean> beans = stream.toList();
+            CSVSchema schema = beans.get(0).getSchema();
+            assertEquals(List.of("Category", "Score"), schema.getColumns());
+            assertEquals("Open", beans.get(0).getExtra("category"));
+            assertEquals("12", beans.get(0).getExtra("Score"));
+            assertNull(beans.get(1).getExtra("Score"));
+            assertNull(beans.get(1).getExtra("Entry Id"));
+            Function<FlexiBean, String> category = schema.accessor("Category");
+            Function<FlexiBean, String> title = schema.accessor("Title");
+            assertEquals("Nature", category.apply(beans.get(1)));
+            assertEquals("Another image", title.apply(beans.get(1)));
+        } catch (CSVException e) {
+            fail("CSVException thrown: " + e.getMessage());
+        } catch (BadHeaderException e) {
+            fail("BadHeaderException thrown: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testStreamProjection() {
+        String csvData = "Filename,Category,Title,Full Name,First Name,Last Name,Score\n"
+                + "image1.jpg,Open,An image,John Doe,John,Doe,12\n";
+        InputStream csvInputStream = new ByteArrayInputStream(csvData.getBytes(StandardCharsets.UTF_8));
+        try (Stream<FlexiBean> stream = FlexiBeans.stream(csvInputStream, Set.of("full name", "Score"))) {
+            FlexiBean bean = stream.toList().get(0);
+            assertEquals("image1.jpg", bean.getFilename());
+            assertEquals("John Doe", bean.getFullName());
+            assertEquals("12", bean.getExtra("Score"));
+            assertNull(bean.getTitle());
+            assertNull(bean.getExtra("Category"));
+            assertEquals(List.of("Score"), bean.getSchema().getColumns());
+            // a bean without extra columns has no schema.
+            assertNull(new FlexiBean().getExtra(null, 0));
+        } catch (CSVException e) {
+            fail("CSVException thrown: " + e.getMessage());
+        } catch (BadHeaderException e) {
+            fail("BadHeaderException thrown: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testPersonIndex() {
+        FlexiBeans flexiBeans = new FlexiBeans();
+        String[][] rows = {{"a.jpg", "John", "Doe"}, {"b.jpg", "Jane", "Smith"}, {"c.jpg", "John", "Doe"}};
+        for (String[] row : rows) {
+            FlexiBean bean = new FlexiBean();
+            bean.setFilename(row[0]);
+            bean.setFirstName(row[1]);
+            bean.setLastName(row[2]);
+            bean.setFullName(row[1] + " " + row[2]);
+            flexiBeans.append(bean);
+        }
+        assertEquals(List.of(new Person("John", "Doe"), new Person("Jane", "Smith")), flexiBeans.getPersons());
+        assertEquals(List.of("John Doe", "Jane Smith"), flexiBeans.getSortedFullNames());
+        assertEquals(2, flexiBeans.getPersonGroups().getBeans("John Doe").getBeans().size());
+        flexiBeans.sort(SortOrder.AlphabeticalByFullName);
+        assertEquals(List.of("Jane Smith", "John Doe"), flexiBeans.getSortedFullNames());
+        assertEquals("b.jpg", flexiBeans.getBeans().get(0).getFilename());
+        flexiBeans.remove(0);
+        assertEquals(List.of("John Doe"), flexiBeans.getSortedFullNames());
+        // changes made directly to the list are seen when the index is next used.
+        flexiBeans.getBeans().add(0, flexiBeans.getBeans().get(1));
+        assertEquals(3, flexiBeans.getPersonGroups().getBeans("John Doe").getBeans().size());
+    }
+
+    @Test
+    public void testPersonIndexInsertThenRemove() {
+        FlexiBeans flexiBeans = new FlexiBeans();
+        String[][] rows = {{"a.jpg", "John", "Doe"}, {"b.jpg", "Jane", "Smith"}, {"c.jpg", "John", "Doe"}};
+        for (String[] row : rows) {
+            FlexiBean bean = new FlexiBean();
+            bean.setFilename(row[0]);
+            bean.setFirstName(row[1]);
+            bean.setLastName(row[2]);
+            bean.setFullName(row[1] + " " + row[2]);
+            flexiBeans.append(bean);
+        }
+        assertEquals(List.of("John Doe", "Jane Smith"), flexiBeans.getSortedFullNames());
+        FlexiBean fred = new FlexiBean();
+        fred.setFilename("d.jpg");
+        fred.setFirstName("Fred");
+        fred.setLastName("Flintstone");
+        fred.setFullName("Fred Flintstone");
+        // the number of beans is the same after both changes, but the index must still be rebuilt.
+        flexiBeans.insert(0, fred);
+        flexiBeans.removeRange(2, 3);
+        assertEquals(List.of("Fred Flintstone", "John Doe"), flexiBeans.getSortedFullNames());
+        flexiBeans.insertAll(1, List.of(fred));
+        flexiBeans.remove(0);
+        assertEquals(List.of("Fred Flintstone", "John Doe"), flexiBeans.getSortedFullNames());
+        assertEquals(2, flexiBeans.getPersonGroups().getBeans("John Doe").getBeans().size());
+    }
+
+    @Test
+    public void testPersonIndexManyBeans() {
+        final int numBeans = 100_000;
+        final int numPersons = 20_000;
+        final int indexedPerBean = 3;
+        FlexiBeans flexiBeans = new FlexiBeans();
+        for (int i = 0; i < numBeans; i++) {
+            int person = (i * 7) % numPersons;
+            FlexiBean bean = new FlexiBean();
+            bean.setFilename("image" + i + ".jpg");
+            bean.setFirstName("First" + person);
+            bean.setLastName("Last" + person);
+            bean.setFullName("First" + person + " Last" + person);
+            flexiBeans.append(bean);
+            // the index is kept up to date by each append rather than rebuilt.
+            assertEquals(Math.min(i + 1, numPersons), flexiBeans.getPersonGroups().size());
+        }
+        assertEquals(numPersons, flexiBeans.getPersons().size());
+        assertEquals(numPersons, flexiBeans.getSortedFullNames().size());
+        flexiBeans.sort(SortOrder.AlphabeticalByFullName);
+        assertEquals(numBeans, flexiBeans.getBeans().size());
+        assertEquals("First0 Last0", flexiBeans.getBeans().get(0).getFullName());
+        assertEquals(numPersons, flexiBeans.getPersonGroups().size());
+        assertEquals(numPersons, flexiBeans.getSortedFullNames().size());
+        // rebuilding the index for every append would index about numBeans * numBeans / 2 beans.
+        assertTrue(flexiBeans.getIndexedBeanCount() <= (long) indexedPerBean * numBeans);
+    }
+
+    @Test
+    public void testPermutations() {
+        FlexiBeans flexiBeans = new FlexiBeans();
+        String[][] rows = {{"a.jpg", "John", "Doe"}, {"b.jpg", "Jane", "Smith"}, {"c.jpg", "John", "Doe"}};
+        for (String[] row : rows) {
+            FlexiBean bean = new FlexiBean();
+            bean.setFilename(row[0]);
+            bean.setFirstName(row[1]);
+            bean.setLastName(row[2]);
+            bean.setFullName(row[1] + " " + row[2]);
+            flexiBeans.append(bean);
+        }
+        FlexiBean first = flexiBeans.getBeans().get(0);
+        flexiBeans.sort(SortOrder.AlphabeticalByFullName);
+        assertEquals("b.jpg", flexiBeans.getBeans().get(0).getFilename());
+        // the beans are not copied.
+        assertSame(first, flexiBeans.getBeans().get(1));
+        assertEquals(List.of("Jane Smith", "John Doe"), flexiBeans.getSortedFullNames());
+        // AsIs returns to the order of the file, and iteration follows the active order.
+        flexiBeans.sort(SortOrder.AsIs);
+        assertEquals(List.of("a.jpg", "b.jpg", "c.jpg"), filenames(flexiBeans));
+        flexiBeans.sort(SortOrder.AlphabeticalByFullNameReverse);
+        assertEquals(List.of("John Doe", "Jane Smith"), flexiBeans.getSortedFullNames());
+        assertEquals(List.of("a.jpg", "c.jpg", "b.jpg"), filenames(flexiBeans));
+        flexiBeans.sort(SortOrder.AlphabeticalByFullName);
+        assertEquals(List.of("b.jpg", "a.jpg", "c.jpg"), filenames(flexiBeans));
+        // changing the sorted view fixes the beans in the sorted order.
+        flexiBeans.getBeans().remove(0);
+        assertEquals(2, flexiBeans.getBeans().size());
+        flexiBeans.sort(SortOrder.AsIs);
+        assertSame(first, flexiBeans.getBeans().get(0));
+        assertEquals(List.of("John Doe"), flexiBeans.getSortedFullNames());
+    }
+
+    private static List<String> filenames(FlexiBeans flexiBeans) {
+        List<String> names = new ArrayList<>();
+        for (FlexiBean bean : flexiBeans.getBeans()) {
+            names.add(bean.getFilename());
+        }
+        return names;
+    }
 }
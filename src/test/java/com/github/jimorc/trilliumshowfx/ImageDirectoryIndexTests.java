@@ -0,0 +1,78 @@
+package com.github.jimorc.trilliumshowfx;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * ImageDirectoryIndexTests contains tests for the ImageDirectoryIndex class.
+ */
+public class ImageDirectoryIndexTests {
+    @Test
+    void testCaseSensitive(@TempDir Path tempDir) {
+        final int numNames = 3;
+        try {
+            Files.createFile(tempDir.resolve("Image1.jpg"));
+            Files.createFile(tempDir.resolve("image2.jpg"));
+            Files.createDirectories(tempDir.resolve("entries"));
+            Files.createFile(tempDir.resolve("entries").resolve("image3.jpg"));
+            ImageDirectoryIndex images = ImageDirectoryIndex.of(tempDir, false);
+            assertEquals(numNames, images.size());
+            assertTrue(images.contains("Image1.jpg"));
+            assertFalse(images.contains("image1.jpg"));
+            assertTrue(images.contains("image2.jpg"));
+            assertTrue(images.contains("entries/image3.jpg"));
+            assertFalse(images.contains("entries/image4.jpg"));
+            assertFalse(images.contains(null));
+            assertFalse(images.contains(""));
+            images.add("image5.jpg");
+            assertTrue(images.contains("image5.jpg"));
+            images.remove("image5.jpg");
+            assertFalse(images.contains("image5.jpg"));
+            // the case insensitive view of the same listing.
+            assertEquals("Image1.jpg", images.findIgnoringCase("IMAGE1.JPG"));
+            assertNull(images.findIgnoringCase("image5.jpg"));
+            images.add("photo.jpg");
+            images.add("PHOTO.jpg");
+            images.remove("photo.jpg");
+            assertEquals("PHOTO.jpg", images.findIgnoringCase("Photo.jpg"));
+            images.remove("PHOTO.jpg");
+            assertNull(images.findIgnoringCase("Photo.jpg"));
+        } catch (IOException ioe) {
+            fail("IOException thrown: " + ioe.getMessage());
+        }
+    }
+
+    @Test
+    void testIgnoreCase(@TempDir Path tempDir) {
+        try {
+            Files.createFile(tempDir.resolve("Image1.JPG"));
+            ImageDirectoryIndex images = ImageDirectoryIndex.of(tempDir, true);
+            assertTrue(images.contains("image1.jpg"));
+            assertEquals("Image1.JPG", images.find("IMAGE1.jpg"));
+            assertEquals("Image1.JPG", images.findIgnoringCase("IMAGE1.jpg"));
+            assertNull(images.find("image2.jpg"));
+            // only the name on disk removes the entry.
+            images.remove("image1.jpg");
+            assertTrue(images.contains("image1.jpg"));
+            images.remove("Image1.JPG");
+            assertFalse(images.contains("image1.jpg"));
+        } catch (IOException ioe) {
+            fail("IOException thrown: " + ioe.getMessage());
+        }
+    }
+
+    @Test
+    void testMissingDirectory(@TempDir Path tempDir) {
+        assertThrows(IOException.class, () -> ImageDirectoryIndex.of(tempDir.resolve("nodir"), false));
+    }
+}
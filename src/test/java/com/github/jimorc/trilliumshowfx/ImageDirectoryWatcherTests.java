@@ -0,0 +1,99 @@
+package com.github.jimorc.trilliumshowfx;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * ImageDirectoryWatcherTests contains tests for the ImageDirectoryWatcher class.
+ */
+public class ImageDirectoryWatcherTests {
+    // Some platforms poll for changes, so allow plenty of time for each event.
+    private static final long EVENT_TIMEOUT_SECONDS = 30;
+
+    // Waits until a listener has been called with name, or the folder has been listed again.
+    private static void awaitChange(BlockingQueue<Set<String>> changes, String name) throws InterruptedException {
+        while (true) {
+            Set<String> changed = changes.poll(EVENT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            if (changed == null) {
+                fail("No change reported for " + name);
+            }
+            if (changed.isEmpty() || changed.contains(name)) {
+                return;
+            }
+        }
+    }
+
+    @Test
+    void testWatch(@TempDir Path tempDir) {
+        BlockingQueue<Set<String>> changes = new LinkedBlockingQueue<>();
+        try {
+            Files.createFile(tempDir.resolve("image1.jpg"));
+            try (ImageDirectoryWatcher watcher = ImageDirectoryWatcher.start(tempDir, false)) {
+                watcher.addListener(changes::add);
+                ImageDirectoryIndex images = watcher.getIndex();
+                assertTrue(images.contains("image1.jpg"));
+                assertFalse(images.contains("image2.jpg"));
+
+                Files.createFile(tempDir.resolve("image2.jpg"));
+                awaitChange(changes, "image2.jpg");
+                assertTrue(images.contains("image2.jpg"));
+
+                Files.move(tempDir.resolve("image1.jpg"), tempDir.resolve("renamed.jpg"));
+                awaitChange(changes, "renamed.jpg");
+                assertFalse(images.contains("image1.jpg"));
+                assertTrue(images.contains("renamed.jpg"));
+
+                Files.delete(tempDir.resolve("image2.jpg"));
+                awaitChange(changes, "image2.jpg");
+                assertFalse(images.contains("image2.jpg"));
+
+                Files.writeString(tempDir.resolve("renamed.jpg"), "modified");
+                awaitChange(changes, "renamed.jpg");
+                assertTrue(images.contains("renamed.jpg"));
+            }
+        } catch (IOException ioe) {
+            fail("IOException thrown: " + ioe.getMessage());
+        } catch (InterruptedException ie) {
+            fail("InterruptedException thrown: " + ie.getMessage());
+        }
+    }
+
+    @Test
+    void testFolderDeleted(@TempDir Path tempDir) {
+        BlockingQueue<Set<String>> stopped = new LinkedBlockingQueue<>();
+        Path dir = tempDir.resolve("images");
+        try {
+            Files.createDirectory(dir);
+            try (ImageDirectoryWatcher watcher = ImageDirectoryWatcher.start(dir, false)) {
+                watcher.addListener(changed -> {
+                    if (!watcher.isWatching()) {
+                        stopped.add(changed);
+                    }
+                });
+                assertTrue(watcher.isWatching());
+                Files.delete(dir);
+                // the listeners are told that any file may have changed when the watcher stops.
+                Set<String> changed = stopped.poll(EVENT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                assertNotNull(changed);
+                assertTrue(changed.isEmpty());
+                assertFalse(watcher.isWatching());
+            }
+        } catch (IOException ioe) {
+            fail("IOException thrown: " + ioe.getMessage());
+        } catch (InterruptedException ie) {
+            fail("InterruptedException thrown: " + ie.getMessage());
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.github.jimorc.trilliumshowfx;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.imageio.ImageIO;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * ImageHashCacheTests contains tests for the ImageHashCache class.
+ */
+public class ImageHashCacheTests {
+    // SHA-256 of "abc".
+    private static final String ABC_HASH = "ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad";
+
+    @Test
+    void testHash(@TempDir Path tempDir) {
+        final long oneSecond = 1000;
+        Path cacheFile = tempDir.resolve("cache").resolve("hashes.bin");
+        Path image = tempDir.resolve("image1.jpg");
+        try {
+            Files.writeString(image, "abc");
+            ImageHashCache cache = new ImageHashCache(cacheFile);
+            assertEquals(ABC_HASH, cache.hash(image));
+            cache.save();
+
+            // a new cache reads the saved hash rather than the file.
+            FileTime modified = Files.getLastModifiedTime(image);
+            Files.writeString(image, "xyz");
+            Files.setLastModifiedTime(image, modified);
+            ImageHashCache reloaded = new ImageHashCache(cacheFile);
+            assertEquals(ABC_HASH, reloaded.hash(image));
+            assertEquals(Map.of(ABC_HASH, List.of(image.toAbsolutePath().toString())), reloaded.pathsByHash());
+
+            // a changed modification time means the file is read again.
+            Files.setLastModifiedTime(image, FileTime.fromMillis(modified.toMillis() + oneSecond));
+            assertNotEquals(ABC_HASH, reloaded.hash(image));
+        } catch (IOException ioe) {
+            fail("IOException thrown: " + ioe.getMessage());
+        }
+    }
+
+    @Test
+    void testCorruptCache(@TempDir Path tempDir) {
+        Path cacheFile = tempDir.resolve("hashes.bin");
+        Path image = tempDir.resolve("image1.jpg");
+        try {
+            Files.writeString(cacheFile, "not a cache");
+            Files.writeString(image, "abc");
+            ImageHashCache cache = new ImageHashCache(cacheFile);
+            assertEquals(ABC_HASH, cache.hash(image));
+            cache.save();
+            assertEquals(ABC_HASH, new ImageHashCache(cacheFile).hash(image));
+        } catch (IOException ioe) {
+            fail("IOException thrown: " + ioe.getMessage());
+        }
+    }
+
+    @Test
+    void testInMemory(@TempDir Path tempDir) {
+        Path image = tempDir.resolve("image1.jpg");
+        try {
+            Files.writeString(image, "abc");
+            ImageHashCache cache = new ImageHashCache(null);
+            assertEquals(ABC_HASH, cache.hash(image));
+            cache.save();
+            assertEquals(Map.of(ABC_HASH, List.of(image.toAbsolutePath().toString())), cache.pathsByHash());
+            // pruning drops the entries of deleted files.
+            Files.delete(image);
+            assertTrue(cache.prune(List.of(image.toAbsolutePath().toString())).isEmpty());
+            assertTrue(cache.pathsByHash().isEmpty());
+        } catch (IOException ioe) {
+            fail("IOException thrown: " + ioe.getMessage());
+        }
+    }
+
+    @Test
+    void testConcurrentHashes(@TempDir Path tempDir) {
+        final int size = 64;
+        final int attempts = 50;
+        final int step = 4;
+        final int redShift = 16;
+        Path image = tempDir.resolve("image1.jpg");
+        String path = image.toAbsolutePath().toString();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            BufferedImage picture = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+            for (int x = 0; x < size; x++) {
+                for (int y = 0; y < size; y++) {
+                    picture.setRGB(x, y, (x * step) << redShift | (y * step));
+                }
+            }
+            ImageIO.write(picture, "jpg", image.toFile());
+            for (int i = 0; i < attempts; i++) {
+                ImageHashCache cache = new ImageHashCache(null);
+                Future<String> hash = executor.submit(() -> cache.hash(image));
+                Future<Long> dHash = executor.submit(() -> cache.perceptualHash(image));
+                // both hashes are kept, whichever call stores its hash first.
+                assertEquals(Map.of(hash.get(), List.of(path)), cache.pathsByHash());
+                assertEquals(1, cache.similar(dHash.get(), 0).size());
+            }
+        } catch (IOException ioe) {
+            fail("IOException thrown: " + ioe.getMessage());
+        } catch (ExecutionException ee) {
+            fail("ExecutionException thrown: " + ee.getMessage());
+        } catch (InterruptedException ie) {
+            fail("InterruptedException thrown: " + ie.getMessage());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void testMissingFile(@TempDir Path tempDir) {
+        ImageHashCache cache = new ImageHashCache(tempDir.resolve("hashes.bin"));
+        assertThrows(IOException.class, () -> cache.hash(tempDir.resolve("image1.jpg")));
+    }
+}
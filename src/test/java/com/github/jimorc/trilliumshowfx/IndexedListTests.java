@@ -0,0 +1,111 @@
+package com.github.jimorc.trilliumshowfx;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * IndexedListTests contains tests for the IndexedList class.
+ */
+public class IndexedListTests {
+    @Test
+    void testMatchesArrayList() {
+        final int numOps = 20_000;
+        final int seed = 42;
+        final int appendWeight = 4;
+        final int insertWeight = 7;
+        final int removeWeight = 9;
+        final int weights = 10;
+        Random random = new Random(seed);
+        List<Integer> expected = new ArrayList<>();
+        IndexedList<Integer> list = new IndexedList<>();
+        for (int i = 0; i < numOps; i++) {
+            int op = random.nextInt(weights);
+            if (op < appendWeight || expected.isEmpty()) {
+                expected.add(i);
+                list.add(i);
+            } else if (op < insertWeight) {
+                int index = random.nextInt(expected.size() + 1);
+                expected.add(index, i);
+                list.add(index, i);
+            } else if (op < removeWeight) {
+                int index = random.nextInt(expected.size());
+                assertEquals(expected.remove(index), list.remove(index));
+            } else {
+                int index = random.nextInt(expected.size());
+                assertEquals(expected.set(index, -i), list.set(index, -i));
+            }
+            if (!expected.isEmpty()) {
+                int index = random.nextInt(expected.size());
+                assertEquals(expected.get(index), list.get(index));
+            }
+        }
+        assertEquals(expected.size(), list.size());
+        assertEquals(expected, list);
+        assertEquals(expected, new ArrayList<>(list));
+    }
+
+    @Test
+    void testIteratorRemove() {
+        final int numElements = 100;
+        IndexedList<Integer> list = new IndexedList<>();
+        for (int i = 0; i < numElements; i++) {
+            list.add(i);
+        }
+        Iterator<Integer> it = list.iterator();
+        while (it.hasNext()) {
+            if (it.next() % 2 == 0) {
+                it.remove();
+            }
+        }
+        assertEquals(numElements / 2, list.size());
+        for (int i = 0; i < list.size(); i++) {
+            assertEquals(2 * i + 1, (int) list.get(i));
+        }
+        assertThrows(NoSuchElementException.class, it::next);
+        assertThrows(IllegalStateException.class, list.iterator()::remove);
+    }
+
+    @Test
+    void testIndexOutOfBounds() {
+        IndexedList<String> list = new IndexedList<>(List.of("a", "b"));
+        assertThrows(IndexOutOfBoundsException.class, () -> list.get(2));
+        assertThrows(IndexOutOfBoundsException.class, () -> list.add(3, "c"));
+        assertThrows(IndexOutOfBoundsException.class, () -> list.remove(-1));
+        list.add(2, "c");
+        assertEquals(List.of("a", "b", "c"), list);
+    }
+
+    @Test
+    void testScaling() {
+        // a positional insert visits at most height() nodes, which must stay O(log n).
+        final int numAppends = 100_000;
+        final int numInserts = 20_000;
+        final int heightFactor = 5;
+        IndexedList<Integer> list = new IndexedList<>();
+        for (int i = 0; i < numAppends; i++) {
+            list.add(i);
+        }
+        for (int i = 0; i < numInserts; i++) {
+            list.add(i, -i);
+        }
+        int first = 0;
+        for (int value : list) {
+            first = value;
+            break;
+        }
+        assertEquals(0, first);
+        assertEquals(numAppends + numInserts, list.size());
+        assertEquals(-(numInserts - 1), (int) list.get(numInserts - 1));
+        assertEquals(0, (int) list.get(numInserts));
+        int log2 = Integer.SIZE - Integer.numberOfLeadingZeros(list.size());
+        assertTrue(list.height() <= heightFactor * log2);
+    }
+}
@@ -4,13 +4,22 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.condition.DisabledOnOs;
 import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
 /**
@@ -308,6 +317,8 @@ public class InputCSVTests {
             Person john = csv.getPerson("John Doe");
             assertNotNull(john);
             assertEquals("John Doe", john.getFullName());
+            assertEquals("Doe", john.getLastName());
+            assertSame(john, csv.getPerson("John Doe"));
         } catch (CSVException e) {
             fail(e.getMessage());
         }
@@ -376,4 +387,321 @@ public class InputCSVTests {
             fail(ioe.getMessage());
         }
     }
+
+    @Test
+    void testMappedFileParsing() {
+        final int numBeans = 2;
+        Path path = null;
+        try {
+            path = Files.createTempFile("mapped", ".csv");
+            Files.writeString(path, "\uFEFFFilename,Notes,Title,Full Name,First Name,Last Name\r\n"
+                + "image1.jpg,\"Note, \"\"one\"\"\",\"Image, \"\"One\"\"\",John Doe,John,Doe\r\n"
+                + "\r\n"
+                + "image2.jpg,,Image Two,Jane Smith,Jane,Smith");
+            InputCSV csv = new InputCSV(path.toFile());
+            assertEquals(numBeans, csv.getNumberOfBeans());
+            assertEquals("image1.jpg", csv.getBean(0).getFilename());
+            assertEquals("Image, \"One\"", csv.getBean(0).getTitle());
+            assertEquals("Doe", csv.getBean(0).getLastName());
+            assertEquals("Image Two", csv.getBean(1).getTitle());
+            assertEquals("Smith", csv.getBean(1).getLastName());
+        } catch (IOException ioe) {
+            fail("IOException thrown: " + ioe.getMessage());
+        } catch (CSVException csve) {
+            fail("CSVException thrown: " + csve.getMessage());
+        } finally {
+            if (path != null) {
+                path.toFile().delete();
+            }
+        }
+    }
+
+    @Test
+    void testRefresh(@TempDir Path tempDir) {
+        final int numBeans = 3;
+        final int lastRow = 4;
+        Path path = tempDir.resolve("live.csv");
+        List<String> events = new ArrayList<>();
+        try {
+            Files.writeString(path, "Filename,Title,Full Name,First Name,Last Name\n"
+                + "image1.jpg,Image One,John Doe,John,Doe\n"
+                + "image2.jpg,Image Two,Jane Smith,Jane,Smith\n");
+            InputCSV csv = new InputCSV(path.toFile());
+            csv.addChangeListener(new CSVChangeListener() {
+                @Override
+                public void rowsAppended(InputCSV c, int firstRow, int count) {
+                    events.add("appended " + firstRow + " " + count);
+                }
+
+                @Override
+                public void csvReloaded(InputCSV c) {
+                    events.add("reloaded " + c.getNumberOfBeans());
+                }
+            });
+            assertEquals(0, csv.refresh());
+            Files.writeString(path, "image3.jpg,Image Three,John Doe,John,Doe\nimage4.jpg,Four,Fr",
+                StandardOpenOption.APPEND);
+            // the incomplete last row is not added.
+            assertEquals(1, csv.refresh());
+            assertEquals(numBeans, csv.getNumberOfBeans());
+            assertEquals(2, csv.getPersonBeans("John Doe").getBeans().size());
+            Files.writeString(path, "ed Flintstone,Fred,Flintstone\nimage5.jpg,Five,Jane Smith,Jane,Smith",
+                StandardOpenOption.APPEND);
+            // image5.jpg is complete apart from its line break, so it is added as a pending row.
+            assertEquals(2, csv.refresh());
+            assertEquals("Fred Flintstone", csv.getBean(numBeans).getFullName());
+            Files.writeString(path, "son\n", StandardOpenOption.APPEND);
+            assertEquals(1, csv.refresh());
+            assertEquals(lastRow + 1, csv.getNumberOfBeans());
+            assertEquals("Smithson", csv.getBean(lastRow).getLastName());
+            assertEquals(2, csv.getPersonBeans("Jane Smith").getBeans().size());
+            Files.writeString(path, "Filename,Title,Full Name,First Name,Last Name\n"
+                + "image9.jpg,Image Nine,John Doe,John,Doe\n");
+            assertEquals(1, csv.refresh());
+            assertEquals("image9.jpg", csv.getBean(0).getFilename());
+            assertEquals(List.of("appended 2 1", "appended 3 2", "appended 4 1", "reloaded 1"), events);
+        } catch (IOException ioe) {
+            fail("IOException thrown: " + ioe.getMessage());
+        } catch (CSVException csve) {
+            fail("CSVException thrown: " + csve.getMessage());
+        } catch (BadHeaderException bhe) {
+            fail("BadHeaderException thrown: " + bhe.getMessage());
+        }
+    }
+
+    @Test
+    void testRefreshRewritten(@TempDir Path tempDir) {
+        final long oneSecond = 1000;
+        final int numBeans = 3;
+        Path path = tempDir.resolve("rewritten.csv");
+        String header = "Filename,Title,Full Name,First Name,Last Name\n";
+        try {
+            Files.writeString(path, header + "image1.jpg,Image One,John Doe,John,Doe\n"
+                + "image2.jpg,Image Two,Jane Smith,Jane,Smith\n");
+            InputCSV csv = new InputCSV(path.toFile());
+            long modified = Files.getLastModifiedTime(path).toMillis();
+            // rewritten at the same size.
+            Files.writeString(path, header + "image1.jpg,Image One,John Doe,John,Doe\n"
+                + "image8.jpg,Image Two,Jane Smith,Jane,Smith\n");
+            Files.setLastModifiedTime(path, java.nio.file.attribute.FileTime.fromMillis(modified + oneSecond));
+            assertEquals(2, csv.refresh());
+            assertEquals("image8.jpg", csv.getBean(1).getFilename());
+            // rewritten at a larger size.
+            Files.writeString(path, header + "image1.jpg,Image One,John Doe,John,Doe\n"
+                + "image9.jpg,Image Two,Jane Smith,Jane,Smith\n"
+                + "image3.jpg,Image Three,John Doe,John,Doe\n");
+            assertEquals(numBeans, csv.refresh());
+            assertEquals("image9.jpg", csv.getBean(1).getFilename());
+            assertEquals(numBeans, csv.getNumberOfBeans());
+        } catch (IOException ioe) {
+            fail("IOException thrown: " + ioe.getMessage());
+        } catch (CSVException csve) {
+            fail("CSVException thrown: " + csve.getMessage());
+        } catch (BadHeaderException bhe) {
+            fail("BadHeaderException thrown: " + bhe.getMessage());
+        }
+    }
+
+    @Test
+    void testSnapshots(@TempDir Path tempDir) {
+        final int numBeans = 2;
+        Path path = tempDir.resolve("cached.csv");
+        Path cache = tempDir.resolve("cache");
+        try {
+            Files.writeString(path, "Filename,Title,Full Name,First Name,Last Name\n"
+                + "image1.jpg,Image One,John Doe,John,Doe\n"
+                + "image2.jpg,Image Two,Jane Smith,Jane,Smith\n");
+            new InputCSV(path.toFile());
+            assertFalse(Files.exists(cache));
+            CSVSnapshot snapshots = new CSVSnapshot(cache);
+            new InputCSV(path.toFile(), snapshots);
+            assertNotNull(snapshots.load(path.toFile()));
+            InputCSV csv = new InputCSV(path.toFile(), snapshots);
+            assertEquals(numBeans, csv.getNumberOfBeans());
+            assertEquals("Jane Smith", csv.getBean(1).getFullName());
+            // the snapshot matches the file, so nothing is reloaded.
+            assertEquals(0, csv.refresh());
+            Files.writeString(path, "image3.jpg,Image Three,John Doe,John,Doe\n", StandardOpenOption.APPEND);
+            assertEquals(1, csv.refresh());
+            assertEquals(numBeans + 1, csv.getNumberOfBeans());
+
+            // a snapshot of a file whose last row is still being written.
+            Files.writeString(path, "image4.jpg,Image Four,Jane Smith,Jane,Smith", StandardOpenOption.APPEND);
+            new InputCSV(path.toFile(), snapshots);
+            csv = new InputCSV(path.toFile(), snapshots);
+            List<String> events = new ArrayList<>();
+            csv.addChangeListener(new CSVChangeListener() {
+                @Override
+                public void rowsAppended(InputCSV c, int firstRow, int count) {
+                    events.add("appended " + firstRow + " " + count);
+                }
+
+                @Override
+                public void csvReloaded(InputCSV c) {
+                    events.add("reloaded");
+                }
+            });
+            Files.writeString(path, "son\n", StandardOpenOption.APPEND);
+            assertEquals(1, csv.refresh());
+            assertEquals(numBeans + 2, csv.getNumberOfBeans());
+            assertEquals("Smithson", csv.getBean(numBeans + 1).getLastName());
+            assertEquals(List.of("appended 3 1"), events);
+        } catch (IOException ioe) {
+            fail("IOException thrown: " + ioe.getMessage());
+        } catch (CSVException csve) {
+            fail("CSVException thrown: " + csve.getMessage());
+        } catch (BadHeaderException bhe) {
+            fail("BadHeaderException thrown: " + bhe.getMessage());
+        }
+    }
+
+    @Test
+    void testPersonIndex() {
+        try {
+            InputCSV csv = new InputCSV(new File("testing/data/test.csv"));
+            assertEquals(2, csv.getPersonGroups().size());
+            assertEquals(1, csv.getPersonBeans("John Doe").getBeans().size());
+            assertNull(csv.getPersonGroups().getPerson("Fred Smith"));
+            Person john = csv.getPerson("John Doe");
+            FlexiBean newBean = new FlexiBean();
+            newBean.setFilename("image3.jpg");
+            newBean.setFullName("John Doe");
+            newBean.setFirstName("John");
+            newBean.setLastName("Doe");
+            csv.insertAt(0, newBean);
+            FlexiBeans johns = csv.getPersonBeans("John Doe");
+            assertEquals(2, johns.getBeans().size());
+            assertEquals("image3.jpg", johns.getBeans().get(0).getFilename());
+            // lookups share the index rather than copying the rows.
+            assertSame(johns, csv.getPersonBeans("John Doe"));
+            assertSame(csv.getPerson("John Doe"), csv.getPersonGroups().getPerson("John Doe"));
+            assertEquals(john, csv.getPerson("John Doe"));
+            assertEquals(new Person("Jane", "Smith"), csv.getPerson("Jane Smith"));
+        } catch (IOException ioe) {
+            fail("IOException thrown: " + ioe.getMessage());
+        } catch (CSVException csve) {
+            fail("CSVException thrown: " + csve.getMessage());
+        }
+    }
+
+    @Test
+    void testManyInserts() {
+        final int numAppends = 10_000;
+        final int numInserts = 5_000;
+        try {
+            InputCSV csv = new InputCSV(new File("testing/data/test.csv"));
+            for (int i = 0; i < numAppends; i++) {
+                FlexiBean bean = new FlexiBean();
+                bean.setFilename("append" + i + ".jpg");
+                bean.setFullName("John Doe");
+                csv.append(bean);
+            }
+            for (int i = 0; i < numInserts; i++) {
+                FlexiBean bean = new FlexiBean();
+                bean.setFilename("insert" + i + ".jpg");
+                bean.setFullName("Jane Smith");
+                csv.insertAt(1, bean);
+            }
+            assertEquals(2 + numAppends + numInserts, csv.getNumberOfBeans());
+            assertEquals("image1.jpg", csv.getBean(0).getFilename());
+            assertEquals("insert" + (numInserts - 1) + ".jpg", csv.getBean(1).getFilename());
+            assertEquals("append0.jpg", csv.getBean(2 + numInserts).getFilename());
+            assertEquals(numAppends + 1, csv.getPersonBeans("John Doe").getBeans().size());
+        } catch (IOException ioe) {
+            fail("IOException thrown: " + ioe.getMessage());
+        } catch (CSVException csve) {
+            fail("CSVException thrown: " + csve.getMessage());
+        }
+    }
+
+    @Test
+    void testValidateDuplicatePeople(@TempDir Path tempDir) {
+        final int numImages = 4;
+        try {
+            Path path = tempDir.resolve("dups.csv");
+            Files.writeString(path, "Filename,Title,Full Name,First Name,Last Name\n"
+                + "image1.jpg,Image One,John Doe,John,Doe\n"
+                + "image2.jpg,Image Two,Jane Smith,Jane,Smith\n"
+                + "image3.jpg,Image Three,Jon Doe,Jon,Doe\n"
+                + "image4.jpg,Image Four,jane smith,jane,smith\n");
+            for (int i = 1; i <= numImages; i++) {
+                Files.createFile(tempDir.resolve("image" + i + ".jpg"));
+            }
+            InputCSV csv = new InputCSV(path.toFile());
+            assertFalse(csv.getValidationReport().hasWarnings());
+            assertNull(csv.validateCSVFile());
+            List<ValidationReport.SuspectedDuplicate> duplicates =
+                csv.getValidationReport().getSuspectedDuplicates();
+            assertEquals(2, duplicates.size());
+            assertEquals("\"John Doe\" and \"Jon Doe\"", duplicates.get(0).toString());
+            assertEquals("\"Jane Smith\" and \"jane smith\"", duplicates.get(1).toString());
+        } catch (IOException ioe) {
+            fail("IOException thrown: " + ioe.getMessage());
+        } catch (CSVException csve) {
+            fail("CSVException thrown: " + csve.getMessage());
+        }
+    }
+
+    @Test
+    void testValidateImages(@TempDir Path tempDir) {
+        final int numChecks = 3;
+        try {
+            Path path = tempDir.resolve("images.csv");
+            Files.writeString(path, "Filename,Title,Full Name,First Name,Last Name\n"
+                + "image1.jpg,Image One,John Doe,John,Doe\n"
+                + "image2.jpg,Image Two,Jane Smith,Jane,Smith\n");
+            Files.writeString(tempDir.resolve("image1.jpg"), "This is not an image");
+            Files.writeString(tempDir.resolve("image2.jpg"), "This is not an image");
+            InputCSV csv = new InputCSV(path.toFile());
+            assertNull(csv.validateCSVFile());
+            assertFalse(csv.getValidationReport().hasWarnings());
+            // cancelled checks leave the report unchanged.
+            csv.validateImages(new ProgressMonitor() {
+                @Override
+                public void progress(long done, long total) {
+                }
+
+                @Override
+                public boolean isCancelled() {
+                    return true;
+                }
+            });
+            assertFalse(csv.getValidationReport().hasWarnings());
+            AtomicLong maxDone = new AtomicLong();
+            AtomicLong lastTotal = new AtomicLong();
+            csv.validateImages((done, total) -> {
+                maxDone.accumulateAndGet(done, Math::max);
+                lastTotal.set(total);
+            });
+            assertEquals(lastTotal.get(), maxDone.get());
+            assertEquals(0, lastTotal.get() % numChecks);
+            assertEquals(2, csv.getValidationReport().getImageProblems().size());
+            assertEquals(1, csv.getValidationReport().getDuplicateImages().size());
+        } catch (IOException ioe) {
+            fail("IOException thrown: " + ioe.getMessage());
+        } catch (CSVException csve) {
+            fail("CSVException thrown: " + csve.getMessage());
+        }
+    }
+
+    @Test
+    void testValidateMissingImages(@TempDir Path tempDir) {
+        try {
+            Path path = tempDir.resolve("images.csv");
+            Files.writeString(path, "Filename,Title,Full Name,First Name,Last Name\n"
+                + "image1.jpg,Image One,John Doe,John,Doe\n"
+                + "IMAGE2.jpg,Image Two,Jane Smith,Jane,Smith\n");
+            Files.createFile(tempDir.resolve("image1.jpg"));
+            Files.createFile(tempDir.resolve("image2.jpg"));
+            InputCSV csv = new InputCSV(path.toFile());
+            CSVException csve = assertThrows(CSVException.class, () -> csv.validateCSVFile());
+            assertTrue(csve.getMessage().contains("IMAGE2.jpg"));
+            csv.setIgnoreImageCase(true);
+            assertNull(csv.validateCSVFile());
+        } catch (IOException ioe) {
+            fail("IOException thrown: " + ioe.getMessage());
+        } catch (CSVException csve) {
+            fail("CSVException thrown: " + csve.getMessage());
+        }
+    }
 }
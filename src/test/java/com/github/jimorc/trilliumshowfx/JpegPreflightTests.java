@@ -0,0 +1,143 @@
+package com.github.jimorc.trilliumshowfx;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.imageio.ImageIO;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * JpegPreflightTests contains tests for the JpegPreflight class.
+ */
+public class JpegPreflightTests {
+    private static final int WIDTH = 40;
+    private static final int HEIGHT = 30;
+
+    private static byte[] createJpeg() throws IOException {
+        Path file = Files.createTempFile("preflight", ".jpg");
+        try {
+            ImageIO.write(new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB), "jpg", file.toFile());
+            return Files.readAllBytes(file);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void testCheck(@TempDir Path tempDir) {
+        final int numResults = 6;
+        final int three = 3;
+        final int four = 4;
+        final int five = 5;
+        try {
+            byte[] jpeg = createJpeg();
+            Files.write(tempDir.resolve("good.jpg"), jpeg);
+            // cut off in the image data, so the frame header can still be read.
+            Files.write(tempDir.resolve("truncated.jpg"), Arrays.copyOf(jpeg, jpeg.length - jpeg.length / four));
+            Files.write(tempDir.resolve("header.jpg"), Arrays.copyOf(jpeg, four));
+            Files.writeString(tempDir.resolve("text.jpg"), "This is not an image");
+            // an SOI marker followed directly by the start of scan marker.
+            Files.write(tempDir.resolve("corrupt.jpg"), new byte[] {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF,
+                (byte) 0xDA, 0, 2, (byte) 0xFF, (byte) 0xD9});
+            List<String> names = List.of("good.jpg", "truncated.jpg", "header.jpg", "text.jpg", "corrupt.jpg",
+                "missing.jpg", "good.jpg");
+            List<JpegPreflight.Result> results = JpegPreflight.check(tempDir, names, 2);
+            assertEquals(numResults, results.size());
+            assertEquals(JpegPreflight.Status.OK, results.get(0).getStatus());
+            assertEquals(WIDTH, results.get(0).getWidth());
+            assertEquals(HEIGHT, results.get(0).getHeight());
+            assertEquals(JpegPreflight.Status.TRUNCATED, results.get(1).getStatus());
+            assertEquals(WIDTH, results.get(1).getWidth());
+            assertEquals(JpegPreflight.Status.TRUNCATED, results.get(2).getStatus());
+            assertEquals(JpegPreflight.Status.NOT_JPEG, results.get(three).getStatus());
+            assertEquals(JpegPreflight.Status.CORRUPT, results.get(four).getStatus());
+            assertEquals(JpegPreflight.Status.MISSING, results.get(five).getStatus());
+            assertEquals("good.jpg: OK 40x30", results.get(0).toString());
+        } catch (IOException ioe) {
+            fail("IOException thrown: " + ioe.getMessage());
+        } catch (CSVException csve) {
+            fail("CSVException thrown: " + csve.getMessage());
+        }
+    }
+
+    @Test
+    void testPaddedAfterEndOfImage(@TempDir Path tempDir) {
+        final int padding = 10;
+        try {
+            byte[] jpeg = createJpeg();
+            Files.write(tempDir.resolve("padded.jpg"), Arrays.copyOf(jpeg, jpeg.length + padding));
+            JpegPreflight.Result result = JpegPreflight.inspect(tempDir.resolve("padded.jpg"), "padded.jpg");
+            assertTrue(result.isOk());
+        } catch (IOException ioe) {
+            fail("IOException thrown: " + ioe.getMessage());
+        }
+    }
+
+    @Test
+    void testCheckMany(@TempDir Path tempDir) {
+        final int numImages = 100;
+        try {
+            byte[] jpeg = createJpeg();
+            List<String> names = new ArrayList<>();
+            for (int i = 0; i < numImages; i++) {
+                String name = "image" + i + ".jpg";
+                Files.write(tempDir.resolve(name), jpeg);
+                names.add(name);
+            }
+            List<JpegPreflight.Result> results = JpegPreflight.check(tempDir, names,
+                JpegPreflight.DEFAULT_CONCURRENCY);
+            assertEquals(numImages, results.size());
+            assertTrue(results.stream().allMatch(JpegPreflight.Result::isOk));
+        } catch (IOException ioe) {
+            fail("IOException thrown: " + ioe.getMessage());
+        } catch (CSVException csve) {
+            fail("CSVException thrown: " + csve.getMessage());
+        }
+    }
+
+    @Test
+    void testCancel(@TempDir Path tempDir) {
+        final int numImages = 100;
+        final int cancelAfter = 10;
+        AtomicLong progress = new AtomicLong();
+        ProgressMonitor monitor = new ProgressMonitor() {
+            @Override
+            public void progress(long done, long total) {
+                progress.accumulateAndGet(done, Math::max);
+                assertEquals(numImages, total);
+            }
+
+            @Override
+            public boolean isCancelled() {
+                return progress.get() >= cancelAfter;
+            }
+        };
+        try {
+            byte[] jpeg = createJpeg();
+            List<String> names = new ArrayList<>();
+            for (int i = 0; i < numImages; i++) {
+                String name = "image" + i + ".jpg";
+                Files.write(tempDir.resolve(name), jpeg);
+                names.add(name);
+            }
+            List<JpegPreflight.Result> results = JpegPreflight.check(tempDir, names, 1, monitor);
+            // once cancelled, the remaining files are counted but not read.
+            assertEquals(cancelAfter, results.size());
+            assertEquals(numImages, progress.get());
+        } catch (IOException ioe) {
+            fail("IOException thrown: " + ioe.getMessage());
+        } catch (CSVException csve) {
+            fail("CSVException thrown: " + csve.getMessage());
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.github.jimorc.trilliumshowfx;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * NameSorterTests contains tests for the NameSorter class.
+ */
+public class NameSorterTests {
+    private final NameSorter sorter = new NameSorter(Locale.ENGLISH);
+
+    @Test
+    void testAccentedFullNames() {
+        List<String> names = new ArrayList<>(List.of("Frank Hall", "émile Zola", "Edward Bell", "Zoë Adams"));
+        sorter.sort(names, SortOrder.AlphabeticalByFullName, _ -> null);
+        assertEquals(List.of("Edward Bell", "émile Zola", "Frank Hall", "Zoë Adams"), names);
+        sorter.sort(names, SortOrder.AlphabeticalByFullNameReverse, _ -> null);
+        assertEquals(List.of("Zoë Adams", "Frank Hall", "émile Zola", "Edward Bell"), names);
+    }
+
+    @Test
+    void testLastNames() {
+        Map<String, String> lastNames = Map.of("Jean de la Fontaine", "de la Fontaine",
+            "Ana Ávila", "Ávila", "Bob Brown", "Brown");
+        List<String> names = new ArrayList<>(List.of("Bob Brown", "Jean de la Fontaine", "Ana Ávila", "Amy Brown"));
+        sorter.sort(names, SortOrder.AlphabeticalByLastNameThenFirstName, lastNames::get);
+        // Amy Brown has no last name entry, so the last word of her full name is used.
+        assertEquals(List.of("Ana Ávila", "Amy Brown", "Bob Brown", "Jean de la Fontaine"), names);
+        sorter.sort(names, SortOrder.AlphabeticalByLastNameThenFirstNameReverse, lastNames::get);
+        assertEquals(List.of("Jean de la Fontaine", "Bob Brown", "Amy Brown", "Ana Ávila"), names);
+        sorter.sort(names, SortOrder.AsIs, lastNames::get);
+        assertEquals(List.of("Jean de la Fontaine", "Bob Brown", "Amy Brown", "Ana Ávila"), names);
+    }
+
+    @Test
+    void testParallelSort() {
+        final int numNames = NameSorter.PARALLEL_THRESHOLD * 2;
+        final int step = 7919;
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < numNames; i++) {
+            names.add(String.format("Person%06d Name", (i * step) % numNames));
+        }
+        sorter.sort(names, SortOrder.AlphabeticalByLastNameThenFirstName, _ -> null);
+        for (int i = 1; i < numNames; i++) {
+            assertTrue(names.get(i - 1).compareTo(names.get(i)) < 0);
+        }
+    }
+}
@@ -1,8 +1,17 @@
 package com.github.jimorc.trilliumshowfx;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
 
 /**
  * OutputCSVTests contains tests for the OutputCSV class.
@@ -26,4 +35,119 @@ public class OutputCSVTests {
         c = csv.toString();
         assertEquals(header + "\n" + header, c);
     }
+
+    private static OutputCSV createCSV(int numBeans) {
+        OutputCSV csv = new OutputCSV();
+        for (int i = 1; i <= numBeans; i++) {
+            FlexiBean bean = new FlexiBean();
+            bean.setFilename("image" + i + ".jpg");
+            csv.appendBean(bean);
+        }
+        return csv;
+    }
+
+    private static String filenames(OutputCSV csv) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 1; i < csv.length(); i++) {
+            sb.append(csv.getBeans().getBeans().get(i).getFilename().replace("image", "").replace(".jpg", ""));
+        }
+        return sb.toString();
+    }
+
+    @Test
+    void testReplaceBean() {
+        final int numBeans = 3;
+        OutputCSV csv = createCSV(numBeans);
+        FlexiBean old = csv.getBeans().getBeans().get(2);
+        FlexiBean bean = new FlexiBean();
+        bean.setFilename("image9.jpg");
+        assertEquals(2, csv.replaceBean(old, bean));
+        assertEquals("193", filenames(csv));
+        assertEquals(-1, csv.replaceBean(old, bean));
+        assertEquals(numBeans + 1, csv.length());
+    }
+
+    @Test
+    void testEditRanges() {
+        final int numBeans = 6;
+        final int three = 3;
+        final int four = 4;
+        OutputCSV csv = createCSV(numBeans);
+        // move rows 2 and 3 after row 5; with the range removed, row 5 becomes row 3.
+        csv.moveBeans(2, three, four);
+        assertEquals("145236", filenames(csv));
+        csv.moveBeans(four, numBeans, 1);
+        assertEquals("236145", filenames(csv));
+        csv.deleteBeans(2, four);
+        assertEquals("245", filenames(csv));
+        FlexiBean bean = new FlexiBean();
+        bean.setFilename("image9.jpg");
+        csv.insertBeans(1, List.of(bean, bean));
+        assertEquals("99245", filenames(csv));
+        assertEquals(FlexiBean.HEADER_BEAN, csv.getBeans().getBeans().get(0));
+    }
+
+    @Test
+    void testEditRangesInvalid() {
+        final int numBeans = 3;
+        OutputCSV csv = createCSV(numBeans);
+        assertThrows(ArrayIndexOutOfBoundsException.class, () -> csv.deleteBeans(2, 1));
+        assertThrows(ArrayIndexOutOfBoundsException.class, () -> csv.deleteBeans(1, numBeans + 1));
+        assertThrows(ArrayIndexOutOfBoundsException.class, () -> csv.moveBeans(1, 2, numBeans));
+        assertThrows(ArrayIndexOutOfBoundsException.class, () -> csv.insertBeans(-1, List.of()));
+        assertEquals("123", filenames(csv));
+    }
+
+    @Test
+    void testManyEdits() {
+        final int numBeans = 2_000;
+        final int numEdits = 200;
+        final int rangeSize = 5;
+        OutputCSV csv = createCSV(numBeans);
+        for (int i = 1; i <= numEdits; i++) {
+            csv.moveBeans(i, i + rangeSize - 1, numBeans - rangeSize - i);
+            csv.deleteBeans(i, i + rangeSize - 1);
+            List<FlexiBean> inserted = new ArrayList<>();
+            for (int j = 0; j < rangeSize; j++) {
+                inserted.add(new FlexiBean());
+            }
+            csv.insertBeans(1, inserted);
+        }
+        assertEquals(numBeans + 1, csv.length());
+        assertEquals(FlexiBean.HEADER_BEAN, csv.getBeans().getBeans().get(0));
+    }
+
+    @Test
+    void testOrderByScores(@TempDir Path tempDir) {
+        final int numMatched = 4;
+        // a start title, John's title and two images, Jane's title and two images, Bob's title and
+        // an image with no score, and an end title.
+        String[][] rows = {{"image0.jpg", null}, {"image1.jpg", null}, {"image2.jpg", "John Doe"},
+            {"image3.jpg", "John Doe"}, {"image4.jpg", null}, {"image5.jpg", "Jane Smith"},
+            {"image6.jpg", "Jane Smith"}, {"image7.jpg", null}, {"image8.jpg", "Bob Brown"},
+            {"image9.jpg", null}};
+        OutputCSV csv = new OutputCSV();
+        for (String[] row : rows) {
+            FlexiBean bean = new FlexiBean();
+            bean.setFilename(row[0]);
+            bean.setFullName(row[1]);
+            csv.appendBean(bean);
+        }
+        try {
+            Path scoreFile = tempDir.resolve("scores.csv");
+            Files.writeString(scoreFile, "Filename,Score\nimage2.jpg,5\nimage3.jpg,8\nimage5.jpg,9\nimage6.jpg,4\n");
+            ScoreImport scores = csv.orderByScores(scoreFile.toFile(), ScoreOrder.ScoreDescending);
+            assertEquals(numMatched, scores.getMatchedCount());
+            // each person's title stays with their images; the start and end titles stay in place.
+            assertEquals("0456132789", filenames(csv));
+            assertEquals(FlexiBean.HEADER_BEAN, csv.getBeans().getBeans().get(0));
+            assertTrue(scores.getReport().contains("image8.jpg"));
+        } catch (IOException ioe) {
+            fail("IOException thrown: " + ioe.getMessage());
+        } catch (CSVException csve) {
+            fail("CSVException thrown: " + csve.getMessage());
+        } catch (BadHeaderException bhe) {
+            fail("BadHeaderException thrown: " + bhe.getMessage());
+        }
+    }
 }
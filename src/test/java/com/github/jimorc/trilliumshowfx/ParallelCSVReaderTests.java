@@ -0,0 +1,98 @@
+package com.github.jimorc.trilliumshowfx;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * ParallelCSVReaderTests contains tests for the ParallelCSVReader class.
+ */
+public class ParallelCSVReaderTests {
+    @Test
+    void testParallelMatchesSequential() {
+        final int numRows = 5000;
+        final int numChunks = 13;
+        Path path = null;
+        try {
+            path = Files.createTempFile("parallel", ".csv");
+            StringBuilder sb = new StringBuilder("Filename,Title,Full Name,First Name,Last Name\r\n");
+            for (int i = 0; i < numRows; i++) {
+                sb.append("image").append(i).append(".jpg,");
+                if (i % 3 == 0) {
+                    sb.append("\"Title, \"\"").append(i).append("\"\"\nsecond line\",");
+                } else {
+                    sb.append("Title ").append(i).append(',');
+                }
+                sb.append("Person ").append(i % 50).append(",Person,").append(i % 50).append("\r\n");
+            }
+            Files.writeString(path, sb.toString());
+            File f = path.toFile();
+            List<FlexiBean> expected = MappedCSVReader.read(f).getBeans();
+            List<FlexiBean> actual = ParallelCSVReader.read(f, numChunks).getBeans();
+            assertEquals(numRows, expected.size());
+            assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < numRows; i++) {
+                assertEquals(expected.get(i).toString(), actual.get(i).toString());
+            }
+            assertEquals("Title, \"0\"\nsecond line", actual.get(0).getTitle());
+        } catch (IOException ioe) {
+            fail("IOException thrown: " + ioe.getMessage());
+        } catch (CSVException csve) {
+            fail("CSVException thrown: " + csve.getMessage());
+        } catch (BadHeaderException bhe) {
+            fail("BadHeaderException thrown: " + bhe.getMessage());
+        } finally {
+            if (path != null) {
+                path.toFile().delete();
+            }
+        }
+    }
+
+    @Test
+    void testParallelInvalidLine() {
+        final int numChunks = 4;
+        File f = new File("testing/data/invalidline.csv");
+        assertThrows(CSVException.class, () -> ParallelCSVReader.read(f, numChunks));
+    }
+
+    @Test
+    void testParallelRecordNumber() {
+        final int numRows = 5000;
+        final int badRow = 3210;
+        final int numChunks = 13;
+        Path path = null;
+        try {
+            path = Files.createTempFile("parallel", ".csv");
+            StringBuilder sb = new StringBuilder("Filename,Title,Full Name,First Name,Last Name\n");
+            for (int i = 0; i < numRows; i++) {
+                if (i == badRow) {
+                    sb.append("image").append(i).append(".jpg,Title\n");
+                } else {
+                    sb.append("image").append(i).append(".jpg,Title,Person ").append(i).append(",Person,")
+                        .append(i).append('\n');
+                }
+            }
+            Files.writeString(path, sb.toString());
+            File f = path.toFile();
+            CSVException sequential = assertThrows(CSVException.class, () -> MappedCSVReader.read(f));
+            CSVException parallel = assertThrows(CSVException.class, () -> ParallelCSVReader.read(f, numChunks));
+            // the header is record 1.
+            assertTrue(sequential.getMessage().contains("record " + (badRow + 2) + "."));
+            assertEquals(sequential.getMessage(), parallel.getMessage());
+        } catch (IOException ioe) {
+            fail("IOException thrown: " + ioe.getMessage());
+        } finally {
+            if (path != null) {
+                path.toFile().delete();
+            }
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.github.jimorc.trilliumshowfx;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 
 /**
  * PersonTests contains tests for the Person class.
@@ -16,4 +17,14 @@ public class PersonTests {
         assertEquals("John Doe", p.getFullName());
         assertEquals("John D.", p.getFirstPlusInitial());
     }
+
+    @Test
+    void testEquals() {
+        Person p = new Person("John", "Doe");
+        assertEquals(new Person("John", "Doe"), p);
+        assertEquals(new Person("John", "Doe").hashCode(), p.hashCode());
+        assertNotEquals(new Person("Jane", "Doe"), p);
+        assertNotEquals(new Person("John", null), p);
+        assertEquals(new Person("John", null), new Person("John", null));
+    }
 }
@@ -0,0 +1,109 @@
+package com.github.jimorc.trilliumshowfx;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * ScoreImportTests contains tests for the ScoreImport class.
+ */
+public class ScoreImportTests {
+    private static List<FlexiBean> createBeans() {
+        List<FlexiBean> beans = new ArrayList<>();
+        String[][] rows = {{"start.jpg", null}, {"a.jpg", "John Doe"}, {"b.jpg", "Jane Smith"},
+            {"c.jpg", "John Doe"}, {"d.jpg", "Bob Brown"}, {"e.jpg", "Jane Smith"}};
+        for (String[] row : rows) {
+            FlexiBean bean = new FlexiBean();
+            bean.setFilename(row[0]);
+            bean.setFullName(row[1]);
+            beans.add(bean);
+        }
+        return beans;
+    }
+
+    @Test
+    void testScoreDescending(@TempDir Path tempDir) {
+        final int four = 4;
+        final int five = 5;
+        try {
+            Path scoreFile = tempDir.resolve("scores.csv");
+            Files.writeString(scoreFile, "Filename,Score\n"
+                + "a.jpg,7.5\n"
+                + "b.jpg,9\n"
+                + "x.jpg,8\n"
+                + "c.jpg,7.5\n"
+                + "e.jpg,12\n");
+            List<FlexiBean> beans = createBeans();
+            ScoreImport scores = ScoreImport.join(scoreFile.toFile(), beans);
+            assertEquals(four, scores.getMatchedCount());
+            assertEquals(List.of("record 4: x.jpg"), scores.getUnmatchedScoreRows());
+            assertArrayEquals(new int[] {four}, scores.getUnscoredRows(beans));
+            assertEquals(9.0, scores.getScore(2));
+            assertTrue(Double.isNaN(scores.getScore(0)));
+            assertArrayEquals(new int[] {five, 2, 1, 3, 0, four}, scores.order(ScoreOrder.ScoreDescending));
+            assertTrue(scores.getReport().contains("x.jpg"));
+            assertTrue(scores.getReport().contains("1 rows of the show have no score:\n   row 5: d.jpg"));
+        } catch (IOException ioe) {
+            fail("IOException thrown: " + ioe.getMessage());
+        } catch (CSVException csve) {
+            fail("CSVException thrown: " + csve.getMessage());
+        } catch (BadHeaderException bhe) {
+            fail("BadHeaderException thrown: " + bhe.getMessage());
+        }
+    }
+
+    @Test
+    void testAwardTier(@TempDir Path tempDir) {
+        final int three = 3;
+        final int four = 4;
+        final int five = 5;
+        try {
+            Path scoreFile = tempDir.resolve("scores.csv");
+            Files.writeString(scoreFile, "FILENAME,award,Score\n"
+                + "a.jpg,Merit,6\n"
+                + "b.jpg,Gold,9\n"
+                + "c.jpg,Merit,8\n"
+                + "d.jpg,,10\n"
+                + "e.jpg,Gold,9.5\n");
+            ScoreImport scores = ScoreImport.join(scoreFile.toFile(), createBeans());
+            assertEquals("Gold", scores.getAward(2));
+            assertNull(scores.getAward(four));
+            // Gold's best score is higher than Merit's; rows without an award are last.
+            assertArrayEquals(new int[] {five, 2, three, 1, four, 0}, scores.order(ScoreOrder.AwardTier));
+        } catch (IOException ioe) {
+            fail("IOException thrown: " + ioe.getMessage());
+        } catch (CSVException csve) {
+            fail("CSVException thrown: " + csve.getMessage());
+        } catch (BadHeaderException bhe) {
+            fail("BadHeaderException thrown: " + bhe.getMessage());
+        }
+    }
+
+    @Test
+    void testInvalidScoreFiles(@TempDir Path tempDir) {
+        try {
+            Path noKey = tempDir.resolve("nokey.csv");
+            Files.writeString(noKey, "Title,Score\nA,1\n");
+            assertThrows(CSVException.class, () -> ScoreImport.join(noKey.toFile(), createBeans()));
+            Path badScore = tempDir.resolve("badscore.csv");
+            Files.writeString(badScore, "Filename,Score\na.jpg,high\n");
+            assertThrows(CSVException.class, () -> ScoreImport.join(badScore.toFile(), createBeans()));
+            Path empty = tempDir.resolve("empty.csv");
+            Files.writeString(empty, "");
+            assertThrows(BadHeaderException.class, () -> ScoreImport.join(empty.toFile(), createBeans()));
+        } catch (IOException ioe) {
+            fail("IOException thrown: " + ioe.getMessage());
+        }
+    }
+}
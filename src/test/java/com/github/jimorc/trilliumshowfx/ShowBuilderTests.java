@@ -0,0 +1,149 @@
+package com.github.jimorc.trilliumshowfx;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * ShowBuilderTests contains tests for the ShowBuilder class.
+ */
+public class ShowBuilderTests {
+    private static InputCSV createCSV(Path tempDir) throws IOException, CSVException {
+        Path path = tempDir.resolve("entries.csv");
+        Files.writeString(path, "Filename,Title,Full Name,First Name,Last Name,Category\n"
+            + "image1.jpg,Image One,John Doe,John,Doe,Nature\n"
+            + "image2.jpg,Image Two,Jane Smith,Jane,Smith,Open\n"
+            + "image3.jpg,Image Three,Bob Brown,Bob,Brown,Nature\n"
+            + "image4.jpg,Image Four,Jane Smith,Jane,Smith,Nature\n"
+            + "image5.jpg,Image Five,John Doe,John,Doe,\n");
+        return new InputCSV(path.toFile());
+    }
+
+    // Returns the filenames in a show, starting with the header row.
+    private static List<String> filenames(OutputCSV show) {
+        List<String> names = new ArrayList<>();
+        for (FlexiBean bean : show.getBeans().getBeans()) {
+            names.add(bean.getFilename());
+        }
+        return names;
+    }
+
+    @Test
+    void testBuildShow(@TempDir Path tempDir) {
+        List<String> rendered = new ArrayList<>();
+        try {
+            InputCSV csv = createCSV(tempDir);
+            TitleAndSortData data = new TitleAndSortData("Start", "End", SortOrder.AlphabeticalByFullName);
+            ShowBuilder builder = new ShowBuilder(csv, data,
+                (caption, fileName) -> rendered.add(caption + "|" + Path.of(fileName).getFileName()),
+                (show, fileName) -> fail("buildShow should not write the show"));
+            OutputCSV show = builder.buildShow();
+            assertEquals(List.of("Filename", "start.jpg", "Bob_Brown.jpg", "image3.jpg", "Jane_Smith.jpg", "image2.jpg",
+                "image4.jpg", "John_Doe.jpg", "image1.jpg", "image5.jpg", "end.jpg"), filenames(show));
+            assertEquals(List.of("Start|start.jpg", "Bob Brown|Bob_Brown.jpg", "Jane Smith|Jane_Smith.jpg",
+                "John Doe|John_Doe.jpg", "End|end.jpg"), rendered);
+        } catch (IOException ioe) {
+            fail("IOException thrown: " + ioe.getMessage());
+        } catch (CSVException csve) {
+            fail("CSVException thrown: " + csve.getMessage());
+        }
+    }
+
+    @Test
+    void testBuildShows(@TempDir Path tempDir) {
+        final int numShows = 3;
+        final int numTitles = 7;
+        List<String> rendered = new ArrayList<>();
+        Map<String, List<String>> written = new ConcurrentHashMap<>();
+        try {
+            InputCSV csv = createCSV(tempDir);
+            TitleAndSortData data = new TitleAndSortData("Start", "End", SortOrder.AlphabeticalByFullName);
+            ShowBuilder builder = new ShowBuilder(csv, data,
+                (caption, fileName) -> rendered.add(caption + "|" + Path.of(fileName).getFileName()),
+                (show, fileName) -> written.put(Path.of(fileName).getFileName().toString(), filenames(show)));
+            Map<String, String> files = builder.buildShows("category");
+            assertEquals(List.of("Nature", "Open", ShowBuilder.NO_CATEGORY), new ArrayList<>(files.keySet()));
+            assertEquals(tempDir.resolve("slideshow-Nature.xls").toString(), files.get("Nature"));
+            assertEquals(numShows, written.size());
+            assertEquals(List.of("Filename", "start-Nature.jpg", "Bob_Brown.jpg", "image3.jpg", "Jane_Smith.jpg",
+                "image4.jpg", "John_Doe.jpg", "image1.jpg", "end.jpg"), written.get("slideshow-Nature.xls"));
+            assertEquals(List.of("Filename", "start-Open.jpg", "Jane_Smith.jpg", "image2.jpg", "end.jpg"),
+                written.get("slideshow-Open.xls"));
+            assertEquals(List.of("Filename", "start-Uncategorized.jpg", "John_Doe.jpg", "image5.jpg", "end.jpg"),
+                written.get("slideshow-Uncategorized.xls"));
+            // person and end titles used by several shows are rendered once.
+            assertEquals(numTitles, rendered.size());
+            assertEquals("Start\nOpen|start-Open.jpg", rendered.get(1));
+            assertEquals(1, rendered.stream().filter(r -> r.endsWith("|Jane_Smith.jpg")).count());
+        } catch (IOException ioe) {
+            fail("IOException thrown: " + ioe.getMessage());
+        } catch (CSVException csve) {
+            fail("CSVException thrown: " + csve.getMessage());
+        }
+    }
+
+    @Test
+    void testBuildShowsFileNames(@TempDir Path tempDir) {
+        final int numShows = 5;
+        List<String> rendered = new ArrayList<>();
+        Map<String, List<String>> written = new ConcurrentHashMap<>();
+        try {
+            Path path = tempDir.resolve("entries.csv");
+            Files.writeString(path, "Filename,Title,Full Name,First Name,Last Name,Category\n"
+                + "image1.jpg,Image One,John Doe,John,Doe,A/B\n"
+                + "image2.jpg,Image Two,Jane Smith,Jane,Smith,A B\n"
+                + "image3.jpg,Image Three,Bob Brown,Bob,Brown,Uncategorized\n"
+                + "image4.jpg,Image Four,Jane Smith,Jane,Smith,\n"
+                + "image5.jpg,Image Five,John Doe,John,Doe,a_b\n");
+            InputCSV csv = new InputCSV(path.toFile());
+            TitleAndSortData data = new TitleAndSortData("Start", "End", SortOrder.AsIs);
+            ShowBuilder builder = new ShowBuilder(csv, data,
+                (caption, fileName) -> rendered.add(caption + "|" + Path.of(fileName).getFileName()),
+                (show, fileName) -> written.put(Path.of(fileName).getFileName().toString(), filenames(show)));
+            Map<String, String> files = builder.buildShows("Category");
+            // categories whose file names would collide, ignoring case, each get their own show.
+            assertEquals(numShows, written.size());
+            assertEquals(tempDir.resolve("slideshow-A_B-2.xls").toString(), files.get("A B"));
+            assertEquals(tempDir.resolve("slideshow-a_b-3.xls").toString(), files.get("a_b"));
+            assertEquals(List.of("Filename", "start-Uncategorized.jpg", "Bob_Brown.jpg", "image3.jpg", "end.jpg"),
+                written.get("slideshow-Uncategorized.xls"));
+            assertEquals(List.of("Filename", "start-Uncategorized-2.jpg", "Jane_Smith.jpg", "image4.jpg", "end.jpg"),
+                written.get("slideshow-Uncategorized-2.xls"));
+            assertEquals("Start\nA/B|start-A_B.jpg", rendered.get(0));
+            assertEquals("Start\nA B|start-A_B-2.jpg", rendered.get(1));
+            assertEquals("Start\nUncategorized|start-Uncategorized-2.jpg", rendered.get(numShows - 2));
+        } catch (IOException ioe) {
+            fail("IOException thrown: " + ioe.getMessage());
+        } catch (CSVException csve) {
+            fail("CSVException thrown: " + csve.getMessage());
+        }
+    }
+
+    @Test
+    void testBuildShowsWriteError(@TempDir Path tempDir) {
+        try {
+            InputCSV csv = createCSV(tempDir);
+            TitleAndSortData data = new TitleAndSortData("Start", "End", SortOrder.AsIs);
+            ShowBuilder builder = new ShowBuilder(csv, data, (caption, fileName) -> { },
+                (show, fileName) -> {
+                    throw new IOException("disk full");
+                });
+            IOException ioe = assertThrows(IOException.class, () -> builder.buildShows("Category"));
+            assertEquals("disk full", ioe.getMessage());
+        } catch (IOException ioe) {
+            fail("IOException thrown: " + ioe.getMessage());
+        } catch (CSVException csve) {
+            fail("CSVException thrown: " + csve.getMessage());
+        }
+    }
+}
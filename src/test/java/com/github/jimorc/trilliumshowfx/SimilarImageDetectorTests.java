@@ -0,0 +1,168 @@
+package com.github.jimorc.trilliumshowfx;
+
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import javax.imageio.ImageIO;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * SimilarImageDetectorTests contains tests for the SimilarImageDetector class.
+ */
+public class SimilarImageDetectorTests {
+    private static final int WIDTH = 640;
+    private static final int HEIGHT = 480;
+
+    // Draws a picture with shapes that give the perceptual hash something to find.
+    private static BufferedImage createPicture(boolean mirrored) {
+        final int quarter = 4;
+        final int third = 3;
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setPaint(new GradientPaint(0, 0, Color.BLACK, WIDTH, HEIGHT, Color.WHITE));
+        g.fillRect(0, 0, WIDTH, HEIGHT);
+        g.setColor(Color.RED);
+        g.fillOval(WIDTH / quarter, HEIGHT / quarter, WIDTH / third, HEIGHT / third);
+        g.setColor(Color.BLUE);
+        g.fillRect(WIDTH / 2, 0, WIDTH / quarter, HEIGHT / 2);
+        g.dispose();
+        if (!mirrored) {
+            return image;
+        }
+        BufferedImage mirror = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+        Graphics2D m = mirror.createGraphics();
+        m.drawImage(image, WIDTH, 0, -WIDTH, HEIGHT, null);
+        m.dispose();
+        return mirror;
+    }
+
+    private static BufferedImage resize(BufferedImage image, int width, int height) {
+        BufferedImage resized = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = resized.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.drawImage(image, 0, 0, width, height, null);
+        g.dispose();
+        return resized;
+    }
+
+    @Test
+    void testDetect(@TempDir Path tempDir) {
+        final int smallWidth = 200;
+        final int smallHeight = 150;
+        Path earlier = tempDir.resolve("earlier");
+        Path show = tempDir.resolve("show");
+        Path cacheFile = tempDir.resolve("hashes.bin");
+        try {
+            Files.createDirectories(earlier);
+            Files.createDirectories(show);
+            BufferedImage picture = createPicture(false);
+            ImageIO.write(picture, "jpg", earlier.resolve("original.jpg").toFile());
+            ImageIO.write(picture, "jpg", show.resolve("image1.jpg").toFile());
+            ImageIO.write(resize(picture, smallWidth, smallHeight), "jpg", show.resolve("image2.jpg").toFile());
+            ImageIO.write(createPicture(true), "jpg", show.resolve("image3.jpg").toFile());
+            Files.copy(show.resolve("image1.jpg"), show.resolve("copy.jpg"));
+            Files.writeString(show.resolve("text.jpg"), "This is not an image");
+            // hash the contents first, as InputCSV does, so that exact copies are not reported.
+            ImageHashCache earlierCache = new ImageHashCache(cacheFile);
+            new DuplicateImageDetector(earlierCache).detect(earlier, List.of("original.jpg"));
+            new SimilarImageDetector(earlierCache).detect(earlier, List.of("original.jpg"));
+
+            ImageHashCache cache = new ImageHashCache(cacheFile);
+            new DuplicateImageDetector(cache).detect(show, List.of("image1.jpg", "copy.jpg"));
+            List<ValidationReport.SimilarImages> similar = new SimilarImageDetector(cache).detect(show,
+                List.of("image1.jpg", "image2.jpg", "image3.jpg", "copy.jpg", "text.jpg"));
+            String originalPath = earlier.resolve("original.jpg").toAbsolutePath().toString();
+            for (ValidationReport.SimilarImages s : similar) {
+                assertTrue(s.getDistance() <= SimilarImageDetector.MAX_DISTANCE);
+                assertTrue(!s.getFileName().equals("image3.jpg") && !s.getOtherImage().equals("image3.jpg"),
+                    "Mirrored image reported: " + s);
+            }
+            assertTrue(contains(similar, "image1.jpg", "image2.jpg"));
+            assertTrue(contains(similar, "image2.jpg", "copy.jpg"));
+            assertTrue(contains(similar, "image2.jpg", originalPath));
+            assertTrue(!contains(similar, "image1.jpg", "copy.jpg"));
+            assertTrue(!contains(similar, "image1.jpg", originalPath));
+        } catch (IOException ioe) {
+            fail("IOException thrown: " + ioe.getMessage());
+        } catch (CSVException csve) {
+            fail("CSVException thrown: " + csve.getMessage());
+        }
+    }
+
+    @Test
+    void testDeletedEarlierImage(@TempDir Path tempDir) {
+        final int smallWidth = 200;
+        final int smallHeight = 150;
+        final long oneSecond = 1000;
+        Path earlier = tempDir.resolve("earlier");
+        Path show = tempDir.resolve("show");
+        Path cacheFile = tempDir.resolve("hashes.bin");
+        try {
+            Files.createDirectories(earlier);
+            Files.createDirectories(show);
+            BufferedImage picture = createPicture(false);
+            ImageIO.write(picture, "jpg", earlier.resolve("original.jpg").toFile());
+            Path image1 = show.resolve("image1.jpg");
+            ImageIO.write(resize(picture, smallWidth, smallHeight), "jpg", image1.toFile());
+            new SimilarImageDetector(new ImageHashCache(cacheFile)).detect(earlier, List.of("original.jpg"));
+            Files.delete(earlier.resolve("original.jpg"));
+
+            ImageHashCache cache = new ImageHashCache(cacheFile);
+            assertTrue(new SimilarImageDetector(cache).detect(show, List.of("image1.jpg")).isEmpty());
+            // building the tree removed the deleted image from the saved cache.
+            long hash = cache.perceptualHash(image1);
+            String image1Path = image1.toAbsolutePath().toString();
+            assertEquals(List.of(image1Path), values(new ImageHashCache(cacheFile).similar(hash, 0)));
+            // the tree is kept, and no longer matches an image's old hash once the image changes.
+            FileTime modified = Files.getLastModifiedTime(image1);
+            ImageIO.write(createPicture(true), "jpg", image1.toFile());
+            Files.setLastModifiedTime(image1, FileTime.fromMillis(modified.toMillis() + oneSecond));
+            long mirroredHash = cache.perceptualHash(image1);
+            assertTrue(cache.similar(hash, 0).isEmpty());
+            assertEquals(List.of(image1Path), values(cache.similar(mirroredHash, 0)));
+        } catch (IOException ioe) {
+            fail("IOException thrown: " + ioe.getMessage());
+        } catch (CSVException csve) {
+            fail("CSVException thrown: " + csve.getMessage());
+        }
+    }
+
+    private static List<String> values(List<BKTree.Match<String>> matches) {
+        return matches.stream().map(BKTree.Match::getValue).toList();
+    }
+
+    private static boolean contains(List<ValidationReport.SimilarImages> similar, String fileName, String other) {
+        for (ValidationReport.SimilarImages s : similar) {
+            if (s.getFileName().equals(fileName) && s.getOtherImage().equals(other)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Test
+    void testDHash() {
+        final int smallWidth = 64;
+        final int smallHeight = 48;
+        final int maxDistance = 4;
+        BufferedImage picture = createPicture(false);
+        long hash = PerceptualHash.dHash(picture);
+        assertEquals(hash, PerceptualHash.dHash(picture));
+        assertTrue(BKTree.distance(hash, PerceptualHash.dHash(resize(picture, smallWidth, smallHeight)))
+            <= maxDistance);
+        assertTrue(BKTree.distance(hash, PerceptualHash.dHash(createPicture(true)))
+            > SimilarImageDetector.MAX_DISTANCE);
+    }
+}
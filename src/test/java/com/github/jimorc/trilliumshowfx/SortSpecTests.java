@@ -0,0 +1,88 @@
+package com.github.jimorc.trilliumshowfx;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * SortSpecTests contains tests for the SortSpec and MultiKeySorter classes.
+ */
+public class SortSpecTests {
+    private static FlexiBean bean(String first, String last, String title, String filename) {
+        FlexiBean bean = new FlexiBean();
+        bean.setFirstName(first);
+        bean.setLastName(last);
+        bean.setFullName(first + " " + last);
+        bean.setTitle(title);
+        bean.setFilename(filename);
+        return bean;
+    }
+
+    private static FlexiBeans createBeans() {
+        List<FlexiBean> beans = new ArrayList<>();
+        beans.add(bean("John", "Doe", "Sunset", "d1.jpg"));
+        beans.add(bean("Amy", "Brown", "Owl", "b2.jpg"));
+        beans.add(bean("John", "Doe", "Barn", "d3.jpg"));
+        beans.add(bean("Zed", "Adams", "Lake", "a1.jpg"));
+        beans.add(bean("Amy", "Brown", "Fox", "b1.jpg"));
+        beans.add(bean("John", "Doe", "Moon", "d2.jpg"));
+        return new FlexiBeans(beans);
+    }
+
+    private static List<String> filenames(FlexiBeans beans) {
+        List<String> names = new ArrayList<>();
+        for (FlexiBean bean : beans.getBeans()) {
+            names.add(bean.getFilename());
+        }
+        return names;
+    }
+
+    @Test
+    void testSortOrderEquivalent() {
+        for (SortOrder order : SortOrder.values()) {
+            FlexiBeans beans = createBeans();
+            List<String> expected = beans.getPersonGroups().getFullNames();
+            FlexiBeans.sortFullNames(expected, order, beans.getPersonGroups()::getLastName);
+            beans.sort(new SortSpec(order));
+            assertEquals(expected, beans.getSortedFullNames());
+            assertFalse(new SortSpec(order).sortsImages());
+        }
+    }
+
+    @Test
+    void testEntryCountThenName() {
+        FlexiBeans beans = createBeans();
+        beans.sort(new SortSpec().thenBy(SortField.EntryCount, true).thenBy(SortOrder.AlphabeticalByFullName));
+        assertEquals(List.of("John Doe", "Amy Brown", "Zed Adams"), beans.getSortedFullNames());
+        beans.sort(new SortSpec().thenBy(SortField.EntryCount, false));
+        assertEquals(List.of("Zed Adams", "Amy Brown", "John Doe"), beans.getSortedFullNames());
+        assertEquals(List.of("a1.jpg", "b2.jpg", "b1.jpg", "d1.jpg", "d3.jpg", "d2.jpg"), filenames(beans));
+    }
+
+    @Test
+    void testImageOrder() {
+        FlexiBeans beans = createBeans();
+        SortSpec spec = new SortSpec(SortOrder.AlphabeticalByLastNameThenFirstName).thenBy(SortField.Title, false);
+        assertTrue(spec.sortsImages());
+        beans.sort(spec);
+        assertEquals(List.of("a1.jpg", "b1.jpg", "b2.jpg", "d3.jpg", "d2.jpg", "d1.jpg"), filenames(beans));
+        beans.sort(new SortSpec().thenBy(SortField.Filename, true));
+        assertEquals(List.of("a1.jpg", "b2.jpg", "b1.jpg", "d3.jpg", "d2.jpg", "d1.jpg"), filenames(beans));
+        assertEquals(List.of("Zed Adams", "Amy Brown", "John Doe"), beans.getSortedFullNames());
+    }
+
+    @Test
+    void testGroupsUnchanged() {
+        FlexiBeans beans = createBeans();
+        PersonGroups groups = beans.getPersonGroups();
+        PersonGroups sorted = new SortSpec(SortOrder.AlphabeticalByFullNameReverse).sort(groups);
+        assertEquals(List.of("John Doe", "Amy Brown", "Zed Adams"), groups.getFullNames());
+        assertEquals(List.of("Zed Adams", "John Doe", "Amy Brown"), sorted.getFullNames());
+        assertSame(groups.getBeans("John Doe"), sorted.getBeans("John Doe"));
+    }
+}